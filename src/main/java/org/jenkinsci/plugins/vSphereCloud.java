@@ -8,6 +8,7 @@ import com.cloudbees.hudson.plugins.folder.AbstractFolderProperty;
 import com.cloudbees.hudson.plugins.folder.AbstractFolderPropertyDescriptor;
 import com.cloudbees.hudson.plugins.folder.Folder;
 import hudson.Extension;
+import hudson.Util;
 import hudson.model.*;
 import hudson.model.Descriptor.FormException;
 import hudson.slaves.Cloud;
@@ -38,7 +39,7 @@ import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Future;
@@ -64,7 +65,7 @@ public class vSphereCloud extends Cloud {
     private final int instanceCap;
     private final List<? extends vSphereCloudSlaveTemplate> templates;
 
-    /** When true, all API calls share one long-lived session via {@link VSphereConnectionPool}. */
+    /** When true, all API calls share a few long-lived sessions via {@link VSphereConnectionPool}. */
     private boolean useConnectionPool = false;
     /** Seconds between pool session health checks; 0 disables health checks. */
     private int poolHealthCheckIntervalSecs = 0;
@@ -72,8 +73,35 @@ public class vSphereCloud extends Cloud {
     private int sessionMaxAgeSecs = 0;
     /** Restart the pooled session after this many uses (0 = never restart based on uses). */
     private int sessionMaxUses = 0;
+    /** Log in a replacement this many seconds before a pooled session is restarted (0 = restart without overlap). */
+    private int sessionRotationLeadSecs = 0;
     /** Disconnect the pooled session after this many idle seconds (0 = keep alive indefinitely). */
     private int poolIdleTimeoutSecs = 0;
+    /** Keep at least this many pooled sessions logged in once the pool is in use (0 = grow on demand only). */
+    private int poolMinSessions = 0;
+    /** Log in at most this many pooled sessions at once (0 = a single shared session). */
+    private int poolMaxSessions = 0;
+
+    /** Start at most this many read-only vSphere API calls per second (0 = unlimited). */
+    private int readCallsPerSec = 0;
+    /** Start at most this many task-creating vSphere API calls per second (0 = unlimited). */
+    private int taskCallsPerSec = 0;
+    /** Have at most this many read-only vSphere API calls in progress at once (0 = unlimited). */
+    private int maxConcurrentReadCalls = 0;
+    /** Have at most this many task-creating vSphere API calls (and their tasks) in progress at once (0 = unlimited). */
+    private int maxConcurrentTaskCalls = 0;
+
+    /** Refuse vSphere calls once this many in a row failed to reach the vCenter (0 = never). */
+    private int circuitBreakerFailureThreshold = 0;
+    /** How long to refuse vSphere calls for once the circuit breaker has opened (0 = 60 seconds). */
+    private int circuitBreakerOpenSecs = 0;
+
+    /**
+     * Names or inventory paths of the datacenters, folders and clusters that this cloud's
+     * searches of the inventory are confined to, separated by commas or new lines.
+     * Null/blank means the whole inventory is searched.
+     */
+    private String inventoryRoots;
 
     /** When true, this cloud is considered to be undergoing vCenter maintenance; VM-state-changing operations block until this is turned off. */
     private boolean maintenanceMode = false;
@@ -97,6 +125,8 @@ public class vSphereCloud extends Cloud {
     private transient ConcurrentHashMap<String, String> currentOnline;
     private transient CloudProvisioningState templateState;
     private transient volatile VSphereConnectionPool connectionPool;
+    private transient volatile VSphereCallLimiter callLimiter;
+    private transient volatile VSphereCircuitBreaker circuitBreaker;
 
     private static final java.util.logging.Logger VSLOG = java.util.logging.Logger.getLogger("vsphere-cloud");
 
@@ -289,6 +319,16 @@ public class vSphereCloud extends Cloud {
         resetPool();
     }
 
+    public int getSessionRotationLeadSecs() {
+        return sessionRotationLeadSecs;
+    }
+
+    @DataBoundSetter
+    public void setSessionRotationLeadSecs(int sessionRotationLeadSecs) {
+        this.sessionRotationLeadSecs = sessionRotationLeadSecs;
+        resetPool();
+    }
+
     public int getPoolIdleTimeoutSecs() {
         return poolIdleTimeoutSecs;
     }
@@ -299,6 +339,96 @@ public class vSphereCloud extends Cloud {
         resetPool();
     }
 
+    public int getPoolMinSessions() {
+        return poolMinSessions;
+    }
+
+    @DataBoundSetter
+    public void setPoolMinSessions(int poolMinSessions) {
+        this.poolMinSessions = poolMinSessions;
+        resetPool();
+    }
+
+    public int getPoolMaxSessions() {
+        return poolMaxSessions;
+    }
+
+    @DataBoundSetter
+    public void setPoolMaxSessions(int poolMaxSessions) {
+        this.poolMaxSessions = poolMaxSessions;
+        resetPool();
+    }
+
+    public int getReadCallsPerSec() {
+        return readCallsPerSec;
+    }
+
+    @DataBoundSetter
+    public void setReadCallsPerSec(int readCallsPerSec) {
+        this.readCallsPerSec = readCallsPerSec;
+        resetCallLimiter();
+    }
+
+    public int getTaskCallsPerSec() {
+        return taskCallsPerSec;
+    }
+
+    @DataBoundSetter
+    public void setTaskCallsPerSec(int taskCallsPerSec) {
+        this.taskCallsPerSec = taskCallsPerSec;
+        resetCallLimiter();
+    }
+
+    public int getMaxConcurrentReadCalls() {
+        return maxConcurrentReadCalls;
+    }
+
+    @DataBoundSetter
+    public void setMaxConcurrentReadCalls(int maxConcurrentReadCalls) {
+        this.maxConcurrentReadCalls = maxConcurrentReadCalls;
+        resetCallLimiter();
+    }
+
+    public int getMaxConcurrentTaskCalls() {
+        return maxConcurrentTaskCalls;
+    }
+
+    @DataBoundSetter
+    public void setMaxConcurrentTaskCalls(int maxConcurrentTaskCalls) {
+        this.maxConcurrentTaskCalls = maxConcurrentTaskCalls;
+        resetCallLimiter();
+    }
+
+    public int getCircuitBreakerFailureThreshold() {
+        return circuitBreakerFailureThreshold;
+    }
+
+    @DataBoundSetter
+    public void setCircuitBreakerFailureThreshold(int circuitBreakerFailureThreshold) {
+        this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+        resetCircuitBreaker();
+    }
+
+    public int getCircuitBreakerOpenSecs() {
+        return circuitBreakerOpenSecs;
+    }
+
+    @DataBoundSetter
+    public void setCircuitBreakerOpenSecs(int circuitBreakerOpenSecs) {
+        this.circuitBreakerOpenSecs = circuitBreakerOpenSecs;
+        resetCircuitBreaker();
+    }
+
+    public String getInventoryRoots() {
+        return inventoryRoots;
+    }
+
+    @DataBoundSetter
+    public void setInventoryRoots(String inventoryRoots) {
+        this.inventoryRoots = Util.fixEmptyAndTrim(inventoryRoots);
+        resetPool();
+    }
+
     public boolean isMaintenanceMode() {
         return maintenanceMode;
     }
@@ -347,28 +477,140 @@ public class vSphereCloud extends Cloud {
         this.hostSelectionCandidates = VSphereHostSelection.parseAllowListOrNull(hostSelectionCandidatesCsv);
     }
 
-    /** Shuts down any running pool and clears the reference so it is recreated on next use. */
+    /**
+     * Lets go of this cloud's pool (shutting it down unless another cloud shares it) and
+     * clears the reference so it is looked up again on next use.
+     */
     private synchronized void resetPool() {
         if (connectionPool != null) {
-            connectionPool.shutdown();
+            connectionPool.detach(this);
             connectionPool = null;
         }
     }
 
-    /** Returns (lazily creating) the connection pool for this cloud instance. */
+    /**
+     * Drops this cloud's call limiter (and the pool built with it) so that both are
+     * recreated with the current limits on next use.
+     */
+    private synchronized void resetCallLimiter() {
+        callLimiter = null;
+        resetPool();
+    }
+
+    /**
+     * Returns (lazily creating) the limiter throttling this cloud's vSphere API calls, or
+     * null if no call limits are configured.
+     */
+    @CheckForNull
+    private synchronized VSphereCallLimiter getOrCreateCallLimiter() {
+        if (callLimiter == null) {
+            final VSphereCallLimiter limiter = new VSphereCallLimiter(
+                    readCallsPerSec, taskCallsPerSec, maxConcurrentReadCalls, maxConcurrentTaskCalls);
+            if (limiter.isUnlimited()) {
+                return null;
+            }
+            callLimiter = limiter;
+        }
+        return callLimiter;
+    }
+
+    /**
+     * @return the limiter currently throttling this cloud's vSphere API calls - that of its
+     *         connection pool if it uses one - or null if there is none.
+     */
+    @CheckForNull
+    public VSphereCallLimiter getCallLimiter() {
+        final VSphereConnectionPool pool = connectionPool;
+        if (useConnectionPool && pool != null && !pool.isShutDown()) {
+            return pool.getCallLimiter();
+        }
+        return callLimiter;
+    }
+
+    /**
+     * Drops this cloud's circuit breaker (and the pool built with it) so that both are
+     * recreated with the current settings on next use.
+     */
+    private synchronized void resetCircuitBreaker() {
+        circuitBreaker = null;
+        resetPool();
+    }
+
+    /**
+     * Returns (lazily creating) the circuit breaker guarding this cloud's vSphere API calls,
+     * or null if it is not enabled.
+     */
+    @CheckForNull
+    private synchronized VSphereCircuitBreaker getOrCreateCircuitBreaker() {
+        if (circuitBreaker == null && circuitBreakerFailureThreshold > 0) {
+            circuitBreaker = new VSphereCircuitBreaker(getVsHost(), circuitBreakerFailureThreshold, circuitBreakerOpenSecs);
+        }
+        return circuitBreaker;
+    }
+
+    /**
+     * @return the circuit breaker currently guarding this cloud's vSphere API calls - that
+     *         of its connection pool if it uses one - or null if there is none.
+     */
+    @CheckForNull
+    public VSphereCircuitBreaker getCircuitBreaker() {
+        final VSphereConnectionPool pool = connectionPool;
+        if (useConnectionPool && pool != null && !pool.isShutDown()) {
+            return pool.getCircuitBreaker();
+        }
+        return circuitBreaker;
+    }
+
+    /**
+     * @return the mirror of this cloud's vCenter inventory (confined to its inventory roots,
+     *         if it has any) kept by its connection pool, or null if it does not use one or
+     *         the pool has not logged in yet.
+     */
+    @CheckForNull
+    public VSphereInventoryMirror getInventoryMirror() {
+        final VSphereConnectionPool pool = connectionPool;
+        if (useConnectionPool && pool != null && !pool.isShutDown()) {
+            return pool.getInventoryMirror();
+        }
+        return null;
+    }
+
+    /**
+     * Returns (lazily obtaining) the connection pool for this cloud instance, which is shared
+     * with every other cloud using the same vCenter, credentials and pool settings.
+     */
     private synchronized VSphereConnectionPool getOrCreatePool(VSphereConnectionConfig config) {
-        if (connectionPool == null) {
-            connectionPool = new VSphereConnectionPool(
+        if (connectionPool == null || connectionPool.isShutDown()) {
+            connectionPool = VSphereConnectionPool.share(
                     config,
                     this,
                     poolHealthCheckIntervalSecs,
                     sessionMaxAgeSecs,
                     sessionMaxUses,
-                    poolIdleTimeoutSecs);
+                    poolIdleTimeoutSecs,
+                    poolMinSessions,
+                    poolMaxSessions,
+                    sessionRotationLeadSecs,
+                    getOrCreateCallLimiter(),
+                    getOrCreateCircuitBreaker(),
+                    VSphere.parseInventoryRoots(inventoryRoots));
         }
         return connectionPool;
     }
 
+    /**
+     * If this cloud uses a connection pool, attaches it to its pool - taking over the pool of
+     * the instance it replaced if the connection and pool settings are unchanged - and starts
+     * logging that pool in on a background thread. Returns immediately.
+     */
+    public void warmUpConnectionPool() {
+        final VSphereConnectionConfig connectionConfig = getVsConnectionConfig();
+        if (!useConnectionPool || connectionConfig == null || connectionConfig.getVsHost() == null) {
+            return;
+        }
+        getOrCreatePool(connectionConfig).warmUp();
+    }
+
     private vSphereCloudSlaveTemplate getTemplateForVM(final String vmName) {
         if (this.templates == null || vmName == null)
             return null;
@@ -454,9 +696,36 @@ public class vSphereCloud extends Cloud {
         }
 
         if (useConnectionPool) {
-            return getOrCreatePool(connectionConfig).acquire();
+            final VSphereConnectionPool pool = getOrCreatePool(connectionConfig);
+            final VSphereCircuitBreaker breaker = pool.getCircuitBreaker();
+            if (breaker == null) {
+                return pool.acquire();
+            }
+            // the session's first call, on whichever thread makes it, is the half-open trial
+            breaker.checkSessionPermitted();
+            try {
+                // handing out an already logged-in session proves nothing, so only
+                // failures are recorded here; the calls made on it report the rest
+                return pool.acquire();
+            } catch (VSphereException | RuntimeException e) {
+                breaker.recordFailure(e);
+                throw e;
+            }
+        }
+        final VSphereCircuitBreaker breaker = getOrCreateCircuitBreaker();
+        final List<String> roots = VSphere.parseInventoryRoots(inventoryRoots);
+        if (breaker == null) {
+            return VSphere.connect(connectionConfig, getOrCreateCallLimiter(), null, roots);
+        }
+        breaker.checkCallPermitted();
+        try {
+            final VSphere vSphere = VSphere.connect(connectionConfig, getOrCreateCallLimiter(), breaker, roots);
+            breaker.recordSuccess();
+            return vSphere;
+        } catch (VSphereException | RuntimeException e) {
+            breaker.recordFailure(e);
+            throw e;
         }
-        return VSphere.connect(connectionConfig);
     }
 
     /** Minimum time between repeated "still in maintenance mode" log lines while blocked, to avoid flooding logs. */
@@ -512,9 +781,21 @@ public class vSphereCloud extends Cloud {
 
     @Override
     public boolean canProvision(Label label) {
+        if (!isVSphereReachable()) {
+            return false;
+        }
         return !getTemplates(label).isEmpty();
     }
 
+    /**
+     * @return {@code false} while this cloud's circuit breaker is open, i.e. the vCenter has
+     *         recently been unreachable and calls to it are being refused.
+     */
+    private boolean isVSphereReachable() {
+        final VSphereCircuitBreaker breaker = useConnectionPool ? getCircuitBreaker() : getOrCreateCircuitBreaker();
+        return breaker == null || breaker.isCallPermitted();
+    }
+
     private Integer calculateMaxAdditionalSlavesPermitted() {
         if (this.instanceCap == 0 || this.instanceCap == Integer.MAX_VALUE) {
             return null;
@@ -530,6 +811,10 @@ public class vSphereCloud extends Cloud {
     @Override
     public Collection<PlannedNode> provision(final Label label, int excessWorkload) {
         final String methodCallDescription = "provision(" + label + "," + excessWorkload + ")";
+        if (!isVSphereReachable()) {
+            VSLOG.log(Level.INFO, methodCallDescription + ": vCenter is unreachable (circuit breaker open), not provisioning.");
+            return Collections.emptySet();
+        }
         try {
             int excessWorkloadSoFar = excessWorkload;
             // First we see what our static slaves can do for us.
@@ -627,7 +912,7 @@ public class vSphereCloud extends Cloud {
                         }
                     };
                     VSLOG.log(Level.INFO, "retryVMdeletionIfNecessary({0}): scheduling deletion of {1}", new Object[] { maxToRetryDeletionOn, nodeName });
-                    Computer.threadPoolForRemoting.submit(task);
+                    VSphereExecutors.runBlocking(task);
                 } else {
                     VSLOG.log(Level.FINER,
                             "retryVMdeletionIfNecessary({0}): not going to try deleting {1} as isOkToDeleteUnwantedVM({1})=={2}",
@@ -663,7 +948,7 @@ public class vSphereCloud extends Cloud {
             }
         };
         VSLOG.log(Level.INFO, "provisionedSlaveHasTerminated({0}): scheduling deletion of {0}", cloneName);
-        Computer.threadPoolForRemoting.submit(task);
+        VSphereExecutors.runBlocking(task);
         // We also take this opportunity to see if we've got any other slaves
         // that need deleting, and deal with at most one of those
         // (asynchronously) as well.
@@ -672,33 +957,32 @@ public class vSphereCloud extends Cloud {
 
     private void attemptDeletionOfSlave(final String why, final String cloneName) {
         VSLOG.log(Level.FINER, "{0}: destroying VM {1}...", new Object[]{ why, cloneName });
-        VSphere vSphere = null;
-        boolean successfullyDeleted = false;
+        final VSphere vSphere;
         try {
             vSphere = vSphereInstance();
-            // Note: This can block indefinitely - it only completes when
-            // vSphere tells us the deletion has completed, and if vSphere has
-            // issues (e.g. a node failure) during that process then the
-            // deletion task can hang for ages.
-            vSphere.destroyVm(cloneName, false);
-            successfullyDeleted = true;
-            VSLOG.log(Level.FINER, "{0}: VM {1} destroyed.", new Object[]{ why, cloneName });
-            vSphere.disconnect();
-            vSphere = null;
         } catch (VSphereException ex) {
             VSLOG.log(Level.SEVERE, why + ": Exception while trying to destroy VM " + cloneName, ex);
-        } finally {
             synchronized (templateState) {
-                if (successfullyDeleted) {
+                templateState.unwantedSlaveNotDeleted(cloneName);
+            }
+            return;
+        }
+        // Note: This only completes when vSphere tells us the deletion has
+        // completed, and if vSphere has issues (e.g. a node failure) during
+        // that process then the deletion task can hang for ages - so we
+        // don't hold a thread waiting for it.
+        vSphere.destroyVmAsync(cloneName, false).whenComplete((ignored, ex) -> {
+            vSphere.disconnect();
+            synchronized (templateState) {
+                if (ex == null) {
+                    VSLOG.log(Level.FINER, "{0}: VM {1} destroyed.", new Object[]{ why, cloneName });
                     templateState.unwantedSlaveNowDeleted(cloneName);
                 } else {
+                    VSLOG.log(Level.SEVERE, why + ": Exception while trying to destroy VM " + cloneName, ex);
                     templateState.unwantedSlaveNotDeleted(cloneName);
                 }
             }
-            if (vSphere != null) {
-                vSphere.disconnect();
-            }
-        }
+        });
     }
 
     static class VSpherePlannedNode extends PlannedNode {
@@ -711,38 +995,38 @@ public class vSphereCloud extends Cloud {
                                                         final CloudProvisioningRecord whatWeShouldSpinUp) {
             final vSphereCloudSlaveTemplate template = whatWeShouldSpinUp.getTemplate();
             final int numberOfExecutors = template.getNumberOfExecutors();
-            final Callable<Node> provisionNodeCallable = new Callable<Node>() {
-                @Override
-                public Node call() throws Exception {
-                    try {
-                        final Node newNode = provisionNewNode(whatWeShouldSpinUp, nodeName);
-                        VSLOG.log(Level.INFO, "Provisioned new slave " + nodeName);
-                        synchronized (templateState) {
-                            templateState.provisionedSlaveNowActive(whatWeShouldSpinUp, nodeName);
-                        }
-                        return newNode;
-                    } catch (Exception ex) {
-                        VSLOG.log(Level.WARNING, "Failed to provision new slave " + nodeName, ex);
-                        synchronized (templateState) {
-                            templateState.provisioningEndedInError(whatWeShouldSpinUp, nodeName);
-                        }
-                        throw ex;
-                    }
-                }
-            };
             templateState.provisioningStarted(whatWeShouldSpinUp, nodeName);
-            final Future<Node> provisionNodeTask = Computer.threadPoolForRemoting.submit(provisionNodeCallable);
+            // The clone is started on a VSphereExecutors thread (a virtual one where the JVM has
+            // them) rather than a remoting one, and no thread is held while vSphere clones it.
+            final Future<Node> provisionNodeTask = VSphereExecutors
+                    .supplyBlocking(() -> template.provisionAsync(nodeName, StreamTaskListener.fromStdout()))
+                    .thenCompose(slave -> slave)
+                    .thenApply(VSpherePlannedNode::addNode)
+                    .whenComplete((newNode, ex) -> {
+                        if (ex == null) {
+                            VSLOG.log(Level.INFO, "Provisioned new slave " + nodeName);
+                            synchronized (templateState) {
+                                templateState.provisionedSlaveNowActive(whatWeShouldSpinUp, nodeName);
+                            }
+                        } else {
+                            VSLOG.log(Level.WARNING, "Failed to provision new slave " + nodeName, ex);
+                            synchronized (templateState) {
+                                templateState.provisioningEndedInError(whatWeShouldSpinUp, nodeName);
+                            }
+                        }
+                    });
             final VSpherePlannedNode result = new VSpherePlannedNode(nodeName, provisionNodeTask, numberOfExecutors);
             return result;
         }
 
-        private static Node provisionNewNode(final CloudProvisioningRecord whatWeShouldSpinUp, final String cloneName)
-                throws VSphereException, FormException, IOException, InterruptedException {
-            final vSphereCloudSlaveTemplate template = whatWeShouldSpinUp.getTemplate();
-            final vSphereCloudProvisionedSlave slave = template.provision(cloneName, StreamTaskListener.fromStdout());
+        private static Node addNode(final vSphereCloudProvisionedSlave slave) {
             // ensure Jenkins knows about us before we forget what we're doing,
             // otherwise it'll just ask for more.
-            Jenkins.getInstance().addNode(slave);
+            try {
+                Jenkins.getInstance().addNode(slave);
+            } catch (IOException ex) {
+                throw new CompletionException(ex);
+            }
             return slave;
         }
 
@@ -846,11 +1130,29 @@ public class vSphereCloud extends Cloud {
         return vSphereClouds;
     }
 
+    /** Every vSphere cloud defined in Jenkins, both globally and on any folder. */
+    public static List<vSphereCloud> findAllVsphereCloudsEverywhere() {
+        List<vSphereCloud> vSphereClouds = new ArrayList<vSphereCloud>();
+        Jenkins jenkins = Jenkins.get();
+        for (Folder folder : jenkins.getAllItems(Folder.class)) {
+            extractClouds(vSphereClouds, folder);
+        }
+        for (Cloud cloud : jenkins.clouds) {
+            if (cloud instanceof vSphereCloud) {
+                vSphereClouds.add((vSphereCloud) cloud);
+            }
+        }
+        return vSphereClouds;
+    }
+
     private static void extractClouds(List<vSphereCloud> vSphereClouds, Folder folder) {
         DescribableList<AbstractFolderProperty<?>, AbstractFolderPropertyDescriptor> properties = folder.getProperties();
         for (AbstractFolderProperty<?> property : properties) {
             if (property instanceof FolderVSphereCloudProperty) {
-                vSphereClouds.addAll(((FolderVSphereCloudProperty) property).getVsphereClouds());
+                List<vSphereCloud> folderClouds = ((FolderVSphereCloudProperty) property).getVsphereClouds();
+                if (folderClouds != null) {
+                    vSphereClouds.addAll(folderClouds);
+                }
             }
         }
     }
@@ -927,10 +1229,46 @@ public class vSphereCloud extends Cloud {
             return FormValidation.validateNonNegativeInteger(value);
         }
 
+        public FormValidation doCheckSessionRotationLeadSecs(@QueryParameter String value) {
+            return FormValidation.validateNonNegativeInteger(value);
+        }
+
         public FormValidation doCheckPoolIdleTimeoutSecs(@QueryParameter String value) {
             return FormValidation.validateNonNegativeInteger(value);
         }
 
+        public FormValidation doCheckPoolMinSessions(@QueryParameter String value) {
+            return FormValidation.validateNonNegativeInteger(value);
+        }
+
+        public FormValidation doCheckPoolMaxSessions(@QueryParameter String value) {
+            return FormValidation.validateNonNegativeInteger(value);
+        }
+
+        public FormValidation doCheckReadCallsPerSec(@QueryParameter String value) {
+            return FormValidation.validateNonNegativeInteger(value);
+        }
+
+        public FormValidation doCheckTaskCallsPerSec(@QueryParameter String value) {
+            return FormValidation.validateNonNegativeInteger(value);
+        }
+
+        public FormValidation doCheckMaxConcurrentReadCalls(@QueryParameter String value) {
+            return FormValidation.validateNonNegativeInteger(value);
+        }
+
+        public FormValidation doCheckMaxConcurrentTaskCalls(@QueryParameter String value) {
+            return FormValidation.validateNonNegativeInteger(value);
+        }
+
+        public FormValidation doCheckCircuitBreakerFailureThreshold(@QueryParameter String value) {
+            return FormValidation.validateNonNegativeInteger(value);
+        }
+
+        public FormValidation doCheckCircuitBreakerOpenSecs(@QueryParameter String value) {
+            return FormValidation.validateNonNegativeInteger(value);
+        }
+
         public FormValidation doCheckMaintenanceMode(@QueryParameter boolean value) {
             if (value) {
                 return FormValidation.warning("This cloud's VM operations will block (and log a message to consumers) until maintenance mode is turned off.");
@@ -10,6 +10,7 @@ import hudson.slaves.SlaveComputer;
 import java.io.IOException;
 import java.io.ObjectStreamException;
 import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
 
 import org.jenkinsci.plugins.vsphere.VSphereOfflineCause;
 import org.jenkinsci.plugins.vsphere.tools.VSphere;
@@ -22,6 +23,8 @@ import com.vmware.vim25.mo.VirtualMachine;
 import com.vmware.vim25.mo.VirtualMachineSnapshot;
 import java.rmi.RemoteException;
 import org.jenkinsci.plugins.vsphere.tools.VSphereException;
+import org.jenkinsci.plugins.vsphere.tools.VSpherePowerState;
+import org.jenkinsci.plugins.vsphere.tools.VSphereTaskWatcher;
 
 /**
  *
@@ -198,12 +201,12 @@ public class vSphereCloudLauncher extends DelegatingComputerLauncher {
 
                         vSphereCloud.Log(slaveComputer, taskListener, "Reverting to snapshot:" + snapName);
                         Task task = snap.revertToSnapshot_Task(null, Boolean.FALSE);
-                        if (!task.waitForTask().equals(Task.SUCCESS)) {
+                        if (!VSphereTaskWatcher.waitForTask(task).equals(Task.SUCCESS)) {
                             throw new IOException("Error while reverting to virtual machine snapshot");
                         }
                     }
 
-                    switch (vm.getRuntime().powerState) {
+                    switch (v.getPowerState(vm)) {
                         case poweredOn:
                             // Nothing to do.
                             vSphereCloud.Log(slaveComputer, taskListener, "VM already powered on");
@@ -219,15 +222,8 @@ public class vSphereCloudLauncher extends DelegatingComputerLauncher {
                     if (waitForVMTools) {
                         vSphereCloud.Log(slaveComputer, taskListener, "Waiting for VMTools");
 
-                        Calendar target = Calendar.getInstance();
-                        target.add(Calendar.SECOND, 120);
-                        while (Calendar.getInstance().before(target)) {
-                            VirtualMachineToolsStatus status = vm.getGuest().toolsStatus;
-                            if ((status == VirtualMachineToolsStatus.toolsOk) || (status == VirtualMachineToolsStatus.toolsOld)) {
-                                vSphereCloud.Log(slaveComputer, taskListener, "VM Tools are running");
-                                break;
-                            }
-                            Thread.sleep(5000);
+                        if (v.waitForGuestTools(vm, 120)) {
+                            vSphereCloud.Log(slaveComputer, taskListener, "VM Tools are running");
                         }
                         vSphereCloud.Log(slaveComputer, taskListener, "Finished wait for VMTools");
                     }
@@ -327,8 +323,7 @@ public class vSphereCloudLauncher extends DelegatingComputerLauncher {
                 vm = null;
             }
             if (vm != null ) {
-                //VirtualMachinePowerState power = vm.getRuntime().getPowerState();
-                VirtualMachinePowerState power = vm.getSummary().getRuntime().powerState;
+                VirtualMachinePowerState power = v.getPowerState(vm);
                 if (power == VirtualMachinePowerState.poweredOn) {
                     switch (localIdle) {
                         case SHUTDOWN:
@@ -447,7 +442,7 @@ public class vSphereCloudLauncher extends DelegatingComputerLauncher {
             throws RemoteException, InterruptedException {
         vSphereCloud.Log(slaveComputer, taskListener, "Powering on the VM");
         Task taskPowerOn = vm.powerOnVM_Task(null);
-        if (!taskPowerOn.waitForTask().equals(Task.SUCCESS)) {
+        if (!VSphereTaskWatcher.waitForTask(taskPowerOn).equals(Task.SUCCESS)) {
             vSphereCloud.Log(slaveComputer, taskListener, "Unable to power on the VM");
         }
     }
@@ -462,14 +457,9 @@ public class vSphereCloudLauncher extends DelegatingComputerLauncher {
             try {
                 vSphereCloud.Log(slaveComputer, taskListener, "Attempting a graceful shutdown");
                 vm.shutdownGuest();
-                Calendar target = Calendar.getInstance();
-                target.add(Calendar.MINUTE, 3);
-                while (Calendar.getInstance().before(target)) {
-                    if (vm.getRuntime().powerState == VirtualMachinePowerState.poweredOff) {
-                        vSphereCloud.Log(slaveComputer, taskListener, "Guest shutdown succeeded");
-                        break;
-                    }
-                    Thread.sleep(5000);
+                if (VSpherePowerState.await(vm, VirtualMachinePowerState.poweredOff, TimeUnit.MINUTES.toMillis(3))
+                        == VirtualMachinePowerState.poweredOff) {
+                    vSphereCloud.Log(slaveComputer, taskListener, "Guest shutdown succeeded");
                 }
             } catch (Throwable t) {
                 vSphereCloud.Log(slaveComputer, taskListener, t,
@@ -482,7 +472,7 @@ public class vSphereCloudLauncher extends DelegatingComputerLauncher {
         if (vm.getRuntime().powerState == VirtualMachinePowerState.poweredOn) {
             vSphereCloud.Log(slaveComputer, taskListener, "Powering down hard");
             Task task = vm.powerOffVM_Task();
-            if (!task.waitForTask().equals(Task.SUCCESS)) {
+            if (!VSphereTaskWatcher.waitForTask(task).equals(Task.SUCCESS)) {
                 vSphereCloud.Log(slaveComputer, taskListener, "Unable to power down the VM");
             }
         }
@@ -505,13 +495,13 @@ public class vSphereCloudLauncher extends DelegatingComputerLauncher {
 
             vSphereCloud.Log(slaveComputer, taskListener, "Reverting to snapshot:" + snapName);
             Task task = snap.revertToSnapshot_Task(null, Boolean.FALSE);
-            if (!task.waitForTask().equals(Task.SUCCESS)) {
+            if (!VSphereTaskWatcher.waitForTask(task).equals(Task.SUCCESS)) {
                 throw new IOException("Error while reverting to virtual machine snapshot");
             }
         } else {
             vSphereCloud.Log(slaveComputer, taskListener, "Reverting to current snapshot");
             Task task = vm.revertToCurrentSnapshot_Task(null);
-            if (!task.waitForTask().equals(Task.SUCCESS)) {
+            if (!VSphereTaskWatcher.waitForTask(task).equals(Task.SUCCESS)) {
                 throw new IOException("Error while reverting to virtual machine snapshot");
             }
         }
@@ -520,7 +510,7 @@ public class vSphereCloudLauncher extends DelegatingComputerLauncher {
     private void resetVM(VirtualMachine vm, SlaveComputer slaveComputer, TaskListener taskListener) throws RemoteException, InterruptedException {
         vSphereCloud.Log(slaveComputer, taskListener, "Resetting the VM");
         Task taskReset = vm.resetVM_Task();
-        if (!taskReset.waitForTask().equals(Task.SUCCESS)) {
+        if (!VSphereTaskWatcher.waitForTask(taskReset).equals(Task.SUCCESS)) {
             vSphereCloud.Log(slaveComputer, taskListener, "Unable to reset the VM");
         }
     }
@@ -528,7 +518,7 @@ public class vSphereCloudLauncher extends DelegatingComputerLauncher {
     private void suspendVM(VirtualMachine vm, SlaveComputer slaveComputer, TaskListener taskListener) throws RemoteException, InterruptedException {
         vSphereCloud.Log(slaveComputer, taskListener, "Suspending the VM");
         Task task = vm.suspendVM_Task();
-        if (!task.waitForTask().equals(Task.SUCCESS)) {
+        if (!VSphereTaskWatcher.waitForTask(task).equals(Task.SUCCESS)) {
             vSphereCloud.Log(slaveComputer, taskListener, "Unable to suspend the VM");
         }
     }
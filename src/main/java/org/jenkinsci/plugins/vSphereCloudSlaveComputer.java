@@ -2,14 +2,12 @@ package org.jenkinsci.plugins;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.rmi.RemoteException;
+import java.util.Collections;
+import java.util.Map;
 
 import org.jenkinsci.plugins.vsphere.tools.VSphere;
 
-import com.vmware.vim25.VirtualHardware;
-import com.vmware.vim25.VirtualMachineConfigInfo;
-import com.vmware.vim25.VirtualMachineGuestSummary;
-import com.vmware.vim25.VirtualMachineQuickStats;
-import com.vmware.vim25.VirtualMachineSummary;
 import com.vmware.vim25.VirtualMachineToolsStatus;
 import com.vmware.vim25.mo.ManagedEntity;
 import com.vmware.vim25.mo.VirtualMachine;
@@ -100,7 +98,9 @@ public class vSphereCloudSlaveComputer extends AbstractCloudComputer {
                 final VSphere vSphereInstance = ourCloud.vSphereInstance();
                 try {
                     final VirtualMachine ourVm = vSphereInstance.getVmByName(ourVmName);
-                    vmInformation = new VMInformation(systemUptimeNow, ourVm);
+                    final Map<String, Object> ourVmValues = ourVm == null ? null : vSphereInstance.fetch(ourVm, VMInformation.PROPERTIES);
+                    final String ourVmPath = ourVm == null ? null : vSphereInstance.getInventoryPath(ourVm);
+                    vmInformation = new VMInformation(systemUptimeNow, ourVmValues, ourVmPath);
                 } finally {
                     vSphereInstance.disconnect();
                 }
@@ -113,6 +113,10 @@ public class vSphereCloudSlaveComputer extends AbstractCloudComputer {
 
     /** Cacheable information about the vSphere VM */
     private static class VMInformation {
+        /** The properties of the VM that are shown, read rather than its whole config and summary. */
+        static final String[] PROPERTIES = {"config.annotation", "config.hardware.memoryMB", "config.hardware.numCPU",
+                "summary.guest.guestFullName", "summary.guest.toolsStatus", "summary.quickStats.uptimeSeconds"};
+
         public final long systemUptimeWhenDataWasRead;
         public final String errorEncounteredWhenDataWasRead;
         public final String annotation;
@@ -123,29 +127,57 @@ public class vSphereCloudSlaveComputer extends AbstractCloudComputer {
         public final int numCPU;
         public final int uptimeSeconds;
 
-        /** Populates instance from given VM. */
-        public VMInformation(long systemUptimeNow, VirtualMachine vm) {
-            final VirtualMachineConfigInfo vmConfig = vm == null ? null : vm.getConfig();
-            final VirtualHardware vmHardware = vmConfig == null ? null : vmConfig.getHardware();
-            final VirtualMachineSummary vmSummary = vm == null ? null : vm.getSummary();
-            final VirtualMachineGuestSummary vmGuest = vmSummary == null ? null : vmSummary.getGuest();
-            final VirtualMachineToolsStatus vmToolsStatus = vmGuest == null ? null : vmGuest.getToolsStatus();
-            final VirtualMachineQuickStats vmStats = vmSummary == null ? null : vmSummary.getQuickStats();
+        /**
+         * Populates instance from the {@link #PROPERTIES} read from a VM, found at the given
+         * inventory path; null values if there is no such VM.
+         */
+        public VMInformation(long systemUptimeNow, Map<String, ?> values, String path) {
+            final Map<String, ?> vmValues = values == null ? Collections.emptyMap() : values;
+            final VirtualMachineToolsStatus vmToolsStatus = (VirtualMachineToolsStatus) vmValues.get("summary.guest.toolsStatus");
             systemUptimeWhenDataWasRead = systemUptimeNow;
             errorEncounteredWhenDataWasRead = null;
-            annotation = nullIfEmpty(vmConfig == null ? null : vmConfig.getAnnotation());
-            memoryMB = vmHardware == null ? 0 : vmHardware.getMemoryMB();
-            numCPU = vmHardware == null ? 0 : vmHardware.getNumCPU();
+            annotation = nullIfEmpty((String) vmValues.get("config.annotation"));
+            memoryMB = intOrZero(vmValues.get("config.hardware.memoryMB"));
+            numCPU = intOrZero(vmValues.get("config.hardware.numCPU"));
+            folder = nullIfEmpty(path);
+            guestToolsStatus = nullIfEmpty(vmToolsStatus == null ? null : vmToolsStatus.toString());
+            guestName = nullIfEmpty((String) vmValues.get("summary.guest.guestFullName"));
+            uptimeSeconds = intOrZero(vmValues.get("summary.quickStats.uptimeSeconds"));
+        }
+
+        /**
+         * Populates instance from given VM.
+         * @deprecated reads the VM's properties and folders on the VM's own connection;
+         *             use {@link #VMInformation(long, Map, String)}.
+         */
+        @Deprecated
+        public VMInformation(long systemUptimeNow, VirtualMachine vm) {
+            this(systemUptimeNow, readProperties(vm), pathOf(vm));
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Map<String, Object> readProperties(VirtualMachine vm) {
+            if (vm == null) {
+                return null;
+            }
+            try {
+                return vm.getPropertiesByPaths(PROPERTIES);
+            } catch (RemoteException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        private static String pathOf(VirtualMachine vm) {
             String path = "";
             final ManagedEntity parentFolder = vm == null ? null : vm.getParent();
             for (ManagedEntity me = parentFolder; me != null; me = me.getParent()) {
                 path = me.getName() + '/' + path;
             }
-            folder = nullIfEmpty(path);
-            guestToolsStatus = nullIfEmpty(vmToolsStatus == null ? null : vmToolsStatus.toString());
-            guestName = nullIfEmpty(vmGuest == null ? null : vmGuest.getGuestFullName());
-            final Integer vmUptimeSeconds = vmStats == null ? null : vmStats.getUptimeSeconds();
-            uptimeSeconds = vmUptimeSeconds == null ? 0 : vmUptimeSeconds.intValue();
+            return path;
+        }
+
+        private static int intOrZero(Object value) {
+            return value instanceof Number ? ((Number) value).intValue() : 0;
         }
 
         /** Populates instance with given exception only. */
@@ -50,6 +50,9 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -67,6 +70,7 @@ import org.jenkinsci.plugins.vsphere.builders.Messages;
 import org.jenkinsci.plugins.vsphere.tools.VSphere;
 import org.jenkinsci.plugins.vsphere.tools.VSphereDuplicateException;
 import org.jenkinsci.plugins.vsphere.tools.VSphereException;
+import org.jenkinsci.plugins.vsphere.tools.VSphereExecutors;
 import org.jenkinsci.plugins.vsphere.tools.VSphereHostSelection;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
@@ -79,7 +83,6 @@ import org.kohsuke.stapler.interceptor.RequirePOST;
 import com.cloudbees.hudson.plugins.folder.AbstractFolder;
 import com.cloudbees.plugins.credentials.domains.SchemeRequirement;
 import com.vmware.vim25.OptionValue;
-import com.vmware.vim25.VirtualMachineConfigInfo;
 import com.vmware.vim25.mo.VirtualMachine;
 
 /**
@@ -459,7 +462,39 @@ public class vSphereCloudSlaveTemplate implements Describable<vSphereCloudSlaveT
         return slave;
     }
 
-    private vSphereCloudProvisionedSlave provision(final String cloneName, final PrintStream logger, final Map<String, String> resolvedExtraConfigParameters, final VSphere vSphere) throws VSphereException, FormException, IOException {
+    /**
+     * Like {@link #provision(String, TaskListener)}, but hands back a future of the new agent
+     * rather than waiting while vSphere clones its VM. The clone is started on the calling
+     * thread; what follows it (e.g. waiting for the clone's IP address) runs on a
+     * {@link VSphereExecutors} thread once the clone exists.
+     */
+    @NonNull
+    public CompletableFuture<vSphereCloudProvisionedSlave> provisionAsync(final String cloneName, final TaskListener listener) throws VSphereException, IOException, InterruptedException {
+        final PrintStream logger = listener.getLogger();
+        final Map<String, String> resolvedExtraConfigParameters = calculateExtraConfigParameters(cloneName, listener);
+        final VSphere vSphere = getParent().vSphereInstance();
+        final CompletableFuture<vSphereCloudProvisionedSlave> slave = startClone(cloneName, logger, resolvedExtraConfigParameters, vSphere)
+                .handle((ignored, failure) -> failure)
+                .thenCompose(failure -> VSphereExecutors.supplyBlocking(() -> {
+                    if (failure != null) {
+                        cloneFailed(cloneName, vSphere, toVSphereException(failure));
+                    }
+                    return createSlave(cloneName, vSphere);
+                }));
+        slave.whenComplete((ignored, failure) -> vSphere.disconnect());
+        return slave;
+    }
+
+    private vSphereCloudProvisionedSlave provision(final String cloneName, final PrintStream logger, final Map<String, String> resolvedExtraConfigParameters, final VSphere vSphere) throws VSphereException, FormException, IOException, InterruptedException {
+        try {
+            startClone(cloneName, logger, resolvedExtraConfigParameters, vSphere).get();
+        } catch (ExecutionException ex) {
+            cloneFailed(cloneName, vSphere, toVSphereException(ex.getCause()));
+        }
+        return createSlave(cloneName, vSphere);
+    }
+
+    private CompletableFuture<Void> startClone(final String cloneName, final PrintStream logger, final Map<String, String> resolvedExtraConfigParameters, final VSphere vSphere) {
         final boolean POWER_ON = true;
         final boolean useCurrentSnapshot;
         final String snapshotToUse;
@@ -481,10 +516,13 @@ public class vSphereCloudSlaveTemplate implements Describable<vSphereCloudSlaveT
         final Set<String> cloudDefaultHostSelectionCandidates = sourceCloud != null ? sourceCloud.getHostSelectionCandidates() : null;
         final String resolvedHostSelectionMode = VSphereHostSelection.resolveMode(cloudDefaultHostSelectionMode, this.hostSelectionMode);
         final Set<String> resolvedHostSelectionCandidates = VSphereHostSelection.resolveCandidates(cloudDefaultHostSelectionCandidates, this.hostSelectionCandidates);
-        try {
-            vSphere.cloneOrDeployVm(cloneName, this.masterImageName, this.linkedClone, this.resourcePool, this.cluster, this.datastore, this.folder, useCurrentSnapshot, snapshotToUse, POWER_ON, resolvedExtraConfigParameters, this.customizationSpec, this.targetHost, resolvedHostSelectionMode, resolvedHostSelectionCandidates, logger);
-            LOGGER.log(Level.FINE, "Created new VM {0} from image {1}", new Object[]{ cloneName, this.masterImageName });
-        } catch (VSphereDuplicateException ex) {
+        return vSphere.cloneOrDeployVmAsync(cloneName, this.masterImageName, this.linkedClone, this.resourcePool, this.cluster, this.datastore, this.folder, useCurrentSnapshot, snapshotToUse, POWER_ON, resolvedExtraConfigParameters, this.customizationSpec, this.targetHost, resolvedHostSelectionMode, resolvedHostSelectionCandidates, logger)
+                .thenRun(() -> LOGGER.log(Level.FINE, "Created new VM {0} from image {1}", new Object[]{ cloneName, this.masterImageName }));
+    }
+
+    // Unless the clone failed because we had already created that VM ourselves, tidies up and rethrows.
+    private void cloneFailed(final String cloneName, final VSphere vSphere, final VSphereException ex) throws VSphereException {
+        if (ex instanceof VSphereDuplicateException) {
             final String vmJenkinsUrl = findWhichJenkinsThisVMBelongsTo(vSphere, cloneName);
             if ( vmJenkinsUrl==null ) {
                 LOGGER.log(Level.SEVERE, "VM {0} name clashes with one we wanted to use, but it wasn't started by this plugin.", cloneName );
@@ -497,19 +535,36 @@ public class vSphereCloudSlaveTemplate implements Describable<vSphereCloudSlaveT
                 LOGGER.log(Level.SEVERE, "VM {0} name clashes with one we wanted to use, but it doesn't belong to this Jenkins server: it belongs to {1}.  You MUST reconfigure one of these Jenkins servers to use a different naming strategy so that we no longer get clashes within vSphere host {2}. i.e. change the cloneNamePrefix on one/both to ensure uniqueness.", new Object[]{ cloneName, vmJenkinsUrl, this.getParent().getVsHost() } );
                 throw ex;
             }
-        } catch (VSphereException ex) {
-            // if anything else went wrong, attempt to tidy up
-            try {
-                vSphere.destroyVm(cloneName, false);
-            } catch (Exception logOnly) {
-                LOGGER.log(Level.SEVERE,
-                        "Unable to create and power-on new VM " + cloneName + " (cloned from image "
-                                + this.masterImageName
-                                + ") and, worse, bits of the VM may still exist as the attempt to delete the remains also failed.",
-                        logOnly);
-            }
-            throw ex;
+            return;
+        }
+        // if anything else went wrong, attempt to tidy up
+        try {
+            vSphere.destroyVm(cloneName, false);
+        } catch (Exception logOnly) {
+            LOGGER.log(Level.SEVERE,
+                    "Unable to create and power-on new VM " + cloneName + " (cloned from image "
+                            + this.masterImageName
+                            + ") and, worse, bits of the VM may still exist as the attempt to delete the remains also failed.",
+                    logOnly);
+        }
+        throw ex;
+    }
+
+    private static VSphereException toVSphereException(final Throwable failure) {
+        Throwable cause = failure;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
         }
+        if (cause instanceof VSphereException) {
+            return (VSphereException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        return new VSphereException(cause);
+    }
+
+    private vSphereCloudProvisionedSlave createSlave(final String cloneName, final VSphere vSphere) throws VSphereException, FormException, IOException {
         vSphereCloudProvisionedSlave slave = null;
         try {
             final ComputerLauncher configuredLauncher = determineLauncher(vSphere, cloneName);
@@ -642,7 +697,7 @@ public class vSphereCloudSlaveTemplate implements Describable<vSphereCloudSlaveT
                 @QueryParameter boolean allowUntrustedCertificate,
                 @QueryParameter String credentialsId, @QueryParameter String masterImageName,
                 @QueryParameter boolean linkedClone, @QueryParameter boolean useSnapshot,
-                @QueryParameter String snapshotName,
+                @QueryParameter String snapshotName, @QueryParameter String customizationSpec,
                 @QueryParameter String targetHost, @QueryParameter String hostSelectionCandidatesAsString) {
             throwUnlessUserHasPermissionToConfigureCloud(containingFolderOrNull);
             try {
@@ -673,6 +728,12 @@ public class vSphereCloudSlaveTemplate implements Describable<vSphereCloudSlaveT
                         }
                     }
 
+                    if (customizationSpec != null && !customizationSpec.isEmpty()
+                            && vsphere.getCustomizationSpecByName(customizationSpec) == null) {
+                        return FormValidation.error(Messages.validation_notFound("customization specification \""
+                                + customizationSpec + "\""));
+                    }
+
                     if (targetHost != null && !targetHost.isEmpty() && !vsphere.hostExists(targetHost)) {
                         return FormValidation.error(Messages.validation_notFound("host \"" + targetHost + "\""));
                     }
@@ -746,13 +807,15 @@ public class vSphereCloudSlaveTemplate implements Describable<vSphereCloudSlaveT
             LOGGER.log(Level.WARNING, "findWhichJenkinsThisVMBelongsTo(vSphere,\""+cloneName+"\") failed to getVmByName.", e );
             return null;
         }
-        final VirtualMachineConfigInfo config = vm.getConfig();
-        if (config == null) {
+        final OptionValue[] extraConfigs;
+        try {
+            // only the extra config, not the VM's whole configuration
+            extraConfigs = (OptionValue[]) vSphere.fetch(vm, "config.extraConfig").get("config.extraConfig");
+        } catch (VSphereException e) {
             // TODO: If this happens, it causes JENKINS-54521
-            LOGGER.log(Level.WARNING, "findWhichJenkinsThisVMBelongsTo(vSphere,\""+cloneName+"\") failed to getConfig." );
+            LOGGER.log(Level.WARNING, "findWhichJenkinsThisVMBelongsTo(vSphere,\""+cloneName+"\") failed to getConfig.", e );
             return null;
         }
-        final OptionValue[] extraConfigs = config.getExtraConfig();
         if (extraConfigs == null) {
             LOGGER.log(Level.WARNING, "findWhichJenkinsThisVMBelongsTo(vSphere,\""+cloneName+"\") failed to getExtraConfig." );
             return null;
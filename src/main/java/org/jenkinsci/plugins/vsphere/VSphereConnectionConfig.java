@@ -58,6 +58,10 @@ public class VSphereConnectionConfig extends AbstractDescribableImpl<VSphereConn
     private final @CheckForNull String vsHost;
     private /*final*/ boolean allowUntrustedCertificate;
     private final @CheckForNull String credentialsId;
+    /** Seconds to wait for a connection to the vCenter (0 = client library default). */
+    private int connectTimeoutSecs;
+    /** Seconds to wait for a vCenter response (0 = client library default). */
+    private int readTimeoutSecs;
     
     @DataBoundConstructor
     public VSphereConnectionConfig(String vsHost, String credentialsId) {
@@ -87,6 +91,24 @@ public class VSphereConnectionConfig extends AbstractDescribableImpl<VSphereConn
     public @CheckForNull String getCredentialsId() {
         return credentialsId;
     }
+
+    public int getConnectTimeoutSecs() {
+        return connectTimeoutSecs;
+    }
+
+    @DataBoundSetter
+    public void setConnectTimeoutSecs(int connectTimeoutSecs) {
+        this.connectTimeoutSecs = Math.max(0, connectTimeoutSecs);
+    }
+
+    public int getReadTimeoutSecs() {
+        return readTimeoutSecs;
+    }
+
+    @DataBoundSetter
+    public void setReadTimeoutSecs(int readTimeoutSecs) {
+        this.readTimeoutSecs = Math.max(0, readTimeoutSecs);
+    }
     
     public @CheckForNull StandardCredentials getCredentials() {
         return DescriptorImpl.lookupCredentials(credentialsId, vsHost);
@@ -138,6 +160,14 @@ public class VSphereConnectionConfig extends AbstractDescribableImpl<VSphereConn
             return FormValidation.ok();
         }
 
+        public FormValidation doCheckConnectTimeoutSecs(@QueryParameter String value) {
+            return FormValidation.validateNonNegativeInteger(value);
+        }
+
+        public FormValidation doCheckReadTimeoutSecs(@QueryParameter String value) {
+            return FormValidation.validateNonNegativeInteger(value);
+        }
+
         public ListBoxModel doFillCredentialsIdItems(@AncestorInPath AbstractFolder<?> containingFolderOrNull,
                 @QueryParameter String vsHost) {
             throwUnlessUserHasPermissionToConfigureCloud(containingFolderOrNull);
@@ -180,10 +210,14 @@ public class VSphereConnectionConfig extends AbstractDescribableImpl<VSphereConn
         public FormValidation doTestConnection(@AncestorInPath AbstractFolder<?> containingFolderOrNull,
                                                @QueryParameter String vsHost,
                                                @QueryParameter boolean allowUntrustedCertificate,
-                                               @QueryParameter String credentialsId) {
+                                               @QueryParameter String credentialsId,
+                                               @QueryParameter int connectTimeoutSecs,
+                                               @QueryParameter int readTimeoutSecs) {
             throwUnlessUserHasPermissionToConfigureCloud(containingFolderOrNull);
             try {
                 final VSphereConnectionConfig config = new VSphereConnectionConfig(vsHost, allowUntrustedCertificate, credentialsId);
+                config.setConnectTimeoutSecs(connectTimeoutSecs);
+                config.setReadTimeoutSecs(readTimeoutSecs);
                 final String effectiveUsername = config.getUsername();
                 final String effectivePassword = config.getPassword();
 
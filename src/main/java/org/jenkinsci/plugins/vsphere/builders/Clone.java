@@ -395,7 +395,7 @@ public class Clone extends VSphereBuildStep {
                 if (virtualMachine == null) {
                     return FormValidation.error("The source VM \""+sourceName+"\"was not found cannot check the configuration.");
                 }
-                if ((virtualMachine.getConfig().template) && (value.length() == 0)) {
+                if ((vsphere.isTemplate(virtualMachine)) && (value.length() == 0)) {
                     return FormValidation.error(Messages.validation_required("the resource pool"));
                 }
             } catch (VSphereException ve) {
@@ -164,7 +164,7 @@ public class ConvertToVm extends VSphereBuildStep {
                 if (vm == null)
                     return FormValidation.error(Messages.validation_notFound("template"));
 
-                if(!vm.getConfig().template)
+                if(!vsphere.isTemplate(vm))
                     return FormValidation.error(Messages.validation_alreadySet("template", "VM"));
 
                 return FormValidation.ok(Messages.validation_success());
@@ -143,7 +143,7 @@ public class Delete extends VSphereBuildStep {
 				if (vmObj == null)
 					return FormValidation.error(Messages.validation_notFound("VM"));
 
-				if (vmObj.getConfig().template)
+				if (vsphere.isTemplate(vmObj))
 					return FormValidation.error(Messages.validation_notActually("VM"));
 
 				return FormValidation.ok(Messages.validation_success());
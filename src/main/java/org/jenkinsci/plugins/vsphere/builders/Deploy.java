@@ -386,7 +386,7 @@ public class Deploy extends VSphereBuildStep implements SimpleBuildStep {
                 if (vm == null)
                     return FormValidation.error(Messages.validation_notFound("template"));
 
-                if(!vm.getConfig().template)
+                if(!vsphere.isTemplate(vm))
                     return FormValidation.error(Messages.validation_notActually("template"));
 
                 if (host != null && !host.isEmpty() && !vsphere.hostExists(host)) {
@@ -26,7 +26,6 @@ import java.io.PrintStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 /**
@@ -37,6 +36,8 @@ import java.util.regex.Pattern;
 public class ExposeGuestInfo extends VSphereBuildStep implements SimpleBuildStep {
     private static final List USABLE_CLASS_TYPES = Arrays.asList(String.class, boolean.class, Boolean.class, int.class, Integer.class);
     private static final Pattern ipv4Pattern = Pattern.compile("^(?:[0-9]{1,3}\\.){3}[0-9]{1,3}$");
+    /** How long each wait for an IPv4 address lasts before the guest info is read again. */
+    private static final int IP4_WAIT_SECONDS = 300;
 
     private final String vm;
     private final String envVariablePrefix;
@@ -136,11 +137,10 @@ public class ExposeGuestInfo extends VSphereBuildStep implements SimpleBuildStep
         if (waitForIp4){
             String prefix = resolvedEnvVariablePrefix == null ? envVariablePrefix : resolvedEnvVariablePrefix;
             String machineIP = envAction.data.get(prefix + "_IpAddress");
-            while (!ipv4Pattern.matcher(machineIP).find()) {
-                try {
-                    TimeUnit.SECONDS.sleep(30);
-                } catch (InterruptedException e) {
-
+            while (machineIP == null || !ipv4Pattern.matcher(machineIP).find()) {
+                // returns as soon as the guest reports an IPv4 address, rather than every 30 seconds
+                if (vsphere.waitForGuestIp(vsphereVm, ipv4Pattern, IP4_WAIT_SECONDS) == null && Thread.interrupted()) {
+                    throw new InterruptedException("Interrupted while waiting for an IPv4 address of VM \"" + vmName + "\"");
                 }
                 envAction = createGuestInfoEnvAction(vsphere.getVmByName(vmName), jLogger);
                 machineIP = envAction.data.get(prefix + "_IpAddress");
@@ -235,7 +235,7 @@ public class ExposeGuestInfo extends VSphereBuildStep implements SimpleBuildStep
                 if ( vmObj == null)
                     return FormValidation.error(Messages.validation_notFound("VM"));
 
-                if (vmObj.getConfig().template)
+                if (vsphere.isTemplate(vmObj))
                     return FormValidation.error(Messages.validation_notActually("VM"));
 
                 return FormValidation.ok(Messages.validation_success());
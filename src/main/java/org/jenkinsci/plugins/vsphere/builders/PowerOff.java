@@ -187,7 +187,7 @@ public class PowerOff extends VSphereBuildStep implements SimpleBuildStep {
 				if ( vmObj == null)
 					return FormValidation.error(Messages.validation_notFound("VM"));
 
-				if (vmObj.getConfig().template)
+				if (vsphere.isTemplate(vmObj))
 					return FormValidation.error(Messages.validation_notActually("VM"));
 
 				return FormValidation.ok(Messages.validation_success());
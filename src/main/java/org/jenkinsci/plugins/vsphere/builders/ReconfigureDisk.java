@@ -30,6 +30,7 @@ import hudson.util.FormValidation;
 
 import org.jenkinsci.plugins.vsphere.tools.VSphereException;
 import org.jenkinsci.plugins.vsphere.tools.VSphereLogger;
+import org.jenkinsci.plugins.vsphere.tools.VSphereTaskWatcher;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
 
@@ -130,7 +131,7 @@ public class ReconfigureDisk extends ReconfigureStep {
 		String diskMode = "persistent";
 		HashMap<String, Boolean> diskNames = new HashMap<String, Boolean>();
 
-		for (VirtualDevice vmDevice : vm.getConfig().getHardware().getDevice()) {
+		for (VirtualDevice vmDevice : vsphere.getDevices(vm)) {
 			if (vmDevice instanceof VirtualSCSIController) {
 				int[] list = ((VirtualSCSIController)vmDevice).getDevice();
 				if (scsiController == null && (list == null || list.length < 15)) {
@@ -197,11 +198,10 @@ public class ReconfigureDisk extends ReconfigureStep {
 	}
 
 	private VirtualLsiLogicController addSCSIController(VirtualMachine vm) throws Exception {
-		VirtualMachineConfigInfo vmConfig = vm.getConfig();
 		VirtualPCIController pci = null;
 		Set<Integer> scsiBuses = new HashSet<Integer>();
 
-		for (VirtualDevice vmDevice : vmConfig.getHardware().getDevice()) {
+		for (VirtualDevice vmDevice : vsphere.getDevices(vm)) {
 			if (vmDevice instanceof VirtualPCIController) {
 				pci = (VirtualPCIController) vmDevice;
 			} else if (vmDevice instanceof VirtualSCSIController) {
@@ -227,17 +227,17 @@ public class ReconfigureDisk extends ReconfigureStep {
 		deviceSpec.setDevice(scsiCtrl);
 		vmSpec.setDeviceChange(new VirtualDeviceConfigSpec[] {deviceSpec});
 		Task task = vm.reconfigVM_Task(vmSpec);
-		task.waitForTask();
+		VSphereTaskWatcher.waitForTask(task);
 		return scsiCtrl;
 	}
 
-	private int selectUnitNumber(VirtualMachine vm, VirtualController controller) {
+	private int selectUnitNumber(VirtualMachine vm, VirtualController controller) throws VSphereException {
 		HashMap<Integer, Boolean> map = new HashMap<Integer, Boolean>();
 		int unitNumber = 0;
 
 		map.put(7, true); // Unit number 7 is reserved for the controller
 
-		for (VirtualDevice vmDevice : vm.getConfig().getHardware().getDevice()) {
+		for (VirtualDevice vmDevice : vsphere.getDevices(vm)) {
 			if (vmDevice.getUnitNumber() != null &&
 					(vmDevice.getControllerKey() == controller.getKey() || vmDevice.getKey() == controller.getKey())) {
 				map.put(vmDevice.getUnitNumber(), true);
@@ -257,7 +257,8 @@ public class ReconfigureDisk extends ReconfigureStep {
 		for (ManagedEntity entity : vsphere.getDatastores()) {
 			if (entity instanceof Datastore) {
 				Datastore ds = (Datastore)entity;
-				long fs = ds.getSummary().getFreeSpace();
+				Object freeSpace = vsphere.fetch(ds, "summary.freeSpace").get("summary.freeSpace");
+				long fs = freeSpace instanceof Number ? ((Number) freeSpace).longValue() : 0L;
 				if (this.datastore != null && this.datastore.length() > 0 && !ds.getName().equals(this.datastore)) {
 					continue;
                                 }
@@ -16,7 +16,6 @@ package org.jenkinsci.plugins.vsphere.builders;
 
 import com.vmware.vim25.*;
 import com.vmware.vim25.mo.DistributedVirtualPortgroup;
-import com.vmware.vim25.mo.DistributedVirtualSwitch;
 import com.vmware.vim25.mo.Network;
 import hudson.*;
 import hudson.Extension;
@@ -147,7 +146,7 @@ public class ReconfigureNetworkAdapters extends ReconfigureStep {
             description.setLabel(expandedDeviceLabel);
             vEth.setDeviceInfo(description);
         } else {
-            vEth = findNetworkDeviceByLabel(vm.getConfig().getHardware().getDevice(), expandedDeviceLabel);
+            vEth = findNetworkDeviceByLabel(vsphere.getDevices(vm), expandedDeviceLabel);
         }
 
         if (vEth == null) {
@@ -196,15 +195,8 @@ public class ReconfigureNetworkAdapters extends ReconfigureStep {
                         getVsphere().getDistributedVirtualPortGroupByName(getVM(), expandedDistributedPortGroup);
           
                 if (distributedVirtualPortgroup != null) {
-                    DistributedVirtualSwitch distributedVirtualSwitch =
-                            getVsphere().getDistributedVirtualSwitchByPortGroup(distributedVirtualPortgroup);
-          
                     DistributedVirtualSwitchPortConnection distributedVirtualSwitchPortConnection =
-                            new DistributedVirtualSwitchPortConnection();
-          
-                    distributedVirtualSwitchPortConnection.setSwitchUuid(distributedVirtualSwitch.getUuid());
-                    distributedVirtualSwitchPortConnection.setPortgroupKey(distributedVirtualPortgroup.getKey());
-                    distributedVirtualSwitchPortConnection.setPortKey(expandedDistributedPortId);
+                            getVsphere().getPortConnection(getVM(), distributedVirtualPortgroup, expandedDistributedPortId);
           
                     virtualEthernetCardDistributedVirtualPortBackingInfo.setPort(distributedVirtualSwitchPortConnection);
           
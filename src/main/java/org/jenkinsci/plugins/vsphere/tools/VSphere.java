@@ -19,9 +19,19 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.rmi.RemoteException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
@@ -32,12 +42,9 @@ import org.apache.commons.lang3.StringUtils;
 import org.jenkinsci.plugins.vsphere.VSphereConnectionConfig;
 
 import com.vmware.vim25.ClusterRecommendation;
+import com.vmware.vim25.CustomizationSpecInfo;
 import com.vmware.vim25.CustomizationSpecItem;
-import com.vmware.vim25.GuestInfo;
-import com.vmware.vim25.HostHardwareSummary;
-import com.vmware.vim25.HostListSummary;
-import com.vmware.vim25.HostListSummaryQuickStats;
-import com.vmware.vim25.HostRuntimeInfo;
+import com.vmware.vim25.DistributedVirtualSwitchPortConnection;
 import com.vmware.vim25.HostSystemConnectionState;
 import com.vmware.vim25.InvalidProperty;
 import com.vmware.vim25.ManagedObjectReference;
@@ -47,8 +54,9 @@ import com.vmware.vim25.PlacementSpec;
 import com.vmware.vim25.RuntimeFault;
 import com.vmware.vim25.TaskInfo;
 import com.vmware.vim25.TaskInfoState;
+import com.vmware.vim25.UpdateSet;
+import com.vmware.vim25.VirtualDevice;
 import com.vmware.vim25.VirtualMachineCloneSpec;
-import com.vmware.vim25.VirtualMachineConfigInfo;
 import com.vmware.vim25.VirtualMachineConfigSpec;
 import com.vmware.vim25.VirtualMachinePowerState;
 import com.vmware.vim25.VirtualMachineQuestionInfo;
@@ -56,6 +64,7 @@ import com.vmware.vim25.VirtualMachineRelocateSpec;
 import com.vmware.vim25.VirtualMachineSnapshotInfo;
 import com.vmware.vim25.VirtualMachineSnapshotTree;
 import com.vmware.vim25.VirtualMachineToolsStatus;
+import com.vmware.vim25.WaitOptions;
 import com.vmware.vim25.mo.ClusterComputeResource;
 import com.vmware.vim25.mo.CustomizationSpecManager;
 import com.vmware.vim25.mo.Datastore;
@@ -63,6 +72,7 @@ import com.vmware.vim25.mo.Folder;
 import com.vmware.vim25.mo.HostSystem;
 import com.vmware.vim25.mo.InventoryNavigator;
 import com.vmware.vim25.mo.ManagedEntity;
+import com.vmware.vim25.mo.PropertyCollector;
 import com.vmware.vim25.mo.ResourcePool;
 import com.vmware.vim25.mo.ServerConnection;
 import com.vmware.vim25.mo.ServiceInstance;
@@ -73,6 +83,7 @@ import com.vmware.vim25.mo.Datacenter;
 import com.vmware.vim25.mo.Network;
 import com.vmware.vim25.mo.DistributedVirtualPortgroup;
 import com.vmware.vim25.mo.DistributedVirtualSwitch;
+import com.vmware.vim25.mo.util.MorUtil;
 import org.jenkinsci.plugins.vsphere.tools.VSphereHostSelection.HostCandidate;
 
 public class VSphere {
@@ -80,27 +91,165 @@ public class VSphere {
     private final String session;
     private final static Logger LOGGER = Logger.getLogger(VSphere.class.getName());
 
+    /** The types of inventory object that searches can be confined to; see {@link #getScopeRoots()}. */
+    private static final List<String> SCOPE_ROOT_TYPES = Arrays.asList("Datacenter", "Folder", "ClusterComputeResource");
+
+    /** The properties of a cached clone source that tell whether the rest of what was cached still holds. */
+    private static final String[] SOURCE_CHECK_PROPERTIES = {"name", "parent", "config.changeVersion", "snapshot.currentSnapshot"};
+    /** The properties of a clone source read when it is first resolved. */
+    private static final String[] SOURCE_PROPERTIES = {"name", "parent", "config.changeVersion", "snapshot.currentSnapshot", "config.template"};
+    /** The properties of a VM read when its snapshots are indexed; see {@link #getSnapshots}. */
+    private static final String[] SNAPSHOT_PROPERTIES = {"snapshot"};
+
+    /**
+     * The {@link ServiceInstance} created when this session logged in. It is reused for
+     * every call made on this session, rather than building a new one each time (which
+     * costs a {@code RetrieveServiceContent} round-trip per call). A pooled session gets a
+     * new one only when the pool reconnects, as that creates a new {@link VSphere}.
+     */
+    private final ServiceInstance serviceInstance;
+
+    /**
+     * How many {@code RetrieveServiceContent} round-trips reusing {@link #serviceInstance}
+     * has saved this session so far. Only the operations that used to build a new
+     * {@link ServiceInstance} count, each as many times as it used to build one; what has
+     * been added since (e.g. reading properties, or the inventory mirror) never did, and so
+     * saves nothing.
+     */
+    private final AtomicLong serviceContentFetchesSaved = new AtomicLong();
+
+    /**
+     * How many round-trips {@link #findEntity} and the other inventory lookups of this
+     * session have made to the vCenter so far.
+     */
+    private final AtomicLong lookupRoundTrips = new AtomicLong();
+
+    /** How many property values {@link #fetch} has read for this session so far. */
+    private final AtomicLong propertiesFetched = new AtomicLong();
+
+    /**
+     * The caches of this vCenter and user, which this session holds from login until it
+     * logs out; the fields below are the caches it is made up of.
+     */
+    private final VSphereVCenterCaches caches;
+
+    /** Set once this session has logged out, so that it gives up its hold on {@link #caches} only once. */
+    private final AtomicBoolean loggedOut = new AtomicBoolean();
+
+    /** Where names were last found in this vCenter's inventory; see {@link #findEntity}. */
+    private final VSphereInventoryIndex inventoryIndex;
+
+    /** What is known about the VMs and templates cloned from; see {@link #findSource}. */
+    private final VSphereSourceCache sourceCache;
+
+    /** The customization specs clones have used; see {@link #getCustomizationSpecByName}. */
+    private final VSphereCustomizationSpecCache customizationSpecCache;
+
+    /** The networks of each datacenter; see {@link #getNetworks}. */
+    private final VSphereNetworkIndex networkIndex;
+
+    /** The snapshots of each VM; see {@link #getSnapshotInTree}. */
+    private final VSphereSnapshotIndex snapshotIndex;
+
     /**
      * When non-null, this instance is managed by a {@link VSphereConnectionPool}:
-     * {@link #disconnect()} calls back into {@link VSphereConnectionPool#release()}
+     * {@link #disconnect()} calls back into {@link VSphereConnectionPool#release(VSphere)}
      * instead of logging out, so the pool can defer the real disconnect until every
      * borrower has released it.
      */
     private volatile VSphereConnectionPool owningPool = null;
 
+    /**
+     * When non-null, every public operation first waits for this limiter's budget (see
+     * {@link #beginCall(VSphereCallLimiter.Kind)}), so a single cloud cannot flood its vCenter.
+     */
+    private volatile VSphereCallLimiter callLimiter = null;
+
+    /**
+     * When non-null, every public operation is refused straight away while this breaker is
+     * open, and reports whether the vCenter could be reached to it when done.
+     */
+    private volatile VSphereCircuitBreaker circuitBreaker = null;
+
+    /**
+     * The datacenters, folders and clusters (by name or inventory path) that searches of
+     * the whole inventory are confined to; empty to search everything.
+     */
+    private volatile List<String> inventoryRoots = Collections.emptyList();
+
+    /** The {@link #inventoryRoots} once found in the inventory; null until first needed. */
+    @CheckForNull
+    private volatile ManagedEntity[] scopeRoots;
+
+    /** How many {@link Call}s the current thread is inside of; only the outermost one counts. */
+    private static final ThreadLocal<int[]> CALL_DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
     private VSphere(@NonNull String url, boolean ignoreCert, @NonNull String user, @CheckForNull String pw) throws VSphereException {
+        this(url, ignoreCert, user, pw, 0, 0);
+    }
+
+    /**
+     * @param connectTimeoutMs how long to wait for the TCP/TLS connection to the vCenter;
+     *                         0 uses the client library's default.
+     * @param readTimeoutMs how long to wait for a SOAP response; 0 uses the client library's
+     *                      default.
+     */
+    private VSphere(@NonNull String url, boolean ignoreCert, @NonNull String user, @CheckForNull String pw,
+                    int connectTimeoutMs, int readTimeoutMs) throws VSphereException {
+        this.caches = VSphereVCenterCaches.acquire(url, user);
+        this.inventoryIndex = caches.inventoryIndex;
+        this.sourceCache = caches.sourceCache;
+        this.customizationSpecCache = caches.customizationSpecCache;
+        this.networkIndex = caches.networkIndex;
+        this.snapshotIndex = caches.snapshotIndex;
         try {
             this.url = new URL(url);
-            final ServiceInstance serviceInstance = new ServiceInstance(this.url, user, pw, ignoreCert);
+            if (connectTimeoutMs > 0 || readTimeoutMs > 0) {
+                this.serviceInstance = new ServiceInstance(this.url, user, pw, ignoreCert,
+                        ServiceInstance.VIM25_NAMESPACE, Math.max(0, connectTimeoutMs), Math.max(0, readTimeoutMs));
+            } else {
+                this.serviceInstance = new ServiceInstance(this.url, user, pw, ignoreCert);
+            }
             final ServerConnection serverConnection = serviceInstance.getServerConnection();
             this.session = serverConnection.getSessionStr();
         } catch (Exception e) {
+            caches.release();
             throw new VSphereException(e);
         }
     }
 
-    private ServiceInstance getServiceInstance() throws RemoteException, MalformedURLException {
-        return new ServiceInstance(url, session, true);
+    // Package-private so that the VSphereInventoryMirror can set up its view on this session.
+    ServiceInstance getServiceInstance() throws RemoteException, MalformedURLException {
+        return serviceInstance;
+    }
+
+    /**
+     * @return How many round-trips this session has made to the vCenter so far to look
+     *         entities up by name or path.
+     */
+    public long getLookupRoundTrips() {
+        return lookupRoundTrips.get();
+    }
+
+    /**
+     * @return How many {@code ServiceContent} round-trips this session has saved so far by
+     *         reusing the {@link ServiceInstance} it logged in with, where it used to build a
+     *         new one.
+     */
+    public long getServiceContentFetchesSaved() {
+        return serviceContentFetchesSaved.get();
+    }
+
+    // Called where a ServiceInstance used to be built (count times) for the operation.
+    private void serviceContentFetchesSaved(int count) {
+        serviceContentFetchesSaved.addAndGet(count);
+    }
+
+    private void logLookupRoundTrips(String operation, long roundTripsBefore, long savedBefore) {
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "{0} looked the inventory up in {1} round-trip(s), and saved {2} ServiceContent round-trip(s)",
+                    new Object[]{ operation, getLookupRoundTrips() - roundTripsBefore, getServiceContentFetchesSaved() - savedBefore });
+        }
     }
 
     /**
@@ -114,7 +263,78 @@ public class VSphere {
         final boolean ignoreCert = connectionDetails.getAllowUntrustedCertificate();
         final String user = connectionDetails.getUsername();
         final String pw = connectionDetails.getPassword();
-        return new VSphere(server, ignoreCert, user, pw);
+        return new VSphere(server, ignoreCert, user, pw,
+                connectionDetails.getConnectTimeoutSecs() * 1000, connectionDetails.getReadTimeoutSecs() * 1000);
+    }
+
+    /**
+     * Initiates Connection to vSphere Server, whose operations are then throttled by
+     * {@code callLimiter}.
+     * @param connectionDetails Contains all the details we need to connect.
+     * @param callLimiter The call budget to apply to this connection, or null for none.
+     * @throws VSphereException If an error occurred.
+     * @return A connected instance.
+     */
+    public static VSphere connect(@NonNull VSphereConnectionConfig connectionDetails,
+                                  @CheckForNull VSphereCallLimiter callLimiter) throws VSphereException {
+        return connect(connectionDetails, callLimiter, null);
+    }
+
+    /**
+     * Initiates Connection to vSphere Server, whose operations are then throttled by
+     * {@code callLimiter} and guarded by {@code circuitBreaker}.
+     * @param connectionDetails Contains all the details we need to connect.
+     * @param callLimiter The call budget to apply to this connection, or null for none.
+     * @param circuitBreaker The breaker to refuse calls while the vCenter is unreachable, or null for none.
+     * @throws VSphereException If an error occurred.
+     * @return A connected instance.
+     */
+    public static VSphere connect(@NonNull VSphereConnectionConfig connectionDetails,
+                                  @CheckForNull VSphereCallLimiter callLimiter,
+                                  @CheckForNull VSphereCircuitBreaker circuitBreaker) throws VSphereException {
+        final VSphere vSphere = connect(connectionDetails);
+        vSphere.callLimiter = callLimiter;
+        vSphere.circuitBreaker = circuitBreaker;
+        return vSphere;
+    }
+
+    /**
+     * Initiates Connection to vSphere Server, whose operations are then throttled by
+     * {@code callLimiter}, guarded by {@code circuitBreaker} and confined to
+     * {@code inventoryRoots}.
+     * @param connectionDetails Contains all the details we need to connect.
+     * @param callLimiter The call budget to apply to this connection, or null for none.
+     * @param circuitBreaker The breaker to refuse calls while the vCenter is unreachable, or null for none.
+     * @param inventoryRoots The names or inventory paths of the datacenters, folders and
+     *                       clusters to search in, or null or empty to search the whole inventory.
+     * @throws VSphereException If an error occurred.
+     * @return A connected instance.
+     */
+    public static VSphere connect(@NonNull VSphereConnectionConfig connectionDetails,
+                                  @CheckForNull VSphereCallLimiter callLimiter,
+                                  @CheckForNull VSphereCircuitBreaker circuitBreaker,
+                                  @CheckForNull List<String> inventoryRoots) throws VSphereException {
+        final VSphere vSphere = connect(connectionDetails, callLimiter, circuitBreaker);
+        vSphere.setInventoryRoots(inventoryRoots);
+        return vSphere;
+    }
+
+    /**
+     * @param inventoryRoots names or inventory paths separated by commas or new lines, e.g.
+     *                       "DC1/host/Build Cluster, DC2".
+     * @return the separate names and paths, without surrounding spaces or empty entries.
+     */
+    @NonNull
+    public static List<String> parseInventoryRoots(@CheckForNull String inventoryRoots) {
+        final List<String> roots = new ArrayList<>();
+        if (inventoryRoots != null) {
+            for (String root : inventoryRoots.split("[,\\n]")) {
+                if (!root.trim().isEmpty()) {
+                    roots.add(root.trim());
+                }
+            }
+        }
+        return roots;
     }
 
     /**
@@ -137,7 +357,7 @@ public class VSphere {
      * <p>
      * When this instance is managed by a {@link VSphereConnectionPool}, this instead
      * signals the pool that this caller is done with it (via
-     * {@link VSphereConnectionPool#release()}); the pool decides when the underlying
+     * {@link VSphereConnectionPool#release(VSphere)}); the pool decides when the underlying
      * session actually gets logged out.
      * </p>
      * <p>
@@ -148,13 +368,22 @@ public class VSphere {
     public void disconnect() {
         final VSphereConnectionPool pool = owningPool;
         if (pool != null) {
-            pool.release();
+            pool.release(this);
             return;
         }
+        logout();
+    }
+
+    private void logout() {
         try {
+            serviceContentFetchesSaved(1);
             this.getServiceInstance().getServerConnection().logout();
         } catch (Exception e) {
             LOGGER.log(Level.WARNING, "Caught exception when trying to disconnect vSphere.", e);
+        } finally {
+            if (loggedOut.compareAndSet(false, true)) {
+                caches.release();
+            }
         }
     }
 
@@ -165,17 +394,283 @@ public class VSphere {
      */
     void markAsPooled(VSphereConnectionPool pool) {
         owningPool = pool;
+        callLimiter = pool.getCallLimiter();
+        circuitBreaker = pool.getCircuitBreaker();
+        setInventoryRoots(pool.getInventoryRoots());
+    }
+
+    // Package-private so that the VSphereInventoryMirror can confine itself to its pools' roots.
+    void setInventoryRoots(@CheckForNull List<String> inventoryRoots) {
+        this.inventoryRoots = inventoryRoots == null ? Collections.emptyList() : new ArrayList<>(inventoryRoots);
+        this.scopeRoots = null;
+    }
+
+    /**
+     * @return the entities that searches of the whole inventory are confined to, found by
+     *         inventory path or else by name on first use; null if searches are not confined.
+     * @throws VSphereNotFoundException if one of the roots does not exist.
+     * @throws VSphereException if one of the roots is not a datacenter, folder or cluster.
+     */
+    @CheckForNull
+    ManagedEntity[] getScopeRoots() throws VSphereException, RemoteException, MalformedURLException {
+        final List<String> roots = inventoryRoots;
+        if (roots.isEmpty()) {
+            return null;
+        }
+        ManagedEntity[] resolved = scopeRoots;
+        if (resolved == null) {
+            resolved = new ManagedEntity[roots.size()];
+            for (int i = 0; i < resolved.length; i++) {
+                resolved[i] = findScopeRoot(roots.get(i));
+            }
+            scopeRoots = resolved;
+        }
+        return resolved;
+    }
+
+    private ManagedEntity findScopeRoot(String root) throws VSphereException, RemoteException, MalformedURLException {
+        lookupRoundTrips.incrementAndGet();
+        ManagedEntity entity = getServiceInstance().getSearchIndex().findByInventoryPath(root);
+        if (entity == null) {
+            // not a path, so a name; below the root folder rather than in scope, as that is being worked out
+            entity = findEntity(null, root, getServiceInstance().getRootFolder());
+        }
+        if (entity == null) {
+            throw new VSphereNotFoundException("Inventory root", root);
+        }
+        final String type = entity.getMOR().getType();
+        if (!SCOPE_ROOT_TYPES.contains(type)) {
+            throw new VSphereException("Inventory root \"" + root + "\" is a " + type + ", not a datacenter, folder or cluster");
+        }
+        return entity;
+    }
+
+    /**
+     * @return every entity of {@code type} in scope: below the scope roots (or the roots
+     *         themselves, if of that type), or anywhere in the inventory if there are none.
+     */
+    private ManagedEntity[] searchInScope(String type) throws VSphereException, RemoteException, MalformedURLException {
+        final ManagedEntity[] roots = getScopeRoots();
+        if (roots == null) {
+            lookupRoundTrips.incrementAndGet();
+            return new InventoryNavigator(getServiceInstance().getRootFolder()).searchManagedEntities(type);
+        }
+        final List<ManagedEntity> found = new ArrayList<>();
+        for (ManagedEntity root : roots) {
+            if (type.equals(root.getMOR().getType())) {
+                found.add(root);
+            }
+            lookupRoundTrips.incrementAndGet();
+            final ManagedEntity[] below = new InventoryNavigator(root).searchManagedEntities(type);
+            if (below != null) {
+                found.addAll(Arrays.asList(below));
+            }
+        }
+        return found.toArray(new ManagedEntity[0]);
+    }
+
+    /**
+     * @return the inventory mirror of this session's pool if it is in sync, i.e. can answer
+     *         lookups without asking the vCenter; null otherwise.
+     */
+    @CheckForNull
+    private VSphereInventoryMirror getSyncedMirror() {
+        final VSphereConnectionPool pool = owningPool;
+        final VSphereInventoryMirror mirror = pool == null ? null : pool.getInventoryMirror();
+        return mirror != null && mirror.isSynced() ? mirror : null;
+    }
+
+    /**
+     * Starts a public operation: fails fast if this connection's circuit breaker is open,
+     * then waits until a call of the given kind is within its call budget, if it has one.
+     * @return the call, which must be {@link Call#end() ended} when the operation is done.
+     */
+    private Call beginCall(VSphereCallLimiter.Kind kind) throws VSphereException {
+        final int[] depth = CALL_DEPTH.get();
+        final VSphereCircuitBreaker breaker = depth[0] == 0 ? circuitBreaker : null;
+        if (breaker != null) {
+            breaker.checkCallPermitted();
+        }
+        final VSphereCallLimiter limiter = callLimiter;
+        final VSphereCallLimiter.Permit permit = limiter == null ? VSphereCallLimiter.NO_PERMIT : limiter.acquire(kind);
+        depth[0]++;
+        return new Call(permit, breaker);
+    }
+
+    /**
+     * Like {@link #beginCall}, for a long-poll: it only waits for the call limiter's rate, and
+     * takes no concurrency slot, as it is parked in the vCenter for most of its length.
+     */
+    private Call beginLongPoll(VSphereCallLimiter.Kind kind) throws VSphereException {
+        final int[] depth = CALL_DEPTH.get();
+        final VSphereCircuitBreaker breaker = depth[0] == 0 ? circuitBreaker : null;
+        if (breaker != null) {
+            breaker.checkCallPermitted();
+        }
+        final VSphereCallLimiter limiter = callLimiter;
+        if (limiter != null) {
+            limiter.awaitRate(kind);
+        }
+        depth[0]++;
+        return new Call(VSphereCallLimiter.NO_PERMIT, breaker);
+    }
+
+    /**
+     * One public operation in progress. It holds the operation's call-limiter permit and,
+     * if it is the outermost operation on its thread, reports its outcome to the breaker.
+     */
+    private static final class Call {
+        private final VSphereCallLimiter.Permit permit;
+        private final VSphereCircuitBreaker breaker;
+        private volatile boolean failed;
+        private boolean detached;
+
+        Call(VSphereCallLimiter.Permit permit, @CheckForNull VSphereCircuitBreaker breaker) {
+            this.permit = permit;
+            this.breaker = breaker;
+        }
+
+        void failed(Exception e) {
+            failed = true;
+            if (breaker != null) {
+                breaker.recordFailure(e);
+            }
+        }
+
+        /**
+         * Hands this call over to a future of its vCenter task: it no longer encloses the
+         * calls this thread makes next, and is ended by whichever thread completes the future.
+         */
+        void detach() {
+            CALL_DEPTH.get()[0]--;
+            detached = true;
+        }
+
+        void end() {
+            if (!detached) {
+                CALL_DEPTH.get()[0]--;
+            }
+            permit.close();
+            if (breaker != null && !failed) {
+                breaker.recordSuccess();
+            }
+        }
+    }
+
+    /** Does the lookups of an operation and starts its vCenter task; null if there is nothing to wait for. */
+    @FunctionalInterface
+    private interface TaskStart {
+        @CheckForNull
+        Task start() throws Exception;
+    }
+
+    /** What an operation does once its vCenter task has finished in state {@code status}. */
+    @FunctionalInterface
+    private interface TaskEnd {
+        void finished(@NonNull Task task, @NonNull String status) throws Exception;
+    }
+
+    /**
+     * Runs an operation that waits for a vCenter task. {@code start} runs on the calling
+     * thread; the task is then followed by the {@link VSphereTaskWatcher}, so no thread is
+     * held while it runs, and {@code end} runs once it has finished (see
+     * {@link VSphereExecutors#continuations()}). The operation's call-limiter permit is held,
+     * and its outcome reported to the breaker, until then.
+     *
+     * @return a future that completes once {@code end} has, or exceptionally with what the
+     *         operation failed with. Cancelling it stops waiting for the task, which the
+     *         vCenter carries on with.
+     */
+    @NonNull
+    private CompletableFuture<Void> runTask(@NonNull TaskStart start, @NonNull TaskEnd end) {
+        final Call call;
+        try {
+            call = beginCall(VSphereCallLimiter.Kind.TASK);
+        } catch (VSphereException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        final Task task;
+        try {
+            try {
+                task = start.start();
+            } catch(RuntimeException | VSphereException e) {
+                throw e;
+            } catch(Exception e) {
+                throw new VSphereException(e.getMessage(), e);
+            }
+        } catch (VSphereException | RuntimeException e) {
+            call.failed(e);
+            call.end();
+            return CompletableFuture.failedFuture(e);
+        }
+        if (task == null) {
+            call.end();
+            return CompletableFuture.completedFuture(null);
+        }
+        call.detach();
+        return VSphereTaskWatcher.whenFinished(task)
+                .<Void>thenApplyAsync(status -> {
+                    try {
+                        end.finished(task, status);
+                        return null;
+                    } catch(RuntimeException e) {
+                        throw e;
+                    } catch(VSphereException e) {
+                        throw new CompletionException(e);
+                    } catch(Exception e) {
+                        throw new CompletionException(new VSphereException(e.getMessage(), e));
+                    }
+                }, VSphereExecutors.continuations())
+                .whenComplete((ignored, failure) -> {
+                    if (failure != null) {
+                        final Throwable cause = unwrap(failure);
+                        call.failed(cause instanceof Exception ? (Exception) cause : new VSphereException(cause));
+                    }
+                    call.end();
+                });
+    }
+
+    /** Waits for an operation started by one of the {@code *Async} methods, throwing what it failed with. */
+    private static <T> T await(@NonNull CompletableFuture<T> future) throws VSphereException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) { // build aborted
+            Thread.currentThread().interrupt(); // pass interrupt upwards
+            future.cancel(false);
+            throw new VSphereException(e);
+        } catch (ExecutionException e) {
+            final Throwable cause = unwrap(e.getCause());
+            if (cause instanceof VSphereException) {
+                throw (VSphereException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new VSphereException(cause);
+        }
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        Throwable cause = failure;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
     }
 
     /**
      * Disconnects the underlying session regardless of pooled status.
      * Called by {@link VSphereConnectionPool} when it actually wants to tear down
      * the session (restart, idle timeout, shutdown).
+     * The instance stays marked as pooled, so that a borrower which still holds it
+     * releases its borrow back to the pool instead of logging out a second time.
      * Package-private — only {@link VSphereConnectionPool} should call this.
      */
     void forceDisconnect() {
-        owningPool = null;
-        disconnect();
+        logout();
     }
 
     /**
@@ -187,6 +682,7 @@ public class VSphere {
      */
     public boolean isSessionAlive() {
         try {
+            serviceContentFetchesSaved(1);
             getServiceInstance().currentTime();
             return true;
         } catch (Exception e) {
@@ -340,32 +836,50 @@ public class VSphere {
      *             if anything goes wrong.
      */
     public void cloneOrDeployVm(String cloneName, String sourceName, boolean linkedClone, String resourcePoolName, String cluster, String datastoreName, String folderName, boolean useCurrentSnapshot, final String namedSnapshot, boolean powerOn, Map<String, String> extraConfigParameters, String customizationSpec, String host, String hostSelectionMode, Set<String> hostSelectionCandidates, PrintStream jLogger) throws VSphereException {
-        if (namedSnapshot == null && extraConfigParameters == null) {
-            // NOTE: This "if" clause may be superfluous - just that previously
-            // this message was only logged by cloneVm() or deployVm()... so for
-            // least surprise and unexpected noise in the logs, effectively kept
-            // so for upgraded plugins where we can also directly call this method
-            // as a "buildStep" under a "vSphere" pipeline step.
-            if (useCurrentSnapshot) {
-                // Called from cloneVm() above.
-                logMessage(jLogger, "Creating a " + (linkedClone ? "shallow" : "deep") + " clone of \"" + sourceName + "\" to \"" + cloneName + "\"");
-            } else {
-                // Called from deployVm() above.
-                logMessage(jLogger, "Deploying new vm \""+ cloneName + "\" from template \""+sourceName+"\"");
+        await(cloneOrDeployVmAsync(cloneName, sourceName, linkedClone, resourcePoolName, cluster, datastoreName, folderName, useCurrentSnapshot, namedSnapshot, powerOn, extraConfigParameters, customizationSpec, host, hostSelectionMode, hostSelectionCandidates, jLogger));
+    }
+
+    /**
+     * Starts {@link #cloneOrDeployVm(String, String, boolean, String, String, String, String, boolean, String, boolean, Map, String, String, String, Set, PrintStream)}
+     * and hands back a future of it; the parameters are the same. The source, placement and
+     * the like are looked up, and the clone task started, on the calling thread; no thread
+     * is held while the vCenter clones (where a {@link VSphereTaskWatcher} follows the task).
+     *
+     * @return a future that completes once the VM has been created, or completes
+     *         exceptionally with the {@link VSphereException} the clone failed with.
+     *         Cancelling it stops waiting for the clone task, which the vCenter carries on with.
+     */
+    @NonNull
+    public CompletableFuture<Void> cloneOrDeployVmAsync(String cloneName, String sourceName, boolean linkedClone, String resourcePoolName, String cluster, String datastoreName, String folderName, boolean useCurrentSnapshot, final String namedSnapshot, boolean powerOn, Map<String, String> extraConfigParameters, String customizationSpec, String host, String hostSelectionMode, Set<String> hostSelectionCandidates, PrintStream jLogger) {
+        final long roundTripsBefore = getLookupRoundTrips();
+        final long savedBefore = getServiceContentFetchesSaved();
+        return runTask(() -> {
+            if (namedSnapshot == null && extraConfigParameters == null) {
+                // NOTE: This "if" clause may be superfluous - just that previously
+                // this message was only logged by cloneVm() or deployVm()... so for
+                // least surprise and unexpected noise in the logs, effectively kept
+                // so for upgraded plugins where we can also directly call this method
+                // as a "buildStep" under a "vSphere" pipeline step.
+                if (useCurrentSnapshot) {
+                    // Called from cloneVm() above.
+                    logMessage(jLogger, "Creating a " + (linkedClone ? "shallow" : "deep") + " clone of \"" + sourceName + "\" to \"" + cloneName + "\"");
+                } else {
+                    // Called from deployVm() above.
+                    logMessage(jLogger, "Deploying new vm \""+ cloneName + "\" from template \""+sourceName+"\"");
+                }
             }
-        }
 
-        try {
-            final VirtualMachine sourceVm = getVmByName(sourceName);
-            if (sourceVm==null) {
+            final VSphereSourceCache.Source source = findSource(sourceName);
+            if (source==null) {
                 throw new VSphereNotFoundException("VM or template", sourceName);
             }
+            final ServerConnection connection = getServiceInstance().getServerConnection();
+            final VirtualMachine sourceVm = new VirtualMachine(connection, source.vm);
             if (getVmByName(cloneName)!=null) {
                 throw new VSphereDuplicateException("VM", cloneName);
             }
 
-            final VirtualMachineConfigInfo vmConfig = sourceVm.getConfig();
-            final boolean sourceIsATemplate = vmConfig.template;
+            final boolean sourceIsATemplate = source.template;
             final String sourceType = sourceIsATemplate?"Template":"VM";
             final VirtualMachineRelocateSpec rel = createRelocateSpec(jLogger, linkedClone, resourcePoolName, cluster, datastoreName, sourceIsATemplate);
             final VirtualMachineCloneSpec cloneSpec = createCloneSpec(rel);
@@ -384,7 +898,8 @@ public class VSphere {
                 cloneSpec.setSnapshot(namedVMSnapshot.getMOR());
             }
             if (useCurrentSnapshot) {
-                final VirtualMachineSnapshot currentSnapShot = sourceVm.getCurrentSnapShot();
+                final VirtualMachineSnapshot currentSnapShot = source.currentSnapshot == null
+                        ? null : new VirtualMachineSnapshot(connection, source.currentSnapshot);
                 if (currentSnapShot==null) {
                     throw new VSphereNotFoundException("Snapshot", null, "Source " + sourceType + " \"" + sourceName + "\" requires at least one snapshot.");
                 }
@@ -399,18 +914,23 @@ public class VSphere {
             if (customizationSpec != null && customizationSpec.length() > 0) {
                 logMessage(jLogger, "Clone of " + sourceType + " \"" + sourceName + "\" will use customization specification \"" + customizationSpec + "\".");
                 CustomizationSpecItem spec = getCustomizationSpecByName(customizationSpec);
+                if (spec == null) {
+                    throw new VSphereNotFoundException("Customization specification", customizationSpec);
+                }
                 cloneSpec.setCustomization(spec.getSpec());
             }
 
+            final Folder sourceFolder = source.parent == null ? null : new Folder(connection, source.parent);
             Folder folder;
             if (folderName == null || folderName.isEmpty() || folderName.equals(" ")) {
                 //same folder as source
-                folder = (Folder) sourceVm.getParent();
-            } else if (!folderExists(folderName)) {
-                folder = (Folder) sourceVm.getParent();
-                logMessage(jLogger, "Unable to find the specified folder. Creating VM in the same folder as its parent ");
+                folder = sourceFolder;
             } else {
                 folder = getFolder(folderName);
+                if (folder == null) {
+                    folder = sourceFolder;
+                    logMessage(jLogger, "Unable to find the specified folder. Creating VM in the same folder as its parent ");
+                }
             }
 
             final HostSystem selectedHost = selectHost(jLogger, getClusterByName(cluster), sourceVm, cloneName, cloneSpec, rel, host, hostSelectionMode, hostSelectionCandidates);
@@ -419,21 +939,26 @@ public class VSphere {
                 logMessage(jLogger, "Clone of " + sourceType + " \"" + sourceName + "\" will be placed on host \"" + selectedHost.getName() + "\".");
             }
 
-            final Task task = sourceVm.cloneVM_Task(folder,
-                    cloneName, cloneSpec);
+            final Task task;
+            try {
+                task = sourceVm.cloneVM_Task(folder, cloneName, cloneSpec);
+            } catch (RemoteException | RuntimeException e) {
+                // as below, should the source have changed in a way the check missed
+                sourceCache.invalidateName(sourceName);
+                throw e;
+            }
             logMessage(jLogger, "Started cloning of " + sourceType + " \"" + sourceName + "\". Please wait ...");
-
-            final String status = task.waitForTask();
+            return task;
+        }, (task, status) -> {
             if (!TaskInfoState.success.toString().equals(status)) {
+                // in case the failure is down to the source having changed in a way the check missed
+                sourceCache.invalidateName(sourceName);
                 throw newVSphereException(task.getTaskInfo(), "Couldn't clone \""+ sourceName +"\". " +
                         "Clone task ended with status " + status + ".");
             }
             logMessage(jLogger, "Successfully cloned VM \"" + sourceName + "\" to create \"" + cloneName + "\".");
-        } catch(RuntimeException | VSphereException e) {
-            throw e;
-        } catch(Exception e) {
-            throw new VSphereException(e);
-        }
+            logLookupRoundTrips("cloneOrDeployVm(" + cloneName + ")", roundTripsBefore, savedBefore);
+        });
     }
 
     private VirtualMachineCloneSpec createCloneSpec(VirtualMachineRelocateSpec rel) {
@@ -489,10 +1014,18 @@ public class VSphere {
      * @throws VSphereException If an error occurred while querying vCenter.
      */
     public boolean hostExists(final String hostName) throws VSphereException {
+        final Call call = beginCall(VSphereCallLimiter.Kind.READ);
         try {
-            return getHostByName(hostName, null) != null;
-        } catch (Exception e) {
-            throw new VSphereException(e);
+            try {
+                return getHostByName(hostName, null) != null;
+            } catch (Exception e) {
+                throw new VSphereException(e);
+            }
+        } catch (VSphereException | RuntimeException e) {
+            call.failed(e);
+            throw e;
+        } finally {
+            call.end();
         }
     }
 
@@ -501,12 +1034,158 @@ public class VSphere {
      * @param rootEntity - managed entity to search, or null to search the whole inventory
      * @return - HostSystem object, or null if not found
      */
-    private HostSystem getHostByName(final String hostName, ManagedEntity rootEntity) throws InvalidProperty, RuntimeFault, RemoteException, MalformedURLException {
-        if (rootEntity == null) rootEntity = getServiceInstance().getRootFolder();
+    private HostSystem getHostByName(final String hostName, ManagedEntity rootEntity) throws InvalidProperty, RuntimeFault, RemoteException, MalformedURLException, VSphereException {
+        serviceContentFetchesSaved(rootEntity == null ? 1 : 0);
+        return (HostSystem) findEntity("HostSystem", hostName, rootEntity);
+    }
+
+    /**
+     * Finds the entity of the given type (any type if null) and name under
+     * {@code rootEntity} (if null, the whole inventory - or each of the inventory roots
+     * this session is confined to, in turn), like
+     * {@link InventoryNavigator#searchManagedEntity(String, String)} does. Where the
+     * {@link VSphereInventoryMirror} knows the answer, that costs no round-trip at all; where
+     * the {@link VSphereInventoryIndex} does, one round-trip to check it is still valid.
+     * Below a given {@code rootEntity}, the {@code SearchIndex} is then asked for a direct
+     * child of that name, also in one round-trip. Only otherwise is every entity of the type
+     * in the inventory crawled.
+     */
+    private ManagedEntity findEntity(@CheckForNull String type, @CheckForNull String name, @CheckForNull ManagedEntity rootEntity) throws VSphereException, RemoteException, MalformedURLException {
+        final boolean wholeInventory = rootEntity == null;
+        if (wholeInventory) {
+            final ManagedEntity[] scopeRoots = getScopeRoots();
+            if (scopeRoots != null) {
+                for (ManagedEntity scopeRoot : scopeRoots) {
+                    final ManagedEntity found = findEntity(type, name, scopeRoot);
+                    if (found != null) {
+                        return found;
+                    }
+                }
+                return null;
+            }
+            rootEntity = getServiceInstance().getRootFolder();
+        }
+        if (name == null) {
+            lookupRoundTrips.incrementAndGet();
+            return new InventoryNavigator(rootEntity).searchManagedEntity(type, name);
+        }
+
+        final String scope = rootEntity.getMOR().getVal();
+        final VSphereInventoryMirror mirror = getSyncedMirror();
+        final ManagedObjectReference mirrored = mirror == null ? null : mirror.find(type, name, scope);
+        if (mirrored != null) {
+            return MorUtil.createExactManagedEntity(getServiceInstance().getServerConnection(), mirrored);
+        }
+
+        final ManagedObjectReference known = inventoryIndex.get(scope, type, name);
+        if (known != null) {
+            final ManagedEntity entity = MorUtil.createExactManagedEntity(getServiceInstance().getServerConnection(), known);
+            lookupRoundTrips.incrementAndGet();
+            if (isStillCalled(entity, name)) {
+                return entity;
+            }
+            LOGGER.log(Level.FINE, "{0} {1} has moved on; searching the inventory again", new Object[]{ known.getType(), name });
+            inventoryIndex.invalidate(scope, type, name);
+        }
+
+        if (!wholeInventory) {
+            lookupRoundTrips.incrementAndGet();
+            final ManagedEntity child = getServiceInstance().getSearchIndex().findChild(rootEntity, name);
+            if (child != null && (type == null || type.equals(child.getMOR().getType()))) {
+                inventoryIndex.put(scope, type, name, child.getMOR());
+                return child;
+            }
+        }
+
+        lookupRoundTrips.incrementAndGet();
+        final ManagedEntity found = new InventoryNavigator(rootEntity).searchManagedEntity(type, name);
+        if (found != null) {
+            inventoryIndex.put(scope, type, name, found.getMOR());
+        }
+        return found;
+    }
+
+    /**
+     * Finds the VM or template called {@code sourceName}, along with what cloning needs to
+     * know about it. A source found in the {@link VSphereSourceCache} costs one round-trip,
+     * to check that it has not changed since; otherwise it is looked up with
+     * {@link #findEntity} and then read in one round-trip, and cached.
+     *
+     * @return null if there is no VM or template of that name.
+     */
+    @CheckForNull
+    private VSphereSourceCache.Source findSource(String sourceName) throws VSphereException, RemoteException, MalformedURLException {
+        final String scope = String.join(",", inventoryRoots);
+        final VSphereSourceCache.Source cached = sourceCache.get(scope, sourceName);
+        if (cached != null) {
+            Map<String, Object> current;
+            try {
+                current = VSphereProjection.fetch(getServiceInstance().getPropertyCollector(), cached.vm, SOURCE_CHECK_PROPERTIES);
+            } catch (RemoteException e) {
+                current = Collections.emptyMap(); // e.g. the VM no longer exists
+            }
+            lookupRoundTrips.incrementAndGet();
+            propertiesFetched.addAndGet(current.size());
+            if (sourceName.equals(current.get("name"))
+                    && cached.isCurrent((ManagedObjectReference) current.get("parent"),
+                            (String) current.get("config.changeVersion"),
+                            (ManagedObjectReference) current.get("snapshot.currentSnapshot"))) {
+                return cached;
+            }
+            LOGGER.log(Level.FINE, "{0} has changed since it was last cloned; resolving it again", sourceName);
+            sourceCache.invalidate(scope, sourceName);
+        }
+
+        final ManagedEntity vm = findEntity("VirtualMachine", sourceName, null);
+        if (vm == null) {
+            return null;
+        }
+        final Map<String, Object> values = VSphereProjection.fetch(getServiceInstance().getPropertyCollector(), vm.getMOR(), SOURCE_PROPERTIES);
+        lookupRoundTrips.incrementAndGet();
+        propertiesFetched.addAndGet(values.size());
+        final VSphereSourceCache.Source source = new VSphereSourceCache.Source(vm.getMOR(),
+                (ManagedObjectReference) values.get("parent"),
+                (String) values.get("config.changeVersion"),
+                (ManagedObjectReference) values.get("snapshot.currentSnapshot"),
+                Boolean.TRUE.equals(values.get("config.template")));
+        sourceCache.put(scope, sourceName, source);
+        return source;
+    }
+
+    /**
+     * Finds the folder at {@code folderPath}, which is either a full inventory path (e.g.
+     * "Datacenter/vm/Jenkins/Agents") or the name of a folder anywhere in the inventory
+     * followed by the names of entities below it (e.g. "Jenkins/Agents").
+     * A full path is resolved by the {@code SearchIndex} in one round-trip; otherwise each
+     * segment is looked up with {@link #findEntity}.
+     *
+     * @return the entity at the end of the path, or null if any part of it does not exist.
+     */
+    @CheckForNull
+    private ManagedEntity findFolder(String folderPath) throws RemoteException, MalformedURLException, VSphereException {
+        if (getSyncedMirror() == null) {
+            // with the mirror in sync, walking the path costs no round-trip at all
+            lookupRoundTrips.incrementAndGet();
+            final ManagedEntity byPath = getServiceInstance().getSearchIndex().findByInventoryPath(folderPath);
+            if (byPath != null && "Folder".equals(byPath.getMOR().getType())) {
+                return byPath;
+            }
+        }
+        final String[] folderHierarchy = folderPath.split("/");
+        ManagedEntity folder = findEntity("Folder", folderHierarchy[0], null);
+        for (int i = 1; i < folderHierarchy.length && folder != null; i++) {
+            folder = findEntity(null, folderHierarchy[i], folder);
+        }
+        return folder;
+    }
 
-        return (HostSystem) new InventoryNavigator(
-                rootEntity).searchManagedEntity(
-                        "HostSystem", hostName);
+    // false if the entity has been deleted or renamed since it was indexed
+    private static boolean isStillCalled(ManagedEntity entity, String name) {
+        try {
+            return entity != null && name.equals(entity.getName());
+        } catch (RuntimeException e) {
+            return false;
+        }
     }
 
     /**
@@ -515,9 +1194,9 @@ public class VSphere {
      * specify a {@code cluster}. Returns null if there are zero or multiple clusters,
      * since then there's no way to pick one automatically.
      */
-    private ClusterComputeResource getSingleClusterIfUnambiguous(PrintStream jLogger) throws InvalidProperty, RuntimeFault, RemoteException, MalformedURLException {
-        final ManagedEntity[] allClusters = new InventoryNavigator(
-                getServiceInstance().getRootFolder()).searchManagedEntities("ClusterComputeResource");
+    private ClusterComputeResource getSingleClusterIfUnambiguous(PrintStream jLogger) throws InvalidProperty, RuntimeFault, RemoteException, MalformedURLException, VSphereException {
+        serviceContentFetchesSaved(1);
+        final ManagedEntity[] allClusters = searchInScope("ClusterComputeResource");
         if (allClusters == null || allClusters.length == 0) {
             logMessage(jLogger, "No cluster was specified, and no cluster exists in this vCenter's inventory; cannot auto-select a host.");
             return null;
@@ -644,29 +1323,26 @@ public class VSphere {
         }
     }
 
-    private HostCandidate toHostCandidate(HostSystem hostSystem) {
-        final HostListSummary summary = hostSystem.getSummary();
-        final HostRuntimeInfo runtime = hostSystem.getRuntime();
-        final boolean connected = runtime != null && runtime.getConnectionState() == HostSystemConnectionState.connected;
-        final boolean inMaintenanceMode = runtime != null && runtime.isInMaintenanceMode();
+    private HostCandidate toHostCandidate(HostSystem hostSystem) throws VSphereException {
+        final Map<String, Object> host = fetch(hostSystem, "name", "runtime.connectionState", "runtime.inMaintenanceMode",
+                "summary.quickStats.overallCpuUsage", "summary.quickStats.overallMemoryUsage",
+                "summary.hardware.cpuMhz", "summary.hardware.numCpuCores", "summary.hardware.memorySize");
+        final boolean connected = host.get("runtime.connectionState") == HostSystemConnectionState.connected;
+        final boolean inMaintenanceMode = Boolean.TRUE.equals(host.get("runtime.inMaintenanceMode"));
+
+        final Integer cpuUsageMhz = toInteger(host.get("summary.quickStats.overallCpuUsage"));
+        final Integer memUsageMB = toInteger(host.get("summary.quickStats.overallMemoryUsage"));
+        final int cpuCapacityMhz = (int) (toLong(host.get("summary.hardware.cpuMhz")) * toLong(host.get("summary.hardware.numCpuCores")));
+        final long memCapacityMB = toLong(host.get("summary.hardware.memorySize")) / (1024L * 1024L);
+        return new HostCandidate((String) host.get("name"), connected, inMaintenanceMode, cpuUsageMhz, cpuCapacityMhz, memUsageMB, memCapacityMB);
+    }
 
-        Integer cpuUsageMhz = null;
-        Integer memUsageMB = null;
-        int cpuCapacityMhz = 0;
-        long memCapacityMB = 0L;
-        if (summary != null) {
-            final HostListSummaryQuickStats quickStats = summary.getQuickStats();
-            if (quickStats != null) {
-                cpuUsageMhz = quickStats.getOverallCpuUsage();
-                memUsageMB = quickStats.getOverallMemoryUsage();
-            }
-            final HostHardwareSummary hardware = summary.getHardware();
-            if (hardware != null) {
-                cpuCapacityMhz = hardware.getCpuMhz() * hardware.getNumCpuCores();
-                memCapacityMB = hardware.getMemorySize() / (1024L * 1024L);
-            }
-        }
-        return new HostCandidate(hostSystem.getName(), connected, inMaintenanceMode, cpuUsageMhz, cpuCapacityMhz, memUsageMB, memCapacityMB);
+    private static Integer toInteger(Object value) {
+        return value instanceof Number ? ((Number) value).intValue() : null;
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
     }
 
     private static HostSystem findHostSystemByName(List<HostSystem> hostSystems, String name) {
@@ -679,22 +1355,30 @@ public class VSphere {
     }
 
     public void reconfigureVm(String name, VirtualMachineConfigSpec spec) throws VSphereException {
-        VirtualMachine vm = getVmByName(name);
-        if (vm==null) {
-            throw new VSphereNotFoundException("VM or template", name);
-        }
-        LOGGER.log(Level.FINER, "Reconfiguring VM. Please wait ...");
+        final Call call = beginCall(VSphereCallLimiter.Kind.TASK);
         try {
-            Task task = vm.reconfigVM_Task(spec);
-            String status = task.waitForTask();
-            if (status.equals(TaskInfoState.success.toString())) {
-                return;
+            VirtualMachine vm = getVmByName(name);
+            if (vm==null) {
+                throw new VSphereNotFoundException("VM or template", name);
+            }
+            LOGGER.log(Level.FINER, "Reconfiguring VM. Please wait ...");
+            try {
+                Task task = vm.reconfigVM_Task(spec);
+                String status = VSphereTaskWatcher.waitForTask(task);
+                if (status.equals(TaskInfoState.success.toString())) {
+                    return;
+                }
+                throw newVSphereException(task.getTaskInfo(), "Couldn't reconfigure \""+ name +"\"!");
+            } catch(RuntimeException | VSphereException e) {
+                throw e;
+            } catch(Exception e) {
+                throw new VSphereException("VM cannot be reconfigured:" + e.getMessage(), e);
             }
-            throw newVSphereException(task.getTaskInfo(), "Couldn't reconfigure \""+ name +"\"!");
-        } catch(RuntimeException | VSphereException e) {
+        } catch (VSphereException | RuntimeException e) {
+            call.failed(e);
             throw e;
-        } catch(Exception e) {
-            throw new VSphereException("VM cannot be reconfigured:" + e.getMessage(), e);
+        } finally {
+            call.end();
         }
     }
 
@@ -704,48 +1388,81 @@ public class VSphere {
      * @throws VSphereException If an error occurred.
      */
     public void startVm(String name, int timeoutInSeconds) throws VSphereException {
-        try {
-            VirtualMachine vm = getVmByName(name);
-            if (vm == null) {
-                throw new VSphereNotFoundException("VM", name);
-            }
-            if (isPoweredOn(vm))
-                return;
+        doStartVm(name, timeoutInSeconds);
+    }
 
-            if (vm.getConfig().template)
-                throw new VSphereException("VM represents a template!");
+    /**
+     * Starts {@link #startVm(String, int)} without waiting for it. Unlike
+     * {@link #cloneOrDeployVmAsync}, this holds a thread of
+     * {@link VSphereExecutors#supplyBlocking} until the VM is running, as it long-polls the
+     * VM's own power state, which no {@link VSphereTaskWatcher} follows.
+     *
+     * @param name - Name of VM to start
+     * @param timeoutInSeconds How long to wait for the VM to be running.
+     * @return a future that completes once the VM is running.
+     */
+    @NonNull
+    public CompletableFuture<Void> powerOnAsync(String name, int timeoutInSeconds) {
+        return VSphereExecutors.supplyBlocking(() -> {
+            doStartVm(name, timeoutInSeconds);
+            return null;
+        });
+    }
+
+    private void doStartVm(String name, int timeoutInSeconds) throws VSphereException {
+        final Call call = beginCall(VSphereCallLimiter.Kind.TASK);
+        try {
+            TaskInfo failedTask = null;
+            try {
+                VirtualMachine vm = getVmByName(name);
+                if (vm == null) {
+                    throw new VSphereNotFoundException("VM", name);
+                }
+                if (isPoweredOn(vm))
+                    return;
 
-            Task task = vm.powerOnVM_Task(null);
+                if (isTemplate(vm))
+                    throw new VSphereException("VM represents a template!");
 
-            int timesToCheck = timeoutInSeconds / 5;
-            // add one extra time for remainder
-            timesToCheck++;
-            LOGGER.log(Level.FINER, "Checking " + timesToCheck + " times for vm to be powered on");
+                final Task task = vm.powerOnVM_Task(null);
 
-            for (int i=0; i<timesToCheck; i++) {
-                if (task.getTaskInfo().getState()==TaskInfoState.success) {
+                LOGGER.log(Level.FINER, "Waiting up to " + timeoutInSeconds + " seconds for vm to be powered on");
+                lookupRoundTrips.incrementAndGet();
+                final Predicate<VSpherePowerState.Runtime> poweredOn = VSpherePowerState.isIn(VirtualMachinePowerState.poweredOn);
+                //Check for copied/moved question
+                final Predicate<VSpherePowerState.Runtime> copiedOrMoved = VSpherePowerState.isAsked("_vmx1");
+                final Predicate<VSpherePowerState.Runtime> failed = VSpherePowerState.hasTaskFailed();
+                final VSpherePowerState.Runtime runtime = VSpherePowerState.await(vm, task,
+                        poweredOn.or(copiedOrMoved).or(failed), TimeUnit.SECONDS.toMillis(Math.max(0, timeoutInSeconds)));
+                if (poweredOn.test(runtime)) {
                     LOGGER.log(Level.FINER, "VM was powered up successfully.");
                     return;
                 }
-                if (task.getTaskInfo().getState()==TaskInfoState.running ||
-                        task.getTaskInfo().getState()==TaskInfoState.queued) {
-                    Thread.sleep(5000);
-                }
-                //Check for copied/moved question
-                VirtualMachineQuestionInfo q = vm.getRuntime().getQuestion();
-                if (q!=null && q.getId().equals("_vmx1")) {
+                if (copiedOrMoved.test(runtime)) {
+                    final VirtualMachineQuestionInfo q = runtime.question;
                     vm.answerVM(q.getId(), q.getChoice().getDefaultIndex().toString());
                     return;
                 }
+                if (failed.test(runtime)) {
+                    failedTask = task.getTaskInfo();
+                }
+            } catch(InterruptedException e) { // build aborted
+                Thread.currentThread().interrupt(); // pass interrupt upwards
+                throw new VSphereException("VM cannot be started: " + e.getMessage(), e);
+            } catch(Exception e) {
+                throw new VSphereException("VM cannot be started: " + e.getMessage(), e);
             }
-        } catch(InterruptedException e) { // build aborted
-            Thread.currentThread().interrupt(); // pass interrupt upwards
-            throw new VSphereException("VM cannot be started: " + e.getMessage(), e);
-        } catch(Exception e) {
-            throw new VSphereException("VM cannot be started: " + e.getMessage(), e);
-        }
 
-        throw new VSphereException("VM cannot be started");
+            if (failedTask != null) {
+                throw newVSphereException(failedTask, "VM cannot be started");
+            }
+            throw new VSphereException("VM cannot be started");
+        } catch (VSphereException | RuntimeException e) {
+            call.failed(e);
+            throw e;
+        } finally {
+            call.end();
+        }
     }
 
     private ManagedObjectReference findSnapshotInTree(
@@ -769,6 +1486,14 @@ public class VSphere {
         return null;
     }
 
+    /**
+     * Finds the snapshot of {@code vm} called {@code snapName}.
+     * Where the inventory mirror is in sync, the VM's snapshots are looked up in the
+     * {@link VSphereSnapshotIndex}, which costs no round-trip at all; only if they have
+     * changed (or are not known yet) is the VM's snapshot tree read.
+     *
+     * @return null if there is no such snapshot.
+     */
     public VirtualMachineSnapshot getSnapshotInTree(
             VirtualMachine vm, String snapName) {
         if (vm == null || snapName == null) {
@@ -776,21 +1501,58 @@ public class VSphere {
         }
 
         LOGGER.log(Level.FINER, "Looking for snapshot " + snapName + " in " + vm.getName() );
-        VirtualMachineSnapshotInfo info = vm.getSnapshot();
-        if (info != null) {
-            VirtualMachineSnapshotTree[] snapTree =
-                    info.getRootSnapshotList();
-            if (snapTree != null) {
-                ManagedObjectReference mor = findSnapshotInTree(
-                        snapTree, snapName);
-                if (mor != null) {
-                    return new VirtualMachineSnapshot(
-                            vm.getServerConnection(), mor);
+        final VSphereSnapshotIndex.Snapshots snapshots;
+        try {
+            snapshots = getSnapshots(vm);
+        } catch (RemoteException | MalformedURLException e) {
+            LOGGER.log(Level.FINE, "Could not use the snapshot index for " + vm.getMOR().getVal() + "; walking its snapshot tree", e);
+            VirtualMachineSnapshotInfo info = vm.getSnapshot();
+            if (info != null) {
+                VirtualMachineSnapshotTree[] snapTree =
+                        info.getRootSnapshotList();
+                if (snapTree != null) {
+                    ManagedObjectReference mor = findSnapshotInTree(
+                            snapTree, snapName);
+                    if (mor != null) {
+                        return new VirtualMachineSnapshot(
+                                vm.getServerConnection(), mor);
+                    }
                 }
             }
+            return null;
         }
+        final ManagedObjectReference mor = snapshots.get(snapName);
+        if (mor == null) {
+            return null;
+        }
+        LOGGER.log(Level.FINER, "Found snapshot {0} at depth {1} of {2}, which runs on a chain of {3}",
+                new Object[]{snapName, snapshots.getDepth(snapName), vm.getMOR().getVal(), snapshots.getCurrentDepth()});
+        return new VirtualMachineSnapshot(vm.getServerConnection(), mor);
+    }
 
-        return null;
+    /**
+     * @return the snapshots of {@code vm}, from the {@link #snapshotIndex} if the inventory
+     *         mirror reports that they have not changed since they were last read.
+     */
+    @NonNull
+    private VSphereSnapshotIndex.Snapshots getSnapshots(@NonNull VirtualMachine vm) throws RemoteException, MalformedURLException {
+        final VSphereInventoryMirror mirror = getSyncedMirror();
+        // read before the tree, so that a change made while it is being read makes the entry stale
+        final String version = mirror == null ? null : mirror.getSnapshotVersion(vm.getMOR());
+        if (version != null) {
+            final VSphereSnapshotIndex.Snapshots known = snapshotIndex.get(vm.getMOR().getVal(), version);
+            if (known != null) {
+                return known;
+            }
+        }
+        final PropertyCollector collector = getServiceInstance().getPropertyCollector();
+        final Map<String, Object> values = VSphereProjection.fetch(collector, vm.getMOR(), SNAPSHOT_PROPERTIES);
+        lookupRoundTrips.incrementAndGet();
+        propertiesFetched.addAndGet(values.size());
+        final VSphereSnapshotIndex.Snapshots snapshots = VSphereSnapshotIndex.Snapshots.of(
+                version, (VirtualMachineSnapshotInfo) values.get("snapshot"));
+        snapshotIndex.put(vm.getMOR().getVal(), snapshots);
+        return snapshots;
     }
 
     public void revertToSnapshot(String vmName, String snapName) throws VSphereException {
@@ -798,114 +1560,158 @@ public class VSphere {
     }
 
     public void revertToSnapshot(String vmName, String snapName, boolean suppressPowerOn) throws VSphereException {
+        await(revertAsync(vmName, snapName, suppressPowerOn));
+    }
 
-        VirtualMachine vm = getVmByName(vmName);
-        VirtualMachineSnapshot snap = getSnapshotInTree(vm, snapName);
-
-        if (snap == null) {
-            LOGGER.log(Level.SEVERE, "Cannot find snapshot: '" + snapName + "' for virtual machine: '" + vm.getName()+"'");
-            throw new VSphereNotFoundException("Snapshot", snapName);
-        }
+    /**
+     * Starts {@link #revertToSnapshot(String, String, boolean)} and hands back a future of
+     * it. The snapshot is looked up, and the revert task started, on the calling thread; no
+     * thread is held while the vCenter reverts the VM.
+     *
+     * @param vmName the name of the VM to revert.
+     * @param snapName the name of the snapshot to revert it to.
+     * @param suppressPowerOn if true, the VM is not powered on even if the snapshot was taken of a running VM.
+     * @return a future that completes once the VM has been reverted.
+     */
+    @NonNull
+    public CompletableFuture<Void> revertAsync(String vmName, String snapName, boolean suppressPowerOn) {
+        return runTask(() -> {
+            VirtualMachine vm = getVmByName(vmName);
+            VirtualMachineSnapshot snap = getSnapshotInTree(vm, snapName);
 
-        try {
-            Task task = snap.revertToSnapshot_Task(null, Boolean.valueOf(suppressPowerOn));
-            if (!task.waitForTask().equals(Task.SUCCESS)) {
-                final String msg = "Could not revert to snapshot '" + snap.toString() + "' for virtual machine:'" + vm.getName()+"'";
+            if (snap == null) {
+                LOGGER.log(Level.SEVERE, "Cannot find snapshot: '" + snapName + "' for virtual machine: '" + vm.getName()+"'");
+                throw new VSphereNotFoundException("Snapshot", snapName);
+            }
+            return snap.revertToSnapshot_Task(null, Boolean.valueOf(suppressPowerOn));
+        }, (task, status) -> {
+            if (!status.equals(Task.SUCCESS)) {
+                final String msg = "Could not revert to snapshot '" + snapName + "' for virtual machine:'" + vmName + "'";
                 LOGGER.log(Level.SEVERE, msg);
                 throw newVSphereException(task.getTaskInfo(), msg);
             }
-        } catch(RuntimeException | VSphereException e) {
-            throw e;
-        } catch(Exception e) {
-            throw new VSphereException(e);
-        }
+        });
     }
 
     public void deleteSnapshot(String vmName, String snapName, boolean consolidate, boolean failOnNoExist) throws VSphereException {
+        final Call call = beginCall(VSphereCallLimiter.Kind.TASK);
+        try {
 
-        VirtualMachine vm = getVmByName(vmName);
-        VirtualMachineSnapshot snap = getSnapshotInTree(vm, snapName);
+            VirtualMachine vm = getVmByName(vmName);
+            VirtualMachineSnapshot snap = getSnapshotInTree(vm, snapName);
 
-        if (snap == null && failOnNoExist) {
-            throw new VSphereNotFoundException("Snapshot", snapName);
-        }
+            if (snap == null && failOnNoExist) {
+                throw new VSphereNotFoundException("Snapshot", snapName);
+            }
 
-        try {
-            Task task;
-            if (snap!=null) {
-                //Does not delete subtree; Implicitly consolidates disk
-                task = snap.removeSnapshot_Task(false);
-                if (!task.waitForTask().equals(Task.SUCCESS)) {
-                    throw newVSphereException(task.getTaskInfo(), "Could not delete snapshot");
+            try {
+                Task task;
+                if (snap!=null) {
+                    //Does not delete subtree; Implicitly consolidates disk
+                    task = snap.removeSnapshot_Task(false);
+                    if (!VSphereTaskWatcher.waitForTask(task).equals(Task.SUCCESS)) {
+                        throw newVSphereException(task.getTaskInfo(), "Could not delete snapshot");
+                    }
+                    sourceCache.invalidateName(vmName);
+                    snapshotIndex.invalidate(vm.getMOR().getVal());
                 }
-            }
 
-            if (!consolidate)
-                return;
+                if (!consolidate)
+                    return;
 
-            //This might be redundant, but I think it consolidates all disks,
-            //where as the removeSnapshot only consolidates the individual disk
-            task = vm.consolidateVMDisks_Task();
-            if (!task.waitForTask().equals(Task.SUCCESS)) {
-                throw newVSphereException(task.getTaskInfo(), "Could not consolidate VM disks");
+                //This might be redundant, but I think it consolidates all disks,
+                //where as the removeSnapshot only consolidates the individual disk
+                task = vm.consolidateVMDisks_Task();
+                if (!VSphereTaskWatcher.waitForTask(task).equals(Task.SUCCESS)) {
+                    throw newVSphereException(task.getTaskInfo(), "Could not consolidate VM disks");
+                }
+            } catch(RuntimeException | VSphereException e) {
+                throw e;
+            } catch(Exception e) {
+                throw new VSphereException(e);
             }
-        } catch(RuntimeException | VSphereException e) {
+        } catch (VSphereException | RuntimeException e) {
+            call.failed(e);
             throw e;
-        } catch(Exception e) {
-            throw new VSphereException(e);
+        } finally {
+            call.end();
         }
     }
 
     public void takeSnapshot(String vmName, String snapshot, String description, boolean snapMemory) throws VSphereException {
-
-        final String message = "Could not take snapshot";
-        VirtualMachine vmToSnapshot = getVmByName(vmName);
-        if (vmToSnapshot == null) {
-            throw new VSphereNotFoundException("VM", vmName);
-        }
+        final Call call = beginCall(VSphereCallLimiter.Kind.TASK);
         try {
-            Task task = vmToSnapshot.createSnapshot_Task(snapshot, description, snapMemory, !snapMemory);
-            if (task.waitForTask().equals(Task.SUCCESS)) {
-                return;
+
+            final String message = "Could not take snapshot";
+            VirtualMachine vmToSnapshot = getVmByName(vmName);
+            if (vmToSnapshot == null) {
+                throw new VSphereNotFoundException("VM", vmName);
             }
-            throw newVSphereException(task.getTaskInfo(), message);
-        } catch(RuntimeException | VSphereException e) {
+            try {
+                Task task = vmToSnapshot.createSnapshot_Task(snapshot, description, snapMemory, !snapMemory);
+                if (VSphereTaskWatcher.waitForTask(task).equals(Task.SUCCESS)) {
+                    return;
+                }
+                throw newVSphereException(task.getTaskInfo(), message);
+            } catch(RuntimeException | VSphereException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new VSphereException(message, e);
+            }
+        } catch (VSphereException | RuntimeException e) {
+            call.failed(e);
             throw e;
-        } catch (Exception e) {
-            throw new VSphereException(message, e);
+        } finally {
+            call.end();
         }
     }
 
     public void markAsTemplate(String vmName, String snapName, boolean force) throws VSphereException {
-
-        final String message = "Could not mark as Template. Check it's power state or select \"force.\"";
+        final Call call = beginCall(VSphereCallLimiter.Kind.TASK);
         try {
-            VirtualMachine vm = getVmByName(vmName);
-            if (vm.getConfig().template)
-                return;
 
-            if (isPoweredOff(vm) || force) {
-                powerOffVm(vm, force, 0);
-                vm.markAsTemplate();
-                return;
+            final String message = "Could not mark as Template. Check it's power state or select \"force.\"";
+            try {
+                VirtualMachine vm = getVmByName(vmName);
+                if (isTemplate(vm))
+                    return;
+
+                if (isPoweredOff(vm) || force) {
+                    powerOffVm(vm, force, 0);
+                    vm.markAsTemplate();
+                    return;
+                }
+            } catch(Exception e) {
+                throw new VSphereException(message, e);
             }
-        } catch(Exception e) {
-            throw new VSphereException(message, e);
+            throw new VSphereException(message);
+        } catch (VSphereException | RuntimeException e) {
+            call.failed(e);
+            throw e;
+        } finally {
+            call.end();
         }
-        throw new VSphereException(message);
     }
 
     public void markAsVm(String name, String resourcePool, String cluster) throws VSphereException {
+        final Call call = beginCall(VSphereCallLimiter.Kind.TASK);
         try {
-            VirtualMachine vm = getVmByName(name);
-            if (vm.getConfig().template) {
-                vm.markAsVirtualMachine(
-                        getResourcePoolByName(resourcePool, getClusterByName(cluster)),
-                        null
-                        );
+            try {
+                VirtualMachine vm = getVmByName(name);
+                if (isTemplate(vm)) {
+                    vm.markAsVirtualMachine(
+                            getResourcePoolByName(resourcePool, getClusterByName(cluster)),
+                            null
+                            );
+                }
+            } catch(Exception e) {
+                throw new VSphereException("Could not convert to VM", e);
             }
-        } catch(Exception e) {
-            throw new VSphereException("Could not convert to VM", e);
+        } catch (VSphereException | RuntimeException e) {
+            call.failed(e);
+            throw e;
+        } finally {
+            call.end();
         }
     }
 
@@ -914,40 +1720,104 @@ public class VSphere {
      * 
      * @param vm VirtualMachine name whose IP is to be returned.
      * @param timeout How long to wait (in seconds) for the IP address to known to vSphere.
-     * @return String containing IP address.
+     * @return String containing IP address, or null if none was known in time or the waiting thread was interrupted.
      * @throws VSphereException If an error occurred.
      */
     public String getIp(VirtualMachine vm, int timeout) throws VSphereException {
+        return doGetIp(vm, timeout);
+    }
+
+    /**
+     * Starts {@link #getIp(VirtualMachine, int)} without waiting for it. Like
+     * {@link #powerOnAsync}, this holds a thread of {@link VSphereExecutors#supplyBlocking}
+     * while it long-polls the VM's guest properties.
+     *
+     * @param vm VirtualMachine whose IP is to be returned.
+     * @param timeout How long to wait (in seconds) for the IP address to known to vSphere.
+     * @return a future that completes with the IP address, or with null if none became known in time.
+     */
+    @NonNull
+    public CompletableFuture<String> awaitGuestIpAsync(VirtualMachine vm, int timeout) {
+        return VSphereExecutors.supplyBlocking(() -> doGetIp(vm, timeout));
+    }
+
+    private String doGetIp(VirtualMachine vm, int timeout) throws VSphereException {
 
         if (vm==null)
             throw new VSphereException("VM is null");
 
-        //Determine how many attempts will be made to fetch the IP address
-        final int waitSeconds = 5;
-        final int maxTries;
-        if (timeout<=waitSeconds)
-            maxTries = 1;
-        else
-            maxTries = (int) Math.round((double)timeout / waitSeconds);
+        final VSphereInventoryMirror mirror = getSyncedMirror();
+        final VSphereInventoryMirror.Entity mirrored = mirror == null ? null : mirror.get(vm.getMOR().getVal());
+        if (mirrored != null && mirrored.ipAddress != null) {
+            // the mirror is told as soon as the guest reports an address
+            return mirrored.ipAddress;
+        }
+        return waitForGuestIp(vm, null, timeout);
+    }
 
-        for(int count=0; count<maxTries; count++) {
+    /**
+     * Waits for the guest of a VM to report an IP address. The VM's guest properties are
+     * watched (see {@link VSphereGuestReadiness}), so this returns as soon as the address
+     * is known rather than at the next poll.
+     *
+     * @param vm the VM whose IP address is wanted.
+     * @param ipPattern what the address must look like (e.g. an IPv4 one), or null for any address.
+     * @param timeoutSeconds How long to wait (in seconds) for the IP address to be known to vSphere.
+     * @return the IP address, or null if none (matching) was known in time or the waiting thread was interrupted.
+     * @throws VSphereException If an error occurred.
+     */
+    @CheckForNull
+    public String waitForGuestIp(@NonNull VirtualMachine vm, @CheckForNull Pattern ipPattern, int timeoutSeconds) throws VSphereException {
+        final VSphereGuestReadiness.Guest guest = awaitGuest(vm, VSphereGuestReadiness.hasIpAddress(ipPattern), timeoutSeconds);
+        return guest == null ? null : guest.ipAddress;
+    }
 
-            GuestInfo guestInfo = vm.getGuest();
+    /**
+     * Waits for the VMware Tools in the guest of a VM to be running, returning as soon as
+     * they are.
+     *
+     * @param vm the VM to wait for.
+     * @param timeoutSeconds How long to wait (in seconds).
+     * @return false if the tools were not running in time or the waiting thread was interrupted.
+     * @throws VSphereException If an error occurred.
+     */
+    public boolean waitForGuestTools(@NonNull VirtualMachine vm, int timeoutSeconds) throws VSphereException {
+        return awaitGuest(vm, VSphereGuestReadiness.hasToolsRunning(), timeoutSeconds) != null;
+    }
 
-            // guest info can be null sometimes
-            if (guestInfo != null && guestInfo.getIpAddress() != null) {
-                return guestInfo.getIpAddress();
-            }
+    @CheckForNull
+    private VSphereGuestReadiness.Guest awaitGuest(VirtualMachine vm, Predicate<VSphereGuestReadiness.Guest> ready,
+                                                   int timeoutSeconds) throws VSphereException {
+        try {
+            lookupRoundTrips.incrementAndGet();
+            return VSphereGuestReadiness.await(getServiceInstance().getPropertyCollector(), vm.getMOR(), ready,
+                    TimeUnit.SECONDS.toMillis(Math.max(0, timeoutSeconds)), this::waitForGuestUpdates);
+        } catch (InterruptedException e) { // build aborted
+            Thread.currentThread().interrupt(); // pass interrupt upwards
+            return null;
+        } catch (RemoteException | MalformedURLException e) {
+            throw new VSphereException(e);
+        }
+    }
 
+    // Each long-poll of a guest wait is a read call of its own, so it counts against the read
+    // rate once per poll, and is refused while the breaker is open; it holds no concurrency
+    // slot, which a wait of minutes would otherwise keep from the short reads.
+    @CheckForNull
+    private UpdateSet waitForGuestUpdates(PropertyCollector collector, String version, WaitOptions options) throws VSphereException {
+        final Call call = beginLongPoll(VSphereCallLimiter.Kind.READ);
+        try {
             try {
-                //wait
-                Thread.sleep(waitSeconds * 1000);
-            } catch (InterruptedException e) { // build aborted
-                Thread.currentThread().interrupt(); // pass interrupt upwards
-                break; // and abort our activities now.
+                return collector.waitForUpdatesEx(version, options);
+            } catch (RemoteException e) {
+                throw new VSphereException(e);
             }
+        } catch (VSphereException | RuntimeException e) {
+            call.failed(e);
+            throw e;
+        } finally {
+            call.end();
         }
-        return null;
     }
 
     /**
@@ -956,49 +1826,105 @@ public class VSphere {
      * @throws VSphereException If an error occurred.
      */
     public VirtualMachine getVmByName(String vmName) throws VSphereException {
+        final Call call = beginCall(VSphereCallLimiter.Kind.READ);
         try {
-            return (VirtualMachine) new InventoryNavigator(
-                    getServiceInstance().getRootFolder()).searchManagedEntity(
-                            "VirtualMachine", vmName);
-        } catch (Exception e) {
-            throw new VSphereException(e);
+            serviceContentFetchesSaved(1);
+            try {
+                return (VirtualMachine) findEntity("VirtualMachine", vmName, null);
+            } catch (Exception e) {
+                throw new VSphereException(e);
+            }
+        } catch (VSphereException | RuntimeException e) {
+            call.failed(e);
+            throw e;
+        } finally {
+            call.end();
         }
     }
 
-    public int countVms() throws VSphereException {
-        int count = 0;
+    /**
+     * @param entity - VM (or other inventory object) whose location to describe
+     * @return - the names of the folders (and datacenter, ...) containing the entity, from
+     *         the top of the inventory down, each followed by a '/'
+     * @throws VSphereException If an error occurred.
+     */
+    public String getInventoryPath(ManagedEntity entity) throws VSphereException {
+        final VSphereInventoryMirror mirror = getSyncedMirror();
+        final String mirrored = mirror == null ? null : mirror.getPath(entity.getMOR().getVal());
+        if (mirrored != null) {
+            return mirrored;
+        }
+        final Call call = beginCall(VSphereCallLimiter.Kind.READ);
         try {
-            final InventoryNavigator navigator = new InventoryNavigator(getServiceInstance().getRootFolder());
-            final ManagedEntity[] entities = navigator.searchManagedEntities(false);
-            count = entities.length;
-        } catch (Exception ex) {
-            throw new VSphereException(ex);
+            String path = "";
+            for (ManagedEntity me = entity.getParent(); me != null; me = me.getParent()) {
+                path = me.getName() + '/' + path;
+            }
+            return path;
+        } catch (RuntimeException e) {
+            call.failed(e);
+            throw e;
+        } finally {
+            call.end();
         }
-        return count;
     }
 
+    /**
+     * @return - how many VMs (and templates) there are in the inventory (or below the
+     *         inventory roots this session is confined to)
+     * @throws VSphereException If an error occurred.
+     */
+    public int countVms() throws VSphereException {
+        return countVmsByPrefix("");
+    }
+
+    /**
+     * @param prefix - start of the names to count
+     * @return - how many VMs (and templates) there are in the inventory (or below the
+     *         inventory roots this session is confined to) whose name starts with the prefix. Names are read a page at a time (see
+     *         {@code VSphereInventoryEnumerator}), or from the inventory mirror if it is in sync.
+     * @throws VSphereException If an error occurred.
+     */
     public int countVmsByPrefix(final String prefix) throws VSphereException {
-        int count = 0;
+        serviceContentFetchesSaved(1);
+        final VSphereInventoryMirror mirror = getSyncedMirror();
+        if (mirror != null) {
+            return mirror.countVmsByPrefix(prefix);
+        }
+        final Call call = beginCall(VSphereCallLimiter.Kind.READ);
         try {
-            final InventoryNavigator navigator = new InventoryNavigator(getServiceInstance().getRootFolder());
-            final ManagedEntity[] entities = navigator.searchManagedEntities(false);
-            for(final ManagedEntity entity : entities) {
-                if (entity.getName().startsWith(prefix)) {
-                    ++count;
+            int count = 0;
+            try {
+                final ManagedEntity[] scopeRoots = getScopeRoots();
+                final ManagedEntity[] roots = scopeRoots != null ? scopeRoots : new ManagedEntity[]{getServiceInstance().getRootFolder()};
+                for (ManagedEntity root : roots) {
+                    try (VSphereInventoryEnumerator names = VSphereInventoryEnumerator.names(getServiceInstance(),
+                            root, "VirtualMachine")) {
+                        while (names.hasNext()) {
+                            if (names.next().startsWith(prefix)) {
+                                ++count;
+                            }
+                        }
+                        lookupRoundTrips.addAndGet(names.getPagesRead());
+                    }
                 }
+            } catch (VSphereException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new VSphereException(ex);
             }
-        } catch (Exception ex) {
-            throw new VSphereException(ex);
+            return count;
+        } catch (VSphereException | RuntimeException e) {
+            call.failed(e);
+            throw e;
+        } finally {
+            call.end();
         }
-        return count;
     }
 
-    private Datastore getDatastoreByName(final String datastoreName, ManagedEntity rootEntity) throws RemoteException, MalformedURLException {
-        if (rootEntity == null) {
-            rootEntity = getServiceInstance().getRootFolder();
-        }
-
-        Datastore datastore = (Datastore) new InventoryNavigator(rootEntity).searchManagedEntity("Datastore", datastoreName);
+    private Datastore getDatastoreByName(final String datastoreName, ManagedEntity rootEntity) throws RemoteException, MalformedURLException, VSphereException {
+        serviceContentFetchesSaved(rootEntity == null ? 1 : 0);
+        Datastore datastore = (Datastore) findEntity("Datastore", datastoreName, rootEntity);
         if (datastore != null) {
             return datastore;
         }
@@ -1022,56 +1948,84 @@ public class VSphere {
      Check if folder exists along all the vSphere folders
      */
     public Boolean folderExists(String folderPath) throws VSphereException {
+        final Call call = beginCall(VSphereCallLimiter.Kind.READ);
         try {
-            String[] folderHierarchy = folderPath.split("/");
-            ManagedEntity folder = null;
-
-            for (int i = 0; i < folderHierarchy.length; i++) {
-                if (i == 0) {
-                    folder = new InventoryNavigator(getServiceInstance().getRootFolder()).searchManagedEntity("Folder", folderHierarchy[i]);
-                } else {
-                    folder = new InventoryNavigator(folder).searchManagedEntity(null, folderHierarchy[i]);
-                }
-                if (folder == null) {
-                    return false;
-                }
+            serviceContentFetchesSaved(1);
+            try {
+                return findFolder(folderPath) != null;
+            } catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Failed while checking if folder exists");
+                throw new VSphereException(e);
             }
-            return true;
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Failed while checking if folder exists");
-            throw new VSphereException(e);
+        } catch (VSphereException | RuntimeException e) {
+            call.failed(e);
+            throw e;
+        } finally {
+            call.end();
         }
     }
 
+    /*
+     Get the folder at this path, or null if there is none
+     */
     public Folder getFolder(String folderPath) throws VSphereException {
+        final Call call = beginCall(VSphereCallLimiter.Kind.READ);
         try {
-            String[] folderHierarchy = folderPath.split("/");
-            ManagedEntity folder = null;
-
-            for (int i = 0; i < folderHierarchy.length; i++) {
-                if (i == 0) {
-                    folder = new InventoryNavigator(getServiceInstance().getRootFolder()).searchManagedEntity("Folder", folderHierarchy[i]);
-                } else {
-                    folder = new InventoryNavigator(folder).searchManagedEntity(null, folderHierarchy[i]);
-                }
+            serviceContentFetchesSaved(1);
+            try {
+                return (Folder) findFolder(folderPath);
+            } catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Invalid folder");
+                throw new VSphereException(e);
             }
-            return (Folder) folder;
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Invalid folder");
-            throw new VSphereException(e);
+        } catch (VSphereException | RuntimeException e) {
+            call.failed(e);
+            throw e;
+        } finally {
+            call.end();
         }
     }
     
+    /**
+     * @param customizationSpecName - name of the customization spec to retrieve
+     * @return - the spec, or null if there is none of that name. It is only downloaded if it
+     *         has changed since it was last retrieved from this vCenter (see
+     *         {@link VSphereCustomizationSpecCache}), and must not be modified.
+     * @throws VSphereException If an error occurred.
+     */
     public CustomizationSpecItem getCustomizationSpecByName(final String customizationSpecName) throws VSphereException {
+        final Call call = beginCall(VSphereCallLimiter.Kind.READ);
         try {
-            ServerConnection conn = getServiceInstance().getServerConnection();
-            CustomizationSpecManager mgr = new CustomizationSpecManager(
-                    conn,
-                    getServiceInstance().getServiceContent().customizationSpecManager);
-
-            return mgr.getCustomizationSpec(customizationSpecName);
-        } catch (Exception e) {
-            throw new VSphereException(e);
+            serviceContentFetchesSaved(2);
+            try {
+                ServerConnection conn = getServiceInstance().getServerConnection();
+                CustomizationSpecManager mgr = new CustomizationSpecManager(
+                        conn,
+                        getServiceInstance().getServiceContent().customizationSpecManager);
+
+                // the names and change versions of every spec, rather than the spec itself
+                final Map<String, Object> values = VSphereProjection.fetch(getServiceInstance().getPropertyCollector(), mgr.getMOR(), "info");
+                propertiesFetched.addAndGet(values.size());
+                final String changeVersion = VSphereCustomizationSpecCache.getChangeVersion(
+                        (CustomizationSpecInfo[]) values.get("info"), customizationSpecName);
+                if (changeVersion == null) {
+                    return null;
+                }
+                final CustomizationSpecItem cached = customizationSpecCache.get(customizationSpecName, changeVersion);
+                if (cached != null) {
+                    return cached;
+                }
+                final CustomizationSpecItem spec = mgr.getCustomizationSpec(customizationSpecName);
+                customizationSpecCache.put(customizationSpecName, changeVersion, spec);
+                return spec;
+            } catch (Exception e) {
+                throw new VSphereException(e);
+            }
+        } catch (VSphereException | RuntimeException e) {
+            call.failed(e);
+            throw e;
+        } finally {
+            call.end();
         }
     }
 
@@ -1080,12 +2034,19 @@ public class VSphere {
      * @throws VSphereException If an error occurred.
      */
     public ManagedEntity[] getDatastores() throws VSphereException {
+        final Call call = beginCall(VSphereCallLimiter.Kind.READ);
         try {
-            return new InventoryNavigator(
-                    getServiceInstance().getRootFolder()).searchManagedEntities(
-                            "Datastore");
-        } catch (Exception e) {
-            throw new VSphereException(e);
+            serviceContentFetchesSaved(1);
+            try {
+                return searchInScope("Datastore");
+            } catch (Exception e) {
+                throw new VSphereException(e);
+            }
+        } catch (VSphereException | RuntimeException e) {
+            call.failed(e);
+            throw e;
+        } finally {
+            call.end();
         }
     }
 
@@ -1098,12 +2059,9 @@ public class VSphere {
      * @throws MalformedURLException
      * @throws VSphereException
      */
-    private ResourcePool getResourcePoolByName(final String poolName, ManagedEntity rootEntity) throws InvalidProperty, RuntimeFault, RemoteException, MalformedURLException {
-        if (rootEntity==null) rootEntity=getServiceInstance().getRootFolder();
-
-        return (ResourcePool) new InventoryNavigator(
-                rootEntity).searchManagedEntity(
-                        "ResourcePool", poolName);
+    private ResourcePool getResourcePoolByName(final String poolName, ManagedEntity rootEntity) throws InvalidProperty, RuntimeFault, RemoteException, MalformedURLException, VSphereException {
+        serviceContentFetchesSaved(rootEntity == null ? 1 : 0);
+        return (ResourcePool) findEntity("ResourcePool", poolName, rootEntity);
     }
 
     /**
@@ -1116,12 +2074,9 @@ public class VSphere {
      * @throws MalformedURLException 
      * @throws VSphereException 
      */
-    private ClusterComputeResource getClusterByName(final String clusterName, ManagedEntity rootEntity) throws InvalidProperty, RuntimeFault, RemoteException, MalformedURLException {
-        if (rootEntity==null) rootEntity=getServiceInstance().getRootFolder();
-
-        return (ClusterComputeResource) new InventoryNavigator(
-                rootEntity).searchManagedEntity(
-                        "ClusterComputeResource", clusterName);
+    private ClusterComputeResource getClusterByName(final String clusterName, ManagedEntity rootEntity) throws InvalidProperty, RuntimeFault, RemoteException, MalformedURLException, VSphereException {
+        serviceContentFetchesSaved(rootEntity == null ? 1 : 0);
+        return (ClusterComputeResource) findEntity("ClusterComputeResource", clusterName, rootEntity);
     }
 
     /**
@@ -1133,7 +2088,7 @@ public class VSphere {
      * @throws MalformedURLException 
      * @throws VSphereException 
      */
-    private ClusterComputeResource getClusterByName(final String clusterName) throws InvalidProperty, RuntimeFault, RemoteException, MalformedURLException {
+    private ClusterComputeResource getClusterByName(final String clusterName) throws InvalidProperty, RuntimeFault, RemoteException, MalformedURLException, VSphereException {
         return getClusterByName(clusterName, null);
     }
 
@@ -1144,32 +2099,44 @@ public class VSphere {
      * @throws VSphereException If an error occurred.
      */
     public void destroyVm(String name, boolean failOnNoExist) throws VSphereException {
-        try {
+        await(destroyVmAsync(name, failOnNoExist));
+    }
+
+    /**
+     * Starts {@link #destroyVm(String, boolean)} and hands back a future of it. The VM is
+     * looked up and powered off, and the destroy task started, on the calling thread; no
+     * thread is held while the vCenter destroys the VM.
+     *
+     * @param name - VM object to destroy
+     * @param failOnNoExist If true and the VM does not exist then the future completes with a {@link VSphereNotFoundException}.
+     * @return a future that completes once the VM has been destroyed.
+     */
+    @NonNull
+    public CompletableFuture<Void> destroyVmAsync(String name, boolean failOnNoExist) {
+        final long roundTripsBefore = getLookupRoundTrips();
+        final long savedBefore = getServiceContentFetchesSaved();
+        return runTask(() -> {
             VirtualMachine vm = getVmByName(name);
             if (vm==null) {
                 if (failOnNoExist) throw new VSphereNotFoundException("VM", name);
 
                 LOGGER.log(Level.FINER, "VM \"" + name + "\" does not exist, or already deleted!");
-                return;
+                return null;
             }
 
-            if (!vm.getConfig().template) {
+            if (!isTemplate(vm)) {
                 powerOffVm(vm, true, 0);
             }
-
-            final Task task = vm.destroy_Task();
-            String status = task.waitForTask();
-            if (status.equals(Task.SUCCESS)) {
-                LOGGER.log(Level.FINER, "VM \"" + name + "\" was deleted successfully.");
-                return;
+            return vm.destroy_Task();
+        }, (task, status) -> {
+            if (!status.equals(Task.SUCCESS)) {
+                throw newVSphereException(task.getTaskInfo(), "Could not delete VM \""+ name +"\"!");
             }
-            throw newVSphereException(task.getTaskInfo(), "Could not delete VM \""+ name +"\"!");
-
-        } catch(RuntimeException | VSphereException e) {
-            throw e;
-        } catch(Exception e) {
-            throw new VSphereException(e.getMessage(), e);
-        }
+            inventoryIndex.invalidateName(name);
+            sourceCache.invalidateName(name);
+            LOGGER.log(Level.FINER, "VM \"" + name + "\" was deleted successfully.");
+            logLookupRoundTrips("destroyVm(" + name + ")", roundTripsBefore, savedBefore);
+        });
     }
 
     /**
@@ -1181,23 +2148,33 @@ public class VSphere {
      * @throws VSphereException If an error occurred.
      */
     public void renameVmSnapshot(String vmName, String oldName, String newName, String newDescription) throws VSphereException {
+        final Call call = beginCall(VSphereCallLimiter.Kind.TASK);
         try {
-            VirtualMachine vm = getVmByName(vmName);
-            if (vm==null) {
-                throw new VSphereNotFoundException("VM", vmName);
-            }
+            try {
+                VirtualMachine vm = getVmByName(vmName);
+                if (vm==null) {
+                    throw new VSphereNotFoundException("VM", vmName);
+                }
 
-            VirtualMachineSnapshot snapshot = getSnapshotInTree(vm, oldName);
+                VirtualMachineSnapshot snapshot = getSnapshotInTree(vm, oldName);
 
-            snapshot.rename(newName, newDescription);
+                snapshot.rename(newName, newDescription);
+                sourceCache.invalidateName(vmName);
+                snapshotIndex.invalidate(vm.getMOR().getVal());
 
-            LOGGER.log(Level.FINER, "VM Snapshot was renamed successfully.");
-            return;
+                LOGGER.log(Level.FINER, "VM Snapshot was renamed successfully.");
+                return;
 
-        } catch(RuntimeException | VSphereException e) {
+            } catch(RuntimeException | VSphereException e) {
+                throw e;
+            } catch(Exception e) {
+                throw new VSphereException(e.getMessage(), e);
+            }
+        } catch (VSphereException | RuntimeException e) {
+            call.failed(e);
             throw e;
-        } catch(Exception e) {
-            throw new VSphereException(e.getMessage(), e);
+        } finally {
+            call.end();
         }
     }
 
@@ -1208,41 +2185,114 @@ public class VSphere {
      * @throws VSphereException If an error occurred.
      */
     public void renameVm(String oldName, String newName) throws VSphereException {
+        final Call call = beginCall(VSphereCallLimiter.Kind.TASK);
         try {
-            VirtualMachine vm = getVmByName(oldName);
-            if (vm==null) {
-                throw new VSphereNotFoundException("VM", oldName);
-            }
+            try {
+                VirtualMachine vm = getVmByName(oldName);
+                if (vm==null) {
+                    throw new VSphereNotFoundException("VM", oldName);
+                }
 
-            final Task task = vm.rename_Task(newName);
-            final String status = task.waitForTask();
-            if (status.equals(Task.SUCCESS)) {
-                LOGGER.log(Level.FINER, "VM was renamed successfully.");
-                return;
+                final Task task = vm.rename_Task(newName);
+                final String status = VSphereTaskWatcher.waitForTask(task);
+                if (status.equals(Task.SUCCESS)) {
+                    inventoryIndex.invalidateName(oldName);
+                    sourceCache.invalidateName(oldName);
+                    LOGGER.log(Level.FINER, "VM was renamed successfully.");
+                    return;
+                }
+                throw newVSphereException(task.getTaskInfo(), "Could not rename VM \""+ oldName +"\"!");
+
+            } catch(RuntimeException | VSphereException e) {
+                throw e;
+            } catch(Exception e) {
+                throw new VSphereException(e.getMessage(), e);
             }
-            throw newVSphereException(task.getTaskInfo(), "Could not rename VM \""+ oldName +"\"!");
+        } catch (VSphereException | RuntimeException e) {
+            call.failed(e);
+            throw e;
+        } finally {
+            call.end();
+        }
+    }
 
-        } catch(RuntimeException | VSphereException e) {
+    /**
+     * Reads just the given properties of an inventory object, in one round-trip, rather
+     * than the whole data objects they are part of - e.g. {@code fetch(vm, "config.template",
+     * "runtime.powerState")} instead of {@code vm.getConfig().template} and
+     * {@code vm.getRuntime().getPowerState()}, which would transfer the VM's entire
+     * configuration (every device, extra config entry, ...) and runtime info.
+     *
+     * @param entity - VM, host, datastore, ... to read from
+     * @param propertyPaths - property paths, as in the vSphere API reference
+     * @return - the value of each property that is set, by property path; array properties
+     *         are returned as arrays (e.g. {@code VirtualDevice[]})
+     * @throws VSphereException If an error occurred.
+     */
+    public Map<String, Object> fetch(ManagedEntity entity, String... propertyPaths) throws VSphereException {
+        final Call call = beginCall(VSphereCallLimiter.Kind.READ);
+        try {
+            try {
+                final Map<String, Object> values = VSphereProjection.fetch(getServiceInstance().getPropertyCollector(), entity.getMOR(), propertyPaths);
+                propertiesFetched.addAndGet(values.size());
+                return values;
+            } catch (Exception e) {
+                throw new VSphereException(e);
+            }
+        } catch (VSphereException | RuntimeException e) {
+            call.failed(e);
             throw e;
-        } catch(Exception e) {
-            throw new VSphereException(e.getMessage(), e);
+        } finally {
+            call.end();
         }
     }
 
-    private boolean isSuspended(VirtualMachine vm) {
-        return (vm.getRuntime().getPowerState() ==  VirtualMachinePowerState.suspended);
+    /**
+     * @return How many property values {@link #fetch} has read for this session so far.
+     */
+    public long getPropertiesFetched() {
+        return propertiesFetched.get();
+    }
+
+    /**
+     * @return - true if the VM is a template
+     * @throws VSphereException If an error occurred.
+     */
+    public boolean isTemplate(VirtualMachine vm) throws VSphereException {
+        return Boolean.TRUE.equals(fetch(vm, "config.template").get("config.template"));
+    }
+
+    /**
+     * @return - the VM's power state
+     * @throws VSphereException If an error occurred.
+     */
+    public VirtualMachinePowerState getPowerState(VirtualMachine vm) throws VSphereException {
+        return (VirtualMachinePowerState) fetch(vm, "runtime.powerState").get("runtime.powerState");
+    }
+
+    /**
+     * @return - the VM's virtual hardware devices
+     * @throws VSphereException If an error occurred.
+     */
+    public VirtualDevice[] getDevices(VirtualMachine vm) throws VSphereException {
+        final VirtualDevice[] devices = (VirtualDevice[]) fetch(vm, "config.hardware.device").get("config.hardware.device");
+        return devices == null ? new VirtualDevice[0] : devices;
+    }
+
+    private boolean isSuspended(VirtualMachine vm) throws VSphereException {
+        return (getPowerState(vm) ==  VirtualMachinePowerState.suspended);
     }
 
-    private boolean isPoweredOn(VirtualMachine vm) {
-        return (vm.getRuntime().getPowerState() ==  VirtualMachinePowerState.poweredOn);
+    private boolean isPoweredOn(VirtualMachine vm) throws VSphereException {
+        return (getPowerState(vm) ==  VirtualMachinePowerState.poweredOn);
     }
 
-    private boolean isPoweredOff(VirtualMachine vm) {
-        return (vm.getRuntime() != null && vm.getRuntime().getPowerState() ==  VirtualMachinePowerState.poweredOff);
+    private boolean isPoweredOff(VirtualMachine vm) throws VSphereException {
+        return (getPowerState(vm) ==  VirtualMachinePowerState.poweredOff);
     }
 
-    public boolean vmToolIsEnabled(VirtualMachine vm) {
-        VirtualMachineToolsStatus status = vm.getGuest().toolsStatus;
+    public boolean vmToolIsEnabled(VirtualMachine vm) throws VSphereException {
+        VirtualMachineToolsStatus status = (VirtualMachineToolsStatus) fetch(vm, "guest.toolsStatus").get("guest.toolsStatus");
         return ((status == VirtualMachineToolsStatus.toolsOk) || (status == VirtualMachineToolsStatus.toolsOld));
     }
 
@@ -1265,81 +2315,86 @@ public class VSphere {
      * @param gracefulShutdownSeconds The number of seconds to wait for the guest operating system to shut down. If the passed value is zero or less (or if VMware tools is not installed on the VM), the VM is powered off immediately.
      */
     public void powerOffVm(VirtualMachine vm, boolean evenIfSuspended, int gracefulShutdownSeconds) throws VSphereException {
+        final Call call = beginCall(VSphereCallLimiter.Kind.TASK);
+        try {
 
-        if (vm.getConfig().template)
-            throw new VSphereException("VM represents a template!");
-
-        if (isPoweredOn(vm) || (evenIfSuspended && isSuspended(vm))) {
-            boolean doHardShutdown = true;
+            if (isTemplate(vm))
+                throw new VSphereException("VM represents a template!");
 
-            String status;
-            try {
-                if (!isSuspended(vm) && gracefulShutdownSeconds > 0 && vmToolIsEnabled(vm)) {
-                    LOGGER.log(Level.FINER, "Requesting guest shutdown");
-                    vm.shutdownGuest();
-
-                    // Wait for a short while for a shutdown - then power off hard.
-                    for (int i = 0; i <= gracefulShutdownSeconds; i++) {
-                        try {
-                            Thread.sleep(1000);
-                        } catch (InterruptedException e) { // build aborted
-                            Thread.currentThread().interrupt(); // pass interrupt upwards
-                            throw new VSphereException("VM power-down interrupted", e);
-                        }
-                        if (isPoweredOff(vm)) {
-                            doHardShutdown = false;
+            if (isPoweredOn(vm) || (evenIfSuspended && isSuspended(vm))) {
+                try {
+                    if (!isSuspended(vm) && gracefulShutdownSeconds > 0 && vmToolIsEnabled(vm)) {
+                        lookupRoundTrips.incrementAndGet();
+                        if (VSpherePowerState.shutDown(vm, TimeUnit.SECONDS.toMillis(gracefulShutdownSeconds),
+                                vm::shutdownGuest, () -> powerOffHard(vm))) {
                             LOGGER.log(Level.FINER, "VM gracefully powered down successfully.");
-                            return;
                         }
-                    }
-                }
-
-                if (doHardShutdown) {
-                    LOGGER.log(Level.FINER, "Powering off the VM");
-                    final Task task = vm.powerOffVM_Task();
-                    status = task.waitForTask();
-
-                    if (status.equals(Task.SUCCESS)) {
-                        LOGGER.log(Level.FINER, "VM was powered down successfully.");
                         return;
                     }
-                    throw newVSphereException(task.getTaskInfo(), "Machine could not be powered down!");
+                    powerOffHard(vm);
+                    return;
+                } catch (InterruptedException e) { // build aborted
+                    Thread.currentThread().interrupt(); // pass interrupt upwards
+                    throw new VSphereException("VM power-down interrupted", e);
+                } catch(RuntimeException | VSphereException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new VSphereException(e);
                 }
-            } catch(RuntimeException | VSphereException e) {
-                throw e;
-            } catch (Exception e) {
-                throw new VSphereException(e);
             }
+            else if (isPoweredOff(vm)) {
+                LOGGER.log(Level.FINER, "Machine is already off.");
+                return;
+            }
+
+            throw new VSphereException("Machine could not be powered down!");
+        } catch (VSphereException | RuntimeException e) {
+            call.failed(e);
+            throw e;
+        } finally {
+            call.end();
         }
-        else if (isPoweredOff(vm)) {
-            LOGGER.log(Level.FINER, "Machine is already off.");
-            return;
-        }
+    }
 
-        throw new VSphereException("Machine could not be powered down!");
+    private static void powerOffHard(VirtualMachine vm) throws RemoteException, InterruptedException, VSphereException {
+        LOGGER.log(Level.FINER, "Powering off the VM");
+        final Task task = vm.powerOffVM_Task();
+        final String status = VSphereTaskWatcher.waitForTask(task);
+        if (!Task.SUCCESS.equals(status)) {
+            throw newVSphereException(task.getTaskInfo(), "Machine could not be powered down!");
+        }
+        LOGGER.log(Level.FINER, "VM was powered down successfully.");
     }
 
     public void suspendVm(VirtualMachine vm) throws VSphereException {
-        if (isPoweredOn(vm)) {
-            try {
-                //TODO is this better?
-                //vm.shutdownGuest()
-                final Task task = vm.suspendVM_Task();
-                final String status = task.waitForTask();
-                if (Task.SUCCESS.equals(status)) {
-                    LOGGER.log(Level.FINER, "VM was suspended successfully.");
-                    return;
+        final Call call = beginCall(VSphereCallLimiter.Kind.TASK);
+        try {
+            if (isPoweredOn(vm)) {
+                try {
+                    //TODO is this better?
+                    //vm.shutdownGuest()
+                    final Task task = vm.suspendVM_Task();
+                    final String status = VSphereTaskWatcher.waitForTask(task);
+                    if (Task.SUCCESS.equals(status)) {
+                        LOGGER.log(Level.FINER, "VM was suspended successfully.");
+                        return;
+                    }
+                    throw newVSphereException(task.getTaskInfo(), "Machine could not be suspended!");
+                } catch(RuntimeException | VSphereException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new VSphereException(e);
                 }
-                throw newVSphereException(task.getTaskInfo(), "Machine could not be suspended!");
-            } catch(RuntimeException | VSphereException e) {
-                throw e;
-            } catch (Exception e) {
-                throw new VSphereException(e);
             }
-        }
-        else {
-            LOGGER.log(Level.FINER, "Machine not powered on.");
-            return;
+            else {
+                LOGGER.log(Level.FINER, "Machine not powered on.");
+                return;
+            }
+        } catch (VSphereException | RuntimeException e) {
+            call.failed(e);
+            throw e;
+        } finally {
+            call.end();
         }
     }
 
@@ -1348,7 +2403,22 @@ public class VSphere {
      * @param managedEntity - VM object
      * @return returns Datacenter object
      */
-    private Datacenter getDataCenter(ManagedEntity managedEntity) {
+    private Datacenter getDataCenter(ManagedEntity managedEntity) throws RemoteException, MalformedURLException {
+        final VSphereInventoryMirror mirror = getSyncedMirror();
+        if (mirror != null && managedEntity != null) {
+            // walk up the mirror's copy of the inventory instead of one round-trip per parent
+            VSphereInventoryMirror.Entity entity = mirror.get(managedEntity.getMOR().getVal());
+            for (int depth = 0; entity != null && entity.parent != null && depth <= mirror.size(); depth++) {
+                final VSphereInventoryMirror.Entity parent = mirror.get(entity.parent);
+                if (parent != null && "Datacenter".equals(parent.type)) {
+                    final ManagedObjectReference mor = new ManagedObjectReference();
+                    mor.setType(parent.type);
+                    mor.setVal(entity.parent);
+                    return new Datacenter(getServiceInstance().getServerConnection(), mor);
+                }
+                entity = parent;
+            }
+        }
         if (managedEntity != null) {
             ManagedEntity parent = managedEntity.getParent();
             if (parent.getMOR().getType().equals("Datacenter")) {
@@ -1361,6 +2431,23 @@ public class VSphere {
         }
     }
 
+    /**
+     * @return the networks of the datacenter {@code virtualMachine} is in, as read by the
+     *         {@link VSphereNetworkIndex} - read again first if {@code refresh} is set or they
+     *         have not been read yet.
+     */
+    private VSphereNetworkIndex.Networks getNetworks(VirtualMachine virtualMachine, boolean refresh) throws RemoteException, MalformedURLException {
+        final Datacenter datacenter = getDataCenter(virtualMachine);
+        final String id = datacenter.getMOR().getVal();
+        VSphereNetworkIndex.Networks networks = refresh ? null : networkIndex.get(id);
+        if (networks == null) {
+            lookupRoundTrips.incrementAndGet();
+            networks = VSphereNetworkIndex.load(getServiceInstance(), datacenter);
+            networkIndex.put(id, networks);
+        }
+        return networks;
+    }
+
     /**
      * Find Distributed Virtual Port Group name in the same Datacenter as the VM
      * @param virtualMachine - VM object
@@ -1370,18 +2457,24 @@ public class VSphere {
      */
     public Network getNetworkPortGroupByName(VirtualMachine virtualMachine,
             String name) throws VSphereException {
+        final Call call = beginCall(VSphereCallLimiter.Kind.READ);
         try {
-            Datacenter datacenter = getDataCenter(virtualMachine);
-            for (Network network : datacenter.getNetwork()) {
-                if (network instanceof Network &&
-                        (name.isEmpty() || network.getName().contentEquals(name))) {
-                    return network;
+            try {
+                ManagedObjectReference network = getNetworks(virtualMachine, false).getNetwork(name);
+                if (network == null) {
+                    // may have been created since the datacenter's networks were read
+                    network = getNetworks(virtualMachine, true).getNetwork(name);
                 }
+                return network == null ? null : (Network) MorUtil.createExactManagedEntity(getServiceInstance().getServerConnection(), network);
+            } catch (Exception e) {
+                throw new VSphereException(e);
             }
-        } catch (Exception e) {
-            throw new VSphereException(e);
+        } catch (VSphereException | RuntimeException e) {
+            call.failed(e);
+            throw e;
+        } finally {
+            call.end();
         }
-        return null;
     }
 
     /**
@@ -1393,18 +2486,24 @@ public class VSphere {
      */
     public DistributedVirtualPortgroup getDistributedVirtualPortGroupByName(VirtualMachine virtualMachine,
             String name) throws VSphereException {
+        final Call call = beginCall(VSphereCallLimiter.Kind.READ);
         try {
-            Datacenter datacenter = getDataCenter(virtualMachine);
-            for (Network network : datacenter.getNetwork()) {
-                if (network instanceof DistributedVirtualPortgroup &&
-                        (name.isEmpty() || network.getName().contentEquals(name))) {
-                    return (DistributedVirtualPortgroup)network;
+            try {
+                ManagedObjectReference portgroup = getNetworks(virtualMachine, false).getPortgroup(name);
+                if (portgroup == null) {
+                    // may have been created since the datacenter's networks were read
+                    portgroup = getNetworks(virtualMachine, true).getPortgroup(name);
                 }
+                return portgroup == null ? null : new DistributedVirtualPortgroup(getServiceInstance().getServerConnection(), portgroup);
+            } catch (Exception e) {
+                throw new VSphereException(e);
             }
-        } catch (Exception e) {
-            throw new VSphereException(e);
+        } catch (VSphereException | RuntimeException e) {
+            call.failed(e);
+            throw e;
+        } finally {
+            call.end();
         }
-        return null;
     }
 
     /**
@@ -1415,14 +2514,67 @@ public class VSphere {
      */
     public DistributedVirtualSwitch getDistributedVirtualSwitchByPortGroup(
             DistributedVirtualPortgroup distributedVirtualPortgroup) throws VSphereException {
+        final Call call = beginCall(VSphereCallLimiter.Kind.READ);
         try {
-            ManagedObjectReference managedObjectReference = new ManagedObjectReference();
-            managedObjectReference.setType("DistributedVirtualSwitch");
-            managedObjectReference.setVal(distributedVirtualPortgroup.getConfig().getDistributedVirtualSwitch().getVal());
-            return new DistributedVirtualSwitch(getServiceInstance().getServerConnection(), managedObjectReference);
+            serviceContentFetchesSaved(1);
+            try {
+                ManagedObjectReference managedObjectReference = new ManagedObjectReference();
+                managedObjectReference.setType("DistributedVirtualSwitch");
+                final ManagedObjectReference dvs = (ManagedObjectReference) fetch(distributedVirtualPortgroup, "config.distributedVirtualSwitch").get("config.distributedVirtualSwitch");
+                managedObjectReference.setVal(dvs.getVal());
+                return new DistributedVirtualSwitch(getServiceInstance().getServerConnection(), managedObjectReference);
+            }
+            catch (Exception e) {
+                throw new VSphereException(e);
+            }
+        } catch (VSphereException | RuntimeException e) {
+            call.failed(e);
+            throw e;
+        } finally {
+            call.end();
         }
-        catch (Exception e) {
-            throw new VSphereException(e);
+    }
+
+    /**
+     * Describes how a VM's network adapter connects to a distributed port group, from what
+     * was read when the port group was looked up, rather than asking the port group for its
+     * key and its switch for its UUID.
+     * @param virtualMachine - VM whose datacenter the port group is in
+     * @param distributedVirtualPortgroup - port group, as returned by {@link #getDistributedVirtualPortGroupByName}
+     * @param portKey - the port to connect to, or null for any
+     * @return the connection to the port group, naming its switch by UUID
+     * @throws VSphereNotFoundException If the port group is not (or no longer) in the VM's datacenter.
+     * @throws VSphereException If an error occurred.
+     */
+    public DistributedVirtualSwitchPortConnection getPortConnection(VirtualMachine virtualMachine,
+            DistributedVirtualPortgroup distributedVirtualPortgroup, String portKey) throws VSphereException {
+        final Call call = beginCall(VSphereCallLimiter.Kind.READ);
+        try {
+            try {
+                final String id = distributedVirtualPortgroup.getMOR().getVal();
+                VSphereNetworkIndex.Networks networks = getNetworks(virtualMachine, false);
+                if (networks.getSwitchUuid(id) == null) {
+                    networks = getNetworks(virtualMachine, true);
+                }
+                final String switchUuid = networks.getSwitchUuid(id);
+                if (switchUuid == null) {
+                    throw new VSphereNotFoundException("Distributed port group", id);
+                }
+                final DistributedVirtualSwitchPortConnection connection = new DistributedVirtualSwitchPortConnection();
+                connection.setSwitchUuid(switchUuid);
+                connection.setPortgroupKey(networks.getPortgroupKey(id));
+                connection.setPortKey(portKey);
+                return connection;
+            } catch(RuntimeException | VSphereException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new VSphereException(e);
+            }
+        } catch (VSphereException | RuntimeException e) {
+            call.failed(e);
+            throw e;
+        } finally {
+            call.end();
         }
     }
 
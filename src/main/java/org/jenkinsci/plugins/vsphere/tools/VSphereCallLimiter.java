@@ -0,0 +1,285 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Throttles the vSphere API calls made on behalf of one cloud, so that a provisioning storm
+ * (dozens of agents being cloned, powered on and polled for their IP at once) does not
+ * overwhelm the vCenter with requests until it starts timing them out.
+ *
+ * <p>Calls come in two {@link Kind kinds}, each with a budget of its own, so that a burst of
+ * inventory lookups cannot starve the calls that actually get work done and vice versa:</p>
+ * <ul>
+ *   <li>a rate (token bucket): at most so many calls may start per second, with bursts of up
+ *       to one second's worth of calls;</li>
+ *   <li>a concurrency cap: at most so many calls may be in progress at once. A task-creating
+ *       call holds its permit until its task has completed, so this also caps how many
+ *       clone/power/snapshot tasks this cloud has running in the vCenter.</li>
+ * </ul>
+ *
+ * <p>A long-poll, which spends nearly all of its time parked in the vCenter waiting for a
+ * change rather than keeping it busy, only {@link #awaitRate(Kind) counts against the rate}:
+ * holding a concurrency slot for the length of each poll would leave none for the short
+ * calls it is meant to protect.</p>
+ *
+ * <p>A call that has to wait for its budget waits in line (first come, first served). How
+ * many calls are waiting, and how long they waited, is recorded per kind, so it is possible
+ * to tell whether the limiter is what is slowing provisioning down.</p>
+ *
+ * <p>A value of {@code 0} means "unlimited" for each setting. A call made from within
+ * another call of the same kind (e.g. a power-off done as part of marking a VM as a
+ * template) does not need a second permit.</p>
+ */
+public final class VSphereCallLimiter {
+
+    private static final Logger LOGGER = Logger.getLogger(VSphereCallLimiter.class.getName());
+
+    /** Waits at least this long are logged, as they mean the limiter is holding calls back. */
+    private static final long SLOW_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /** The two separately budgeted kinds of vSphere API call. */
+    public enum Kind {
+        /** Read-only queries: inventory searches, property reads, IP polling, ... */
+        READ,
+        /** Calls that create a vCenter task: clone, power on/off, snapshot, reconfigure, ... */
+        TASK
+    }
+
+    /** Returned by {@link #acquire(Kind)}; closing it gives the permit back. */
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    static final Permit NO_PERMIT = () -> {
+    };
+
+    private final int readCallsPerSec;
+    private final int taskCallsPerSec;
+    private final int maxConcurrentReadCalls;
+    private final int maxConcurrentTaskCalls;
+    private final Map<Kind, Budget> budgets = new EnumMap<>(Kind.class);
+
+    /**
+     * @param readCallsPerSec how many read-only calls may start per second; 0 = unlimited.
+     * @param taskCallsPerSec how many task-creating calls may start per second; 0 = unlimited.
+     * @param maxConcurrentReadCalls how many read-only calls may be in progress at once; 0 = unlimited.
+     * @param maxConcurrentTaskCalls how many task-creating calls may be in progress at once; 0 = unlimited.
+     */
+    public VSphereCallLimiter(int readCallsPerSec, int taskCallsPerSec,
+                              int maxConcurrentReadCalls, int maxConcurrentTaskCalls) {
+        this.readCallsPerSec = Math.max(0, readCallsPerSec);
+        this.taskCallsPerSec = Math.max(0, taskCallsPerSec);
+        this.maxConcurrentReadCalls = Math.max(0, maxConcurrentReadCalls);
+        this.maxConcurrentTaskCalls = Math.max(0, maxConcurrentTaskCalls);
+        budgets.put(Kind.READ, new Budget(this.readCallsPerSec, this.maxConcurrentReadCalls));
+        budgets.put(Kind.TASK, new Budget(this.taskCallsPerSec, this.maxConcurrentTaskCalls));
+    }
+
+    /** @return {@code true} if none of the settings limits anything. */
+    public boolean isUnlimited() {
+        return readCallsPerSec == 0 && taskCallsPerSec == 0
+                && maxConcurrentReadCalls == 0 && maxConcurrentTaskCalls == 0;
+    }
+
+    /** @return the settings this limiter was created with, in constructor order. */
+    @NonNull
+    int[] getSettings() {
+        return new int[]{readCallsPerSec, taskCallsPerSec, maxConcurrentReadCalls, maxConcurrentTaskCalls};
+    }
+
+    /**
+     * Waits until a call of the given kind is within budget.
+     *
+     * @return the permit, to be closed once the call (and any task it created) is done.
+     * @throws VSphereException if the calling thread was interrupted while waiting.
+     */
+    @NonNull
+    public Permit acquire(@NonNull Kind kind) throws VSphereException {
+        final Budget budget = budgets.get(kind);
+        if (budget.isUnlimited()) {
+            budget.calls.incrementAndGet();
+            return NO_PERMIT;
+        }
+        final int[] depth = budget.heldByThisThread.get();
+        if (depth[0] > 0) {
+            depth[0]++;
+            return () -> depth[0]--;
+        }
+        final long start = System.nanoTime();
+        budget.waiting.incrementAndGet();
+        try {
+            if (budget.concurrency != null) {
+                budget.concurrency.acquire();
+            }
+            try {
+                final long delayNanos = budget.reserveToken();
+                if (delayNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(delayNanos);
+                }
+            } catch (InterruptedException e) {
+                if (budget.concurrency != null) {
+                    budget.concurrency.release();
+                }
+                throw e;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new VSphereException("Interrupted while waiting for the vSphere " + kind + " call budget", e);
+        } finally {
+            budget.waiting.decrementAndGet();
+        }
+        budget.recordWait(kind, System.nanoTime() - start);
+        depth[0] = 1;
+        return new Permit() {
+            private boolean closed;
+
+            @Override
+            public void close() {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                depth[0] = 0;
+                if (budget.concurrency != null) {
+                    budget.concurrency.release();
+                }
+            }
+        };
+    }
+
+    /**
+     * Waits until a call of the given kind is within the rate budget, without taking a
+     * concurrency slot; for long-polls, which are parked in the vCenter for most of their
+     * length.
+     *
+     * @throws VSphereException if the calling thread was interrupted while waiting.
+     */
+    public void awaitRate(@NonNull Kind kind) throws VSphereException {
+        final Budget budget = budgets.get(kind);
+        if (budget.callsPerSec == 0 || budget.heldByThisThread.get()[0] > 0) {
+            budget.calls.incrementAndGet();
+            return;
+        }
+        final long start = System.nanoTime();
+        budget.waiting.incrementAndGet();
+        try {
+            final long delayNanos = budget.reserveToken();
+            if (delayNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(delayNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new VSphereException("Interrupted while waiting for the vSphere " + kind + " call budget", e);
+        } finally {
+            budget.waiting.decrementAndGet();
+        }
+        budget.recordWait(kind, System.nanoTime() - start);
+    }
+
+    /** @return how many calls of this kind are waiting for their budget right now. */
+    public int getQueuedCalls(@NonNull Kind kind) {
+        return budgets.get(kind).waiting.get();
+    }
+
+    /** @return how many calls of this kind have been made so far. */
+    public long getCalls(@NonNull Kind kind) {
+        return budgets.get(kind).calls.get();
+    }
+
+    /** @return how many calls of this kind had to wait for their budget at all. */
+    public long getThrottledCalls(@NonNull Kind kind) {
+        return budgets.get(kind).throttled.get();
+    }
+
+    /** @return the average time calls of this kind waited for their budget, in milliseconds. */
+    public long getAverageWaitMillis(@NonNull Kind kind) {
+        final Budget budget = budgets.get(kind);
+        final long calls = budget.calls.get();
+        return calls == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(budget.totalWaitNanos.get() / calls);
+    }
+
+    /** @return the longest time a call of this kind waited for its budget, in milliseconds. */
+    public long getMaxWaitMillis(@NonNull Kind kind) {
+        return TimeUnit.NANOSECONDS.toMillis(budgets.get(kind).maxWaitNanos.get());
+    }
+
+    /** @return a one-line summary of the queue-wait metrics, e.g. for the cloud's configuration page. */
+    @NonNull
+    public String getSummary() {
+        final StringBuilder sb = new StringBuilder();
+        for (Kind kind : Kind.values()) {
+            if (sb.length() > 0) {
+                sb.append("; ");
+            }
+            sb.append(kind.name().toLowerCase()).append(" calls: ")
+                    .append(getCalls(kind)).append(" made, ")
+                    .append(getThrottledCalls(kind)).append(" throttled, ")
+                    .append(getQueuedCalls(kind)).append(" waiting now, wait avg ")
+                    .append(getAverageWaitMillis(kind)).append("ms / max ")
+                    .append(getMaxWaitMillis(kind)).append("ms");
+        }
+        return sb.toString();
+    }
+
+    /** One kind's rate and concurrency budget, plus its queue-wait metrics. */
+    private static final class Budget {
+        private final int callsPerSec;
+        private final Semaphore concurrency;
+        private final ThreadLocal<int[]> heldByThisThread = ThreadLocal.withInitial(() -> new int[1]);
+
+        /* Guarded by this: the token bucket. May go negative; that is the queue of reserved calls. */
+        private double tokens;
+        private long lastRefillNanos = System.nanoTime();
+
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong throttled = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        Budget(int callsPerSec, int maxConcurrentCalls) {
+            this.callsPerSec = callsPerSec;
+            this.concurrency = maxConcurrentCalls > 0 ? new Semaphore(maxConcurrentCalls, true) : null;
+            this.tokens = callsPerSec;
+        }
+
+        boolean isUnlimited() {
+            return callsPerSec == 0 && concurrency == null;
+        }
+
+        // Takes one token, and returns how long the caller has to wait for it to become valid.
+        synchronized long reserveToken() {
+            if (callsPerSec == 0) {
+                return 0;
+            }
+            final long now = System.nanoTime();
+            tokens = Math.min(callsPerSec, tokens + (now - lastRefillNanos) * callsPerSec / 1e9);
+            lastRefillNanos = now;
+            tokens -= 1;
+            return tokens >= 0 ? 0 : (long) (-tokens * 1e9 / callsPerSec);
+        }
+
+        void recordWait(Kind kind, long waitNanos) {
+            calls.incrementAndGet();
+            totalWaitNanos.addAndGet(waitNanos);
+            maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+            if (waitNanos >= TimeUnit.MILLISECONDS.toNanos(1)) {
+                throttled.incrementAndGet();
+            }
+            if (waitNanos >= SLOW_WAIT_NANOS && LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "vSphere {0} call waited {1}ms for its budget ({2} more waiting)",
+                        new Object[]{kind, TimeUnit.NANOSECONDS.toMillis(waitNanos), waiting.get()});
+            }
+        }
+    }
+}
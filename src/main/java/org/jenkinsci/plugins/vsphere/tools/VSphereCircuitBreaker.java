@@ -0,0 +1,254 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stops one cloud from hammering a vCenter that cannot be reached. Without it, every
+ * provisioning attempt, agent launch, VM deletion and status query would try to connect
+ * again and tie up a thread until the TCP/SOAP timeout expires - for minutes, while the
+ * vCenter is down.
+ *
+ * <ul>
+ *   <li><b>Closed</b> (normal) - calls go through. After {@code failureThreshold} calls in a
+ *       row have failed because the vCenter could not be reached (connection refused or
+ *       timed out, unknown host, ...), the breaker opens.</li>
+ *   <li><b>Open</b> - calls are refused straight away with a {@link VSphereException},
+ *       and the cloud reports that it cannot provision. After {@code openSecs}, the breaker
+ *       goes half-open.</li>
+ *   <li><b>Half-open</b> - a single trial call goes through, to find out whether the vCenter
+ *       is back; the others are still refused until it has finished. If it reached the
+ *       vCenter the breaker closes, otherwise it opens again for another {@code openSecs}.
+ *       Further calls made by the thread making the trial call count as part of it. Handing
+ *       out a pooled session is not a call, and does not become the trial, as the calls
+ *       made on the session may be made on other threads; the first of those does. A trial
+ *       that has not finished after {@code openSecs} is given up on, and another call may
+ *       try.</li>
+ * </ul>
+ *
+ * <p>Only failures to reach the vCenter count; a call the vCenter answered with an error
+ * (e.g. "VM not found") shows the vCenter is up and counts as a success.</p>
+ */
+public final class VSphereCircuitBreaker {
+
+    private static final Logger LOGGER = Logger.getLogger(VSphereCircuitBreaker.class.getName());
+
+    /** How long the breaker stays open when no (i.e. 0) open time is configured. */
+    static final int DEFAULT_OPEN_SECS = 60;
+
+    /** The breaker's states. */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier clock;
+
+    /* Guarded by this. */
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    @CheckForNull
+    private String lastFailure;
+    /** The thread making the half-open breaker's trial call, if one is in flight. */
+    @CheckForNull
+    private Thread probeInFlight;
+    private long probeStartedAtNanos;
+
+    /**
+     * @param name what the breaker guards, for log messages (e.g. the vCenter host).
+     * @param failureThreshold how many calls in a row must fail to reach the vCenter for the
+     *                         breaker to open; at least 1.
+     * @param openSecs how long the breaker stays open before letting calls through again;
+     *                 0 means 60 seconds.
+     */
+    public VSphereCircuitBreaker(@CheckForNull String name, int failureThreshold, int openSecs) {
+        this(name, failureThreshold, openSecs, System::nanoTime);
+    }
+
+    VSphereCircuitBreaker(@CheckForNull String name, int failureThreshold, int openSecs, @NonNull LongSupplier clock) {
+        this.name = String.valueOf(name);
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = TimeUnit.SECONDS.toNanos(openSecs > 0 ? openSecs : DEFAULT_OPEN_SECS);
+        this.clock = clock;
+    }
+
+    /** @return the settings this breaker was created with: failure threshold, open seconds. */
+    @NonNull
+    int[] getSettings() {
+        return new int[]{failureThreshold, (int) TimeUnit.NANOSECONDS.toSeconds(openNanos)};
+    }
+
+    /**
+     * @return the current state; an open breaker whose open time has passed is reported
+     *         as half-open.
+     */
+    @NonNull
+    public synchronized State getState() {
+        if (state == State.OPEN && clock.getAsLong() - openedAtNanos >= openNanos) {
+            state = State.HALF_OPEN;
+            probeInFlight = null;
+            LOGGER.fine("vSphere circuit breaker [" + name + "] is half-open: letting a call through to see if the vCenter is back");
+        }
+        return state;
+    }
+
+    /**
+     * @return {@code false} while the breaker is open, or while it is half-open and another
+     *         thread's trial call is in flight, i.e. calls would be refused.
+     */
+    public synchronized boolean isCallPermitted() {
+        switch (getState()) {
+            case OPEN:
+                return false;
+            case HALF_OPEN:
+                return !isOtherProbeInFlight();
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Refuses the call if the breaker is open, or if it is half-open and another thread's
+     * trial call is in flight; otherwise, if it is half-open, this call becomes the trial.
+     *
+     * @throws VSphereException if the call is refused.
+     */
+    public void checkCallPermitted() throws VSphereException {
+        checkCallPermitted(true);
+    }
+
+    /**
+     * Refuses to hand out a session when a call would be refused, but does not make the
+     * caller the half-open breaker's trial: the trial has to be a call that reaches (or fails
+     * to reach) the vCenter, and the calls made on the session may run on another thread.
+     *
+     * @throws VSphereException if calls are being refused.
+     */
+    public void checkSessionPermitted() throws VSphereException {
+        checkCallPermitted(false);
+    }
+
+    private void checkCallPermitted(boolean trial) throws VSphereException {
+        synchronized (this) {
+            final State current = getState();
+            if (current == State.CLOSED) {
+                return;
+            }
+            if (current == State.HALF_OPEN) {
+                if (isOtherProbeInFlight()) {
+                    throw new VSphereException("vCenter " + name + " may be unreachable (circuit breaker half-open;"
+                            + " another call is checking whether it is back)");
+                }
+                if (trial && probeInFlight == null) {
+                    probeInFlight = Thread.currentThread();
+                    probeStartedAtNanos = clock.getAsLong();
+                }
+                return;
+            }
+        }
+        throw new VSphereException("vCenter " + name + " is unreachable (circuit breaker open for another "
+                + getSecondsUntilHalfOpen() + "s after " + getConsecutiveFailures()
+                + " failed call(s); last failure: " + lastFailureSnapshot() + ")");
+    }
+
+    // Whether a trial call of another thread is in flight and has not yet been given up on. Called with this locked.
+    private boolean isOtherProbeInFlight() {
+        if (probeInFlight == null || probeInFlight == Thread.currentThread()) {
+            return false;
+        }
+        if (clock.getAsLong() - probeStartedAtNanos >= openNanos) {
+            probeInFlight = null; // never finished (e.g. nothing was called on the session it was handed)
+            return false;
+        }
+        return true;
+    }
+
+    /** Records a call that reached the vCenter. */
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = null;
+        if (state != State.CLOSED) {
+            LOGGER.info("vSphere circuit breaker [" + name + "] closed: the vCenter is reachable again");
+            state = State.CLOSED;
+        }
+    }
+
+    /**
+     * Records a failed call. Unless {@code failure} shows that the vCenter could not be
+     * reached, this counts as a success.
+     */
+    public void recordFailure(@NonNull Throwable failure) {
+        if (!isConnectivityFailure(failure)) {
+            recordSuccess();
+            return;
+        }
+        synchronized (this) {
+            consecutiveFailures++;
+            lastFailure = String.valueOf(failure);
+            probeInFlight = null;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                state = State.OPEN;
+                openedAtNanos = clock.getAsLong();
+                LOGGER.log(Level.WARNING, "vSphere circuit breaker [" + name + "] opened after " + consecutiveFailures
+                        + " failed call(s); refusing calls for " + TimeUnit.NANOSECONDS.toSeconds(openNanos) + "s", failure);
+            }
+        }
+    }
+
+    /** @return how many calls in a row have failed to reach the vCenter. */
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /** @return a one-line description of the breaker's state, e.g. for the cloud's configuration page. */
+    @NonNull
+    public String getSummary() {
+        final State current = getState();
+        switch (current) {
+            case OPEN:
+                return "Open - vCenter calls are refused for another " + getSecondsUntilHalfOpen() + "s (last failure: "
+                        + lastFailureSnapshot() + ")";
+            case HALF_OPEN:
+                return "Half-open - checking whether the vCenter is reachable again";
+            default:
+                return "Closed - " + getConsecutiveFailures() + " of " + failureThreshold
+                        + " consecutive failure(s) before calls are refused";
+        }
+    }
+
+    private synchronized long getSecondsUntilHalfOpen() {
+        final long remaining = openNanos - (clock.getAsLong() - openedAtNanos);
+        return Math.max(0, TimeUnit.NANOSECONDS.toSeconds(remaining));
+    }
+
+    private synchronized String lastFailureSnapshot() {
+        return lastFailure;
+    }
+
+    /**
+     * @return {@code true} if {@code failure} (or any of its causes) shows that the vCenter
+     *         could not be reached at all, as opposed to an error the vCenter answered with.
+     */
+    static boolean isConnectivityFailure(@CheckForNull Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            // SocketException covers ConnectException and NoRouteToHostException
+            if (t instanceof SocketTimeoutException
+                    || t instanceof SocketException
+                    || t instanceof UnknownHostException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
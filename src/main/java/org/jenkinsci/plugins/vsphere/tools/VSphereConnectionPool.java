@@ -3,85 +3,180 @@ package org.jenkinsci.plugins.vsphere.tools;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.slaves.Cloud;
-import jenkins.model.Jenkins;
 import org.jenkinsci.plugins.vsphere.VSphereConnectionConfig;
 
 import java.lang.ref.WeakReference;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Maintains a single long-lived vSphere session for one {@code vSphereCloud} instance,
- * eliminating the per-operation login/logout overhead that occurs when every API call
- * creates and destroys its own session.
+ * Maintains a small pool of long-lived vSphere sessions for one {@code vSphereCloud}
+ * instance, eliminating the per-operation login/logout overhead that occurs when every
+ * API call creates and destroys its own session.
  *
  * <p><b>Caller contract:</b></p>
  * <ol>
- *   <li>Obtain the shared connection via {@link #acquire()}.</li>
+ *   <li>Obtain a pooled connection via {@link #acquire()}.</li>
  *   <li>Use it normally - all public {@link VSphere} methods work as usual.</li>
  *   <li>Call {@link VSphere#disconnect()} exactly once when done.  For pooled connections
- *       this releases the borrow back to the pool (see {@link #release()}) rather than
- *       logging out directly; the pool controls the real session lifecycle and defers
+ *       this releases the borrow back to the pool (see {@link #release(VSphere)}) rather
+ *       than logging out directly; the pool controls the real session lifecycle and defers
  *       disconnecting an orphaned pool until every outstanding borrow is released.</li>
  * </ol>
  *
- * <p><b>Background maintenance:</b></p>
+ * <p><b>Sessions:</b></p>
  * <ul>
- *   <li><b>Health check</b> - if {@code healthCheckIntervalSecs > 0}, a daemon thread
- *       periodically issues a lightweight {@code currentTime()} call and reconnects
- *       automatically on failure.</li>
+ *   <li>Up to {@code maxSessions} independent sessions are logged in (at least one).
+ *       {@link #acquire()} hands out the session with the fewest outstanding borrows
+ *       (least recently borrowed first on a tie), and only logs in another session when
+ *       every existing one is already borrowed and the maximum has not been reached, so
+ *       parallel callers spread across sessions instead of all sharing one.</li>
+ *   <li>Once the first session is established, the pool tops itself up to
+ *       {@code minSessions} sessions in the background.</li>
+ *   <li>When a session is returned unused while another session is also unused, and the
+ *       pool holds more than {@code minSessions} sessions, the surplus session is logged
+ *       out, so a burst of parallel work does not leave extra sessions behind forever.</li>
+ * </ul>
+ *
+ * <p><b>Background maintenance</b> (applied to each session individually, except for the
+ * idle timeout which applies to the pool as a whole):</p>
+ * <ul>
+ *   <li><b>Health check</b> - if {@code healthCheckIntervalSecs > 0}, a timer
+ *       periodically issues a lightweight {@code currentTime()} call on every session and
+ *       reconnects any that fail.</li>
  *   <li><b>Session age limit</b> - if {@code sessionMaxAgeSecs > 0}, a one-shot timer is
- *       armed for the exact moment the session reaches that age, at which point it is
- *       proactively restarted (also re-checked defensively on the next
- *       {@link #acquire()} call) - unless {@code idleTimeoutSecs > 0} and no consumer has
- *       acquired the session since it was established, in which case it is disconnected
- *       instead of restarted, deferring to the idle policy. Without this, a
+ *       armed for the exact moment each session reaches that age, at which point it is
+ *       proactively restarted (also re-checked defensively when the session is next
+ *       handed out by {@link #acquire()}) - unless {@code idleTimeoutSecs > 0} and no
+ *       consumer has acquired the session since it was established, in which case it is
+ *       disconnected instead of restarted, deferring to the idle policy. Without this, a
  *       {@code sessionMaxAgeSecs} smaller than {@code idleTimeoutSecs} would otherwise
  *       reconnect an unused session forever, since each reconnect also resets the idle
  *       clock and the idle timeout would never get a chance to win.</li>
- *   <li><b>Use-count limit</b> - if {@code sessionMaxUses > 0}, the session is restarted
- *       on the next {@link #acquire()} once that many acquisitions have been made.</li>
+ *   <li><b>Use-count limit</b> - if {@code sessionMaxUses > 0}, a session is restarted
+ *       the next time {@link #acquire()} picks it once it has been handed out that many
+ *       times.</li>
+ *   <li><b>Make-before-break rotation</b> - if {@code rotationLeadSecs > 0}, a session
+ *       that is about to hit its age or use-count limit gets a standby session logged in
+ *       for it in the background: {@code rotationLeadSecs} before the age deadline, or
+ *       once 90% of its uses are spent. When the limit is reached the standby is swapped
+ *       into rotation in one step, so no caller has to wait for a login; until the
+ *       standby is ready the old session keeps being handed out. Without a lead (or if
+ *       logging in the standby failed) the session is restarted as described above.</li>
  *   <li><b>Idle timeout</b> - if {@code idleTimeoutSecs > 0}, a one-shot timer is armed
- *       for the exact moment the connection has gone unused for that many seconds, at
- *       which point it is disconnected (and lazily reconnected on the next
- *       {@link #acquire()}). The timer is re-armed on every {@link #acquire()}.</li>
+ *       for the exact moment the pool has gone unused for that many seconds, at which
+ *       point every session is disconnected (and lazily reconnected on the next
+ *       {@link #acquire()}). If the pool was used in the meantime, the timer just re-arms
+ *       itself for the remainder of the idle period when it fires.</li>
  * </ul>
  *
  * <p>Session age and idle timeout are enforced by dedicated one-shot alarms rather than
  * periodic polling, so they fire at (approximately) the exact configured deadline instead
- * of some time after it.
+ * of some time after it. All timers of all pools run on the plugin-wide
+ * {@link VSphereExecutors} rather than on threads of each pool's own, and the work they
+ * trigger (health probes, logins, logouts) runs on virtual threads.
+ *
+ * <p><b>Warm-up:</b> {@link #warmUp()} logs the first session (and, after it, the
+ * {@code minSessions}) in ahead of time on a background thread, so the first
+ * {@link #acquire()} after Jenkins starts or a cloud is reconfigured does not have to wait
+ * for a login. Without it the pool logs in lazily on first use.
+ *
+ * <p><b>Inventory mirror:</b> once the pool has logged in, it holds the
+ * {@link VSphereInventoryMirror} of its vCenter, so that its sessions can look names up
+ * locally rather than searching the vCenter's inventory each time. It also holds the
+ * {@link VSphereTaskWatcher} of its vCenter, so that waiting for tasks does not take one
+ * polling thread per task. Both log in sessions of their own, so the pool gives them up
+ * when it goes idle, along with its own sessions, and takes them up again on its next login.
+ *
+ * <p><b>Inventory roots:</b> a pool can be confined to some datacenters, folders and
+ * clusters, in which case its sessions only search below those (see
+ * {@link VSphere#connect(VSphereConnectionConfig, VSphereCallLimiter, VSphereCircuitBreaker, List)})
+ * and its inventory mirror only holds what is below them.
+ *
+ * <p>Each pooled {@link VSphere} keeps the {@code ServiceInstance} it logged in with, so
+ * every caller sharing that session reuses it; it is only rebuilt when the pool reconnects.
  *
  * <p>A value of {@code 0} disables the corresponding feature.
  *
- * <p>Thread-safe.  All mutable state is guarded by {@code this}.
+ * <p><b>Sharing:</b> clouds obtain their pool via {@link #share}, so every cloud (including
+ * folder-level clouds) that points at the same vCenter host with the same credentials,
+ * certificate policy and pool settings uses one pool - one set of timers and one set
+ * of sessions - instead of one each. The pool stays up while at least one of those clouds
+ * still {@link #detach(Cloud) holds} it. In addition, the total number of sessions logged
+ * in to any one vCenter host by all pools together can be capped with the
+ * {@code org.jenkinsci.plugins.vsphere.tools.VSphereConnectionPool.maxSessionsPerHost}
+ * system property (the sessions of the inventory mirror and the task watcher are not
+ * counted, so that they can never leave a pool without one);
+ * once that budget is used up, callers share the sessions their pool already has, and only
+ * a pool that has none yet fails to {@link #acquire()}.
+ *
+ * <p><b>Thread-safety:</b> handing out an established session takes no lock at all - the
+ * session list is copy-on-write and all borrow bookkeeping is atomic. Logins, logouts and
+ * health probes never run while the pool's monitor is held, so one slow vCenter round-trip
+ * cannot stall every other caller. When several callers need a new session at once, one
+ * of them logs in and the others wait for that same login rather than starting their own.
+ * A session taken out of rotation (restart, idle timeout, failed health check, shutdown)
+ * is only logged out once every caller that borrowed it has released it.
  */
 public class VSphereConnectionPool {
 
     private static final Logger LOGGER = Logger.getLogger(VSphereConnectionPool.class.getName());
 
     private final VSphereConnectionConfig config;
-    private final WeakReference<Cloud> owner;
+    /** Whether this pool belongs to clouds at all; pools created without one are never orphaned. */
+    private final boolean owned;
+    private final List<WeakReference<Cloud>> owners = new CopyOnWriteArrayList<>();
+    @CheckForNull
+    private final VSphereConnectionPoolRegistry.PoolKey sharingKey;
+    @CheckForNull
+    private final VSphereCallLimiter callLimiter;
+    @CheckForNull
+    private final VSphereCircuitBreaker circuitBreaker;
+    private final List<String> inventoryRoots;
+    /** Held from a login until the pool goes idle or its timers are stopped; written with this locked. */
+    @CheckForNull
+    private volatile VSphereInventoryMirror inventoryMirror;
+    /** Held from a login until the pool goes idle or its timers are stopped; written with this locked. */
+    @CheckForNull
+    private volatile VSphereTaskWatcher taskWatcher;
 
     private final int healthCheckIntervalSecs;
     private final int sessionMaxAgeSecs;
     private final int sessionMaxUses;
     private final int idleTimeoutSecs;
+    private final int minSessions;
+    private final int maxSessions;
+    private final int rotationLeadSecs;
+
+    /** Sessions {@link #acquire()} may hand out. */
+    private final List<PooledSession> sessions = new CopyOnWriteArrayList<>();
+    /** Sessions taken out of rotation that are still borrowed, awaiting logout. */
+    private final List<PooledSession> draining = new CopyOnWriteArrayList<>();
+    private final AtomicInteger borrowCount = new AtomicInteger();
+    private volatile long lastAcquiredAtMs;
+    private volatile boolean shutdownRequested;
 
     /* Guarded by this */
-    private VSphere connection;
-    private long connectionCreatedAtMs;
-    private long lastAcquiredAtMs;
-    private long useCount;
-    private int borrowCount;
-    private boolean pendingShutdown;
-    private ScheduledFuture<?> ageExpiryFuture;
+    private boolean shutdownComplete;
+    private boolean topUpScheduled;
+    private CompletableFuture<PooledSession> connectInFlight;
     private ScheduledFuture<?> idleExpiryFuture;
 
-    private ScheduledExecutorService scheduler;
+    private volatile boolean timersStopped;
+    private volatile ScheduledFuture<?> healthCheckFuture;
 
     public VSphereConnectionPool(
             @NonNull VSphereConnectionConfig config,
@@ -92,12 +187,43 @@ public class VSphereConnectionPool {
         this(config, null, healthCheckIntervalSecs, sessionMaxAgeSecs, sessionMaxUses, idleTimeoutSecs);
     }
 
+    public VSphereConnectionPool(
+            @NonNull VSphereConnectionConfig config,
+            @CheckForNull Cloud owner,
+            int healthCheckIntervalSecs,
+            int sessionMaxAgeSecs,
+            int sessionMaxUses,
+            int idleTimeoutSecs) {
+        this(config, owner, healthCheckIntervalSecs, sessionMaxAgeSecs, sessionMaxUses, idleTimeoutSecs, 0, 1);
+    }
+
+    public VSphereConnectionPool(
+            @NonNull VSphereConnectionConfig config,
+            @CheckForNull Cloud owner,
+            int healthCheckIntervalSecs,
+            int sessionMaxAgeSecs,
+            int sessionMaxUses,
+            int idleTimeoutSecs,
+            int minSessions,
+            int maxSessions) {
+        this(config, owner, healthCheckIntervalSecs, sessionMaxAgeSecs, sessionMaxUses, idleTimeoutSecs,
+                minSessions, maxSessions, 0);
+    }
+
     /**
      * @param owner the {@link Cloud} this pool belongs to, used only so that
      *              {@link VSphereConnectionPoolRegistry} can detect and shut down pools
      *              left behind by a cloud instance that was replaced by reconfiguration
      *              (e.g. saving the Jenkins global config). May be {@code null} (e.g. in
      *              tests), in which case this pool is never auto-reaped as an orphan.
+     * @param minSessions how many sessions the pool tops itself up to once it is in use,
+     *                    and never shrinks below when sessions are returned unused.
+     * @param maxSessions the most sessions the pool will have logged in at once; values
+     *                    below 1 mean 1 (a single shared session).
+     * @param rotationLeadSecs how long before a session reaches {@code sessionMaxAgeSecs}
+     *                         to log in its replacement; any value above 0 also enables
+     *                         standby logins ahead of the {@code sessionMaxUses} limit.
+     *                         0 restarts sessions only once they reach their limit.
      */
     public VSphereConnectionPool(
             @NonNull VSphereConnectionConfig config,
@@ -105,54 +231,285 @@ public class VSphereConnectionPool {
             int healthCheckIntervalSecs,
             int sessionMaxAgeSecs,
             int sessionMaxUses,
-            int idleTimeoutSecs) {
+            int idleTimeoutSecs,
+            int minSessions,
+            int maxSessions,
+            int rotationLeadSecs) {
+        this(config, owner, healthCheckIntervalSecs, sessionMaxAgeSecs, sessionMaxUses, idleTimeoutSecs,
+                minSessions, maxSessions, rotationLeadSecs, null, null, null, Collections.emptyList());
+    }
+
+    private VSphereConnectionPool(
+            @NonNull VSphereConnectionConfig config,
+            @CheckForNull Cloud owner,
+            int healthCheckIntervalSecs,
+            int sessionMaxAgeSecs,
+            int sessionMaxUses,
+            int idleTimeoutSecs,
+            int minSessions,
+            int maxSessions,
+            int rotationLeadSecs,
+            @CheckForNull VSphereConnectionPoolRegistry.PoolKey sharingKey,
+            @CheckForNull VSphereCallLimiter callLimiter,
+            @CheckForNull VSphereCircuitBreaker circuitBreaker,
+            @NonNull List<String> inventoryRoots) {
         this.config = config;
-        this.owner = owner == null ? null : new WeakReference<>(owner);
+        this.owned = owner != null;
+        if (owner != null) {
+            owners.add(new WeakReference<>(owner));
+        }
+        this.sharingKey = sharingKey;
+        this.callLimiter = callLimiter;
+        this.circuitBreaker = circuitBreaker;
+        this.inventoryRoots = Collections.unmodifiableList(new ArrayList<>(inventoryRoots));
         this.healthCheckIntervalSecs = Math.max(0, healthCheckIntervalSecs);
         this.sessionMaxAgeSecs       = Math.max(0, sessionMaxAgeSecs);
         this.sessionMaxUses          = Math.max(0, sessionMaxUses);
         this.idleTimeoutSecs         = Math.max(0, idleTimeoutSecs);
+        this.maxSessions             = Math.max(1, maxSessions);
+        this.minSessions             = Math.min(this.maxSessions, Math.max(0, minSessions));
+        this.rotationLeadSecs        = Math.max(0, rotationLeadSecs);
         startScheduler();
         VSphereConnectionPoolRegistry.register(this);
     }
 
     /**
-     * Returns the pooled {@link VSphere} connection, creating or restarting it if
+     * Returns the pool shared by every cloud that connects to the same vCenter host with
+     * the same credentials, certificate policy and pool settings, creating it if there is
+     * none yet, and records {@code owner} as one of its holders. The owner must
+     * {@link #detach(Cloud)} from the pool when it stops using it (e.g. when its pool
+     * settings change); the pool is shut down once its last holder has detached.
+     */
+    public static VSphereConnectionPool share(
+            @NonNull VSphereConnectionConfig config,
+            @NonNull Cloud owner,
+            int healthCheckIntervalSecs,
+            int sessionMaxAgeSecs,
+            int sessionMaxUses,
+            int idleTimeoutSecs,
+            int minSessions,
+            int maxSessions,
+            int rotationLeadSecs) {
+        return share(config, owner, healthCheckIntervalSecs, sessionMaxAgeSecs, sessionMaxUses, idleTimeoutSecs,
+                minSessions, maxSessions, rotationLeadSecs, null, null);
+    }
+
+    /**
+     * As {@link #share(VSphereConnectionConfig, Cloud, int, int, int, int, int, int, int)},
+     * with every call made on the pool's sessions throttled by {@code callLimiter} and
+     * guarded by {@code circuitBreaker}. Clouds only share a pool if their call limits and
+     * breaker settings are the same too; they then share one budget and one breaker.
+     */
+    public static VSphereConnectionPool share(
+            @NonNull VSphereConnectionConfig config,
+            @NonNull Cloud owner,
+            int healthCheckIntervalSecs,
+            int sessionMaxAgeSecs,
+            int sessionMaxUses,
+            int idleTimeoutSecs,
+            int minSessions,
+            int maxSessions,
+            int rotationLeadSecs,
+            @CheckForNull VSphereCallLimiter callLimiter,
+            @CheckForNull VSphereCircuitBreaker circuitBreaker) {
+        return share(config, owner, healthCheckIntervalSecs, sessionMaxAgeSecs, sessionMaxUses, idleTimeoutSecs,
+                minSessions, maxSessions, rotationLeadSecs, callLimiter, circuitBreaker, null);
+    }
+
+    /**
+     * As {@link #share(VSphereConnectionConfig, Cloud, int, int, int, int, int, int, int, VSphereCallLimiter, VSphereCircuitBreaker)},
+     * with the pool's sessions only searching below {@code inventoryRoots} (the names or
+     * inventory paths of datacenters, folders and clusters). Clouds only share a pool if
+     * they have the same inventory roots too.
+     */
+    public static VSphereConnectionPool share(
+            @NonNull VSphereConnectionConfig config,
+            @NonNull Cloud owner,
+            int healthCheckIntervalSecs,
+            int sessionMaxAgeSecs,
+            int sessionMaxUses,
+            int idleTimeoutSecs,
+            int minSessions,
+            int maxSessions,
+            int rotationLeadSecs,
+            @CheckForNull VSphereCallLimiter callLimiter,
+            @CheckForNull VSphereCircuitBreaker circuitBreaker,
+            @CheckForNull List<String> inventoryRoots) {
+        final List<String> roots = inventoryRoots == null ? Collections.emptyList() : inventoryRoots;
+        final int[] limits = callLimiter != null ? callLimiter.getSettings() : new int[4];
+        final int[] breaker = circuitBreaker != null ? circuitBreaker.getSettings() : new int[2];
+        final VSphereConnectionPoolRegistry.PoolKey key = new VSphereConnectionPoolRegistry.PoolKey(
+                config.getVsHost(), config.getCredentialsId(), config.getAllowUntrustedCertificate(), roots,
+                config.getConnectTimeoutSecs(), config.getReadTimeoutSecs(),
+                Math.max(0, healthCheckIntervalSecs), Math.max(0, sessionMaxAgeSecs), Math.max(0, sessionMaxUses),
+                Math.max(0, idleTimeoutSecs), Math.max(0, minSessions), Math.max(1, maxSessions),
+                Math.max(0, rotationLeadSecs),
+                limits[0], limits[1], limits[2], limits[3],
+                breaker[0], breaker[1]);
+        return VSphereConnectionPoolRegistry.share(key, owner, () -> new VSphereConnectionPool(
+                config, owner, healthCheckIntervalSecs, sessionMaxAgeSecs, sessionMaxUses, idleTimeoutSecs,
+                minSessions, maxSessions, rotationLeadSecs, key, callLimiter, circuitBreaker, roots));
+    }
+
+    /**
+     * Records that {@code owner} no longer uses this pool, and shuts the pool down if no
+     * other live cloud still does. A pool that was created directly (rather than via
+     * {@link #share}) is shut down right away.
+     */
+    public void detach(@NonNull Cloud owner) {
+        if (VSphereConnectionPoolRegistry.detach(this, owner)) {
+            shutdown();
+        }
+    }
+
+    /** @return {@code true} once {@link #shutdown()} has been requested. */
+    public boolean isShutDown() {
+        return shutdownRequested;
+    }
+
+    @CheckForNull
+    VSphereConnectionPoolRegistry.PoolKey getSharingKey() {
+        return sharingKey;
+    }
+
+    /** @return the limiter throttling calls made on this pool's sessions, if any. */
+    @CheckForNull
+    public VSphereCallLimiter getCallLimiter() {
+        return callLimiter;
+    }
+
+    /** @return the circuit breaker guarding calls made on this pool's sessions, if any. */
+    @CheckForNull
+    public VSphereCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /** @return the names or inventory paths of the datacenters, folders and clusters this pool's sessions search below; empty for the whole inventory. */
+    @NonNull
+    public List<String> getInventoryRoots() {
+        return inventoryRoots;
+    }
+
+    /** @return the mirror of this pool's vCenter inventory, once the pool has logged in (and unless mirrors are off). */
+    @CheckForNull
+    public VSphereInventoryMirror getInventoryMirror() {
+        return inventoryMirror;
+    }
+
+    /** @return the watcher of this pool's vCenter tasks, once the pool has logged in (and unless watchers are off). */
+    @CheckForNull
+    public VSphereTaskWatcher getTaskWatcher() {
+        return taskWatcher;
+    }
+
+    /**
+     * Adds {@code owner} as a holder of this pool, unless it is already shutting down.
+     * Only called by {@link VSphereConnectionPoolRegistry} with its sharing lock held.
+     */
+    boolean addOwner(@NonNull Cloud owner) {
+        if (shutdownRequested) {
+            return false;
+        }
+        if (!hasOwner(owner)) {
+            owners.add(new WeakReference<>(owner));
+        }
+        return true;
+    }
+
+    /**
+     * Removes {@code owner} (and any owner that has been garbage collected) from this pool's
+     * holders. Only called by {@link VSphereConnectionPoolRegistry} with its sharing lock held.
+     *
+     * @return {@code true} if no holder is left.
+     */
+    boolean removeOwner(@NonNull Cloud owner) {
+        owners.removeIf(ref -> {
+            final Cloud cloud = ref.get();
+            return cloud == null || cloud == owner;
+        });
+        return owners.isEmpty();
+    }
+
+    private boolean hasOwner(Cloud owner) {
+        for (WeakReference<Cloud> ref : owners) {
+            if (ref.get() == owner) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a pooled {@link VSphere} connection, creating or restarting a session if
      * necessary. The returned instance is marked as pooled so that callers'
      * {@link VSphere#disconnect()} calls release it back to this pool instead of logging
      * out directly. Every {@code acquire()} must eventually be matched by exactly one
      * {@link VSphere#disconnect()} call on the returned instance, so that {@link #shutdown()}
-     * can tell when it is safe to actually tear down the session - see {@link #release()}.
+     * can tell when it is safe to actually tear down the sessions - see
+     * {@link #release(VSphere)}.
+     * <p>
+     * Takes no lock when an established session can be handed out; otherwise waits
+     * (without holding the pool's monitor) for a new session to be logged in.
      *
-     * @throws VSphereException if establishing the session fails.
+     * @throws VSphereException if establishing a session fails.
      */
-    public synchronized VSphere acquire() throws VSphereException {
-        ensureConnected();
-        lastAcquiredAtMs = System.currentTimeMillis();
-        useCount++;
-        borrowCount++;
-        connection.markAsPooled(this);
-        scheduleIdleExpiry();
-        return connection;
+    public VSphere acquire() throws VSphereException {
+        while (true) {
+            PooledSession session = pickSession(false);
+            if (session == null) {
+                session = awaitNewSession();
+                if (session == null) {
+                    // at the pool's or the vCenter's session limit; share the least busy one
+                    session = pickSession(true);
+                    if (session == null) {
+                        continue;
+                    }
+                }
+            }
+            final String restartReason = restartReason(session);
+            if (restartReason != null && !session.standbyInFlight) {
+                if (swapInStandby(session)) {
+                    LOGGER.info("vSphere connection pool [" + config.getVsHost() + "]: rotating session - "
+                            + restartReason + "; standby session already logged in");
+                } else if (retire(session)) {
+                    LOGGER.info("vSphere connection pool [" + config.getVsHost() + "]: restarting session - "
+                            + restartReason);
+                }
+                continue;
+            }
+            if (borrow(session)) {
+                return session.connection;
+            }
+        }
     }
 
     /**
      * Called by a pooled {@link VSphere} instance's {@link VSphere#disconnect()} to signal
      * that the caller which {@link #acquire() acquired} it is done with it. If
-     * {@link #shutdown()} was requested while the connection was still borrowed, performs
-     * the deferred disconnect once the last outstanding borrower releases it.
+     * {@link #shutdown()} was requested while connections were still borrowed, performs
+     * the deferred disconnect once the last outstanding borrower releases theirs.
+     *
+     * @param connection the instance being returned, or {@code null} if unknown.
      */
-    synchronized void release() {
-        if (borrowCount > 0) {
-            borrowCount--;
+    void release(@CheckForNull VSphere connection) {
+        final PooledSession session = findSession(connection);
+        if (session != null && decrementToZero(session.borrowCount) == 0) {
+            if (session.retired.get()) {
+                disconnectIfDrained(session);
+            } else {
+                retireIfSurplus(session);
+            }
         }
-        if (pendingShutdown && borrowCount <= 0) {
-            VSphereConnectionPoolRegistry.unregister(this);
-            disconnectQuietly();
-            pendingShutdown = false;
+        if (decrementToZero(borrowCount) == 0 && shutdownRequested) {
+            completeShutdown();
         }
     }
 
+    /** Releases one borrow that cannot be attributed to a particular session. */
+    void release() {
+        release(null);
+    }
+
     /**
      * Visible for testing: simulates {@code count} outstanding un-released
      * {@link #acquire()} calls, without needing a live vCenter connection
@@ -161,222 +518,696 @@ public class VSphereConnectionPool {
      * Marked "Deprecated": should not be used by "real" code paths.
      */
     @Deprecated
-    synchronized void setBorrowCountForTesting(int count) {
-        this.borrowCount = count;
+    void setBorrowCountForTesting(int count) {
+        borrowCount.set(count);
+    }
+
+    /** Visible for testing: the effective lower bound on the number of sessions. */
+    int getMinSessions() {
+        return minSessions;
+    }
+
+    /** Visible for testing: the effective upper bound on the number of sessions. */
+    int getMaxSessions() {
+        return maxSessions;
+    }
+
+    /** Visible for testing: how long before its age limit a session's replacement logs in. */
+    int getRotationLeadSecs() {
+        return rotationLeadSecs;
+    }
+
+    /** @return how many sessions this pool currently has logged in and in rotation. */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Logs in this pool's first session (followed by the rest of its {@code minSessions})
+     * on a background thread, unless it already has one. Returns immediately; a failed
+     * login is only logged, and retried by the next {@link #acquire()}.
+     */
+    public void warmUp() {
+        if (shutdownRequested || !sessions.isEmpty()) {
+            return;
+        }
+        VSphereExecutors.runMaintenance(() -> {
+            if (shutdownRequested || !sessions.isEmpty()) {
+                return;
+            }
+            try {
+                awaitNewSession();
+                LOGGER.fine("vSphere connection pool [" + config.getVsHost() + "]: warmed up");
+            } catch (VSphereException e) {
+                LOGGER.log(Level.WARNING,
+                        "vSphere connection pool [" + config.getVsHost() + "]: warm-up login failed", e);
+            }
+        });
     }
 
     /**
-     * Shuts down all background threads and, unless the connection is still borrowed by an
-     * in-flight caller (see {@link #acquire()}/{@link #release()}), disconnects the current
-     * session immediately. If it is still borrowed, the actual disconnect is deferred until
+     * Shuts down all background threads and, unless a connection is still borrowed by an
+     * in-flight caller (see {@link #acquire()}/{@link #release(VSphere)}), disconnects every
+     * session immediately. If any is still borrowed, the actual disconnect is deferred until
      * the last borrower releases it, so an in-flight vCenter operation (e.g. a build step
      * that started before this pool's owning cloud was replaced) is not cut off mid-call.
      * After this call the pool must not be used to {@link #acquire()} further connections.
      */
-    public synchronized void shutdown() {
-        stopScheduler();
-        if (borrowCount > 0) {
-            pendingShutdown = true;
-            LOGGER.info("vSphere connection pool [" + config.getVsHost() + "]: shutdown requested while "
-                    + borrowCount + " caller(s) still hold the connection; deferring disconnect until released");
-            return;
+    public void shutdown() {
+        synchronized (this) {
+            stopScheduler();
+            shutdownRequested = true;
+            final int borrowed = borrowCount.get();
+            if (borrowed > 0) {
+                LOGGER.info("vSphere connection pool [" + config.getVsHost() + "]: shutdown requested while "
+                        + borrowed + " caller(s) still hold a connection; deferring disconnect until released");
+                return;
+            }
         }
-        VSphereConnectionPoolRegistry.unregister(this);
-        disconnectQuietly();
+        completeShutdown();
     }
 
     /**
-     * Returns {@code true} if the {@link Cloud} this pool was created for is no longer
-     * present in {@code Jenkins.get().clouds} (e.g. it was replaced by a reconfiguration
-     * of the global/folder cloud config), meaning this pool's background thread and any
-     * session it still holds are now orphaned.  A pool created without an owner (e.g. in
-     * tests) is never considered orphaned.
+     * Returns {@code true} if none of the {@link Cloud}s holding this pool is still present
+     * in {@code Jenkins.get().clouds} or in a folder's vSphere cloud list (e.g. they were
+     * replaced by a reconfiguration of the global/folder cloud config), meaning this pool's
+     * background thread and any session it still holds are now orphaned.  Holders that are
+     * gone are forgotten along the way.  A pool created without an owner (e.g. in tests) is
+     * never considered orphaned.
      */
     boolean isOrphaned() {
-        if (owner == null) {
+        final Set<Cloud> liveClouds = VSphereConnectionPoolRegistry.findLiveClouds();
+        return liveClouds != null && isOrphaned(liveClouds);
+    }
+
+    /**
+     * Like {@link #isOrphaned()}, against clouds already collected by
+     * {@link VSphereConnectionPoolRegistry#findLiveClouds()}, so that reaping every pool
+     * walks the configuration only once.
+     */
+    boolean isOrphaned(@NonNull Set<Cloud> liveClouds) {
+        if (!owned) {
             return false;
         }
-        Cloud cloud = owner.get();
-        if (cloud == null) {
-            return true;
+        owners.removeIf(ref -> {
+            final Cloud cloud = ref.get();
+            return cloud == null || !liveClouds.contains(cloud);
+        });
+        return owners.isEmpty();
+    }
+
+    // -------------------------------------------------------------------------
+    // Internal helpers (none of them talk to vCenter with this lock held)
+    // -------------------------------------------------------------------------
+
+    /** One logged-in session and its own usage bookkeeping. */
+    private static final class PooledSession {
+        final VSphere connection;
+        /** When the session entered rotation; a standby's age only starts once it is swapped in. */
+        volatile long createdAtMs;
+        final AtomicInteger borrowCount = new AtomicInteger();
+        final AtomicLong useCount = new AtomicLong();
+        final AtomicBoolean retired = new AtomicBoolean();
+        final AtomicBoolean loggedOut = new AtomicBoolean();
+        final AtomicBoolean rotationStarted = new AtomicBoolean();
+        final AtomicReference<PooledSession> standby = new AtomicReference<>();
+        volatile boolean standbyInFlight;
+        volatile long lastAcquiredAtMs;
+        volatile ScheduledFuture<?> ageExpiryFuture;
+        volatile ScheduledFuture<?> rotationDueFuture;
+
+        PooledSession(VSphere connection) {
+            this.connection = connection;
+            this.createdAtMs = System.currentTimeMillis();
+            this.lastAcquiredAtMs = createdAtMs;
+        }
+    }
+
+    // Picks the least-borrowed session (least recently borrowed on a tie), or returns null
+    // if there is none yet, or (unless busyOk) all are busy and there is room for another.
+    private PooledSession pickSession(boolean busyOk) {
+        PooledSession best = null;
+        int bestBorrows = 0;
+        int size = 0;
+        for (PooledSession candidate : sessions) {
+            size++;
+            final int borrows = candidate.borrowCount.get();
+            if (best == null
+                    || borrows < bestBorrows
+                    || (borrows == bestBorrows && candidate.lastAcquiredAtMs < best.lastAcquiredAtMs)) {
+                best = candidate;
+                bestBorrows = borrows;
+            }
         }
-        Jenkins jenkins = Jenkins.getInstanceOrNull();
-        if (jenkins == null) {
+        if (best == null || (!busyOk && bestBorrows > 0 && size < maxSessions)) {
+            return null;
+        }
+        return best;
+    }
+
+    @CheckForNull
+    private String restartReason(PooledSession session) {
+        if (sessionMaxAgeSecs > 0
+                && (System.currentTimeMillis() - session.createdAtMs) > (long) sessionMaxAgeSecs * 1000L) {
+            return "max age reached";
+        }
+        if (sessionMaxUses > 0 && session.useCount.get() >= sessionMaxUses) {
+            return "max uses reached";
+        }
+        return null;
+    }
+
+    // Records a borrow of the given session, unless it was taken out of rotation meanwhile.
+    // The borrow is published before the retired flag is read, and markRetired() sets that
+    // flag before disconnectIfDrained() reads the borrow count, so either this caller backs
+    // off or the session stays logged in until this borrow is released.
+    private boolean borrow(PooledSession session) {
+        session.borrowCount.incrementAndGet();
+        if (session.retired.get()) {
+            decrementToZero(session.borrowCount);
+            disconnectIfDrained(session);
             return false;
         }
-        for (Cloud live : jenkins.clouds) {
-            if (live == cloud) {
-                return false;
-            }
+        final long now = System.currentTimeMillis();
+        session.lastAcquiredAtMs = now;
+        final long uses = session.useCount.incrementAndGet();
+        lastAcquiredAtMs = now;
+        borrowCount.incrementAndGet();
+        if (rotationLeadSecs > 0 && sessionMaxUses > 0
+                && uses >= sessionMaxUses - Math.max(1, sessionMaxUses / 10)) {
+            startStandby(session);
         }
         return true;
     }
 
-    // -------------------------------------------------------------------------
-    // Internal helpers (all called with this lock held unless noted)
-    // -------------------------------------------------------------------------
+    private static int decrementToZero(AtomicInteger counter) {
+        return counter.updateAndGet(count -> count > 0 ? count - 1 : 0);
+    }
+
+    @CheckForNull
+    private PooledSession findSession(@CheckForNull VSphere connection) {
+        if (connection == null) {
+            return null;
+        }
+        for (PooledSession session : sessions) {
+            if (session.connection == connection) {
+                return session;
+            }
+        }
+        for (PooledSession session : draining) {
+            if (session.connection == connection) {
+                return session;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a freshly logged-in session, or {@code null} if the pool already holds
+     * {@code maxSessions} sessions or the vCenter's session budget is used up. If another thread is already logging in, waits for
+     * and shares the outcome of that login instead of starting another one.
+     * Must not be called with this locked.
+     */
+    @CheckForNull
+    private PooledSession awaitNewSession() throws VSphereException {
+        final CompletableFuture<PooledSession> future;
+        final boolean leader;
+        synchronized (this) {
+            if (connectInFlight != null) {
+                future = connectInFlight;
+                leader = false;
+            } else if (!sessions.isEmpty() && sessions.size() >= maxSessions) {
+                return null;
+            } else {
+                future = new CompletableFuture<>();
+                connectInFlight = future;
+                leader = true;
+            }
+        }
+        if (leader) {
+            try {
+                future.complete(openSession());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            } finally {
+                synchronized (this) {
+                    connectInFlight = null;
+                }
+            }
+            scheduleTopUp();
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof VSphereException) {
+                throw (VSphereException) cause;
+            }
+            throw new VSphereException(cause);
+        }
+    }
 
-    private void ensureConnected() throws VSphereException {
+    // Logs in a new session (without holding this lock) and puts it into rotation. Returns
+    // null if the vCenter's session budget is used up but this pool already has a session.
+    @CheckForNull
+    private PooledSession openSession() throws VSphereException {
+        final VSphere connection = login();
         if (connection == null) {
-            connect();
+            if (!sessions.isEmpty()) {
+                return null;
+            }
+            throw new VSphereException("All " + VSphereConnectionPoolRegistry.getMaxSessionsPerHost()
+                    + " sessions allowed for " + config.getVsHost() + " (see system property "
+                    + VSphereConnectionPoolRegistry.MAX_SESSIONS_PER_HOST_PROPERTY + ") are in use by other pools");
+        }
+        final PooledSession session = new PooledSession(connection);
+        synchronized (this) {
+            if (!shutdownComplete) {
+                addToRotation(session);
+                return session;
+            }
+        }
+        logout(connection);
+        throw new VSphereException("Connection pool for " + config.getVsHost() + " has been shut down");
+    }
+
+    // Logs in a new pooled session against the vCenter's session budget; returns null if
+    // the budget is used up.
+    @CheckForNull
+    private VSphere login() throws VSphereException {
+        final String host = config.getVsHost();
+        if (!VSphereConnectionPoolRegistry.tryReserveSession(host)) {
+            return null;
+        }
+        boolean loggedIn = false;
+        try {
+            final VSphere connection = VSphere.connect(config);
+            connection.markAsPooled(this);
+            loggedIn = true;
+            return connection;
+        } finally {
+            if (!loggedIn) {
+                VSphereConnectionPoolRegistry.releaseSession(host);
+            }
+        }
+    }
+
+    private void logout(VSphere connection) {
+        connection.forceDisconnect();
+        VSphereConnectionPoolRegistry.releaseSession(config.getVsHost());
+    }
+
+    // Makes a logged-in session available to acquire() and arms its alarms. Called with this locked.
+    private void addToRotation(PooledSession session) {
+        session.createdAtMs = System.currentTimeMillis();
+        session.lastAcquiredAtMs = session.createdAtMs;
+        if (sessions.isEmpty()) {
+            lastAcquiredAtMs = session.createdAtMs;
+        }
+        sessions.add(session);
+        LOGGER.info("vSphere connection pool [" + config.getVsHost() + "]: session established ("
+                + sessions.size() + " of at most " + maxSessions + ")");
+        if (sessionMaxAgeSecs > 0) {
+            session.ageExpiryFuture = schedule(() -> onAgeExpired(session), sessionMaxAgeSecs, TimeUnit.SECONDS);
+            if (rotationLeadSecs > 0) {
+                session.rotationDueFuture = schedule(() -> onRotationDue(session),
+                        Math.max(0, sessionMaxAgeSecs - rotationLeadSecs), TimeUnit.SECONDS);
+            }
+        }
+        if (idleTimeoutSecs > 0 && idleExpiryFuture == null) {
+            idleExpiryFuture = schedule(this::onIdleExpired, idleTimeoutSecs, TimeUnit.SECONDS);
+        }
+        if (inventoryMirror == null && !timersStopped && VSphereInventoryMirror.isEnabled()) {
+            inventoryMirror = VSphereInventoryMirror.acquire(config, inventoryRoots);
+        }
+        if (taskWatcher == null && !timersStopped && VSphereTaskWatcher.isEnabled()) {
+            taskWatcher = VSphereTaskWatcher.acquire(config);
+        }
+    }
+
+    // Starts logging in a standby session for one that is nearing its age or use-count limit,
+    // unless that has already been started for it.
+    private void startStandby(PooledSession session) {
+        if (!session.rotationStarted.compareAndSet(false, true)) {
             return;
         }
-        boolean ageExpired = sessionMaxAgeSecs > 0
-                && (System.currentTimeMillis() - connectionCreatedAtMs) > (long) sessionMaxAgeSecs * 1000L;
-        boolean usesExhausted = sessionMaxUses > 0 && useCount >= sessionMaxUses;
-        if (ageExpired || usesExhausted) {
-            LOGGER.info("vSphere connection pool [" + config.getVsHost() + "]: restarting session - "
-                    + (ageExpired ? "max age reached" : "max uses reached"));
-            disconnectQuietly();
-            connect();
+        session.standbyInFlight = true;
+        if (schedule(() -> prepareStandby(session), 0, TimeUnit.SECONDS) == null) {
+            session.standbyInFlight = false;
         }
     }
 
-    private void connect() throws VSphereException {
-        connection = VSphere.connect(config);
-        connection.markAsPooled(this);
-        connectionCreatedAtMs = System.currentTimeMillis();
-        lastAcquiredAtMs      = connectionCreatedAtMs;
-        useCount              = 0;
-        LOGGER.info("vSphere connection pool [" + config.getVsHost() + "]: session established");
-        scheduleAgeExpiry();
-        scheduleIdleExpiry();
+    // Called on the shared background executor, sessionMaxAgeSecs - rotationLeadSecs
+    // after the session was established
+    private void onRotationDue(PooledSession session) {
+        if (session.retired.get() || shutdownRequested || (idleTimeoutSecs > 0 && session.useCount.get() == 0)) {
+            return; // going away anyway, or left to the idle policy (see onAgeExpired)
+        }
+        startStandby(session);
     }
 
-    // Arms (or re-arms) a one-shot timer for the exact moment the current session
-    // reaches sessionMaxAgeSecs. Called with this locked.
-    private void scheduleAgeExpiry() {
-        if (ageExpiryFuture != null) {
-            ageExpiryFuture.cancel(false);
-            ageExpiryFuture = null;
+    // Called on the shared background executor; logs in the standby without holding
+    // this lock, then either parks it on the old session or swaps it in right away if the
+    // old session has already reached its limit.
+    private void prepareStandby(PooledSession old) {
+        final PooledSession spare;
+        try {
+            final VSphere connection = login();
+            if (connection == null) {
+                old.standbyInFlight = false;
+                LOGGER.fine("vSphere connection pool [" + config.getVsHost()
+                        + "]: no session budget left for a standby session; the session will be restarted instead");
+                return;
+            }
+            spare = new PooledSession(connection);
+        } catch (VSphereException e) {
+            old.standbyInFlight = false;
+            LOGGER.log(Level.WARNING,
+                    "vSphere connection pool [" + config.getVsHost()
+                            + "]: failed to log in standby session; the session will be restarted instead", e);
+            return;
+        }
+        boolean adopted = false;
+        synchronized (this) {
+            if (!shutdownComplete) {
+                if (!old.retired.get()) {
+                    old.standby.set(spare);
+                    adopted = true;
+                } else if (sessions.size() < maxSessions) {
+                    // the old session went away meanwhile (e.g. failed health check)
+                    addToRotation(spare);
+                    adopted = true;
+                }
+            }
         }
-        if (sessionMaxAgeSecs <= 0 || scheduler == null) {
+        old.standbyInFlight = false;
+        if (!adopted) {
+            logout(spare.connection);
             return;
         }
-        ageExpiryFuture = scheduler.schedule(this::onAgeExpired, sessionMaxAgeSecs, TimeUnit.SECONDS);
+        LOGGER.fine("vSphere connection pool [" + config.getVsHost() + "]: standby session logged in");
+        final String restartReason = restartReason(old);
+        if (restartReason != null && swapInStandby(old)) {
+            LOGGER.info("vSphere connection pool [" + config.getVsHost() + "]: rotating session - "
+                    + restartReason + "; standby session now logged in");
+        }
     }
 
-    // Arms (or re-arms) a one-shot timer for the exact moment the connection will have
-    // been idle (unacquired) for idleTimeoutSecs. Called with this locked.
-    private void scheduleIdleExpiry() {
-        if (idleExpiryFuture != null) {
-            idleExpiryFuture.cancel(false);
-            idleExpiryFuture = null;
+    /**
+     * Puts the given session's standby into rotation and retires the session, which is
+     * logged out once its outstanding borrows are released.
+     *
+     * @return {@code false} if there was no standby to swap in, or the session had
+     *         already been retired.
+     */
+    private boolean swapInStandby(PooledSession old) {
+        synchronized (this) {
+            if (old.retired.get() || shutdownComplete) {
+                return false;
+            }
+            final PooledSession spare = old.standby.getAndSet(null);
+            if (spare == null) {
+                return false;
+            }
+            // add before retiring, so acquire() never sees neither of them
+            addToRotation(spare);
+            markRetired(old);
         }
-        if (idleTimeoutSecs <= 0 || scheduler == null) {
+        disconnectIfDrained(old);
+        return true;
+    }
+
+    /**
+     * Takes a session out of rotation so that {@link #acquire()} no longer hands it out,
+     * and logs it out as soon as no caller has it borrowed.
+     *
+     * @return {@code true} if this call retired it, {@code false} if it already was.
+     */
+    private boolean retire(PooledSession session) {
+        if (!markRetired(session)) {
+            return false;
+        }
+        disconnectIfDrained(session);
+        return true;
+    }
+
+    private boolean markRetired(PooledSession session) {
+        if (!session.retired.compareAndSet(false, true)) {
+            return false;
+        }
+        draining.add(session);
+        sessions.remove(session);
+        cancelTimers(session);
+        return true;
+    }
+
+    private void disconnectIfDrained(PooledSession session) {
+        if (!session.retired.get() || session.borrowCount.get() > 0
+                || !session.loggedOut.compareAndSet(false, true)) {
             return;
         }
-        idleExpiryFuture = scheduler.schedule(this::onIdleExpired, idleTimeoutSecs, TimeUnit.SECONDS);
+        draining.remove(session);
+        LOGGER.fine("vSphere connection pool [" + config.getVsHost() + "]: retiring session that was used "
+                + session.useCount.get() + " time(s) and saved "
+                + session.connection.getServiceContentFetchesSaved() + " ServiceContent round-trip(s)");
+        logout(session.connection);
+        final PooledSession unusedStandby = session.standby.getAndSet(null);
+        if (unusedStandby != null) {
+            logout(unusedStandby.connection);
+        }
     }
 
-    // Called from the background scheduler thread, at the exact session-age deadline
-    private void onAgeExpired() {
+    // Logs out a session that has just been returned unused if the pool holds more
+    // sessions than it needs and another unused session is already available.
+    private void retireIfSurplus(PooledSession session) {
+        if (sessions.size() <= Math.max(1, minSessions)) {
+            return;
+        }
         synchronized (this) {
-            if (connection == null) return;
-            if (idleTimeoutSecs > 0 && useCount == 0) {
-                // No consumer has acquired this session since it was established (only
-                // background health-checks, if any, run without going through
-                // acquire()). Reconnecting here would just start a brand new session
-                // that is equally unused and would reset the idle clock too, looping
-                // forever whenever sessionMaxAgeSecs < idleTimeoutSecs. Defer to the
-                // idle policy instead: disconnect and let the next real acquire() (if
-                // any) lazily reconnect.
-                LOGGER.info("vSphere connection pool [" + config.getVsHost()
-                        + "]: max session age reached, but session has not been used since "
-                        + "it was established - disconnecting instead of reconnecting (idle policy applies)");
-                disconnectQuietly();
-                if (idleExpiryFuture != null) {
-                    idleExpiryFuture.cancel(false);
-                    idleExpiryFuture = null;
+            if (sessions.size() <= Math.max(1, minSessions) || session.borrowCount.get() > 0) {
+                return;
+            }
+            boolean anotherIdle = false;
+            for (PooledSession other : sessions) {
+                if (other != session && other.borrowCount.get() == 0) {
+                    anotherIdle = true;
+                    break;
                 }
+            }
+            if (!anotherIdle || !markRetired(session)) {
                 return;
             }
-            LOGGER.info("vSphere connection pool [" + config.getVsHost()
-                    + "]: proactive reconnect - max session age reached");
-            disconnectQuietly();
+            LOGGER.fine("vSphere connection pool [" + config.getVsHost() + "]: retiring surplus session after "
+                    + session.useCount.get() + " use(s)");
+        }
+        disconnectIfDrained(session);
+    }
+
+    // Logs in a replacement if retiring sessions left the pool with fewer than it should keep.
+    private void replenish(String what) {
+        if (shutdownRequested || sessions.size() >= Math.max(1, minSessions)) {
+            return;
+        }
+        if (circuitBreaker != null && !circuitBreaker.isCallPermitted()) {
+            return; // the vCenter is unreachable; the next acquire() will log in again
+        }
+        try {
+            awaitNewSession();
+        } catch (VSphereException e) {
+            LOGGER.log(Level.SEVERE,
+                    "vSphere connection pool [" + config.getVsHost() + "]: " + what + " failed", e);
+            // the next acquire() will log in again
+        }
+    }
+
+    // Queues a one-shot task that logs in further sessions until minSessions are established.
+    private void scheduleTopUp() {
+        synchronized (this) {
+            if (topUpScheduled || sessions.isEmpty() || sessions.size() >= minSessions) {
+                return;
+            }
+            topUpScheduled = schedule(this::topUp, 0, TimeUnit.SECONDS) != null;
+        }
+    }
+
+    // Called on the shared background executor
+    private void topUp() {
+        synchronized (this) {
+            topUpScheduled = false;
+        }
+        while (!shutdownRequested && !sessions.isEmpty() && sessions.size() < minSessions) {
             try {
-                connect();
+                if (awaitNewSession() == null) {
+                    return;
+                }
             } catch (VSphereException e) {
-                LOGGER.log(Level.SEVERE,
+                LOGGER.log(Level.WARNING,
                         "vSphere connection pool [" + config.getVsHost()
-                                + "]: proactive reconnect failed", e);
-                // connection remains null; next acquire() will retry
+                                + "]: failed to establish an additional session", e);
+                return;
             }
         }
     }
 
-    // Called from the background scheduler thread, at the exact idle-timeout deadline
+    // Called on the shared background executor, at the exact session-age deadline
+    private void onAgeExpired(PooledSession session) {
+        if (session.retired.get() || shutdownRequested) return;
+        if (idleTimeoutSecs > 0 && session.useCount.get() == 0) {
+            // No consumer has acquired this session since it was established (only
+            // background health-checks, if any, run without going through
+            // acquire()). Reconnecting here would just start a brand new session
+            // that is equally unused and would reset the idle clock too, looping
+            // forever whenever sessionMaxAgeSecs < idleTimeoutSecs. Defer to the
+            // idle policy instead: disconnect and let the next real acquire() (if
+            // any) lazily reconnect.
+            if (retire(session)) {
+                LOGGER.info("vSphere connection pool [" + config.getVsHost()
+                        + "]: max session age reached, but session has not been used since "
+                        + "it was established - disconnecting instead of reconnecting (idle policy applies)");
+            }
+            return;
+        }
+        if (swapInStandby(session)) {
+            LOGGER.info("vSphere connection pool [" + config.getVsHost()
+                    + "]: max session age reached - switched to standby session");
+            return;
+        }
+        if (session.standbyInFlight) {
+            return; // prepareStandby() swaps it in as soon as its login completes
+        }
+        if (!retire(session)) return;
+        LOGGER.info("vSphere connection pool [" + config.getVsHost()
+                + "]: proactive reconnect - max session age reached");
+        replenish("proactive reconnect");
+    }
+
+    // Called on the shared background executor, at (or after) the idle-timeout deadline
     private void onIdleExpired() {
+        final List<PooledSession> idle;
         synchronized (this) {
-            if (connection == null) return;
-            long idleMs = System.currentTimeMillis() - lastAcquiredAtMs;
+            idleExpiryFuture = null;
+            if (sessions.isEmpty() || shutdownRequested) return;
+            final long idleMs = System.currentTimeMillis() - lastAcquiredAtMs;
+            final long remainingMs = (long) idleTimeoutSecs * 1000L - idleMs;
+            if (remainingMs > 0) {
+                // used since the alarm was armed; wait out the rest of the idle period
+                idleExpiryFuture = schedule(this::onIdleExpired, remainingMs, TimeUnit.MILLISECONDS);
+                return;
+            }
             LOGGER.info(String.format(
-                    "vSphere connection pool [%s]: disconnecting - idle for %ds (limit %ds)",
-                    config.getVsHost(), idleMs / 1000, idleTimeoutSecs));
-            disconnectQuietly();
-            if (ageExpiryFuture != null) {
-                ageExpiryFuture.cancel(false);
-                ageExpiryFuture = null;
+                    "vSphere connection pool [%s]: disconnecting %d session(s) - idle for %ds (limit %ds)",
+                    config.getVsHost(), sessions.size(), idleMs / 1000, idleTimeoutSecs));
+            idle = new ArrayList<>(sessions);
+            for (PooledSession session : idle) {
+                markRetired(session);
             }
+            // they log in sessions of their own; the next login takes them up again
+            releaseMirrorAndWatcher();
+        }
+        for (PooledSession session : idle) {
+            disconnectIfDrained(session);
         }
     }
 
-    private void disconnectQuietly() {
-        if (connection != null) {
-            connection.forceDisconnect();
-            connection = null;
+    private void completeShutdown() {
+        final List<PooledSession> remaining;
+        synchronized (this) {
+            if (shutdownComplete) return;
+            shutdownComplete = true;
+            if (idleExpiryFuture != null) {
+                idleExpiryFuture.cancel(false);
+                idleExpiryFuture = null;
+            }
+            remaining = new ArrayList<>(sessions);
+            for (PooledSession session : remaining) {
+                markRetired(session);
+            }
+        }
+        // outside this lock: the registry locks itself first, then a pool, when sharing
+        VSphereConnectionPoolRegistry.unregister(this);
+        for (PooledSession session : remaining) {
+            disconnectIfDrained(session);
         }
     }
 
-    // Called from the background scheduler thread
+    // Called on the shared background executor; probes each session with no lock held
     private void scheduledHealthCheck() {
-        synchronized (this) {
-            if (connection == null) return;
-            if (connection.isSessionAlive()) {
+        boolean anyFailed = false;
+        for (PooledSession session : sessions) {
+            if (session.connection.isSessionAlive()) {
                 LOGGER.fine("vSphere connection pool [" + config.getVsHost() + "]: health check OK");
-                return;
+                continue;
             }
-            LOGGER.warning("vSphere connection pool [" + config.getVsHost()
-                    + "]: health check failed - reconnecting");
-            disconnectQuietly();
-            try {
-                connect();
-            } catch (VSphereException e) {
-                LOGGER.log(Level.SEVERE,
-                        "vSphere connection pool [" + config.getVsHost()
-                                + "]: reconnect after health-check failure failed", e);
-                // connection remains null; next acquire() will retry
+            if (retire(session)) {
+                LOGGER.warning("vSphere connection pool [" + config.getVsHost()
+                        + "]: health check failed - reconnecting");
+                anyFailed = true;
             }
         }
+        if (anyFailed) {
+            replenish("reconnect after health-check failure");
+        }
     }
 
-    private void startScheduler() {
-        boolean needsScheduler = healthCheckIntervalSecs > 0
-                || idleTimeoutSecs > 0
-                || sessionMaxAgeSecs > 0;
-        if (!needsScheduler) return;
-
-        final String host = config.getVsHost();
-        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread t = new Thread(r, "vsphere-pool-" + host);
-            t.setDaemon(true);
-            return t;
-        });
+    // Schedules a one-shot task on the shared background executor; returns null once this
+    // pool's timers have been stopped.
+    @CheckForNull
+    private ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        if (timersStopped) {
+            return null;
+        }
+        return VSphereExecutors.schedule(task, delay, unit);
+    }
 
+    private void startScheduler() {
         if (healthCheckIntervalSecs > 0) {
-            scheduler.scheduleAtFixedRate(
+            healthCheckFuture = VSphereExecutors.scheduleAtFixedRate(
                     this::scheduledHealthCheck,
                     healthCheckIntervalSecs, healthCheckIntervalSecs, TimeUnit.SECONDS);
         }
 
-        // Age-expiry and idle-expiry are armed as exact one-shot alarms from connect()
-        // and acquire() respectively, once a connection actually exists.
+        // Age-expiry and idle-expiry are armed as exact one-shot alarms from openSession(),
+        // once a session actually exists.
     }
 
+    // Cancels every timer this pool has pending on the shared executor. Called with this locked.
     private void stopScheduler() {
-        if (scheduler != null) {
-            scheduler.shutdownNow();
-            scheduler = null;
+        timersStopped = true;
+        final ScheduledFuture<?> healthCheck = healthCheckFuture;
+        if (healthCheck != null) {
+            healthCheck.cancel(false);
+            healthCheckFuture = null;
+        }
+        if (idleExpiryFuture != null) {
+            idleExpiryFuture.cancel(false);
+            idleExpiryFuture = null;
+        }
+        for (PooledSession session : sessions) {
+            cancelTimers(session);
+        }
+        releaseMirrorAndWatcher();
+    }
+
+    // Gives up this pool's holds on its vCenter's inventory mirror and task watcher. Called with this locked.
+    private void releaseMirrorAndWatcher() {
+        if (inventoryMirror != null) {
+            inventoryMirror.release();
+            inventoryMirror = null;
+        }
+        if (taskWatcher != null) {
+            taskWatcher.release();
+            taskWatcher = null;
+        }
+    }
+
+    private static void cancelTimers(PooledSession session) {
+        final ScheduledFuture<?> ageExpiry = session.ageExpiryFuture;
+        if (ageExpiry != null) {
+            ageExpiry.cancel(false);
+        }
+        final ScheduledFuture<?> rotationDue = session.rotationDueFuture;
+        if (rotationDue != null) {
+            rotationDue.cancel(false);
         }
     }
 }
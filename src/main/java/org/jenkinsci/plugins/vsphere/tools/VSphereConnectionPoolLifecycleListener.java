@@ -1,14 +1,21 @@
 package org.jenkinsci.plugins.vsphere.tools;
 
+import com.cloudbees.hudson.plugins.folder.AbstractFolder;
 import hudson.Extension;
 import hudson.XmlFile;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
 import hudson.init.Terminator;
 import hudson.model.Saveable;
 import hudson.model.listeners.SaveableListener;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import jenkins.model.Jenkins;
+import org.jenkinsci.plugins.vSphereCloud;
 
 /**
- * Keeps {@link VSphereConnectionPool} instances honest across two events that Jenkins
- * core has no dedicated "cloud replaced/removed" hook for:
+ * Keeps {@link VSphereConnectionPool} instances honest across the events that Jenkins
+ * core has no dedicated "cloud created/replaced/removed" hook for:
  *
  * <ul>
  *   <li>Saving the Jenkins configuration (e.g. the "Manage Jenkins &gt; Clouds" form, or
@@ -17,7 +24,12 @@ import hudson.model.listeners.SaveableListener;
  *       may still own - is simply dropped by Jenkins core with no notification.  Without
  *       this listener that old pool keeps running under its previous settings
  *       indefinitely, which is very confusing to observe (it looks like configuration
- *       changes are being ignored).</li>
+ *       changes are being ignored).  Before reaping, every live cloud is attached to its
+ *       pool first, so a pool whose settings did not change is handed over to the new
+ *       instance (still logged in) rather than shut down and rebuilt cold.</li>
+ *   <li>Jenkins starting up, and a cloud being (re)configured, would otherwise leave the
+ *       first provisioning request to wait for the pool to log in; pools of clouds that use
+ *       one are warmed up in the background instead.</li>
  *   <li>Jenkins shutting down does not otherwise give pooled vCenter sessions a chance to
  *       log out.</li>
  * </ul>
@@ -31,7 +43,26 @@ public final class VSphereConnectionPoolLifecycleListener {
     public static final class ReapOnSave extends SaveableListener {
         @Override
         public void onChange(Saveable o, XmlFile file) {
-            VSphereConnectionPoolRegistry.reapOrphans();
+            if (o instanceof Jenkins || o instanceof AbstractFolder) {
+                // clouds live in the global config or in folder properties; only those saves
+                // can have replaced one
+                warmUpAllPools();
+                VSphereConnectionPoolRegistry.reapOrphans();
+            }
+        }
+    }
+
+    @Initializer(after = InitMilestone.JOB_CONFIG_ADAPTED)
+    public static void warmUpPoolsOnJenkinsStartup() {
+        warmUpAllPools();
+    }
+
+    static void warmUpAllPools() {
+        // as SYSTEM, so that the clouds of folders the saving user cannot see are not missed
+        try (ACLContext ignored = ACL.as2(ACL.SYSTEM2)) {
+            for (vSphereCloud cloud : vSphereCloud.findAllVsphereCloudsEverywhere()) {
+                cloud.warmUpConnectionPool();
+            }
         }
     }
 
@@ -1,9 +1,26 @@
 package org.jenkinsci.plugins.vsphere.tools;
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.slaves.Cloud;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import org.jenkinsci.plugins.vSphereCloud;
+
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 /**
@@ -12,16 +29,32 @@ import java.util.logging.Logger;
  * is re-saved from the UI or JCasC) can be found and shut down, and so that all pools can
  * be logged out together when Jenkins itself shuts down.
  *
- * <p>Without this, a pool's background thread (and any vCenter session it holds open)
+ * <p>Without this, a pool's background timers (and any vCenter session it holds open)
  * would otherwise keep running indefinitely under its old settings, invisible to anyone
  * looking at the current cloud configuration.
+ *
+ * <p>It also hands out one shared pool per {@link PoolKey} (see
+ * {@link VSphereConnectionPool#share}), counting the clouds that hold each, and keeps the
+ * per-vCenter-host session count that the
+ * {@value #MAX_SESSIONS_PER_HOST_PROPERTY} budget is enforced against.
  */
 final class VSphereConnectionPoolRegistry {
 
     private static final Logger LOGGER = Logger.getLogger(VSphereConnectionPoolRegistry.class.getName());
 
+    /**
+     * System property capping how many sessions all pools together may have logged in to
+     * any one vCenter host at the same time; 0 (the default) means no cap.
+     */
+    static final String MAX_SESSIONS_PER_HOST_PROPERTY = VSphereConnectionPool.class.getName() + ".maxSessionsPerHost";
+
     private static final Set<VSphereConnectionPool> LIVE_POOLS = ConcurrentHashMap.newKeySet();
 
+    /* Guarded by SHARED itself; taken before any pool's own lock, never after it. */
+    private static final Map<PoolKey, VSphereConnectionPool> SHARED = new HashMap<>();
+
+    private static final Map<String, AtomicInteger> SESSIONS_PER_HOST = new ConcurrentHashMap<>();
+
     private VSphereConnectionPoolRegistry() {
     }
 
@@ -31,6 +64,12 @@ final class VSphereConnectionPoolRegistry {
 
     static void unregister(VSphereConnectionPool pool) {
         LIVE_POOLS.remove(pool);
+        final PoolKey key = pool.getSharingKey();
+        if (key != null) {
+            synchronized (SHARED) {
+                SHARED.remove(key, pool);
+            }
+        }
     }
 
     /** Visible for testing: whether {@code pool} is still tracked (i.e. not shut down). */
@@ -38,17 +77,96 @@ final class VSphereConnectionPoolRegistry {
         return LIVE_POOLS.contains(pool);
     }
 
+    /** @return how many pools currently exist (created and not yet shut down). */
+    static int getLivePoolCount() {
+        return LIVE_POOLS.size();
+    }
+
+    /** @return how many pool timers (health checks, session alarms, ...) are currently pending. */
+    static int getLiveTimerCount() {
+        return VSphereExecutors.getPendingTimerCount();
+    }
+
     /**
-     * Shuts down (and unregisters) every currently-registered pool whose owning cloud is
+     * Returns the live pool registered under {@code key} with {@code owner} added to its
+     * holders, or creates (and registers) one using {@code factory} if there is none.
+     */
+    static VSphereConnectionPool share(PoolKey key, Cloud owner, Supplier<VSphereConnectionPool> factory) {
+        synchronized (SHARED) {
+            final VSphereConnectionPool existing = SHARED.get(key);
+            if (existing != null && existing.addOwner(owner)) {
+                return existing;
+            }
+            final VSphereConnectionPool created = factory.get();
+            SHARED.put(key, created);
+            return created;
+        }
+    }
+
+    /**
+     * Removes {@code owner} from {@code pool}'s holders.
+     *
+     * @return {@code true} if that left the pool without holders, in which case it is no
+     *         longer handed out by {@link #share} and the caller must shut it down.
+     */
+    static boolean detach(VSphereConnectionPool pool, Cloud owner) {
+        synchronized (SHARED) {
+            if (!pool.removeOwner(owner)) {
+                return false;
+            }
+            final PoolKey key = pool.getSharingKey();
+            if (key != null) {
+                SHARED.remove(key, pool);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Shuts down (and unregisters) every currently-registered pool whose owning clouds are
      * no longer present in the live Jenkins configuration.
      */
     static void reapOrphans() {
+        final Set<Cloud> liveClouds = findLiveClouds();
+        if (liveClouds == null) {
+            return;
+        }
         for (VSphereConnectionPool pool : LIVE_POOLS) {
-            if (pool.isOrphaned()) {
+            final boolean orphaned;
+            synchronized (SHARED) {
+                orphaned = pool.isOrphaned(liveClouds);
+                if (orphaned && pool.getSharingKey() != null) {
+                    SHARED.remove(pool.getSharingKey(), pool);
+                }
+            }
+            if (orphaned) {
                 LOGGER.info("Shutting down orphaned vSphere connection pool left behind by a replaced/removed cloud");
                 pool.shutdown();
             }
         }
+        LOGGER.fine(() -> getLivePoolCount() + " live vSphere connection pool(s), "
+                + getLiveTimerCount() + " pending timer(s), "
+                + VSphereExecutors.getQueuedCount() + " queued and "
+                + VSphereExecutors.getInFlightCount() + " in-flight blocking task(s)");
+    }
+
+    /**
+     * @return every cloud in the live Jenkins configuration, global or in a folder, by
+     *         identity; null if Jenkins is not running. Collected as {@code SYSTEM}, as
+     *         folders the current user cannot see still hold clouds whose pools are in use.
+     */
+    @CheckForNull
+    static Set<Cloud> findLiveClouds() {
+        final Jenkins jenkins = Jenkins.getInstanceOrNull();
+        if (jenkins == null) {
+            return null;
+        }
+        final Set<Cloud> liveClouds = Collections.newSetFromMap(new IdentityHashMap<>());
+        try (ACLContext ignored = ACL.as2(ACL.SYSTEM2)) {
+            liveClouds.addAll(jenkins.clouds);
+            liveClouds.addAll(vSphereCloud.findAllVsphereCloudsEverywhere());
+        }
+        return liveClouds;
     }
 
     /**
@@ -61,4 +179,91 @@ final class VSphereConnectionPoolRegistry {
             pool.shutdown();
         }
     }
+
+    /** @return the configured per-vCenter-host session budget; 0 means unlimited. */
+    static int getMaxSessionsPerHost() {
+        return Math.max(0, SystemProperties.getInteger(MAX_SESSIONS_PER_HOST_PROPERTY, 0));
+    }
+
+    /**
+     * Counts one more session logged in to {@code host}, unless that would exceed the
+     * per-host budget.
+     *
+     * @return {@code false} if the budget is used up (nothing is counted then).
+     */
+    static boolean tryReserveSession(@CheckForNull String host) {
+        final int budget = getMaxSessionsPerHost();
+        final AtomicInteger count = SESSIONS_PER_HOST.computeIfAbsent(String.valueOf(host), h -> new AtomicInteger());
+        while (true) {
+            final int current = count.get();
+            if (budget > 0 && current >= budget) {
+                return false;
+            }
+            if (count.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /** Counts one session logged in to {@code host} by {@link #tryReserveSession} as logged out again. */
+    static void releaseSession(@CheckForNull String host) {
+        final AtomicInteger count = SESSIONS_PER_HOST.get(String.valueOf(host));
+        if (count != null) {
+            count.updateAndGet(current -> current > 0 ? current - 1 : 0);
+        }
+    }
+
+    /** @return how many pooled sessions are currently logged in to {@code host}. */
+    static int getSessionsInUse(@CheckForNull String host) {
+        final AtomicInteger count = SESSIONS_PER_HOST.get(String.valueOf(host));
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * What makes two clouds able to share a pool: the vCenter they talk to, the account
+     * they log in with, their certificate policy, and the connection timeouts and pool
+     * settings themselves (a pool can only apply one set of settings).
+     */
+    static final class PoolKey {
+        private final String vsHost;
+        private final String credentialsId;
+        private final boolean allowUntrustedCertificate;
+        private final List<String> inventoryRoots;
+        private final int[] settings;
+
+        PoolKey(@CheckForNull String vsHost, @CheckForNull String credentialsId, boolean allowUntrustedCertificate,
+                @NonNull List<String> inventoryRoots, @NonNull int... settings) {
+            this.vsHost = vsHost;
+            this.credentialsId = credentialsId;
+            this.allowUntrustedCertificate = allowUntrustedCertificate;
+            this.inventoryRoots = new ArrayList<>(inventoryRoots);
+            this.settings = settings.clone();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PoolKey)) {
+                return false;
+            }
+            final PoolKey other = (PoolKey) o;
+            return allowUntrustedCertificate == other.allowUntrustedCertificate
+                    && Objects.equals(vsHost, other.vsHost)
+                    && Objects.equals(credentialsId, other.credentialsId)
+                    && inventoryRoots.equals(other.inventoryRoots)
+                    && Arrays.equals(settings, other.settings);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hash(vsHost, credentialsId, allowUntrustedCertificate, inventoryRoots) + Arrays.hashCode(settings);
+        }
+
+        @Override
+        public String toString() {
+            return vsHost + " as " + credentialsId;
+        }
+    }
 }
@@ -0,0 +1,136 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import com.vmware.vim25.CustomizationSpecInfo;
+import com.vmware.vim25.CustomizationSpecItem;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import jenkins.util.SystemProperties;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the customization specs that clones use, so that each one is only downloaded again
+ * once it has been edited - rather than for every clone, which for a large Windows sysprep
+ * spec is many kilobytes each time.
+ *
+ * <p>There is one cache per vCenter and user, shared by every {@link VSphere} connected to
+ * it. Before a cached spec is used, {@link VSphere} reads the {@code info} of the vCenter's
+ * specs (just their names and change versions) and compares the spec's
+ * {@code changeVersion} with the cached one; a spec that has changed (or been deleted and
+ * re-created) is downloaded again.</p>
+ *
+ * <p>The cached {@link CustomizationSpecItem}s are shared, so must not be modified.
+ * Setting the {@code org.jenkinsci.plugins.vsphere.tools.VSphereCustomizationSpecCache.enabled}
+ * system property to {@code false} turns the cache off.</p>
+ */
+public final class VSphereCustomizationSpecCache {
+
+    /** System property that turns the cache off when set to {@code false}. */
+    static final String ENABLED_PROPERTY = VSphereCustomizationSpecCache.class.getName() + ".enabled";
+
+    private final String vCenter;
+    private final Map<String, Entry> specs = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+
+    VSphereCustomizationSpecCache(@NonNull String vCenter) {
+        this.vCenter = vCenter;
+    }
+
+    /**
+     * @return the cache shared by every connection to {@code url} as {@code user}; see
+     *         {@link VSphereVCenterCaches} for how long it is kept.
+     */
+    @NonNull
+    static VSphereCustomizationSpecCache forVCenter(@NonNull String url, @CheckForNull String user) {
+        return VSphereVCenterCaches.forVCenter(url, user).customizationSpecCache;
+    }
+
+    /** @return {@code false} if the cache has been turned off. */
+    static boolean isEnabled() {
+        return SystemProperties.getBoolean(ENABLED_PROPERTY, true);
+    }
+
+    /**
+     * @return the change version of the spec called {@code name} in {@code infos}, or null if
+     *         there is no such spec.
+     */
+    @CheckForNull
+    static String getChangeVersion(@CheckForNull CustomizationSpecInfo[] infos, @NonNull String name) {
+        if (infos != null) {
+            for (CustomizationSpecInfo info : infos) {
+                if (name.equals(info.getName())) {
+                    return info.getChangeVersion();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param changeVersion the spec's current change version, as read from the vCenter.
+     * @return the spec called {@code name}, if it is cached at that change version; null if
+     *         it needs to be downloaded.
+     */
+    @CheckForNull
+    CustomizationSpecItem get(@NonNull String name, @NonNull String changeVersion) {
+        final Entry entry = specs.get(name);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (!changeVersion.equals(entry.changeVersion)) {
+            specs.remove(name, entry);
+            staleHits.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.item;
+    }
+
+    /** Records the spec called {@code name} as downloaded at {@code changeVersion}. */
+    void put(@NonNull String name, @NonNull String changeVersion, @NonNull CustomizationSpecItem item) {
+        if (isEnabled()) {
+            specs.put(name, new Entry(item, changeVersion));
+        }
+    }
+
+    /** @return how many specs the cache currently holds. */
+    public int size() {
+        return specs.size();
+    }
+
+    /** @return how many times a spec was taken from the cache rather than downloaded. */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /** @return how many times a spec had to be downloaded because it was not cached. */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /** @return how many times a cached spec had changed, and so had to be downloaded again. */
+    public long getStaleHits() {
+        return staleHits.get();
+    }
+
+    @Override
+    public String toString() {
+        return "customization spec cache of " + vCenter + " (" + size() + " specs, " + getHits() + " hits, "
+                + getMisses() + " misses, " + getStaleHits() + " stale)";
+    }
+
+    private static final class Entry {
+        private final CustomizationSpecItem item;
+        private final String changeVersion;
+
+        Entry(CustomizationSpecItem item, String changeVersion) {
+            this.item = item;
+            this.changeVersion = changeVersion;
+        }
+    }
+}
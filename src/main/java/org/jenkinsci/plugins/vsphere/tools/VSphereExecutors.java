@@ -0,0 +1,391 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import jenkins.util.SystemProperties;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Plugin-wide threads for background vSphere work, shared by every cloud instead of each
+ * one starting threads of its own.
+ *
+ * <ul>
+ *   <li>A single timer thread keeps track of every delayed and periodic task (pool health
+ *       checks, session age/idle alarms, ...). It never runs a task itself, so one slow
+ *       vCenter cannot delay the timers of another.</li>
+ *   <li>When a timer fires, its task runs in the maintenance lane: on a virtual thread (one
+ *       per task), as those tasks mostly block waiting for a vCenter to answer, or on a JVM
+ *       without virtual threads on one of at most {@code maxMaintenanceThreads} daemon
+ *       threads of its own. Short pool upkeep started other than by a timer (warm-up
+ *       logins, cancelling a long-poll) is run there too, by {@link #runMaintenance}.</li>
+ *   <li>Provisioning, deletion and other long vCenter work is run in the blocking lane the
+ *       same way, but on a JVM without virtual threads on a separate pool of at most
+ *       {@code maxPlatformThreads} threads, so that a burst of clones can neither starve
+ *       Jenkins' agent channel work (on {@code Computer.threadPoolForRemoting}) nor the
+ *       pools' health checks, standby logins and idle alarms of threads. Such work must
+ *       not wait for other work it hands to this executor, or a full pool would wait for
+ *       itself.</li>
+ *   <li>Waiting for a vCenter task that no {@link VSphereTaskWatcher} follows, which means
+ *       polling it until it finishes, is run by {@link #supplyWaiting} on a thread of its
+ *       own that is never queued behind the other lanes, as a caller in either of them
+ *       may be waiting for it.</li>
+ *   <li>The short steps that follow a vCenter task (e.g. reading why it failed) are run in
+ *       the maintenance lane by {@link #continuations()}.</li>
+ *   <li>Loops that run for as long as the plugin does (e.g. long-polls for vCenter
+ *       changes) get a thread of their own from {@link #startDaemon}, so that they never
+ *       hold one of the pool's threads.</li>
+ * </ul>
+ *
+ * <p>How many blocking tasks are queued and how many are running is available from
+ * {@link #getQueuedCount()} and {@link #getInFlightCount()}.</p>
+ */
+public final class VSphereExecutors {
+
+    private static final Logger LOGGER = Logger.getLogger(VSphereExecutors.class.getName());
+
+    /** Most platform threads blocking work may use on a JVM without virtual threads; read once, at startup. */
+    static final String MAX_PLATFORM_THREADS_PROPERTY = VSphereExecutors.class.getName() + ".maxPlatformThreads";
+    static final int DEFAULT_MAX_PLATFORM_THREADS = 64;
+
+    /** Most platform threads timer and upkeep work may use on a JVM without virtual threads; read once, at startup. */
+    static final String MAX_MAINTENANCE_THREADS_PROPERTY = VSphereExecutors.class.getName() + ".maxMaintenanceThreads";
+    static final int DEFAULT_MAX_MAINTENANCE_THREADS = 4;
+
+    private static final AtomicInteger IN_FLIGHT = new AtomicInteger();
+    private static final AtomicLong COMPLETED = new AtomicLong();
+
+    private static final boolean VIRTUAL_THREADS = createVirtualThreadFactory("vsphere-worker-") != null;
+
+    private static final ScheduledThreadPoolExecutor TIMER = createTimer();
+
+    private static final ExecutorService BLOCKING = createBlockingExecutor("vsphere-worker-", getMaxPlatformThreads());
+
+    private static final ExecutorService MAINTENANCE = createBlockingExecutor("vsphere-maintenance-", getMaxMaintenanceThreads());
+
+    private static final ExecutorService WAITING = createWaitingExecutor();
+
+    private static final Executor CONTINUATIONS = task -> MAINTENANCE.execute(() -> {
+        IN_FLIGHT.incrementAndGet();
+        try {
+            task.run();
+        } finally {
+            IN_FLIGHT.decrementAndGet();
+            COMPLETED.incrementAndGet();
+        }
+    });
+
+    private VSphereExecutors() {
+    }
+
+    /** @return {@code true} if blocking work runs on virtual threads on this JVM. */
+    public static boolean isUsingVirtualThreads() {
+        return VIRTUAL_THREADS;
+    }
+
+    /**
+     * Runs {@code task} once after {@code delay}, in the maintenance lane.
+     *
+     * @return a handle to cancel the task with, or {@code null} if it could not be scheduled
+     *         (e.g. Jenkins is shutting down).
+     */
+    @CheckForNull
+    public static ScheduledFuture<?> schedule(@NonNull Runnable task, long delay, @NonNull TimeUnit unit) {
+        try {
+            return TIMER.schedule(() -> runMaintenance(task), Math.max(0, delay), unit);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Runs {@code task} every {@code period}, in the maintenance lane. If a run is
+     * still busy when the next one is due, that next run is skipped rather than overlapping.
+     *
+     * @return a handle to cancel the task with, or {@code null} if it could not be scheduled.
+     */
+    @CheckForNull
+    public static ScheduledFuture<?> scheduleAtFixedRate(@NonNull Runnable task, long initialDelay, long period,
+                                                         @NonNull TimeUnit unit) {
+        final NonOverlapping guarded = new NonOverlapping(task);
+        try {
+            return TIMER.scheduleAtFixedRate(() -> runMaintenance(guarded), initialDelay, period, unit);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    /** Runs {@code task}, which may take as long as a clone, as soon as possible in the blocking lane. */
+    public static void runBlocking(@NonNull Runnable task) {
+        execute(BLOCKING, task);
+    }
+
+    /**
+     * Runs {@code task}, a short piece of pool upkeep, as soon as possible in the maintenance
+     * lane, where it does not queue behind provisioning and deletion.
+     */
+    public static void runMaintenance(@NonNull Runnable task) {
+        execute(MAINTENANCE, task);
+    }
+
+    private static void execute(ExecutorService executor, Runnable task) {
+        try {
+            executor.execute(() -> {
+                IN_FLIGHT.incrementAndGet();
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Background vSphere task failed", e);
+                } finally {
+                    IN_FLIGHT.decrementAndGet();
+                    COMPLETED.incrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.log(Level.FINE, "Background vSphere task rejected; executor is shutting down", e);
+        }
+    }
+
+    /**
+     * Runs {@code task}, which may keep running indefinitely, on a daemon thread of its own
+     * called {@code name} rather than on a pooled one.
+     *
+     * @return the started thread.
+     */
+    @NonNull
+    public static Thread startDaemon(@NonNull String name, @NonNull Runnable task) {
+        final Thread t = new Thread(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Background vSphere task " + name + " failed", e);
+            }
+        }, name);
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    /**
+     * Runs {@code task} as soon as possible on a virtual (or pooled) thread, like
+     * {@link #runBlocking(Runnable)}, and hands back its outcome.
+     *
+     * @return a future of what {@code task} returns or throws; cancelling it interrupts the
+     *         task. If the task could not be started (e.g. Jenkins is shutting down) the
+     *         future is already completed exceptionally.
+     */
+    @NonNull
+    public static <T> CompletableFuture<T> supplyBlocking(@NonNull Callable<T> task) {
+        return supply(BLOCKING, task);
+    }
+
+    /**
+     * Runs {@code task}, which does nothing but wait (e.g. polls a vCenter task until it has
+     * finished), on a thread of its own, and hands back its outcome. Unlike
+     * {@link #supplyBlocking}, it never queues behind other work, so work in either lane
+     * may wait for it.
+     *
+     * @return a future of what {@code task} returns or throws; cancelling it interrupts the task.
+     */
+    @NonNull
+    public static <T> CompletableFuture<T> supplyWaiting(@NonNull Callable<T> task) {
+        return supply(WAITING, task);
+    }
+
+    /**
+     * @return an executor for the short steps that follow a vCenter task, to pass to
+     *         {@code CompletableFuture.thenApplyAsync} and the like. It runs them in the
+     *         maintenance lane rather than on the thread that saw the task finish. If it
+     *         cannot run a step (e.g. Jenkins is shutting down), the step's future is
+     *         completed exceptionally.
+     */
+    @NonNull
+    public static Executor continuations() {
+        return CONTINUATIONS;
+    }
+
+    private static <T> CompletableFuture<T> supply(ExecutorService executor, Callable<T> task) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final Future<?> running;
+        try {
+            running = executor.submit(() -> {
+                IN_FLIGHT.incrementAndGet();
+                try {
+                    result.complete(task.call());
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                } finally {
+                    IN_FLIGHT.decrementAndGet();
+                    COMPLETED.incrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        result.whenComplete((value, failure) -> {
+            if (result.isCancelled()) {
+                running.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /** @return how many delayed or periodic tasks are currently waiting on the shared timer. */
+    public static int getPendingTimerCount() {
+        return TIMER.getQueue().size();
+    }
+
+    /**
+     * @return how many blocking tasks are waiting for a thread to run on; always 0 with
+     *         virtual threads, which are started straight away.
+     */
+    public static int getQueuedCount() {
+        return getQueuedCount(BLOCKING) + getQueuedCount(MAINTENANCE);
+    }
+
+    private static int getQueuedCount(ExecutorService executor) {
+        return executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getQueue().size() : 0;
+    }
+
+    /** @return how many blocking tasks are running right now. */
+    public static int getInFlightCount() {
+        return IN_FLIGHT.get();
+    }
+
+    /** @return how many blocking tasks have finished (successfully or not) so far. */
+    public static long getCompletedCount() {
+        return COMPLETED.get();
+    }
+
+    /** @return the most platform threads blocking work may use on a JVM without virtual threads. */
+    static int getMaxPlatformThreads() {
+        return Math.max(1, SystemProperties.getInteger(MAX_PLATFORM_THREADS_PROPERTY, DEFAULT_MAX_PLATFORM_THREADS));
+    }
+
+    /** @return the most platform threads timer and upkeep work may use on a JVM without virtual threads. */
+    static int getMaxMaintenanceThreads() {
+        return Math.max(1, SystemProperties.getInteger(MAX_MAINTENANCE_THREADS_PROPERTY, DEFAULT_MAX_MAINTENANCE_THREADS));
+    }
+
+    /**
+     * Creates a thread factory for threads whose names start with {@code namePrefix}: virtual
+     * threads where the JVM supports them, otherwise daemon platform threads.
+     */
+    @NonNull
+    public static ThreadFactory newThreadFactory(@NonNull String namePrefix) {
+        final ThreadFactory virtual = createVirtualThreadFactory(namePrefix);
+        if (virtual != null) {
+            return virtual;
+        }
+        final AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, namePrefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    // Thread.ofVirtual().name(prefix, 0).factory(), looked up reflectively so that the
+    // plugin still runs on JVMs that predate virtual threads.
+    @CheckForNull
+    private static ThreadFactory createVirtualThreadFactory(String namePrefix) {
+        try {
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            final Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            final Method name = builderType.getMethod("name", String.class, long.class);
+            final Method factory = builderType.getMethod("factory");
+            return (ThreadFactory) factory.invoke(name.invoke(builder, namePrefix, 0L));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor createTimer() {
+        final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "vsphere-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        timer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        return timer;
+    }
+
+    // Executors.newThreadPerTaskExecutor(factory) where available, looked up reflectively
+    // for the same reason as createVirtualThreadFactory.
+    // The pool of maxThreads platform threads is used on JVMs without virtual threads.
+    private static ExecutorService createBlockingExecutor(String namePrefix, int maxThreads) {
+        final ThreadFactory virtual = createVirtualThreadFactory(namePrefix);
+        if (virtual != null) {
+            try {
+                return (ExecutorService) Executors.class
+                        .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                        .invoke(null, virtual);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                LOGGER.log(Level.FINE, "Could not create a thread-per-task executor; pooling threads instead", e);
+            }
+        }
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), newThreadFactory(namePrefix));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    // One thread per waiter, and threads that are no longer needed go away again.
+    private static ExecutorService createWaitingExecutor() {
+        final ThreadFactory virtual = createVirtualThreadFactory("vsphere-waiter-");
+        if (virtual != null) {
+            try {
+                return (ExecutorService) Executors.class
+                        .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                        .invoke(null, virtual);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                LOGGER.log(Level.FINE, "Could not create a thread-per-task executor; pooling threads instead", e);
+            }
+        }
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), newThreadFactory("vsphere-waiter-"));
+    }
+
+    /** Skips a run of the wrapped task while its previous run is still in progress. */
+    private static final class NonOverlapping implements Runnable {
+        private final Runnable task;
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        NonOverlapping(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            if (!running.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                task.run();
+            } finally {
+                running.set(false);
+            }
+        }
+    }
+}
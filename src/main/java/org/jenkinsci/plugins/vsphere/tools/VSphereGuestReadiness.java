@@ -0,0 +1,184 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.ObjectUpdate;
+import com.vmware.vim25.PropertyChange;
+import com.vmware.vim25.PropertyChangeOp;
+import com.vmware.vim25.PropertyFilterUpdate;
+import com.vmware.vim25.UpdateSet;
+import com.vmware.vim25.WaitOptions;
+import com.vmware.vim25.mo.PropertyCollector;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Waits for a VM's guest to become ready - to report an IP address, or to have its VMware
+ * Tools running - without polling. The guest properties of the VM are watched by a
+ * {@code PropertyCollector} filter of the waiter's own, and {@code WaitForUpdatesEx}
+ * returns as soon as any of them changes, so the waiter wakes up the moment the guest is
+ * ready rather than at the next 5 or 30 second poll.
+ *
+ * <p>Every wait has a deadline, and each long-poll is kept short enough for an interrupt
+ * to be noticed within seconds.</p>
+ */
+public final class VSphereGuestReadiness {
+
+    private static final Logger LOGGER = Logger.getLogger(VSphereGuestReadiness.class.getName());
+
+    static final String IP_ADDRESS = "guest.ipAddress";
+    static final String NET = "guest.net";
+    static final String TOOLS_RUNNING_STATUS = "guest.toolsRunningStatus";
+    static final String GUEST_STATE = "guest.guestState";
+
+    /** The properties of a VM that are watched. */
+    static final String[] GUEST_PROPERTIES = {IP_ADDRESS, NET, TOOLS_RUNNING_STATUS, GUEST_STATE};
+
+    /** Longest a single {@code WaitForUpdatesEx} long-poll may wait for a change. */
+    private static final int MAX_WAIT_SECS = 10;
+
+    private VSphereGuestReadiness() {
+    }
+
+    /**
+     * Makes one {@code WaitForUpdatesEx} long-poll, so that the caller can account for each
+     * one as a call of its own (e.g. against a call budget).
+     */
+    @FunctionalInterface
+    interface LongPoll {
+        @CheckForNull
+        UpdateSet waitForUpdates(@NonNull PropertyCollector collector, @NonNull String version,
+                                 @NonNull WaitOptions options) throws RemoteException, VSphereException;
+    }
+
+    /**
+     * Waits until the guest of {@code vm} is {@code ready}, or {@code timeoutMillis} have passed.
+     *
+     * @param propertyCollector the session's property collector; the wait creates (and
+     *                          destroys again) a collector of its own from it.
+     * @param longPoll makes each long-poll of the wait.
+     * @return what the guest reported once it was ready; null if it was not ready in time.
+     */
+    @CheckForNull
+    static Guest await(@NonNull PropertyCollector propertyCollector, @NonNull ManagedObjectReference vm,
+                       @NonNull Predicate<Guest> ready, long timeoutMillis, @NonNull LongPoll longPoll)
+            throws RemoteException, VSphereException, InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMillis));
+        final PropertyCollector collector = propertyCollector.createPropertyCollector();
+        try {
+            collector.createFilter(VSphereProjection.createFilterSpec(vm, GUEST_PROPERTIES), true);
+            final WaitOptions options = new WaitOptions();
+            Guest guest = Guest.UNKNOWN;
+            String version = "";
+            while (true) {
+                final long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                // the first call returns the current values straight away
+                options.setMaxWaitSeconds((int) Math.max(1, Math.min(MAX_WAIT_SECS, (remainingMillis + 999) / 1000)));
+                final UpdateSet updateSet = longPoll.waitForUpdates(collector, version, options);
+                if (updateSet != null) {
+                    guest = guest.apply(updateSet);
+                    version = updateSet.getVersion();
+                    if (ready.test(guest)) {
+                        return guest;
+                    }
+                }
+                if (System.nanoTime() - deadline >= 0) {
+                    return null;
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            try {
+                collector.destroyPropertyCollector();
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Could not destroy the collector used to wait for " + vm.getVal(), e);
+            }
+        }
+    }
+
+    /** @return a condition that holds once the guest reports an IP address matching {@code pattern} (any, if null). */
+    @NonNull
+    static Predicate<Guest> hasIpAddress(@CheckForNull Pattern pattern) {
+        return guest -> guest.ipAddress != null && (pattern == null || pattern.matcher(guest.ipAddress).find());
+    }
+
+    /** @return a condition that holds once the guest's VMware Tools are running. */
+    @NonNull
+    static Predicate<Guest> hasToolsRunning() {
+        return guest -> "guestToolsRunning".equals(guest.toolsRunningStatus);
+    }
+
+    /** What a VM's guest has reported of the watched properties. Immutable; a change replaces it. */
+    static final class Guest {
+        static final Guest UNKNOWN = new Guest(null, null, null, null);
+
+        @CheckForNull
+        final String ipAddress;
+        /** The guest's network adapters, as sent by the vCenter. */
+        @CheckForNull
+        final Object net;
+        @CheckForNull
+        final String toolsRunningStatus;
+        @CheckForNull
+        final String guestState;
+
+        private Guest(String ipAddress, Object net, String toolsRunningStatus, String guestState) {
+            this.ipAddress = ipAddress;
+            this.net = net;
+            this.toolsRunningStatus = toolsRunningStatus;
+            this.guestState = guestState;
+        }
+
+        /** @return this guest with the changes in {@code updateSet} applied. */
+        @NonNull
+        Guest apply(@NonNull UpdateSet updateSet) {
+            Guest guest = this;
+            final PropertyFilterUpdate[] filterUpdates = updateSet.getFilterSet();
+            if (filterUpdates == null) {
+                return guest;
+            }
+            for (PropertyFilterUpdate filterUpdate : filterUpdates) {
+                final ObjectUpdate[] objectUpdates = filterUpdate.getObjectSet();
+                if (objectUpdates == null) {
+                    continue;
+                }
+                for (ObjectUpdate objectUpdate : objectUpdates) {
+                    final PropertyChange[] changes = objectUpdate.getChangeSet();
+                    if (changes == null) {
+                        continue;
+                    }
+                    for (PropertyChange change : changes) {
+                        final boolean removed = change.getOp() == PropertyChangeOp.remove
+                                || change.getOp() == PropertyChangeOp.indirectRemove;
+                        guest = guest.with(change.getName(), removed ? null : change.getVal());
+                    }
+                }
+            }
+            return guest;
+        }
+
+        // A copy of this guest with one property changed; properties that are not watched are ignored.
+        Guest with(String property, @CheckForNull Object value) {
+            switch (property) {
+                case IP_ADDRESS:
+                    return new Guest((String) value, net, toolsRunningStatus, guestState);
+                case NET:
+                    return new Guest(ipAddress, value, toolsRunningStatus, guestState);
+                case TOOLS_RUNNING_STATUS:
+                    return new Guest(ipAddress, net, (String) value, guestState);
+                case GUEST_STATE:
+                    return new Guest(ipAddress, net, toolsRunningStatus, (String) value);
+                default:
+                    return this;
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import com.vmware.vim25.DynamicProperty;
+import com.vmware.vim25.ObjectContent;
+import com.vmware.vim25.PropertyFilterSpec;
+import com.vmware.vim25.RetrieveOptions;
+import com.vmware.vim25.RetrieveResult;
+import com.vmware.vim25.mo.ContainerView;
+import com.vmware.vim25.mo.ManagedEntity;
+import com.vmware.vim25.mo.PropertyCollector;
+import com.vmware.vim25.mo.ServiceInstance;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import jenkins.util.SystemProperties;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Lists the names of every inventory object of a type, a page at a time, using
+ * {@code RetrievePropertiesEx} and {@code ContinueRetrievePropertiesEx} over a
+ * {@code ContainerView}. Only the {@code name} property is transferred, and only one page
+ * of names is held in memory at once, however large the inventory is - unlike
+ * {@code InventoryNavigator.searchManagedEntities}, which builds an array of every entity
+ * and then needs a further round-trip per entity to read its name.
+ *
+ * <p>The next page is only requested once the current one has been iterated over. The
+ * enumerator must be {@link #close() closed}, which it also does itself once the last page
+ * has been read; closing it early tells the vCenter to drop the pages not yet read.</p>
+ *
+ * <p>Pages hold 1000 names, or as many as the
+ * {@code org.jenkinsci.plugins.vsphere.tools.VSphereInventoryEnumerator.pageSize} system
+ * property says.</p>
+ */
+final class VSphereInventoryEnumerator implements Iterator<String>, AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(VSphereInventoryEnumerator.class.getName());
+
+    /** System property overriding how many names are read per round-trip. */
+    static final String PAGE_SIZE_PROPERTY = VSphereInventoryEnumerator.class.getName() + ".pageSize";
+
+    static final int DEFAULT_PAGE_SIZE = 1000;
+
+    /** Where the pages come from: the vCenter's property collector (or, in tests, a fake). */
+    interface Pages {
+        @CheckForNull
+        RetrieveResult first() throws RemoteException;
+
+        @CheckForNull
+        RetrieveResult next(@NonNull String token) throws RemoteException;
+
+        void cancel(@NonNull String token) throws RemoteException;
+
+        /** Frees whatever the pages were read from. */
+        void close();
+    }
+
+    private final Pages pages;
+    private Iterator<String> page = Collections.emptyIterator();
+    @CheckForNull
+    private String token;
+    private boolean started;
+    private boolean closed;
+    private int pagesRead;
+
+    VSphereInventoryEnumerator(@NonNull Pages pages) {
+        this.pages = pages;
+    }
+
+    /** @return how many names are read per round-trip. */
+    static int getPageSize() {
+        return Math.max(1, SystemProperties.getInteger(PAGE_SIZE_PROPERTY, DEFAULT_PAGE_SIZE));
+    }
+
+    /**
+     * @return the names of every object of {@code type} (e.g. {@code "VirtualMachine"})
+     *         anywhere below {@code root}.
+     */
+    @NonNull
+    static VSphereInventoryEnumerator names(@NonNull ServiceInstance serviceInstance, @NonNull ManagedEntity root,
+                                            @NonNull String type) throws RemoteException {
+        final ContainerView view = serviceInstance.getViewManager().createContainerView(root, new String[]{type}, true);
+        final PropertyCollector collector = serviceInstance.getPropertyCollector();
+        final PropertyFilterSpec spec = VSphereProjection.createViewFilterSpec(view.getMOR(),
+                VSphereProjection.createPropertySpec(type, "name"));
+        final RetrieveOptions options = new RetrieveOptions();
+        options.setMaxObjects(getPageSize());
+        return new VSphereInventoryEnumerator(new Pages() {
+            @Override
+            public RetrieveResult first() throws RemoteException {
+                return collector.retrievePropertiesEx(new PropertyFilterSpec[]{spec}, options);
+            }
+
+            @Override
+            public RetrieveResult next(String token) throws RemoteException {
+                return collector.continueRetrievePropertiesEx(token);
+            }
+
+            @Override
+            public void cancel(String token) throws RemoteException {
+                collector.cancelRetrievePropertiesEx(token);
+            }
+
+            @Override
+            public void close() {
+                try {
+                    view.destroyView();
+                } catch (Exception e) {
+                    LOGGER.log(Level.FINE, "Could not destroy the inventory view used to list " + type + " names", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * @throws IllegalStateException if the next page could not be read from the vCenter.
+     */
+    @Override
+    public boolean hasNext() {
+        while (!page.hasNext()) {
+            if (closed) {
+                return false;
+            }
+            if (started && token == null) {
+                close();
+                return false;
+            }
+            final RetrieveResult result;
+            try {
+                result = started ? pages.next(token) : pages.first();
+            } catch (RemoteException e) {
+                token = null; // a failed page cannot be continued (nor cancelled)
+                close();
+                throw new IllegalStateException("Could not read page " + (pagesRead + 1) + " of the inventory", e);
+            }
+            started = true;
+            pagesRead++;
+            token = result == null ? null : result.getToken();
+            page = namesOf(result).iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+
+    /** @return how many pages have been read so far. */
+    int getPagesRead() {
+        return pagesRead;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        page = Collections.emptyIterator();
+        final String unread = token;
+        token = null;
+        if (unread != null) {
+            try {
+                pages.cancel(unread);
+            } catch (RemoteException e) {
+                LOGGER.log(Level.FINE, "Could not cancel reading the rest of the inventory", e);
+            }
+        }
+        pages.close();
+    }
+
+    private static List<String> namesOf(@CheckForNull RetrieveResult result) {
+        final ObjectContent[] objects = result == null ? null : result.getObjects();
+        if (objects == null) {
+            return Collections.emptyList();
+        }
+        final List<String> names = new ArrayList<>(objects.length);
+        for (ObjectContent object : objects) {
+            final DynamicProperty[] properties = object.getPropSet();
+            if (properties == null) {
+                continue;
+            }
+            for (DynamicProperty property : properties) {
+                if ("name".equals(property.getName()) && property.getVal() != null) {
+                    names.add(property.getVal().toString());
+                }
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,173 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import com.vmware.vim25.ManagedObjectReference;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import jenkins.util.SystemProperties;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers which {@link ManagedObjectReference} each inventory name was last found at, so
+ * that looking up a VM, template, host, cluster, resource pool, datastore or folder by name
+ * does not have to crawl the whole inventory (which is what
+ * {@code InventoryNavigator.searchManagedEntity} does: it retrieves every entity of the
+ * type and compares names on the client) every time.
+ *
+ * <p>There is one index per vCenter and user, shared by every {@link VSphere} connected to
+ * it - including all the sessions of a {@link VSphereConnectionPool}.</p>
+ *
+ * <p>An entry is only a hint: {@link VSphere} checks that the entity it points at still
+ * exists and still has that name before using it, and drops the entry (falling back to a
+ * full search) if not - e.g. after the VM was deleted, renamed or re-created. Entries also
+ * expire after 300 seconds, or as set by the
+ * {@code org.jenkinsci.plugins.vsphere.tools.VSphereInventoryIndex.ttlSecs} system property;
+ * 0 turns the index off. Names that were not found are never remembered.</p>
+ */
+public final class VSphereInventoryIndex {
+
+    /** System property overriding how long an entry is trusted for; 0 disables the index. */
+    static final String TTL_SECS_PROPERTY = VSphereInventoryIndex.class.getName() + ".ttlSecs";
+
+    static final int DEFAULT_TTL_SECS = 300;
+
+    /** An index that has grown this large is emptied rather than grown further. */
+    private static final int MAX_ENTRIES = 100_000;
+
+    private final String vCenter;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+
+    VSphereInventoryIndex(@NonNull String vCenter) {
+        this.vCenter = vCenter;
+    }
+
+    /**
+     * @return the index shared by every connection to {@code url} as {@code user}; see
+     *         {@link VSphereVCenterCaches} for how long it is kept.
+     */
+    @NonNull
+    static VSphereInventoryIndex forVCenter(@NonNull String url, @CheckForNull String user) {
+        return VSphereVCenterCaches.forVCenter(url, user).inventoryIndex;
+    }
+
+    /** @return how long an entry is trusted for, in seconds; 0 means the index is off. */
+    static int getTtlSecs() {
+        return Math.max(0, SystemProperties.getInteger(TTL_SECS_PROPERTY, DEFAULT_TTL_SECS));
+    }
+
+    /**
+     * @param scope the inventory object the lookup searches under (e.g. the root folder or a
+     *              cluster), identified by its managed object id.
+     * @return where an entity of {@code type} called {@code name} was last found under
+     *         {@code scope}, or null if that is not known (any more).
+     */
+    @CheckForNull
+    ManagedObjectReference get(@NonNull String scope, @CheckForNull String type, @NonNull String name) {
+        final Key key = new Key(scope, type, name);
+        final Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (System.nanoTime() - entry.storedAtNanos >= TimeUnit.SECONDS.toNanos(getTtlSecs())) {
+            entries.remove(key, entry);
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.mor;
+    }
+
+    /** Records that an entity of {@code type} called {@code name} was found at {@code mor}. */
+    void put(@NonNull String scope, @CheckForNull String type, @NonNull String name, @NonNull ManagedObjectReference mor) {
+        if (getTtlSecs() == 0) {
+            return;
+        }
+        if (entries.size() >= MAX_ENTRIES) {
+            entries.clear();
+        }
+        entries.put(new Key(scope, type, name), new Entry(mor));
+    }
+
+    /** Drops the entry for a lookup whose result turned out to be stale. */
+    void invalidate(@NonNull String scope, @CheckForNull String type, @NonNull String name) {
+        staleHits.incrementAndGet();
+        entries.remove(new Key(scope, type, name));
+    }
+
+    /** Drops every entry for {@code name}, e.g. because that entity was deleted or renamed. */
+    void invalidateName(@CheckForNull String name) {
+        entries.keySet().removeIf(key -> key.name.equals(name));
+    }
+
+    /** @return how many names the index currently knows. */
+    public int size() {
+        return entries.size();
+    }
+
+    /** @return how many lookups the index answered. */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /** @return how many lookups the index could not answer, and so had to search the inventory. */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /** @return how many answers turned out to be out of date, and so had to search the inventory after all. */
+    public long getStaleHits() {
+        return staleHits.get();
+    }
+
+    @Override
+    public String toString() {
+        return "inventory index of " + vCenter + " (" + size() + " names, " + getHits() + " hits, "
+                + getMisses() + " misses, " + getStaleHits() + " stale)";
+    }
+
+    private static final class Key {
+        private final String scope;
+        private final String type;
+        private final String name;
+
+        Key(String scope, @CheckForNull String type, String name) {
+            this.scope = scope;
+            this.type = String.valueOf(type);
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return scope.equals(other.scope) && type.equals(other.type) && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(scope, type, name);
+        }
+    }
+
+    private static final class Entry {
+        private final ManagedObjectReference mor;
+        private final long storedAtNanos = System.nanoTime();
+
+        Entry(ManagedObjectReference mor) {
+            this.mor = mor;
+        }
+    }
+}
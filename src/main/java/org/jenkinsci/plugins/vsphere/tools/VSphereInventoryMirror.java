@@ -0,0 +1,579 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.ObjectUpdate;
+import com.vmware.vim25.ObjectUpdateKind;
+import com.vmware.vim25.PropertyChange;
+import com.vmware.vim25.PropertyChangeOp;
+import com.vmware.vim25.PropertyFilterSpec;
+import com.vmware.vim25.PropertyFilterUpdate;
+import com.vmware.vim25.PropertySpec;
+import com.vmware.vim25.UpdateSet;
+import com.vmware.vim25.VirtualMachinePowerState;
+import com.vmware.vim25.VirtualMachineToolsStatus;
+import com.vmware.vim25.WaitOptions;
+import com.vmware.vim25.mo.ContainerView;
+import com.vmware.vim25.mo.ManagedEntity;
+import com.vmware.vim25.mo.PropertyCollector;
+import com.vmware.vim25.mo.ServiceInstance;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import jenkins.util.SystemProperties;
+import org.jenkinsci.plugins.vsphere.VSphereConnectionConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A local copy of the parts of a vCenter's inventory that lookups need: the name and
+ * parent of every folder, datacenter, cluster, host, resource pool, datastore and VM, plus
+ * each VM's template flag, power state, guest IP address and tools status.
+ *
+ * <p>It is loaded once and then kept current by a single long-poll per vCenter: a
+ * {@code ContainerView} over the inventory, watched by a {@code PropertyCollector} filter,
+ * whose changes are fetched with {@code WaitForUpdatesEx} as version deltas. While it is
+ * in sync, {@link VSphere} answers name lookups, VM counts, guest IP polls and inventory
+ * paths from it without a round-trip to the vCenter.</p>
+ *
+ * <p>A name the mirror does not know is still searched for in the vCenter, as a VM that
+ * was created a moment ago may not have reached the mirror yet. When the mirror loses its
+ * session it stops answering (and everything is looked up in the vCenter again) until it
+ * has reloaded the inventory.</p>
+ *
+ * <p>The mirror also watches the {@code snapshot} property of the VMs whose snapshots
+ * {@link VSphere} has been asked about, so that the {@link VSphereSnapshotIndex} can tell
+ * whether a VM's snapshots have been taken, reverted to, renamed or removed since they were
+ * read, without asking the vCenter. Only those VMs are watched, as each change to the
+ * property sends the VM's whole snapshot tree.</p>
+ *
+ * <p>A pool whose cloud confines searches to some inventory roots gets a mirror of just
+ * the objects below those roots (and of the roots and the objects above them, so that
+ * inventory paths are still known), with one view per root.</p>
+ *
+ * <p>There is one mirror per vCenter, user and set of inventory roots, started by the first
+ * {@link VSphereConnectionPool} that logs in to it and stopped when the last such pool is
+ * shut down or goes idle. It uses a session of its own, which is not counted against the
+ * pools' per-host session budget, so that it can never take the session a pool needs.
+ * Setting the {@code org.jenkinsci.plugins.vsphere.tools.VSphereInventoryMirror.enabled}
+ * system property to {@code false} turns mirrors off.</p>
+ */
+public final class VSphereInventoryMirror {
+
+    private static final Logger LOGGER = Logger.getLogger(VSphereInventoryMirror.class.getName());
+
+    /** System property that turns mirrors off when set to {@code false}. */
+    static final String ENABLED_PROPERTY = VSphereInventoryMirror.class.getName() + ".enabled";
+
+    /** The inventory types that are mirrored. */
+    static final String[] MIRRORED_TYPES = {
+            "Folder", "Datacenter", "ClusterComputeResource", "HostSystem", "ResourcePool", "Datastore", "VirtualMachine"
+    };
+
+    static final String NAME = "name";
+    static final String PARENT = "parent";
+    static final String TEMPLATE = "config.template";
+    static final String POWER_STATE = "runtime.powerState";
+    static final String IP_ADDRESS = "guest.ipAddress";
+    static final String TOOLS_STATUS = "guest.toolsStatus";
+    static final String SNAPSHOT = "snapshot";
+
+    private static final String[] ENTITY_PROPERTIES = {NAME, PARENT};
+    private static final String[] VM_PROPERTIES = {NAME, PARENT, TEMPLATE, POWER_STATE, IP_ADDRESS, TOOLS_STATUS};
+
+    /** Longest a single {@code WaitForUpdatesEx} long-poll may wait for a change. */
+    private static final int MAX_WAIT_SECS = 60;
+
+    /** How long to wait before logging in again after the mirror lost its session. */
+    private static final int RETRY_SECS = 30;
+
+    /** Guarded by the class. */
+    private static final Map<String, VSphereInventoryMirror> MIRRORS = new HashMap<>();
+
+    private static final AtomicLong IDS = new AtomicLong();
+
+    private final String vCenter;
+    /** How the mirror logs in; only null for a mirror that is never started, e.g. in tests. */
+    private final VSphereConnectionConfig config;
+    /** The datacenters, folders and clusters the mirror is confined to; empty for the whole inventory. */
+    private final List<String> inventoryRoots;
+    /** Guarded by the class. */
+    private int holders;
+
+    private final Map<String, Entity> entities = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> idsByName = new ConcurrentHashMap<>();
+    private final AtomicLong updates = new AtomicLong();
+    /** Tells the snapshot versions of different mirrors apart. */
+    private final long id = IDS.incrementAndGet();
+    /** The VMs whose {@code snapshot} property is watched, by managed object id. */
+    private final Map<String, ManagedObjectReference> snapshotWatches = new ConcurrentHashMap<>();
+    /** For each watched VM, the change set its {@code snapshot} property last changed in; absent until reported. */
+    private final Map<String, Long> snapshotChanges = new ConcurrentHashMap<>();
+    private volatile boolean synced;
+    private volatile boolean stopped;
+    @CheckForNull
+    private volatile PropertyCollector activeCollector;
+    @CheckForNull
+    private volatile String lastError;
+
+    VSphereInventoryMirror(@NonNull String vCenter, VSphereConnectionConfig config) {
+        this(vCenter, config, Collections.emptyList());
+    }
+
+    VSphereInventoryMirror(@NonNull String vCenter, VSphereConnectionConfig config, @NonNull List<String> inventoryRoots) {
+        this.vCenter = vCenter;
+        this.config = config;
+        this.inventoryRoots = inventoryRoots;
+    }
+
+    /** @return {@code false} if mirrors have been turned off. */
+    static boolean isEnabled() {
+        return SystemProperties.getBoolean(ENABLED_PROPERTY, true);
+    }
+
+    /**
+     * @return the mirror of the vCenter and user {@code config} connects to, confined to
+     *         {@code inventoryRoots} (if any), started if nobody holds it yet. Must be
+     *         {@link #release() released} when no longer needed.
+     */
+    @NonNull
+    static synchronized VSphereInventoryMirror acquire(@NonNull VSphereConnectionConfig config,
+                                                       @NonNull List<String> inventoryRoots) {
+        final String key = config.getVsHost() + " as " + config.getUsername() + " below " + inventoryRoots;
+        VSphereInventoryMirror mirror = MIRRORS.get(key);
+        if (mirror == null) {
+            mirror = new VSphereInventoryMirror(String.valueOf(config.getVsHost()), config, inventoryRoots);
+            MIRRORS.put(key, mirror);
+            VSphereExecutors.startDaemon("vsphere-inventory-mirror " + key, mirror::run);
+        }
+        mirror.holders++;
+        return mirror;
+    }
+
+    /** Gives up a hold obtained from {@link #acquire}; the last one stops the mirror. */
+    void release() {
+        synchronized (VSphereInventoryMirror.class) {
+            if (--holders > 0) {
+                return;
+            }
+            MIRRORS.values().remove(this);
+        }
+        stopped = true;
+        synced = false;
+        final PropertyCollector collector = activeCollector;
+        if (collector != null) {
+            // ends the long-poll now, rather than when it next times out
+            VSphereExecutors.runMaintenance(() -> {
+                try {
+                    collector.cancelWaitForUpdates();
+                } catch (Exception e) {
+                    LOGGER.log(Level.FINE, "Could not cancel the inventory long-poll on " + vCenter, e);
+                }
+            });
+        }
+    }
+
+    /** @return {@code true} if the mirror holds the whole inventory and is being kept up to date. */
+    public boolean isSynced() {
+        return synced;
+    }
+
+    /** @return how many inventory objects the mirror holds. */
+    public int size() {
+        return entities.size();
+    }
+
+    /** @return how many change sets the vCenter has sent the mirror. */
+    public long getUpdateCount() {
+        return updates.get();
+    }
+
+    /** @return a one-line description of the mirror's state, e.g. for log messages. */
+    @NonNull
+    public String getSummary() {
+        if (synced) {
+            final String scope = inventoryRoots.isEmpty() ? "" : " below " + String.join(", ", inventoryRoots);
+            return "In sync - " + size() + " objects" + scope + ", " + getUpdateCount() + " change sets received";
+        }
+        final String error = lastError;
+        return "Not in sync - " + (error == null ? "loading the inventory" : "last error: " + error);
+    }
+
+    @Override
+    public String toString() {
+        return "inventory mirror of " + vCenter + " (" + getSummary() + ")";
+    }
+
+    /**
+     * @param type the type to look for, or null for any mirrored type.
+     * @param scope the managed object id of the inventory object to search under.
+     * @return where an entity of {@code type} called {@code name} below {@code scope} is,
+     *         or null if the mirror does not know one.
+     */
+    @CheckForNull
+    ManagedObjectReference find(@CheckForNull String type, @NonNull String name, @NonNull String scope) {
+        final Set<String> ids = idsByName.get(name);
+        if (ids == null) {
+            return null;
+        }
+        for (String id : ids) {
+            final Entity entity = entities.get(id);
+            if (entity != null && (type == null || type.equals(entity.type)) && isBelow(entity, scope)) {
+                return toMor(entity.type, id);
+            }
+        }
+        return null;
+    }
+
+    /** @return the mirrored state of the object with managed object id {@code id}, or null if not known. */
+    @CheckForNull
+    Entity get(@NonNull String id) {
+        return entities.get(id);
+    }
+
+    /** @return how many VMs (and templates) have a name starting with {@code prefix}. */
+    int countVmsByPrefix(@NonNull String prefix) {
+        int count = 0;
+        for (Entity entity : entities.values()) {
+            if ("VirtualMachine".equals(entity.type) && entity.name != null && entity.name.startsWith(prefix)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the names of the objects containing the object with managed object id
+     *         {@code id}, from the top of the inventory down, each followed by a '/'; or
+     *         null if the mirror does not know them all.
+     */
+    @CheckForNull
+    String getPath(@NonNull String id) {
+        final Entity entity = entities.get(id);
+        if (entity == null) {
+            return null;
+        }
+        final StringBuilder path = new StringBuilder();
+        String parentId = entity.parent;
+        for (int depth = 0; parentId != null; depth++) {
+            final Entity parent = entities.get(parentId);
+            if (parent == null || parent.name == null || depth > entities.size()) {
+                return null;
+            }
+            path.insert(0, parent.name + '/');
+            parentId = parent.parent;
+        }
+        return path.toString();
+    }
+
+    /**
+     * @return a version of the snapshots of {@code vm} that changes whenever a snapshot of it
+     *         is taken, reverted to, renamed or removed; or null if the mirror cannot tell yet,
+     *         e.g. because it has only now been asked to watch {@code vm}.
+     */
+    @CheckForNull
+    String getSnapshotVersion(@NonNull ManagedObjectReference vm) {
+        final String vmId = vm.getVal();
+        final Long changed = snapshotChanges.get(vmId);
+        if (changed != null) {
+            return "mirror-" + id + "@" + changed;
+        }
+        if (snapshotWatches.putIfAbsent(vmId, vm) == null) {
+            final PropertyCollector collector = activeCollector;
+            if (collector != null && !watchSnapshots(collector, vm)) {
+                snapshotWatches.remove(vmId, vm);
+            }
+        }
+        return null;
+    }
+
+    // Adds a filter on the VM's snapshot property to the mirror's collector; its current value arrives with the next change set.
+    private boolean watchSnapshots(PropertyCollector collector, ManagedObjectReference vm) {
+        try {
+            collector.createFilter(VSphereProjection.createFilterSpec(vm, SNAPSHOT), true);
+            return true;
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Could not watch the snapshots of " + vm.getVal() + " on " + vCenter, e);
+            return false;
+        }
+    }
+
+    // Is the entity inside the object with id scope? Answers false if that cannot be told.
+    private boolean isBelow(Entity entity, String scope) {
+        String parentId = entity.parent;
+        for (int depth = 0; parentId != null && depth <= entities.size(); depth++) {
+            if (parentId.equals(scope)) {
+                return true;
+            }
+            final Entity parent = entities.get(parentId);
+            parentId = parent == null ? null : parent.parent;
+        }
+        return false;
+    }
+
+    // Long-polls the vCenter until released, logging in again whenever the session is lost.
+    private void run() {
+        while (!stopped) {
+            try {
+                mirrorUntilStopped();
+            } catch (Exception e) {
+                if (stopped) {
+                    break;
+                }
+                lastError = String.valueOf(e);
+                LOGGER.log(Level.WARNING, "Inventory mirror of " + vCenter + " lost its session; trying again in "
+                        + RETRY_SECS + "s", e);
+            }
+            synced = false;
+            if (!stopped) {
+                try {
+                    TimeUnit.SECONDS.sleep(RETRY_SECS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        LOGGER.fine("Inventory mirror of " + vCenter + " stopped");
+    }
+
+    private void mirrorUntilStopped() throws Exception {
+        final VSphere connection = VSphere.connect(config);
+        try {
+            connection.setInventoryRoots(inventoryRoots);
+            final ServiceInstance serviceInstance = connection.getServiceInstance();
+            final ManagedEntity[] scopeRoots = connection.getScopeRoots();
+            final ManagedEntity[] roots = scopeRoots != null ? scopeRoots : new ManagedEntity[]{serviceInstance.getRootFolder()};
+            final List<ContainerView> views = new ArrayList<>(roots.length);
+            final PropertyCollector collector = serviceInstance.getPropertyCollector().createPropertyCollector();
+            try {
+                for (ManagedEntity root : roots) {
+                    final ContainerView view = serviceInstance.getViewManager()
+                            .createContainerView(root, MIRRORED_TYPES, true);
+                    views.add(view);
+                    collector.createFilter(createFilterSpec(view.getMOR()), true);
+                }
+                clear();
+                for (ManagedEntity root : roots) {
+                    putWithAncestors(root);
+                }
+                for (ManagedObjectReference vm : snapshotWatches.values()) {
+                    if (!watchSnapshots(collector, vm)) {
+                        snapshotWatches.remove(vm.getVal(), vm);
+                    }
+                }
+                activeCollector = collector;
+                longPoll(collector);
+            } finally {
+                activeCollector = null;
+                snapshotChanges.clear();
+                destroyQuietly(collector, views);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private void longPoll(PropertyCollector collector) throws Exception {
+        final WaitOptions options = new WaitOptions();
+        options.setMaxWaitSeconds(getMaxWaitSecs());
+        String version = "";
+        while (!stopped) {
+            final UpdateSet updateSet = collector.waitForUpdatesEx(version, options);
+            if (updateSet == null) {
+                continue; // nothing changed while we waited
+            }
+            apply(updateSet);
+            version = updateSet.getVersion();
+            if (!synced && !Boolean.TRUE.equals(updateSet.getTruncated())) {
+                synced = true;
+                lastError = null;
+                LOGGER.info("Inventory mirror of " + vCenter + " loaded " + size() + " objects");
+            }
+        }
+    }
+
+    // The long-poll has to return before the connection's read timeout gives up on it.
+    private int getMaxWaitSecs() {
+        final int readTimeoutSecs = config.getReadTimeoutSecs();
+        return readTimeoutSecs > 0 ? Math.max(1, Math.min(MAX_WAIT_SECS, readTimeoutSecs / 2)) : MAX_WAIT_SECS;
+    }
+
+    private static PropertyFilterSpec createFilterSpec(ManagedObjectReference view) {
+        final PropertySpec[] propertySpecs = new PropertySpec[MIRRORED_TYPES.length];
+        for (int i = 0; i < MIRRORED_TYPES.length; i++) {
+            propertySpecs[i] = VSphereProjection.createPropertySpec(MIRRORED_TYPES[i],
+                    "VirtualMachine".equals(MIRRORED_TYPES[i]) ? VM_PROPERTIES : ENTITY_PROPERTIES);
+        }
+        return VSphereProjection.createViewFilterSpec(view, propertySpecs);
+    }
+
+    // A view does not include the object it is over, nor anything above it, so those are read once.
+    private void putWithAncestors(ManagedEntity root) {
+        for (ManagedEntity entity = root; entity != null; ) {
+            final ManagedEntity parent = entity.getParent();
+            put(entity.getMOR().getVal(), new Entity(entity.getMOR().getType())
+                    .with(NAME, entity.getName())
+                    .with(PARENT, parent == null ? null : parent.getMOR()));
+            entity = parent;
+        }
+    }
+
+    private void destroyQuietly(PropertyCollector collector, List<ContainerView> views) {
+        try {
+            collector.destroyPropertyCollector();
+            for (ContainerView view : views) {
+                view.destroyView();
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Could not clean up the inventory view on " + vCenter, e);
+        }
+    }
+
+    /** Applies a change set received from the vCenter. */
+    synchronized void apply(@NonNull UpdateSet updateSet) {
+        final PropertyFilterUpdate[] filterUpdates = updateSet.getFilterSet();
+        if (filterUpdates != null) {
+            for (PropertyFilterUpdate filterUpdate : filterUpdates) {
+                final ObjectUpdate[] objectUpdates = filterUpdate.getObjectSet();
+                if (objectUpdates == null) {
+                    continue;
+                }
+                for (ObjectUpdate objectUpdate : objectUpdates) {
+                    apply(objectUpdate);
+                }
+            }
+        }
+        updates.incrementAndGet();
+    }
+
+    private void apply(ObjectUpdate objectUpdate) {
+        final ManagedObjectReference mor = objectUpdate.getObj();
+        if (objectUpdate.getKind() == ObjectUpdateKind.leave) {
+            remove(mor.getVal());
+            snapshotWatches.remove(mor.getVal());
+            snapshotChanges.remove(mor.getVal());
+            return;
+        }
+        final Entity known = entities.get(mor.getVal());
+        Entity entity = known == null ? new Entity(mor.getType()) : known;
+        boolean mirrored = known != null;
+        final PropertyChange[] changes = objectUpdate.getChangeSet();
+        if (changes != null) {
+            for (PropertyChange change : changes) {
+                if (SNAPSHOT.equals(change.getName())) {
+                    // the new tree itself is not kept; VSphere reads it when it next needs it
+                    snapshotChanges.put(mor.getVal(), updates.get());
+                    continue;
+                }
+                final boolean removed = change.getOp() == PropertyChangeOp.remove
+                        || change.getOp() == PropertyChangeOp.indirectRemove;
+                entity = entity.with(change.getName(), removed ? null : change.getVal());
+                mirrored = true;
+            }
+        }
+        if (mirrored) {
+            // a VM outside the mirrored inventory may still have its snapshots watched
+            put(mor.getVal(), entity);
+        }
+    }
+
+    private void put(String id, Entity entity) {
+        final Entity previous = entities.put(id, entity);
+        if (previous != null && previous.name != null && !previous.name.equals(entity.name)) {
+            forgetName(previous.name, id);
+        }
+        if (entity.name != null) {
+            idsByName.computeIfAbsent(entity.name, name -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    private void remove(String id) {
+        final Entity previous = entities.remove(id);
+        if (previous != null && previous.name != null) {
+            forgetName(previous.name, id);
+        }
+    }
+
+    private void forgetName(String name, String id) {
+        idsByName.computeIfPresent(name, (n, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private synchronized void clear() {
+        entities.clear();
+        idsByName.clear();
+        // changes may have been missed while the mirror was not in sync
+        snapshotChanges.clear();
+    }
+
+    private static ManagedObjectReference toMor(String type, String id) {
+        final ManagedObjectReference mor = new ManagedObjectReference();
+        mor.setType(type);
+        mor.setVal(id);
+        return mor;
+    }
+
+    /** What the mirror knows about one inventory object. Immutable; a change replaces it. */
+    static final class Entity {
+        final String type;
+        @CheckForNull
+        final String name;
+        /** The managed object id of the containing object; null at the top of the inventory. */
+        @CheckForNull
+        final String parent;
+        final boolean template;
+        @CheckForNull
+        final VirtualMachinePowerState powerState;
+        @CheckForNull
+        final String ipAddress;
+        @CheckForNull
+        final VirtualMachineToolsStatus toolsStatus;
+
+        Entity(String type) {
+            this(type, null, null, false, null, null, null);
+        }
+
+        private Entity(String type, String name, String parent, boolean template, VirtualMachinePowerState powerState,
+                       String ipAddress, VirtualMachineToolsStatus toolsStatus) {
+            this.type = type;
+            this.name = name;
+            this.parent = parent;
+            this.template = template;
+            this.powerState = powerState;
+            this.ipAddress = ipAddress;
+            this.toolsStatus = toolsStatus;
+        }
+
+        // A copy of this entity with one property changed; properties that are not mirrored are ignored.
+        Entity with(String property, @CheckForNull Object value) {
+            switch (property) {
+                case NAME:
+                    return new Entity(type, (String) value, parent, template, powerState, ipAddress, toolsStatus);
+                case PARENT:
+                    final String parentId = value == null ? null : ((ManagedObjectReference) value).getVal();
+                    return new Entity(type, name, parentId, template, powerState, ipAddress, toolsStatus);
+                case TEMPLATE:
+                    return new Entity(type, name, parent, Boolean.TRUE.equals(value), powerState, ipAddress, toolsStatus);
+                case POWER_STATE:
+                    return new Entity(type, name, parent, template, (VirtualMachinePowerState) value, ipAddress, toolsStatus);
+                case IP_ADDRESS:
+                    return new Entity(type, name, parent, template, powerState, (String) value, toolsStatus);
+                case TOOLS_STATUS:
+                    return new Entity(type, name, parent, template, powerState, ipAddress, (VirtualMachineToolsStatus) value);
+                default:
+                    return this;
+            }
+        }
+    }
+}
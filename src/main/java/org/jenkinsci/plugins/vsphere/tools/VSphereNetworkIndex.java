@@ -0,0 +1,235 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import com.vmware.vim25.DynamicProperty;
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.ObjectContent;
+import com.vmware.vim25.PropertyFilterSpec;
+import com.vmware.vim25.RetrieveOptions;
+import com.vmware.vim25.RetrieveResult;
+import com.vmware.vim25.mo.ContainerView;
+import com.vmware.vim25.mo.Datacenter;
+import com.vmware.vim25.mo.PropertyCollector;
+import com.vmware.vim25.mo.ServiceInstance;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Knows the networks of each datacenter: which network and distributed port group each
+ * name refers to, and each port group's key and the UUID of its distributed switch. This
+ * is what reconfiguring a VM's network adapters needs, and without it finding one port
+ * group means reading the name of every network in the datacenter, one round-trip each.
+ *
+ * <p>A datacenter's networks are read all at once, with a single
+ * {@code RetrievePropertiesEx} over a {@code ContainerView} of the datacenter (and as
+ * many {@code ContinueRetrievePropertiesEx} as it takes for very large ones), the first
+ * time they are needed and again whenever a name is not found - e.g. because the port
+ * group was created since.</p>
+ *
+ * <p>There is one index per vCenter and user, shared by every {@link VSphere} connected to
+ * it.</p>
+ */
+public final class VSphereNetworkIndex {
+
+    private static final Logger LOGGER = Logger.getLogger(VSphereNetworkIndex.class.getName());
+
+    static final String NETWORK = "Network";
+    static final String PORTGROUP = "DistributedVirtualPortgroup";
+    static final String SWITCH = "DistributedVirtualSwitch";
+
+    static final String NAME = "name";
+    static final String KEY = "key";
+    static final String PORTGROUP_SWITCH = "config.distributedVirtualSwitch";
+    static final String UUID = "uuid";
+
+    private final String vCenter;
+    private final Map<String, Networks> datacenters = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+
+    VSphereNetworkIndex(@NonNull String vCenter) {
+        this.vCenter = vCenter;
+    }
+
+    /**
+     * @return the index shared by every connection to {@code url} as {@code user}; see
+     *         {@link VSphereVCenterCaches} for how long it is kept.
+     */
+    @NonNull
+    static VSphereNetworkIndex forVCenter(@NonNull String url, @CheckForNull String user) {
+        return VSphereVCenterCaches.forVCenter(url, user).networkIndex;
+    }
+
+    /**
+     * @return the networks of the datacenter with managed object id {@code datacenter} as
+     *         last read, or null if they have not been read yet.
+     */
+    @CheckForNull
+    Networks get(@NonNull String datacenter) {
+        final Networks networks = datacenters.get(datacenter);
+        if (networks != null) {
+            hits.incrementAndGet();
+        }
+        return networks;
+    }
+
+    /** Records the networks just read from the datacenter with managed object id {@code datacenter}. */
+    void put(@NonNull String datacenter, @NonNull Networks networks) {
+        loads.incrementAndGet();
+        datacenters.put(datacenter, networks);
+    }
+
+    /** @return how many datacenters' networks the index holds. */
+    public int size() {
+        return datacenters.size();
+    }
+
+    /** @return how many lookups were answered from networks already read. */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /** @return how many times a datacenter's networks were read. */
+    public long getLoads() {
+        return loads.get();
+    }
+
+    @Override
+    public String toString() {
+        return "network index of " + vCenter + " (" + size() + " datacenters, " + getHits() + " hits, "
+                + getLoads() + " loads)";
+    }
+
+    /** Reads every network, port group and distributed switch of {@code datacenter}. */
+    @NonNull
+    static Networks load(@NonNull ServiceInstance serviceInstance, @NonNull Datacenter datacenter) throws RemoteException {
+        final ContainerView view = serviceInstance.getViewManager()
+                .createContainerView(datacenter, new String[]{NETWORK, SWITCH}, true);
+        try {
+            final PropertyCollector collector = serviceInstance.getPropertyCollector();
+            final PropertyFilterSpec spec = VSphereProjection.createViewFilterSpec(view.getMOR(),
+                    VSphereProjection.createPropertySpec(NETWORK, NAME),
+                    VSphereProjection.createPropertySpec(PORTGROUP, NAME, KEY, PORTGROUP_SWITCH),
+                    VSphereProjection.createPropertySpec(SWITCH, UUID));
+            final List<ObjectContent> objects = new ArrayList<>();
+            RetrieveResult result = collector.retrievePropertiesEx(new PropertyFilterSpec[]{spec}, new RetrieveOptions());
+            while (result != null) {
+                if (result.getObjects() != null) {
+                    objects.addAll(Arrays.asList(result.getObjects()));
+                }
+                result = result.getToken() == null ? null : collector.continueRetrievePropertiesEx(result.getToken());
+            }
+            return Networks.of(objects);
+        } finally {
+            try {
+                view.destroyView();
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Could not destroy the view used to read the networks of " + datacenter.getMOR().getVal(), e);
+            }
+        }
+    }
+
+    /** The networks of one datacenter, as read at one point in time. Immutable. */
+    static final class Networks {
+        /** Every network, distributed port groups included, in the order the vCenter listed them. */
+        private final Map<String, ManagedObjectReference> networksByName;
+        private final Map<String, ManagedObjectReference> portgroupsByName;
+        private final Map<String, String> portgroupKeys;
+        private final Map<String, String> switchUuidsByPortgroup;
+
+        private Networks(Map<String, ManagedObjectReference> networksByName,
+                         Map<String, ManagedObjectReference> portgroupsByName,
+                         Map<String, String> portgroupKeys, Map<String, String> switchUuidsByPortgroup) {
+            this.networksByName = networksByName;
+            this.portgroupsByName = portgroupsByName;
+            this.portgroupKeys = portgroupKeys;
+            this.switchUuidsByPortgroup = switchUuidsByPortgroup;
+        }
+
+        /** @return the networks, port groups and switches described by {@code objects}. */
+        @NonNull
+        static Networks of(@NonNull List<ObjectContent> objects) {
+            final Map<String, ManagedObjectReference> networksByName = new LinkedHashMap<>();
+            final Map<String, ManagedObjectReference> portgroupsByName = new LinkedHashMap<>();
+            final Map<String, String> portgroupKeys = new HashMap<>();
+            final Map<String, String> switchByPortgroup = new HashMap<>();
+            final Map<String, String> switchUuids = new HashMap<>();
+            for (ObjectContent object : objects) {
+                final ManagedObjectReference mor = object.getObj();
+                final Map<String, Object> values = new HashMap<>();
+                if (object.getPropSet() != null) {
+                    for (DynamicProperty property : object.getPropSet()) {
+                        values.put(property.getName(), property.getVal());
+                    }
+                }
+                if (values.containsKey(UUID)) {
+                    switchUuids.put(mor.getVal(), (String) values.get(UUID));
+                    continue;
+                }
+                final String name = (String) values.get(NAME);
+                if (name == null) {
+                    continue;
+                }
+                networksByName.putIfAbsent(name, mor);
+                if (PORTGROUP.equals(mor.getType())) {
+                    portgroupsByName.putIfAbsent(name, mor);
+                    portgroupKeys.put(mor.getVal(), (String) values.get(KEY));
+                    final ManagedObjectReference dvs = (ManagedObjectReference) values.get(PORTGROUP_SWITCH);
+                    if (dvs != null) {
+                        switchByPortgroup.put(mor.getVal(), dvs.getVal());
+                    }
+                }
+            }
+            final Map<String, String> switchUuidsByPortgroup = new HashMap<>();
+            switchByPortgroup.forEach((portgroup, dvs) -> {
+                final String uuid = switchUuids.get(dvs);
+                if (uuid != null) {
+                    switchUuidsByPortgroup.put(portgroup, uuid);
+                }
+            });
+            return new Networks(networksByName, portgroupsByName, portgroupKeys, switchUuidsByPortgroup);
+        }
+
+        /** @return the network (of any kind) called {@code name}, or the first one if {@code name} is empty. */
+        @CheckForNull
+        ManagedObjectReference getNetwork(@NonNull String name) {
+            return find(networksByName, name);
+        }
+
+        /** @return the distributed port group called {@code name}, or the first one if {@code name} is empty. */
+        @CheckForNull
+        ManagedObjectReference getPortgroup(@NonNull String name) {
+            return find(portgroupsByName, name);
+        }
+
+        /** @return the key of the port group with managed object id {@code portgroup}, if known. */
+        @CheckForNull
+        String getPortgroupKey(@NonNull String portgroup) {
+            return portgroupKeys.get(portgroup);
+        }
+
+        /** @return the UUID of the distributed switch of the port group with managed object id {@code portgroup}, if known. */
+        @CheckForNull
+        String getSwitchUuid(@NonNull String portgroup) {
+            return switchUuidsByPortgroup.get(portgroup);
+        }
+
+        private static ManagedObjectReference find(Map<String, ManagedObjectReference> byName, String name) {
+            if (name.isEmpty()) {
+                return byName.isEmpty() ? null : byName.values().iterator().next();
+            }
+            return byName.get(name);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.ObjectUpdate;
+import com.vmware.vim25.PropertyChange;
+import com.vmware.vim25.PropertyChangeOp;
+import com.vmware.vim25.PropertyFilterUpdate;
+import com.vmware.vim25.TaskInfoState;
+import com.vmware.vim25.UpdateSet;
+import com.vmware.vim25.VirtualMachinePowerState;
+import com.vmware.vim25.VirtualMachineQuestionInfo;
+import com.vmware.vim25.WaitOptions;
+import com.vmware.vim25.mo.PropertyCollector;
+import com.vmware.vim25.mo.Task;
+import com.vmware.vim25.mo.VirtualMachine;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Waits for a VM to reach a power state - to be powered on after a power-on task, or
+ * powered off after a guest shutdown - without polling. The VM's {@code runtime.powerState}
+ * is watched by a {@code PropertyCollector} filter of the waiter's own, so a VM that shuts
+ * down in 4 seconds is seen to have done so after 4 seconds, not at the next 1 or 5 second
+ * poll, and a wait that is not answered costs one request per long-poll rather than a full
+ * {@code runtime} fetch per poll.
+ *
+ * <p>Every wait has a deadline; what to do when it passes (e.g. power the VM off hard) is
+ * up to the caller, which is told the last state the VM was seen in. The task that changes
+ * the VM's power state can be watched through the same collector, so that a caller also
+ * hears straight away when that task has failed.</p>
+ */
+public final class VSpherePowerState {
+
+    private static final Logger LOGGER = Logger.getLogger(VSpherePowerState.class.getName());
+
+    static final String POWER_STATE = "runtime.powerState";
+    static final String QUESTION = "runtime.question";
+    static final String TASK_STATE = "info.state";
+
+    /** The properties of a VM that are watched. */
+    static final String[] RUNTIME_PROPERTIES = {POWER_STATE, QUESTION};
+
+    /** Longest a single {@code WaitForUpdatesEx} long-poll may wait for a change. */
+    private static final int MAX_WAIT_SECS = 10;
+
+    private VSpherePowerState() {
+    }
+
+    /**
+     * Waits until {@code vm} is in the given power state, or {@code timeoutMillis} have passed.
+     *
+     * @param vm the VM to wait for.
+     * @param powerState the state to wait for.
+     * @param timeoutMillis how long to wait.
+     * @return the last state the VM was seen in; {@code powerState} unless the deadline passed.
+     * @throws RemoteException if the VM could not be watched.
+     * @throws InterruptedException if the waiting thread was interrupted.
+     */
+    @CheckForNull
+    public static VirtualMachinePowerState await(@NonNull VirtualMachine vm, @NonNull VirtualMachinePowerState powerState,
+                                                 long timeoutMillis) throws RemoteException, InterruptedException {
+        final Runtime runtime = await(vm, isIn(powerState), timeoutMillis);
+        return runtime.powerState;
+    }
+
+    /**
+     * Waits until the runtime of {@code vm} is {@code ready}, or {@code timeoutMillis} have passed.
+     *
+     * @return what was last seen of the VM's runtime; check it with {@code ready} to tell
+     *         whether the deadline passed.
+     */
+    @NonNull
+    static Runtime await(@NonNull VirtualMachine vm, @NonNull Predicate<Runtime> ready, long timeoutMillis)
+            throws RemoteException, InterruptedException {
+        return await(vm, null, ready, timeoutMillis);
+    }
+
+    /**
+     * Waits until the runtime of {@code vm} is {@code ready}, or {@code timeoutMillis} have
+     * passed, watching {@code task} as well if given (see {@link #hasTaskFailed()}).
+     */
+    @NonNull
+    static Runtime await(@NonNull VirtualMachine vm, @CheckForNull Task task, @NonNull Predicate<Runtime> ready,
+                         long timeoutMillis) throws RemoteException, InterruptedException {
+        return await(vm.getServerConnection().getServiceInstance().getPropertyCollector(), vm.getMOR(),
+                task == null ? null : task.getMOR(), ready, timeoutMillis);
+    }
+
+    /**
+     * @param propertyCollector the session's property collector; the wait creates (and
+     *                          destroys again) a collector of its own from it.
+     */
+    @NonNull
+    static Runtime await(@NonNull PropertyCollector propertyCollector, @NonNull ManagedObjectReference vm,
+                         @CheckForNull ManagedObjectReference task, @NonNull Predicate<Runtime> ready,
+                         long timeoutMillis) throws RemoteException, InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMillis));
+        final PropertyCollector collector = propertyCollector.createPropertyCollector();
+        try {
+            collector.createFilter(VSphereProjection.createFilterSpec(vm, RUNTIME_PROPERTIES), true);
+            if (task != null) {
+                collector.createFilter(VSphereProjection.createFilterSpec(task, TASK_STATE), true);
+            }
+            final WaitOptions options = new WaitOptions();
+            Runtime runtime = Runtime.UNKNOWN;
+            String version = "";
+            while (true) {
+                final long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                // the first call returns the current values straight away
+                options.setMaxWaitSeconds((int) Math.max(1, Math.min(MAX_WAIT_SECS, (remainingMillis + 999) / 1000)));
+                final UpdateSet updateSet = collector.waitForUpdatesEx(version, options);
+                if (updateSet != null) {
+                    runtime = runtime.apply(updateSet);
+                    version = updateSet.getVersion();
+                    if (ready.test(runtime)) {
+                        return runtime;
+                    }
+                }
+                if (System.nanoTime() - deadline >= 0) {
+                    LOGGER.log(Level.FINER, "{0} was still {1} after {2}ms", new Object[]{vm.getVal(), runtime.powerState, timeoutMillis});
+                    return runtime;
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            try {
+                collector.destroyPropertyCollector();
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Could not destroy the collector used to wait for " + vm.getVal(), e);
+            }
+        }
+    }
+
+    /**
+     * Asks the guest of {@code vm} to shut down and waits up to {@code graceMillis} for the VM
+     * to be powered off; if it is not by then, powers it off hard.
+     *
+     * @param shutdownGuest asks the guest to shut down.
+     * @param powerOff powers the VM off hard.
+     * @return {@code true} if the guest shut down in time, {@code false} if the VM was powered off hard.
+     * @throws InterruptedException if the waiting thread was interrupted.
+     * @throws Exception whatever {@code shutdownGuest} or {@code powerOff} failed with.
+     */
+    static boolean shutDown(@NonNull VirtualMachine vm, long graceMillis, @NonNull Step shutdownGuest,
+                            @NonNull Step powerOff) throws Exception {
+        return shutDown(vm.getServerConnection().getServiceInstance().getPropertyCollector(), vm.getMOR(),
+                graceMillis, shutdownGuest, powerOff);
+    }
+
+    static boolean shutDown(@NonNull PropertyCollector propertyCollector, @NonNull ManagedObjectReference vm,
+                            long graceMillis, @NonNull Step shutdownGuest, @NonNull Step powerOff) throws Exception {
+        LOGGER.log(Level.FINER, "Requesting guest shutdown of {0}", vm.getVal());
+        shutdownGuest.run();
+        // Wait for a short while for a shutdown - then power off hard.
+        final Runtime runtime = await(propertyCollector, vm, null, isIn(VirtualMachinePowerState.poweredOff), graceMillis);
+        if (runtime.powerState == VirtualMachinePowerState.poweredOff) {
+            return true;
+        }
+        LOGGER.log(Level.FINE, "The guest of {0} did not shut down within {1}ms; powering it off",
+                new Object[]{vm.getVal(), graceMillis});
+        powerOff.run();
+        return false;
+    }
+
+    /** @return a condition that holds once the VM is in {@code powerState}. */
+    @NonNull
+    static Predicate<Runtime> isIn(@NonNull VirtualMachinePowerState powerState) {
+        return runtime -> runtime.powerState == powerState;
+    }
+
+    /** @return a condition that holds while the VM is blocked on a question with the given id. */
+    @NonNull
+    static Predicate<Runtime> isAsked(@NonNull String questionId) {
+        return runtime -> runtime.question != null && questionId.equals(runtime.question.getId());
+    }
+
+    /** @return a condition that holds once the watched task has failed. */
+    @NonNull
+    static Predicate<Runtime> hasTaskFailed() {
+        return runtime -> runtime.taskState == TaskInfoState.error;
+    }
+
+    /** A step of powering a VM off, such as asking its guest to shut down. */
+    interface Step {
+        void run() throws Exception;
+    }
+
+    /** What has been seen of the watched properties of a VM (and its task). Immutable; a change replaces it. */
+    static final class Runtime {
+        static final Runtime UNKNOWN = new Runtime(null, null, null);
+
+        @CheckForNull
+        final VirtualMachinePowerState powerState;
+        /** The question the VM is waiting for an answer to, if any. */
+        @CheckForNull
+        final VirtualMachineQuestionInfo question;
+        /** The state of the watched task, if any. */
+        @CheckForNull
+        final TaskInfoState taskState;
+
+        private Runtime(VirtualMachinePowerState powerState, VirtualMachineQuestionInfo question, TaskInfoState taskState) {
+            this.powerState = powerState;
+            this.question = question;
+            this.taskState = taskState;
+        }
+
+        /** @return this runtime with the changes in {@code updateSet} applied. */
+        @NonNull
+        Runtime apply(@NonNull UpdateSet updateSet) {
+            Runtime runtime = this;
+            final PropertyFilterUpdate[] filterUpdates = updateSet.getFilterSet();
+            if (filterUpdates == null) {
+                return runtime;
+            }
+            for (PropertyFilterUpdate filterUpdate : filterUpdates) {
+                final ObjectUpdate[] objectUpdates = filterUpdate.getObjectSet();
+                if (objectUpdates == null) {
+                    continue;
+                }
+                for (ObjectUpdate objectUpdate : objectUpdates) {
+                    final PropertyChange[] changes = objectUpdate.getChangeSet();
+                    if (changes == null) {
+                        continue;
+                    }
+                    for (PropertyChange change : changes) {
+                        final boolean removed = change.getOp() == PropertyChangeOp.remove
+                                || change.getOp() == PropertyChangeOp.indirectRemove;
+                        runtime = runtime.with(change.getName(), removed ? null : change.getVal());
+                    }
+                }
+            }
+            return runtime;
+        }
+
+        // A copy of this runtime with one property changed; properties that are not watched are ignored.
+        Runtime with(String property, @CheckForNull Object value) {
+            switch (property) {
+                case POWER_STATE:
+                    return new Runtime((VirtualMachinePowerState) value, question, taskState);
+                case QUESTION:
+                    return new Runtime(powerState, (VirtualMachineQuestionInfo) value, taskState);
+                case TASK_STATE:
+                    return new Runtime(powerState, question, (TaskInfoState) value);
+                default:
+                    return this;
+            }
+        }
+    }
+}
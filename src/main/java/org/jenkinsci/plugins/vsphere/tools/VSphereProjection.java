@@ -0,0 +1,120 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import com.vmware.vim25.DynamicProperty;
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.ObjectContent;
+import com.vmware.vim25.ObjectSpec;
+import com.vmware.vim25.PropertyFilterSpec;
+import com.vmware.vim25.PropertySpec;
+import com.vmware.vim25.RetrieveOptions;
+import com.vmware.vim25.RetrieveResult;
+import com.vmware.vim25.SelectionSpec;
+import com.vmware.vim25.TraversalSpec;
+import com.vmware.vim25.mo.PropertyCollector;
+import com.vmware.vim25.mo.util.PropertyCollectorUtil;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.rmi.RemoteException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads selected properties of one inventory object, e.g. {@code config.template} or
+ * {@code runtime.powerState}, with a single {@code RetrievePropertiesEx} call. Getters like
+ * {@code VirtualMachine.getConfig()} instead fetch the whole data object the property is
+ * part of - for a VM's config, every device, extra config entry and file layout - just so
+ * that one field of it can be read.
+ *
+ * <p>It also builds the property filters used to read many objects at once, through a
+ * {@code ContainerView}.</p>
+ *
+ * @see VSphere#fetch
+ */
+final class VSphereProjection {
+
+    private VSphereProjection() {
+    }
+
+    /**
+     * @return the value of each of {@code propertyPaths} that is set on the object at
+     *         {@code mor}, by property path; unset properties are left out.
+     */
+    @NonNull
+    static Map<String, Object> fetch(@NonNull PropertyCollector propertyCollector, @NonNull ManagedObjectReference mor,
+                                     @NonNull String... propertyPaths) throws RemoteException {
+        final RetrieveResult result = propertyCollector.retrievePropertiesEx(
+                new PropertyFilterSpec[]{createFilterSpec(mor, propertyPaths)}, new RetrieveOptions());
+        return toMap(result);
+    }
+
+    /** @return a filter that selects just {@code propertyPaths} of just the object at {@code mor}. */
+    @NonNull
+    static PropertyFilterSpec createFilterSpec(@NonNull ManagedObjectReference mor, @NonNull String... propertyPaths) {
+        final ObjectSpec objectSpec = new ObjectSpec();
+        objectSpec.setObj(mor);
+        objectSpec.setSkip(false);
+
+        final PropertyFilterSpec filterSpec = new PropertyFilterSpec();
+        filterSpec.setObjectSet(new ObjectSpec[]{objectSpec});
+        filterSpec.setPropSet(new PropertySpec[]{createPropertySpec(mor.getType(), propertyPaths)});
+        return filterSpec;
+    }
+
+    /**
+     * @return a filter that selects the properties given by {@code propertySpecs} of every
+     *         object in the {@code ContainerView} at {@code view}, but not of the view itself.
+     */
+    @NonNull
+    static PropertyFilterSpec createViewFilterSpec(@NonNull ManagedObjectReference view, @NonNull PropertySpec... propertySpecs) {
+        final TraversalSpec viewToObjects = new TraversalSpec();
+        viewToObjects.setName("traverseView");
+        viewToObjects.setType("ContainerView");
+        viewToObjects.setPath("view");
+        viewToObjects.setSkip(false);
+
+        final ObjectSpec objectSpec = new ObjectSpec();
+        objectSpec.setObj(view);
+        objectSpec.setSkip(true);
+        objectSpec.setSelectSet(new SelectionSpec[]{viewToObjects});
+
+        final PropertyFilterSpec filterSpec = new PropertyFilterSpec();
+        filterSpec.setObjectSet(new ObjectSpec[]{objectSpec});
+        filterSpec.setPropSet(propertySpecs);
+        return filterSpec;
+    }
+
+    /** @return a spec that selects just {@code propertyPaths} of objects of {@code type}. */
+    @NonNull
+    static PropertySpec createPropertySpec(@NonNull String type, @NonNull String... propertyPaths) {
+        final PropertySpec propertySpec = new PropertySpec();
+        propertySpec.setType(type);
+        propertySpec.setAll(false);
+        propertySpec.setPathSet(propertyPaths);
+        return propertySpec;
+    }
+
+    /**
+     * @return the properties in {@code result}, by property path, with array properties
+     *         (which arrive wrapped, e.g. as {@code ArrayOfVirtualDevice}) unwrapped.
+     */
+    @NonNull
+    static Map<String, Object> toMap(@CheckForNull RetrieveResult result) {
+        final Map<String, Object> values = new HashMap<>();
+        final ObjectContent[] objects = result == null ? null : result.getObjects();
+        if (objects == null) {
+            return values;
+        }
+        for (ObjectContent object : objects) {
+            final DynamicProperty[] properties = object.getPropSet();
+            if (properties == null) {
+                continue;
+            }
+            for (DynamicProperty property : properties) {
+                final Object value = property.getVal();
+                values.put(property.getName(), value == null ? null : PropertyCollectorUtil.convertProperty(value));
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,202 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.VirtualMachineSnapshotInfo;
+import com.vmware.vim25.VirtualMachineSnapshotTree;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import jenkins.util.SystemProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Knows the snapshots of each VM: which snapshot each name refers to, which one is current
+ * and how deep in the tree each one is. Without it, finding a snapshot by name means
+ * downloading the VM's whole snapshot tree and walking it, every time an agent is reverted
+ * or a clone is made from a named snapshot.
+ *
+ * <p>There is one index per vCenter and user, shared by every {@link VSphere} connected to
+ * it. A VM's snapshots are remembered together with the snapshot version its
+ * {@link VSphereInventoryMirror} reported when they were read, which changes whenever the
+ * VM's {@code snapshot} property does - i.e. when a snapshot is taken, reverted to, renamed
+ * or removed, by this plugin or anyone else - and an entry is only used while the mirror
+ * still reports that version. Without a mirror in sync there is no version that can be
+ * checked for less than reading the tree itself, so the tree is read every time.
+ * Snapshots renamed or removed through this plugin are also forgotten straight away.</p>
+ *
+ * <p>Setting the {@code org.jenkinsci.plugins.vsphere.tools.VSphereSnapshotIndex.enabled}
+ * system property to {@code false} turns the index off.</p>
+ */
+public final class VSphereSnapshotIndex {
+
+    /** System property that turns the index off when set to {@code false}. */
+    static final String ENABLED_PROPERTY = VSphereSnapshotIndex.class.getName() + ".enabled";
+
+    private final String vCenter;
+    private final Map<String, Snapshots> vms = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+
+    VSphereSnapshotIndex(@NonNull String vCenter) {
+        this.vCenter = vCenter;
+    }
+
+    /**
+     * @return the index shared by every connection to {@code url} as {@code user}; see
+     *         {@link VSphereVCenterCaches} for how long it is kept.
+     */
+    @NonNull
+    static VSphereSnapshotIndex forVCenter(@NonNull String url, @CheckForNull String user) {
+        return VSphereVCenterCaches.forVCenter(url, user).snapshotIndex;
+    }
+
+    /** @return {@code false} if the index has been turned off. */
+    static boolean isEnabled() {
+        return SystemProperties.getBoolean(ENABLED_PROPERTY, true);
+    }
+
+    /**
+     * @param version the VM's current snapshot version, as reported by the inventory mirror.
+     * @return the snapshots of the VM with managed object id {@code vm}, if they are known at
+     *         that version; null if they need to be read.
+     */
+    @CheckForNull
+    Snapshots get(@NonNull String vm, @NonNull String version) {
+        final Snapshots snapshots = vms.get(vm);
+        if (snapshots == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (!version.equals(snapshots.version)) {
+            // taken, reverted to, renamed or removed since they were read
+            vms.remove(vm, snapshots);
+            staleHits.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return snapshots;
+    }
+
+    /** Records the snapshots just read from the VM with managed object id {@code vm}. */
+    void put(@NonNull String vm, @NonNull Snapshots snapshots) {
+        if (isEnabled() && snapshots.version != null) {
+            vms.put(vm, snapshots);
+        }
+    }
+
+    /** Forgets the snapshots of the VM with managed object id {@code vm}, e.g. after one was renamed. */
+    void invalidate(@NonNull String vm) {
+        vms.remove(vm);
+    }
+
+    /** @return how many VMs' snapshots the index holds. */
+    public int size() {
+        return vms.size();
+    }
+
+    /** @return how many times a VM's snapshots were known already. */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /** @return how many times a VM's snapshots had to be read because they were not known. */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /** @return how many times a VM's snapshots had changed, and so had to be read again. */
+    public long getStaleHits() {
+        return staleHits.get();
+    }
+
+    @Override
+    public String toString() {
+        return "snapshot index of " + vCenter + " (" + size() + " VMs, " + getHits() + " hits, "
+                + getMisses() + " misses, " + getStaleHits() + " stale)";
+    }
+
+    /** The snapshots of one VM, as read at one snapshot version. Immutable. */
+    static final class Snapshots {
+        @CheckForNull
+        private final String version;
+        private final Map<String, ManagedObjectReference> byName;
+        private final Map<String, Integer> depthsByName;
+        private final Map<String, Integer> depthsById;
+        @CheckForNull
+        private final ManagedObjectReference current;
+
+        private Snapshots(String version, Map<String, ManagedObjectReference> byName, Map<String, Integer> depthsByName,
+                          Map<String, Integer> depthsById, ManagedObjectReference current) {
+            this.version = version;
+            this.byName = byName;
+            this.depthsByName = depthsByName;
+            this.depthsById = depthsById;
+            this.current = current;
+        }
+
+        /**
+         * @param version the VM's snapshot version that {@code info} was read at; null if
+         *                there is none, in which case the snapshots are not indexed.
+         * @param info the VM's {@code snapshot} property; null if it has no snapshots.
+         */
+        @NonNull
+        static Snapshots of(@CheckForNull String version, @CheckForNull VirtualMachineSnapshotInfo info) {
+            final Map<String, ManagedObjectReference> byName = new HashMap<>();
+            final Map<String, Integer> depthsByName = new HashMap<>();
+            final Map<String, Integer> depthsById = new HashMap<>();
+            if (info != null && info.getRootSnapshotList() != null) {
+                addAll(info.getRootSnapshotList(), 1, byName, depthsByName, depthsById);
+            }
+            return new Snapshots(version, byName, depthsByName, depthsById, info == null ? null : info.getCurrentSnapshot());
+        }
+
+        // Depth first, so that where names are repeated the one found is the same as before.
+        private static void addAll(VirtualMachineSnapshotTree[] nodes, int depth,
+                                   Map<String, ManagedObjectReference> byName,
+                                   Map<String, Integer> depthsByName, Map<String, Integer> depthsById) {
+            for (VirtualMachineSnapshotTree node : nodes) {
+                if (byName.putIfAbsent(node.getName(), node.getSnapshot()) == null) {
+                    depthsByName.put(node.getName(), depth);
+                }
+                depthsById.put(node.getSnapshot().getVal(), depth);
+                if (node.getChildSnapshotList() != null) {
+                    addAll(node.getChildSnapshotList(), depth + 1, byName, depthsByName, depthsById);
+                }
+            }
+        }
+
+        /** @return the snapshot called {@code name}, or null if there is none. */
+        @CheckForNull
+        ManagedObjectReference get(@NonNull String name) {
+            return byName.get(name);
+        }
+
+        /** @return the current snapshot, or null if the VM has no snapshots. */
+        @CheckForNull
+        ManagedObjectReference getCurrent() {
+            return current;
+        }
+
+        /**
+         * @return how many snapshots there are from the root of the tree down to the one called
+         *         {@code name}, inclusive; 0 if there is no such snapshot.
+         */
+        int getDepth(@NonNull String name) {
+            final Integer depth = depthsByName.get(name);
+            return depth == null ? 0 : depth;
+        }
+
+        /**
+         * @return the length of the chain of snapshots the VM is running on, i.e. the depth of
+         *         the current snapshot; 0 if the VM has no snapshots.
+         */
+        int getCurrentDepth() {
+            final Integer depth = current == null ? null : depthsById.get(current.getVal());
+            return depth == null ? 0 : depth;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import com.vmware.vim25.ManagedObjectReference;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import jenkins.util.SystemProperties;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers what cloning needs to know about each source VM or template, so that repeated
+ * clones of the same {@code masterImageName} do not look it up, read its template flag,
+ * walk its snapshot tree and read its folder all over again every time.
+ *
+ * <p>There is one cache per vCenter and user, shared by every {@link VSphere} connected to
+ * it. An entry is checked before each use with a single read of the source's name, folder,
+ * {@code config.changeVersion} and current snapshot: if any of those differ from what was
+ * cached (the VM was reconfigured, converted, moved, renamed or snapshotted, or no longer
+ * exists), the entry is dropped and the source is resolved again; so is every entry for a
+ * source that a clone failed from, in case the failure is down to a change the check
+ * missed. Snapshots are not remembered here, as renaming or removing one changes none of
+ * those; a named snapshot is found through the {@link VSphereSnapshotIndex} instead.</p>
+ *
+ * <p>Setting the {@code org.jenkinsci.plugins.vsphere.tools.VSphereSourceCache.enabled}
+ * system property to {@code false} turns the cache off.</p>
+ */
+public final class VSphereSourceCache {
+
+    /** System property that turns the cache off when set to {@code false}. */
+    static final String ENABLED_PROPERTY = VSphereSourceCache.class.getName() + ".enabled";
+
+    /** A cache that has grown this large is emptied rather than grown further. */
+    private static final int MAX_ENTRIES = 10_000;
+
+    private final String vCenter;
+    private final Map<Key, Source> sources = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+
+    VSphereSourceCache(@NonNull String vCenter) {
+        this.vCenter = vCenter;
+    }
+
+    /**
+     * @return the cache shared by every connection to {@code url} as {@code user}; see
+     *         {@link VSphereVCenterCaches} for how long it is kept.
+     */
+    @NonNull
+    static VSphereSourceCache forVCenter(@NonNull String url, @CheckForNull String user) {
+        return VSphereVCenterCaches.forVCenter(url, user).sourceCache;
+    }
+
+    /** @return {@code false} if the cache has been turned off. */
+    static boolean isEnabled() {
+        return SystemProperties.getBoolean(ENABLED_PROPERTY, true);
+    }
+
+    /**
+     * @param scope the inventory roots the source was searched for below, if any.
+     * @return what was cached about the source called {@code name}, which has yet to be
+     *         checked against the VM itself; or null if nothing is.
+     */
+    @CheckForNull
+    Source get(@NonNull String scope, @NonNull String name) {
+        final Source source = sources.get(new Key(scope, name));
+        (source == null ? misses : hits).incrementAndGet();
+        return source;
+    }
+
+    /** Records what was found out about the source called {@code name}. */
+    void put(@NonNull String scope, @NonNull String name, @NonNull Source source) {
+        if (!isEnabled()) {
+            return;
+        }
+        if (sources.size() >= MAX_ENTRIES) {
+            sources.clear();
+        }
+        sources.put(new Key(scope, name), source);
+    }
+
+    /** Drops the entry for a source that turned out to have changed. */
+    void invalidate(@NonNull String scope, @NonNull String name) {
+        staleHits.incrementAndGet();
+        sources.remove(new Key(scope, name));
+    }
+
+    /** Drops every entry for {@code name}, e.g. because that VM or one of its snapshots was deleted or renamed. */
+    void invalidateName(@CheckForNull String name) {
+        sources.keySet().removeIf(key -> key.name.equals(name));
+    }
+
+    /** @return how many sources the cache currently knows. */
+    public int size() {
+        return sources.size();
+    }
+
+    /** @return how many clones found their source in the cache. */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /** @return how many clones had to resolve their source. */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /** @return how many cached sources turned out to have changed, and so had to be resolved again. */
+    public long getStaleHits() {
+        return staleHits.get();
+    }
+
+    @Override
+    public String toString() {
+        return "source cache of " + vCenter + " (" + size() + " sources, " + getHits() + " hits, "
+                + getMisses() + " misses, " + getStaleHits() + " stale)";
+    }
+
+    /** What cloning needs to know about one source VM or template. */
+    static final class Source {
+        final ManagedObjectReference vm;
+        /** The folder the source is in, which is where clones go unless told otherwise. */
+        @CheckForNull
+        final ManagedObjectReference parent;
+        @CheckForNull
+        final String changeVersion;
+        @CheckForNull
+        final ManagedObjectReference currentSnapshot;
+        final boolean template;
+
+        Source(@NonNull ManagedObjectReference vm, @CheckForNull ManagedObjectReference parent,
+               @CheckForNull String changeVersion, @CheckForNull ManagedObjectReference currentSnapshot,
+               boolean template) {
+            this.vm = vm;
+            this.parent = parent;
+            this.changeVersion = changeVersion;
+            this.currentSnapshot = currentSnapshot;
+            this.template = template;
+        }
+
+        /**
+         * @return {@code true} if the source still has the folder, configuration and current
+         *         snapshot it had when cached, so that the rest of what was cached still holds.
+         */
+        boolean isCurrent(@CheckForNull ManagedObjectReference parent, @CheckForNull String changeVersion,
+                          @CheckForNull ManagedObjectReference currentSnapshot) {
+            return changeVersion != null
+                    && changeVersion.equals(this.changeVersion)
+                    && sameObject(parent, this.parent)
+                    && sameObject(currentSnapshot, this.currentSnapshot);
+        }
+
+        private static boolean sameObject(@CheckForNull ManagedObjectReference a, @CheckForNull ManagedObjectReference b) {
+            return a == null ? b == null : b != null && Objects.equals(a.getVal(), b.getVal());
+        }
+    }
+
+    private static final class Key {
+        private final String scope;
+        private final String name;
+
+        Key(String scope, String name) {
+            this.scope = scope;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return scope.equals(other.scope) && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(scope, name);
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.ObjectUpdate;
+import com.vmware.vim25.ObjectUpdateKind;
+import com.vmware.vim25.PropertyChange;
+import com.vmware.vim25.PropertyFilterUpdate;
+import com.vmware.vim25.TaskInfoState;
+import com.vmware.vim25.UpdateSet;
+import com.vmware.vim25.WaitOptions;
+import com.vmware.vim25.mo.PropertyCollector;
+import com.vmware.vim25.mo.PropertyFilter;
+import com.vmware.vim25.mo.Task;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import jenkins.util.SystemProperties;
+import org.jenkinsci.plugins.vsphere.VSphereConnectionConfig;
+
+import java.rmi.RemoteException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Waits for vCenter tasks to finish. {@code Task.waitForTask()} keeps a thread busy polling
+ * the task's state on a fixed interval, one thread per task; a watcher instead follows
+ * every outstanding task of its vCenter through a single {@code PropertyCollector}, one
+ * filter per task, and a single {@code WaitForUpdatesEx} long-poll tells it when any of
+ * them has finished.
+ *
+ * <p>Use {@link #waitForTask(Task)} in place of {@code Task.waitForTask()}, or
+ * {@link #whenFinished(Task)} to be told when the task has finished without holding a
+ * thread while it runs. Where no watcher is running for the task's vCenter (or the watcher
+ * cannot follow the task, e.g. because it lost its session) they fall back to
+ * {@code Task.waitForTask()}, which does hold a thread.</p>
+ *
+ * <p>There is one watcher per vCenter and user, started by the first
+ * {@link VSphereConnectionPool} that logs in to it and stopped when the last such pool is
+ * shut down or goes idle. It uses a session of its own, which is not counted against the
+ * pools' per-host session budget, so that it can never take the session a pool needs.
+ * Setting the {@code org.jenkinsci.plugins.vsphere.tools.VSphereTaskWatcher.enabled}
+ * system property to {@code false} turns watchers off.</p>
+ */
+public final class VSphereTaskWatcher {
+
+    private static final Logger LOGGER = Logger.getLogger(VSphereTaskWatcher.class.getName());
+
+    /** System property that turns watchers off when set to {@code false}. */
+    static final String ENABLED_PROPERTY = VSphereTaskWatcher.class.getName() + ".enabled";
+
+    static final String STATE = "info.state";
+
+    /** Longest a single {@code WaitForUpdatesEx} long-poll may wait for a change. */
+    private static final int MAX_WAIT_SECS = 60;
+
+    /** How long to wait before logging in again after the watcher lost its session. */
+    private static final int RETRY_SECS = 30;
+
+    /** Guarded by the class. */
+    private static final Map<String, VSphereTaskWatcher> WATCHERS = new HashMap<>();
+
+    /** The URL of the vCenter's SDK, as its tasks' connections know it. */
+    private final String url;
+    /** How the watcher logs in; only null for a watcher that is never logged in, e.g. in tests. */
+    private final VSphereConnectionConfig config;
+    /** Guarded by the class. */
+    private int holders;
+
+    /** The tasks being waited for, by managed object id. */
+    private final Map<String, Watch> watches = new ConcurrentHashMap<>();
+    private final AtomicLong finished = new AtomicLong();
+    private volatile boolean stopped;
+    @CheckForNull
+    private volatile PropertyCollector activeCollector;
+
+    VSphereTaskWatcher(@NonNull String url, VSphereConnectionConfig config) {
+        this.url = url;
+        this.config = config;
+    }
+
+    /** @return {@code false} if watchers have been turned off. */
+    static boolean isEnabled() {
+        return SystemProperties.getBoolean(ENABLED_PROPERTY, true);
+    }
+
+    /**
+     * @return the watcher of the vCenter and user {@code config} connects to, started if
+     *         nobody holds it yet. Must be {@link #release() released} when no longer needed.
+     */
+    @NonNull
+    static synchronized VSphereTaskWatcher acquire(@NonNull VSphereConnectionConfig config) {
+        final String url = config.getVsHost() + "/sdk";
+        final String key = url + " as " + config.getUsername();
+        VSphereTaskWatcher watcher = WATCHERS.get(key);
+        if (watcher == null) {
+            watcher = new VSphereTaskWatcher(url, config);
+            WATCHERS.put(key, watcher);
+            VSphereExecutors.startDaemon("vsphere-task-watcher " + key, watcher::run);
+        }
+        watcher.holders++;
+        return watcher;
+    }
+
+    /** Gives up a hold obtained from {@link #acquire}; the last one stops the watcher. */
+    void release() {
+        synchronized (VSphereTaskWatcher.class) {
+            if (--holders > 0) {
+                return;
+            }
+            WATCHERS.values().remove(this);
+        }
+        stopped = true;
+        final PropertyCollector collector = activeCollector;
+        if (collector != null) {
+            // ends the long-poll now, rather than when it next times out
+            VSphereExecutors.runMaintenance(() -> {
+                try {
+                    collector.cancelWaitForUpdates();
+                } catch (Exception e) {
+                    LOGGER.log(Level.FINE, "Could not cancel the task long-poll on " + url, e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Waits for {@code task} to finish, through the watcher of its vCenter if one is running.
+     *
+     * @return the state the task finished in, i.e. {@link Task#SUCCESS} or {@link Task#ERROR}.
+     * @throws RemoteException if the task's state cannot be read.
+     * @throws InterruptedException if the calling thread is interrupted while waiting.
+     */
+    @NonNull
+    public static String waitForTask(@NonNull Task task) throws RemoteException, InterruptedException {
+        return waitForTask(find(String.valueOf(task.getServerConnection().getUrl())), task.getMOR(), task::waitForTask);
+    }
+
+    /**
+     * @param watcher the watcher of the task's vCenter, if one is running.
+     * @param poll polls the task instead, should the watcher not follow it.
+     */
+    @NonNull
+    static String waitForTask(@CheckForNull VSphereTaskWatcher watcher, @NonNull ManagedObjectReference task,
+                              @NonNull Poll poll) throws RemoteException, InterruptedException {
+        final CompletableFuture<String> finished = watcher == null ? null : watcher.watch(task);
+        if (finished != null) {
+            try {
+                // however long the task takes: should the watcher lose its session or be
+                // stopped, abandonAll() fails the watch and the task is polled instead
+                return finished.get();
+            } catch (ExecutionException e) {
+                LOGGER.log(Level.FINE, "Could not watch " + task.getVal() + "; polling it instead", e.getCause());
+            }
+        }
+        return poll.poll();
+    }
+
+    /**
+     * Tells when {@code task} has finished. While the watcher of its vCenter follows it, no
+     * thread is held; otherwise the task is polled by {@code Task.waitForTask()} on a thread
+     * of its own (see {@link VSphereExecutors#supplyWaiting}).
+     *
+     * @return a future completed with the state the task finished in, i.e.
+     *         {@link Task#SUCCESS} or {@link Task#ERROR}, or exceptionally if its state cannot
+     *         be read.
+     */
+    @NonNull
+    public static CompletableFuture<String> whenFinished(@NonNull Task task) {
+        return whenFinished(find(String.valueOf(task.getServerConnection().getUrl())), task.getMOR(), task::waitForTask);
+    }
+
+    /**
+     * @param watcher the watcher of the task's vCenter, if one is running.
+     * @param poll polls the task instead, should the watcher not follow it.
+     */
+    @NonNull
+    static CompletableFuture<String> whenFinished(@CheckForNull VSphereTaskWatcher watcher,
+                                                  @NonNull ManagedObjectReference task, @NonNull Poll poll) {
+        final CompletableFuture<String> finished = watcher == null ? null : watcher.watch(task);
+        if (finished == null) {
+            return VSphereExecutors.supplyWaiting(poll::poll);
+        }
+        return finished.exceptionallyCompose(e -> {
+            LOGGER.log(Level.FINE, "Could not watch " + task.getVal() + "; polling it instead", e);
+            return VSphereExecutors.supplyWaiting(poll::poll);
+        });
+    }
+
+    @CheckForNull
+    private static synchronized VSphereTaskWatcher find(@NonNull String url) {
+        for (VSphereTaskWatcher watcher : WATCHERS.values()) {
+            if (watcher.url.equals(url) && watcher.activeCollector != null) {
+                return watcher;
+            }
+        }
+        return null;
+    }
+
+    /** @return {@code true} if the watcher is logged in and following tasks. */
+    public boolean isWatching() {
+        return activeCollector != null;
+    }
+
+    /** @return how many tasks are being waited for. */
+    public int size() {
+        return watches.size();
+    }
+
+    /** @return how many tasks the watcher has seen finish. */
+    public long getFinishedCount() {
+        return finished.get();
+    }
+
+    @Override
+    public String toString() {
+        return "task watcher of " + url + " (" + (isWatching() ? "watching " + size() + " tasks" : "not watching")
+                + ", " + getFinishedCount() + " finished)";
+    }
+
+    /**
+     * @return a future completed with the state {@code task} finishes in, or completed
+     *         exceptionally if the watcher cannot follow it; null if the watcher is not
+     *         logged in.
+     */
+    @CheckForNull
+    CompletableFuture<String> watch(@NonNull ManagedObjectReference task) {
+        final PropertyCollector collector = activeCollector;
+        if (collector == null) {
+            return null;
+        }
+        final Watch watch = watches.computeIfAbsent(task.getVal(), id -> new Watch());
+        synchronized (watch) {
+            if (watch.filter == null && !watch.finished.isDone()) {
+                try {
+                    watch.filter = collector.createFilter(VSphereProjection.createFilterSpec(task, STATE), true);
+                } catch (Exception e) {
+                    watches.remove(task.getVal(), watch);
+                    watch.finished.completeExceptionally(e);
+                }
+            }
+        }
+        if (activeCollector != collector) {
+            // the session was lost meanwhile, possibly after abandonAll() had already run,
+            // so nobody else would complete this watch
+            if (watches.remove(task.getVal(), watch)) {
+                watch.finished.completeExceptionally(new VSphereException("Task watcher of " + url + " lost its session"));
+            }
+        }
+        return watch.finished;
+    }
+
+    // Long-polls the vCenter until released, logging in again whenever the session is lost.
+    private void run() {
+        while (!stopped) {
+            try {
+                watchUntilStopped();
+            } catch (Exception e) {
+                if (stopped) {
+                    break;
+                }
+                LOGGER.log(Level.WARNING, "Task watcher of " + url + " lost its session; trying again in "
+                        + RETRY_SECS + "s", e);
+            }
+            if (!stopped) {
+                try {
+                    TimeUnit.SECONDS.sleep(RETRY_SECS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        LOGGER.fine("Task watcher of " + url + " stopped");
+    }
+
+    private void watchUntilStopped() throws Exception {
+        final VSphere connection = VSphere.connect(config);
+        try {
+            follow(connection.getServiceInstance().getPropertyCollector().createPropertyCollector());
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Follows the watched tasks through {@code collector} until stopped or the long-poll
+     * fails, then lets whoever still waits fall back to polling their task.
+     */
+    void follow(@NonNull PropertyCollector collector) throws Exception {
+        try {
+            activeCollector = collector;
+            longPoll(collector);
+        } finally {
+            activeCollector = null;
+            abandonAll();
+            try {
+                collector.destroyPropertyCollector();
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Could not clean up the task collector on " + url, e);
+            }
+        }
+    }
+
+    private void longPoll(PropertyCollector collector) throws Exception {
+        final WaitOptions options = new WaitOptions();
+        options.setMaxWaitSeconds(getMaxWaitSecs());
+        String version = "";
+        while (!stopped) {
+            final UpdateSet updateSet = collector.waitForUpdatesEx(version, options);
+            if (updateSet == null) {
+                continue; // nothing changed while we waited
+            }
+            apply(updateSet);
+            version = updateSet.getVersion();
+        }
+    }
+
+    // The long-poll has to return before the connection's read timeout gives up on it.
+    private int getMaxWaitSecs() {
+        final int readTimeoutSecs = config == null ? 0 : config.getReadTimeoutSecs();
+        return readTimeoutSecs > 0 ? Math.max(1, Math.min(MAX_WAIT_SECS, readTimeoutSecs / 2)) : MAX_WAIT_SECS;
+    }
+
+    /** Completes the watches of the tasks a change set from the vCenter reports as finished. */
+    void apply(@NonNull UpdateSet updateSet) {
+        final PropertyFilterUpdate[] filterUpdates = updateSet.getFilterSet();
+        if (filterUpdates == null) {
+            return;
+        }
+        for (PropertyFilterUpdate filterUpdate : filterUpdates) {
+            final ObjectUpdate[] objectUpdates = filterUpdate.getObjectSet();
+            if (objectUpdates == null) {
+                continue;
+            }
+            for (ObjectUpdate objectUpdate : objectUpdates) {
+                final String id = objectUpdate.getObj().getVal();
+                if (objectUpdate.getKind() == ObjectUpdateKind.leave) {
+                    finish(id, null);
+                    continue;
+                }
+                final PropertyChange[] changes = objectUpdate.getChangeSet();
+                if (changes == null) {
+                    continue;
+                }
+                for (PropertyChange change : changes) {
+                    if (STATE.equals(change.getName()) && isFinished(change.getVal())) {
+                        finish(id, change.getVal().toString());
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isFinished(@CheckForNull Object state) {
+        return state == TaskInfoState.success || state == TaskInfoState.error;
+    }
+
+    // Completes the watch of a task with the state it finished in, or exceptionally if it has gone.
+    private void finish(String id, @CheckForNull String state) {
+        final Watch watch = watches.remove(id);
+        if (watch == null) {
+            return;
+        }
+        finished.incrementAndGet();
+        if (state != null) {
+            watch.finished.complete(state);
+        } else {
+            watch.finished.completeExceptionally(new VSphereNotFoundException("Task", id));
+        }
+        destroyQuietly(watch);
+    }
+
+    // Whoever still waits falls back to polling their task.
+    private void abandonAll() {
+        for (String id : watches.keySet()) {
+            final Watch watch = watches.remove(id);
+            if (watch != null) {
+                watch.finished.completeExceptionally(new VSphereException("Task watcher of " + url + " stopped"));
+            }
+        }
+    }
+
+    private void destroyQuietly(Watch watch) {
+        final PropertyFilter filter;
+        synchronized (watch) {
+            filter = watch.filter;
+        }
+        if (filter == null) {
+            return;
+        }
+        try {
+            filter.destroyPropertyFilter();
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Could not destroy a task filter on " + url, e);
+        }
+    }
+
+    /** Reads a task's state until it has finished, as {@code Task.waitForTask()} does. */
+    @FunctionalInterface
+    interface Poll {
+        @NonNull
+        String poll() throws RemoteException, InterruptedException;
+    }
+
+    /** One task being waited for. */
+    private static final class Watch {
+        private final CompletableFuture<String> finished = new CompletableFuture<>();
+        /** Guarded by this watch; null until the filter has been created. */
+        @CheckForNull
+        private PropertyFilter filter;
+    }
+}
@@ -0,0 +1,122 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import jenkins.util.SystemProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The caches kept for one vCenter and user - its {@link VSphereInventoryIndex},
+ * {@link VSphereSourceCache}, {@link VSphereCustomizationSpecCache},
+ * {@link VSphereNetworkIndex} and {@link VSphereSnapshotIndex} - shared by every
+ * {@link VSphere} connected to it, including all the sessions of a
+ * {@link VSphereConnectionPool} and those of its inventory mirror and task watcher.
+ *
+ * <p>Each {@link VSphere} holds the caches of its vCenter from login until it logs out.
+ * Once nothing holds them, they are kept for another 300 seconds (or as set by the
+ * {@code org.jenkinsci.plugins.vsphere.tools.VSphereVCenterCaches.retainSecs} system
+ * property), so that clouds which connect afresh for each operation still find them, and
+ * are then dropped - so a vCenter (or user) that is no longer configured, or a pool that has
+ * gone idle or been shut down, does not keep what was cached for it for the life of
+ * Jenkins.</p>
+ */
+final class VSphereVCenterCaches {
+
+    private static final Logger LOGGER = Logger.getLogger(VSphereVCenterCaches.class.getName());
+
+    /** System property overriding how long unheld caches are kept for; 0 drops them straight away. */
+    static final String RETAIN_SECS_PROPERTY = VSphereVCenterCaches.class.getName() + ".retainSecs";
+
+    static final int DEFAULT_RETAIN_SECS = 300;
+
+    /* Guarded by VSphereVCenterCaches.class. */
+    private static final Map<String, VSphereVCenterCaches> CACHES = new HashMap<>();
+
+    final VSphereInventoryIndex inventoryIndex;
+    final VSphereSourceCache sourceCache;
+    final VSphereCustomizationSpecCache customizationSpecCache;
+    final VSphereNetworkIndex networkIndex;
+    final VSphereSnapshotIndex snapshotIndex;
+
+    private final String vCenter;
+
+    /* Guarded by VSphereVCenterCaches.class. */
+    private int holders;
+    /* Guarded by VSphereVCenterCaches.class. */
+    @CheckForNull
+    private ScheduledFuture<?> dropFuture;
+
+    private VSphereVCenterCaches(@NonNull String vCenter) {
+        this.vCenter = vCenter;
+        this.inventoryIndex = new VSphereInventoryIndex(vCenter);
+        this.sourceCache = new VSphereSourceCache(vCenter);
+        this.customizationSpecCache = new VSphereCustomizationSpecCache(vCenter);
+        this.networkIndex = new VSphereNetworkIndex(vCenter);
+        this.snapshotIndex = new VSphereSnapshotIndex(vCenter);
+    }
+
+    /** @return the caches shared by every connection to {@code url} as {@code user}, without holding them. */
+    @NonNull
+    static synchronized VSphereVCenterCaches forVCenter(@NonNull String url, @CheckForNull String user) {
+        return CACHES.computeIfAbsent(url + " as " + user, VSphereVCenterCaches::new);
+    }
+
+    /**
+     * @return the caches of {@code url} as {@code user}, which are kept at least until they
+     *         are {@link #release() released}.
+     */
+    @NonNull
+    static synchronized VSphereVCenterCaches acquire(@NonNull String url, @CheckForNull String user) {
+        final VSphereVCenterCaches caches = forVCenter(url, user);
+        caches.holders++;
+        if (caches.dropFuture != null) {
+            caches.dropFuture.cancel(false);
+            caches.dropFuture = null;
+        }
+        return caches;
+    }
+
+    /** @return how many vCenter and user combinations currently have caches. */
+    static synchronized int getCount() {
+        return CACHES.size();
+    }
+
+    /** @return how long unheld caches are kept for, in seconds. */
+    static int getRetainSecs() {
+        return Math.max(0, SystemProperties.getInteger(RETAIN_SECS_PROPERTY, DEFAULT_RETAIN_SECS));
+    }
+
+    /** Gives up a hold obtained from {@link #acquire}; once none are left, the caches are dropped after a while. */
+    void release() {
+        synchronized (VSphereVCenterCaches.class) {
+            if (--holders > 0) {
+                return;
+            }
+            final int retainSecs = getRetainSecs();
+            if (retainSecs > 0) {
+                dropFuture = VSphereExecutors.schedule(this::dropIfUnheld, retainSecs, TimeUnit.SECONDS);
+                if (dropFuture != null) {
+                    return;
+                }
+            }
+        }
+        dropIfUnheld();
+    }
+
+    /** Drops these caches unless something has taken them up again. Visible for testing. */
+    void dropIfUnheld() {
+        synchronized (VSphereVCenterCaches.class) {
+            dropFuture = null;
+            if (holders > 0 || !CACHES.remove(vCenter, this)) {
+                return;
+            }
+        }
+        LOGGER.log(Level.FINE, "Dropped the caches of {0}, which no connection has used for a while", vCenter);
+    }
+}
@@ -21,4 +21,14 @@ f.entry(title:_("Credentials"), field:"credentialsId") {
     }""" /* workaround for JENKINS-19124 */)
 }
 
-f.validateButton(title:_("Test Connection"), progress:_("Testing..."), method:"testConnection", with:"vsHost,allowUntrustedCertificate,credentialsId")
+f.advanced {
+    f.entry(title:_("Connect timeout in seconds"), field:"connectTimeoutSecs") {
+        f.textbox(clazz:"number", default:0)
+    }
+
+    f.entry(title:_("Read timeout in seconds"), field:"readTimeoutSecs") {
+        f.textbox(clazz:"number", default:0)
+    }
+}
+
+f.validateButton(title:_("Test Connection"), progress:_("Testing..."), method:"testConnection", with:"vsHost,allowUntrustedCertificate,credentialsId,connectTimeoutSecs,readTimeoutSecs")
@@ -66,6 +66,16 @@ class ConfigurationAsCodeTest {
         assertThat(cloud.getSessionMaxAgeSecs(), is(0));
         assertThat(cloud.getSessionMaxUses(), is(0));
         assertThat(cloud.getPoolIdleTimeoutSecs(), is(0));
+        assertThat(cloud.getSessionRotationLeadSecs(), is(0));
+        assertThat(cloud.getPoolMinSessions(), is(0));
+        assertThat(cloud.getPoolMaxSessions(), is(0));
+        assertThat(cloud.getReadCallsPerSec(), is(0));
+        assertThat(cloud.getTaskCallsPerSec(), is(0));
+        assertThat(cloud.getMaxConcurrentReadCalls(), is(0));
+        assertThat(cloud.getMaxConcurrentTaskCalls(), is(0));
+        assertThat(cloud.getCircuitBreakerFailureThreshold(), is(0));
+        assertThat(cloud.getCircuitBreakerOpenSecs(), is(0));
+        assertThat(cloud.getInventoryRoots(), is(nullValue()));
     }
 
     @Test
@@ -77,6 +87,18 @@ class ConfigurationAsCodeTest {
         assertThat(cloud.getSessionMaxAgeSecs(), is(3600));
         assertThat(cloud.getSessionMaxUses(), is(500));
         assertThat(cloud.getPoolIdleTimeoutSecs(), is(300));
+        assertThat(cloud.getSessionRotationLeadSecs(), is(60));
+        assertThat(cloud.getPoolMinSessions(), is(2));
+        assertThat(cloud.getPoolMaxSessions(), is(4));
+        assertThat(cloud.getVsConnectionConfig().getConnectTimeoutSecs(), is(10));
+        assertThat(cloud.getVsConnectionConfig().getReadTimeoutSecs(), is(120));
+        assertThat(cloud.getReadCallsPerSec(), is(20));
+        assertThat(cloud.getTaskCallsPerSec(), is(5));
+        assertThat(cloud.getMaxConcurrentReadCalls(), is(10));
+        assertThat(cloud.getMaxConcurrentTaskCalls(), is(8));
+        assertThat(cloud.getCircuitBreakerFailureThreshold(), is(3));
+        assertThat(cloud.getCircuitBreakerOpenSecs(), is(120));
+        assertThat(cloud.getInventoryRoots(), is("DC1/vm/Jenkins, DC1/host/Build Cluster"));
     }
 
     @Test
@@ -0,0 +1,109 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Unit tests for {@link VSphereCallLimiter}. No live vSphere connection is required.
+ */
+class VSphereCallLimiterTest {
+
+    @Test
+    void limiter_without_limits_is_unlimited_and_only_counts_calls() throws Exception {
+        VSphereCallLimiter limiter = new VSphereCallLimiter(0, 0, 0, 0);
+        assertThat(limiter.isUnlimited(), is(true));
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire(VSphereCallLimiter.Kind.READ).close();
+        }
+        assertThat(limiter.getCalls(VSphereCallLimiter.Kind.READ), is(100L));
+        assertThat(limiter.getThrottledCalls(VSphereCallLimiter.Kind.READ), is(0L));
+    }
+
+    @Test
+    void negative_limits_mean_unlimited() {
+        assertThat(new VSphereCallLimiter(-1, -1, -1, -1).isUnlimited(), is(true));
+    }
+
+    @Test
+    void rate_limit_makes_calls_beyond_the_burst_wait() throws Exception {
+        VSphereCallLimiter limiter = new VSphereCallLimiter(0, 2, 0, 0);
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(VSphereCallLimiter.Kind.TASK).close();
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat("third call has to wait for a token at 2 calls/s", elapsedMs, greaterThanOrEqualTo(300L));
+        assertThat(limiter.getThrottledCalls(VSphereCallLimiter.Kind.TASK), is(1L));
+        assertThat(limiter.getMaxWaitMillis(VSphereCallLimiter.Kind.TASK), greaterThanOrEqualTo(300L));
+        assertThat("read budget is separate", limiter.getCalls(VSphereCallLimiter.Kind.READ), is(0L));
+    }
+
+    @Test
+    void concurrency_cap_queues_calls_until_a_permit_is_returned() throws Exception {
+        VSphereCallLimiter limiter = new VSphereCallLimiter(0, 0, 0, 1);
+        VSphereCallLimiter.Permit first = limiter.acquire(VSphereCallLimiter.Kind.TASK);
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread second = new Thread(() -> {
+            try (VSphereCallLimiter.Permit permit = limiter.acquire(VSphereCallLimiter.Kind.TASK)) {
+                acquired.countDown();
+            } catch (VSphereException e) {
+                throw new AssertionError(e);
+            }
+        });
+        second.start();
+
+        assertThat(acquired.await(200, TimeUnit.MILLISECONDS), is(false));
+        assertThat(limiter.getQueuedCalls(VSphereCallLimiter.Kind.TASK), is(1));
+
+        first.close();
+        assertThat(acquired.await(5, TimeUnit.SECONDS), is(true));
+        second.join();
+        assertThat(limiter.getQueuedCalls(VSphereCallLimiter.Kind.TASK), is(0));
+    }
+
+    @Test
+    void long_polls_count_against_the_rate_but_take_no_concurrency_slot() throws Exception {
+        VSphereCallLimiter limiter = new VSphereCallLimiter(2, 0, 1, 0);
+        try (VSphereCallLimiter.Permit shortRead = limiter.acquire(VSphereCallLimiter.Kind.READ)) {
+            CountDownLatch polled = new CountDownLatch(1);
+            Thread longPoll = new Thread(() -> {
+                try {
+                    limiter.awaitRate(VSphereCallLimiter.Kind.READ);
+                    polled.countDown();
+                } catch (VSphereException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            longPoll.start();
+            assertThat("not held up by the short read's slot", polled.await(5, TimeUnit.SECONDS), is(true));
+            longPoll.join();
+        }
+        long start = System.nanoTime();
+        limiter.awaitRate(VSphereCallLimiter.Kind.READ);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat("third read has to wait for a token at 2 calls/s", elapsedMs, greaterThanOrEqualTo(300L));
+        assertThat(limiter.getCalls(VSphereCallLimiter.Kind.READ), is(3L));
+        assertThat(limiter.getThrottledCalls(VSphereCallLimiter.Kind.READ), is(1L));
+    }
+
+    @Test
+    void nested_call_of_the_same_kind_does_not_need_another_permit() throws Exception {
+        VSphereCallLimiter limiter = new VSphereCallLimiter(0, 0, 0, 1);
+        try (VSphereCallLimiter.Permit outer = limiter.acquire(VSphereCallLimiter.Kind.TASK)) {
+            try (VSphereCallLimiter.Permit inner = limiter.acquire(VSphereCallLimiter.Kind.TASK)) {
+                assertThat(limiter.getQueuedCalls(VSphereCallLimiter.Kind.TASK), is(0));
+            }
+        }
+        // the permit was given back: another call gets one straight away
+        limiter.acquire(VSphereCallLimiter.Kind.TASK).close();
+    }
+}
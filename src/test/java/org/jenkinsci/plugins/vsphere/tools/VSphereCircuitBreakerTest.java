@@ -0,0 +1,155 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.rmi.RemoteException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for {@link VSphereCircuitBreaker}. No live vSphere connection is required.
+ */
+class VSphereCircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void breaker_opens_after_the_threshold_of_consecutive_connectivity_failures() {
+        VSphereCircuitBreaker breaker = makeBreaker(3, 60);
+        breaker.recordFailure(unreachable());
+        breaker.recordFailure(unreachable());
+        assertThat(breaker.getState(), is(VSphereCircuitBreaker.State.CLOSED));
+
+        breaker.recordFailure(unreachable());
+        assertThat(breaker.getState(), is(VSphereCircuitBreaker.State.OPEN));
+        assertThat(breaker.isCallPermitted(), is(false));
+        assertThrows(VSphereException.class, breaker::checkCallPermitted);
+    }
+
+    @Test
+    void a_success_resets_the_failure_count() {
+        VSphereCircuitBreaker breaker = makeBreaker(2, 60);
+        breaker.recordFailure(unreachable());
+        breaker.recordSuccess();
+        breaker.recordFailure(unreachable());
+        assertThat(breaker.getState(), is(VSphereCircuitBreaker.State.CLOSED));
+        assertThat(breaker.getConsecutiveFailures(), is(1));
+    }
+
+    @Test
+    void errors_answered_by_the_vcenter_do_not_count() {
+        VSphereCircuitBreaker breaker = makeBreaker(1, 60);
+        breaker.recordFailure(new VSphereNotFoundException("VM", "missing"));
+        assertThat(breaker.getState(), is(VSphereCircuitBreaker.State.CLOSED));
+    }
+
+    @Test
+    void open_breaker_goes_half_open_after_the_open_time_and_the_next_outcome_decides() throws Exception {
+        VSphereCircuitBreaker breaker = makeBreaker(1, 30);
+        breaker.recordFailure(unreachable());
+        assertThat(breaker.getState(), is(VSphereCircuitBreaker.State.OPEN));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        assertThat(breaker.getState(), is(VSphereCircuitBreaker.State.HALF_OPEN));
+        breaker.checkCallPermitted();
+
+        breaker.recordFailure(unreachable());
+        assertThat("a failed trial re-opens the breaker", breaker.getState(), is(VSphereCircuitBreaker.State.OPEN));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        breaker.recordSuccess();
+        assertThat(breaker.getState(), is(VSphereCircuitBreaker.State.CLOSED));
+    }
+
+    @Test
+    void half_open_breaker_lets_a_single_trial_call_through() throws Exception {
+        VSphereCircuitBreaker breaker = makeBreaker(1, 30);
+        breaker.recordFailure(unreachable());
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        breaker.checkCallPermitted();
+        assertThat("the trial's own further calls go through", breaker.isCallPermitted(), is(true));
+        breaker.checkCallPermitted();
+        assertThat("other threads are refused", permittedOnAnotherThread(breaker), is(false));
+
+        breaker.recordSuccess();
+        assertThat(breaker.getState(), is(VSphereCircuitBreaker.State.CLOSED));
+        assertThat(permittedOnAnotherThread(breaker), is(true));
+    }
+
+    @Test
+    void handing_out_a_session_leaves_the_trial_to_the_first_call_made_on_it() throws Exception {
+        VSphereCircuitBreaker breaker = makeBreaker(1, 30);
+        breaker.recordFailure(unreachable());
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        breaker.checkSessionPermitted();
+        assertThat("a call on another thread becomes the trial", permittedOnAnotherThread(breaker), is(true));
+        assertThrows(VSphereException.class, breaker::checkSessionPermitted);
+        assertThrows(VSphereException.class, breaker::checkCallPermitted);
+
+        breaker.recordSuccess();
+        breaker.checkSessionPermitted();
+    }
+
+    @Test
+    void trial_call_that_never_finishes_is_given_up_on_after_the_open_time() throws Exception {
+        VSphereCircuitBreaker breaker = makeBreaker(1, 30);
+        breaker.recordFailure(unreachable());
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        breaker.checkCallPermitted();
+        assertThat(permittedOnAnotherThread(breaker), is(false));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        assertThat(permittedOnAnotherThread(breaker), is(true));
+    }
+
+    @Test
+    void open_time_of_zero_means_sixty_seconds() {
+        VSphereCircuitBreaker breaker = makeBreaker(1, 0);
+        breaker.recordFailure(unreachable());
+        now.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        assertThat(breaker.getState(), is(VSphereCircuitBreaker.State.OPEN));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(breaker.getState(), is(VSphereCircuitBreaker.State.HALF_OPEN));
+    }
+
+    @Test
+    void connectivity_failures_are_recognised_through_their_causes() {
+        assertThat(VSphereCircuitBreaker.isConnectivityFailure(unreachable()), is(true));
+        assertThat(VSphereCircuitBreaker.isConnectivityFailure(
+                new VSphereException(new RemoteException("timed out", new SocketTimeoutException()))), is(true));
+        assertThat(VSphereCircuitBreaker.isConnectivityFailure(new VSphereException("Could not delete VM")), is(false));
+    }
+
+    // Whether a call made on another thread than the test's would be let through.
+    private static boolean permittedOnAnotherThread(VSphereCircuitBreaker breaker) throws Exception {
+        AtomicBoolean permitted = new AtomicBoolean();
+        Thread other = new Thread(() -> {
+            try {
+                breaker.checkCallPermitted();
+                permitted.set(true);
+            } catch (VSphereException e) {
+                permitted.set(false);
+            }
+        });
+        other.start();
+        other.join(TimeUnit.SECONDS.toMillis(10));
+        return permitted.get();
+    }
+
+    private VSphereCircuitBreaker makeBreaker(int failureThreshold, int openSecs) {
+        return new VSphereCircuitBreaker("https://breaker-host", failureThreshold, openSecs, now::get);
+    }
+
+    private static VSphereException unreachable() {
+        return new VSphereException(new ConnectException("Connection refused"));
+    }
+}
@@ -1,5 +1,6 @@
 package org.jenkinsci.plugins.vsphere.tools;
 
+import hudson.model.Saveable;
 import io.jenkins.plugins.casc.misc.ConfiguredWithCode;
 import io.jenkins.plugins.casc.misc.JenkinsConfiguredWithCodeRule;
 import io.jenkins.plugins.casc.misc.junit.jupiter.WithJenkinsConfiguredWithCode;
@@ -53,6 +54,27 @@ class VSphereConnectionPoolOrphanReapingTest {
         assertThat(VSphereConnectionPoolRegistry.isTracked(pool), is(false));
     }
 
+    @Test
+    @ConfiguredWithCode("configuration-as-code.yml")
+    void pools_are_only_reaped_when_the_cloud_config_is_saved(JenkinsConfiguredWithCodeRule r) {
+        vSphereCloud owner = new vSphereCloud(makeConnectionConfig(), "orphan-owner", 0, 0, null);
+        r.jenkins.clouds.add(owner);
+        VSphereConnectionPool pool = new VSphereConnectionPool(makeConnectionConfig(), owner, 0, 0, 0, 0);
+        try {
+            r.jenkins.clouds.remove(owner);
+            VSphereConnectionPoolLifecycleListener.ReapOnSave listener = new VSphereConnectionPoolLifecycleListener.ReapOnSave();
+
+            // e.g. a build record or a job being saved
+            listener.onChange(Saveable.NOOP, null);
+            assertThat(VSphereConnectionPoolRegistry.isTracked(pool), is(true));
+
+            listener.onChange(r.jenkins, null);
+            assertThat(VSphereConnectionPoolRegistry.isTracked(pool), is(false));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
     private static org.jenkinsci.plugins.vsphere.VSphereConnectionConfig makeConnectionConfig() {
         return new org.jenkinsci.plugins.vsphere.VSphereConnectionConfig("https://test-host", false, null);
     }
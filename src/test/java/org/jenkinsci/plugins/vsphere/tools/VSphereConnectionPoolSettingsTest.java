@@ -32,6 +32,9 @@ class VSphereConnectionPoolSettingsTest {
         assertThat(cloud.getSessionMaxAgeSecs(), is(0));
         assertThat(cloud.getSessionMaxUses(), is(0));
         assertThat(cloud.getPoolIdleTimeoutSecs(), is(0));
+        assertThat(cloud.getPoolMinSessions(), is(0));
+        assertThat(cloud.getPoolMaxSessions(), is(0));
+        assertThat(cloud.getSessionRotationLeadSecs(), is(0));
     }
 
     // -----------------------------------------------------------------------
@@ -47,12 +50,18 @@ class VSphereConnectionPoolSettingsTest {
         cloud.setSessionMaxAgeSecs(3600);
         cloud.setSessionMaxUses(500);
         cloud.setPoolIdleTimeoutSecs(300);
+        cloud.setSessionRotationLeadSecs(60);
+        cloud.setPoolMinSessions(2);
+        cloud.setPoolMaxSessions(4);
 
         assertThat(cloud.isUseConnectionPool(), is(true));
         assertThat(cloud.getPoolHealthCheckIntervalSecs(), is(60));
         assertThat(cloud.getSessionMaxAgeSecs(), is(3600));
         assertThat(cloud.getSessionMaxUses(), is(500));
         assertThat(cloud.getPoolIdleTimeoutSecs(), is(300));
+        assertThat(cloud.getSessionRotationLeadSecs(), is(60));
+        assertThat(cloud.getPoolMinSessions(), is(2));
+        assertThat(cloud.getPoolMaxSessions(), is(4));
     }
 
     @Test
@@ -106,6 +115,55 @@ class VSphereConnectionPoolSettingsTest {
         pool.shutdown();
     }
 
+    @Test
+    void pool_defaults_to_a_single_session() {
+        VSphereConnectionPool pool = new VSphereConnectionPool(
+                makeConnectionConfig(), 0, 0, 0, 0);
+        try {
+            assertThat(pool.getMinSessions(), is(0));
+            assertThat(pool.getMaxSessions(), is(1));
+            assertThat(pool.getSessionCount(), is(0));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void pool_clamps_session_bounds() {
+        // maxSessions below 1 means one session; minSessions may not exceed maxSessions.
+        VSphereConnectionPool pool = new VSphereConnectionPool(
+                makeConnectionConfig(), null, 0, 0, 0, 0, 8, 3);
+        try {
+            assertThat(pool.getMinSessions(), is(3));
+            assertThat(pool.getMaxSessions(), is(3));
+        } finally {
+            pool.shutdown();
+        }
+        VSphereConnectionPool zeroMax = new VSphereConnectionPool(
+                makeConnectionConfig(), null, 0, 0, 0, 0, -2, 0);
+        try {
+            assertThat(zeroMax.getMinSessions(), is(0));
+            assertThat(zeroMax.getMaxSessions(), is(1));
+        } finally {
+            zeroMax.shutdown();
+        }
+    }
+
+    @Test
+    void pool_rotation_lead_defaults_to_zero_and_clamps_negative_values() {
+        VSphereConnectionPool byDefault = new VSphereConnectionPool(
+                makeConnectionConfig(), null, 0, 3600, 500, 0, 0, 1);
+        VSphereConnectionPool negative = new VSphereConnectionPool(
+                makeConnectionConfig(), null, 0, 3600, 500, 0, 0, 1, -30);
+        try {
+            assertThat(byDefault.getRotationLeadSecs(), is(0));
+            assertThat(negative.getRotationLeadSecs(), is(0));
+        } finally {
+            byDefault.shutdown();
+            negative.shutdown();
+        }
+    }
+
     @Test
     void pool_shutdown_is_idempotent() {
         VSphereConnectionPool pool = new VSphereConnectionPool(
@@ -161,6 +219,31 @@ class VSphereConnectionPoolSettingsTest {
         }
     }
 
+    @Test
+    void warm_up_of_a_shut_down_pool_does_not_log_in() {
+        VSphereConnectionPool pool = new VSphereConnectionPool(makeConnectionConfig(), 0, 0, 0, 0);
+        pool.shutdown();
+        pool.warmUp();
+        assertThat(pool.getSessionCount(), is(0));
+        assertThat(VSphereConnectionPoolRegistry.isTracked(pool), is(false));
+    }
+
+    @Test
+    void pool_timers_run_on_the_shared_scheduler_and_are_cancelled_on_shutdown() {
+        int poolsBefore = VSphereConnectionPoolRegistry.getLivePoolCount();
+        int timersBefore = VSphereConnectionPoolRegistry.getLiveTimerCount();
+        VSphereConnectionPool pool = new VSphereConnectionPool(makeConnectionConfig(), 30, 0, 0, 0);
+        try {
+            assertThat(VSphereConnectionPoolRegistry.getLivePoolCount(), is(poolsBefore + 1));
+            assertThat("health check is one timer on the shared scheduler",
+                    VSphereConnectionPoolRegistry.getLiveTimerCount(), is(timersBefore + 1));
+        } finally {
+            pool.shutdown();
+        }
+        assertThat(VSphereConnectionPoolRegistry.getLivePoolCount(), is(poolsBefore));
+        assertThat(VSphereConnectionPoolRegistry.getLiveTimerCount(), is(timersBefore));
+    }
+
     // -----------------------------------------------------------------------
     // Helpers
     // -----------------------------------------------------------------------
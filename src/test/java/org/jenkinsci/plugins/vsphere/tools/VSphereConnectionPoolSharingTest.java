@@ -0,0 +1,157 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import org.jenkinsci.plugins.vSphereCloud;
+import org.jenkinsci.plugins.vsphere.VSphereConnectionConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSameInstance.sameInstance;
+
+/**
+ * Unit tests for sharing one {@link VSphereConnectionPool} between clouds that point at the
+ * same vCenter with the same credentials, and for the per-vCenter session budget.
+ *
+ * No live vSphere connection is required.
+ */
+class VSphereConnectionPoolSharingTest {
+
+    @AfterEach
+    void clearBudget() {
+        System.clearProperty(VSphereConnectionPoolRegistry.MAX_SESSIONS_PER_HOST_PROPERTY);
+    }
+
+    @Test
+    void clouds_with_the_same_vcenter_credentials_and_settings_share_one_pool() {
+        vSphereCloud first = makeCloud("first");
+        vSphereCloud second = makeCloud("second");
+        VSphereConnectionPool pool = share(makeConnectionConfig("https://shared-host", "creds"), first, 1);
+        try {
+            assertThat(share(makeConnectionConfig("https://shared-host", "creds"), second, 1), sameInstance(pool));
+        } finally {
+            pool.detach(first);
+            pool.detach(second);
+        }
+    }
+
+    @Test
+    void clouds_with_different_credentials_or_settings_get_separate_pools() {
+        vSphereCloud first = makeCloud("first");
+        vSphereCloud second = makeCloud("second");
+        vSphereCloud third = makeCloud("third");
+        VSphereConnectionPool pool = share(makeConnectionConfig("https://split-host", "creds"), first, 1);
+        VSphereConnectionPool otherCreds = share(makeConnectionConfig("https://split-host", "other"), second, 1);
+        VSphereConnectionPool otherSettings = share(makeConnectionConfig("https://split-host", "creds"), third, 2);
+        try {
+            assertThat(otherCreds, not(sameInstance(pool)));
+            assertThat(otherSettings, not(sameInstance(pool)));
+        } finally {
+            pool.detach(first);
+            otherCreds.detach(second);
+            otherSettings.detach(third);
+        }
+    }
+
+    @Test
+    void clouds_with_different_inventory_roots_get_separate_pools() {
+        vSphereCloud first = makeCloud("first");
+        vSphereCloud second = makeCloud("second");
+        vSphereCloud third = makeCloud("third");
+        VSphereConnectionConfig config = makeConnectionConfig("https://scoped-host", "creds");
+        VSphereConnectionPool pool = VSphereConnectionPool.share(config, first, 0, 0, 0, 0, 0, 1, 0, null, null,
+                VSphere.parseInventoryRoots("DC1/vm/Jenkins, DC1/host/Build Cluster"));
+        VSphereConnectionPool sameRoots = VSphereConnectionPool.share(config, second, 0, 0, 0, 0, 0, 1, 0, null, null,
+                VSphere.parseInventoryRoots("DC1/vm/Jenkins\nDC1/host/Build Cluster\n"));
+        VSphereConnectionPool wholeInventory = share(config, third, 1);
+        try {
+            assertThat(sameRoots, sameInstance(pool));
+            assertThat(pool.getInventoryRoots(), contains("DC1/vm/Jenkins", "DC1/host/Build Cluster"));
+            assertThat(wholeInventory, not(sameInstance(pool)));
+            assertThat(wholeInventory.getInventoryRoots().isEmpty(), is(true));
+        } finally {
+            pool.detach(first);
+            pool.detach(second);
+            wholeInventory.detach(third);
+        }
+    }
+
+    @Test
+    void shared_pool_is_only_shut_down_once_the_last_cloud_detaches() {
+        vSphereCloud first = makeCloud("first");
+        vSphereCloud second = makeCloud("second");
+        VSphereConnectionPool pool = share(makeConnectionConfig("https://refcount-host", "creds"), first, 1);
+        share(makeConnectionConfig("https://refcount-host", "creds"), second, 1);
+
+        pool.detach(first);
+        assertThat(pool.isShutDown(), is(false));
+        assertThat(VSphereConnectionPoolRegistry.isTracked(pool), is(true));
+
+        pool.detach(second);
+        assertThat(pool.isShutDown(), is(true));
+        assertThat(VSphereConnectionPoolRegistry.isTracked(pool), is(false));
+    }
+
+    @Test
+    void a_shut_down_pool_is_not_handed_out_again() {
+        vSphereCloud first = makeCloud("first");
+        vSphereCloud second = makeCloud("second");
+        VSphereConnectionPool pool = share(makeConnectionConfig("https://reshare-host", "creds"), first, 1);
+        pool.detach(first);
+
+        VSphereConnectionPool replacement = share(makeConnectionConfig("https://reshare-host", "creds"), second, 1);
+        try {
+            assertThat(replacement, not(sameInstance(pool)));
+            assertThat(replacement.isShutDown(), is(false));
+        } finally {
+            replacement.detach(second);
+        }
+    }
+
+    @Test
+    void session_budget_is_enforced_per_host() {
+        System.setProperty(VSphereConnectionPoolRegistry.MAX_SESSIONS_PER_HOST_PROPERTY, "2");
+        String host = "https://budget-host";
+
+        assertThat(VSphereConnectionPoolRegistry.tryReserveSession(host), is(true));
+        assertThat(VSphereConnectionPoolRegistry.tryReserveSession(host), is(true));
+        assertThat(VSphereConnectionPoolRegistry.tryReserveSession(host), is(false));
+        assertThat("other hosts have their own budget",
+                VSphereConnectionPoolRegistry.tryReserveSession("https://other-budget-host"), is(true));
+
+        VSphereConnectionPoolRegistry.releaseSession(host);
+        assertThat(VSphereConnectionPoolRegistry.getSessionsInUse(host), is(1));
+        assertThat(VSphereConnectionPoolRegistry.tryReserveSession(host), is(true));
+
+        VSphereConnectionPoolRegistry.releaseSession(host);
+        VSphereConnectionPoolRegistry.releaseSession(host);
+        VSphereConnectionPoolRegistry.releaseSession("https://other-budget-host");
+        assertThat(VSphereConnectionPoolRegistry.getSessionsInUse(host), is(0));
+    }
+
+    @Test
+    void session_budget_is_unlimited_by_default() {
+        String host = "https://unlimited-host";
+        for (int i = 0; i < 50; i++) {
+            assertThat(VSphereConnectionPoolRegistry.tryReserveSession(host), is(true));
+        }
+        for (int i = 0; i < 50; i++) {
+            VSphereConnectionPoolRegistry.releaseSession(host);
+        }
+        assertThat(VSphereConnectionPoolRegistry.getSessionsInUse(host), is(0));
+    }
+
+    private static VSphereConnectionPool share(VSphereConnectionConfig config, vSphereCloud owner, int maxSessions) {
+        return VSphereConnectionPool.share(config, owner, 0, 0, 0, 0, 0, maxSessions, 0);
+    }
+
+    private static vSphereCloud makeCloud(String name) {
+        return new vSphereCloud(makeConnectionConfig("https://test-host", null), name, 0, 0, null);
+    }
+
+    private static VSphereConnectionConfig makeConnectionConfig(String host, String credentialsId) {
+        return new VSphereConnectionConfig(host, false, credentialsId);
+    }
+}
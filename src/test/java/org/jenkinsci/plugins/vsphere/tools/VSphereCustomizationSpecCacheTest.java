@@ -0,0 +1,69 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import com.vmware.vim25.CustomizationSpecInfo;
+import com.vmware.vim25.CustomizationSpecItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSameInstance.sameInstance;
+
+/**
+ * Unit tests for {@link VSphereCustomizationSpecCache}. No live vSphere connection is required.
+ */
+class VSphereCustomizationSpecCacheTest {
+
+    @AfterEach
+    void clearEnabled() {
+        System.clearProperty(VSphereCustomizationSpecCache.ENABLED_PROPERTY);
+    }
+
+    @Test
+    void cache_is_shared_per_vcenter_and_user() {
+        VSphereCustomizationSpecCache cache = VSphereCustomizationSpecCache.forVCenter("https://spec-host/sdk", "user");
+        assertThat(VSphereCustomizationSpecCache.forVCenter("https://spec-host/sdk", "user"), sameInstance(cache));
+        assertThat(VSphereCustomizationSpecCache.forVCenter("https://spec-host/sdk", "other") == cache, is(false));
+    }
+
+    @Test
+    void spec_is_reused_until_its_change_version_moves_on() {
+        VSphereCustomizationSpecCache cache = new VSphereCustomizationSpecCache("test");
+        CustomizationSpecItem sysprep = new CustomizationSpecItem();
+        assertThat(cache.get("windows-sysprep", "1"), nullValue());
+        cache.put("windows-sysprep", "1", sysprep);
+
+        assertThat(cache.get("windows-sysprep", "1"), sameInstance(sysprep));
+        assertThat(cache.get("windows-sysprep", "1"), sameInstance(sysprep));
+        assertThat("edited since", cache.get("windows-sysprep", "2"), nullValue());
+        assertThat("dropped once stale", cache.size(), is(0));
+        assertThat(cache.getHits(), is(2L));
+        assertThat(cache.getMisses(), is(1L));
+        assertThat(cache.getStaleHits(), is(1L));
+    }
+
+    @Test
+    void change_version_is_read_from_the_spec_infos() {
+        CustomizationSpecInfo[] infos = {info("linux", "3"), info("windows-sysprep", "17")};
+
+        assertThat(VSphereCustomizationSpecCache.getChangeVersion(infos, "windows-sysprep"), is("17"));
+        assertThat(VSphereCustomizationSpecCache.getChangeVersion(infos, "missing"), nullValue());
+        assertThat(VSphereCustomizationSpecCache.getChangeVersion(null, "linux"), nullValue());
+    }
+
+    @Test
+    void cache_can_be_turned_off() {
+        System.setProperty(VSphereCustomizationSpecCache.ENABLED_PROPERTY, "false");
+        VSphereCustomizationSpecCache cache = new VSphereCustomizationSpecCache("test");
+        cache.put("linux", "3", new CustomizationSpecItem());
+        assertThat(cache.get("linux", "3"), nullValue());
+    }
+
+    private static CustomizationSpecInfo info(String name, String changeVersion) {
+        CustomizationSpecInfo info = new CustomizationSpecInfo();
+        info.setName(name);
+        info.setChangeVersion(changeVersion);
+        return info;
+    }
+}
@@ -0,0 +1,117 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.startsWith;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for {@link VSphereExecutors}.
+ */
+class VSphereExecutorsTest {
+
+    @Test
+    void supplied_result_completes_the_future() throws Exception {
+        assertThat(VSphereExecutors.supplyBlocking(() -> "done").get(10, TimeUnit.SECONDS), is("done"));
+    }
+
+    @Test
+    void thrown_exception_completes_the_future_exceptionally() {
+        CompletableFuture<Object> future = VSphereExecutors.supplyBlocking(() -> {
+            throw new VSphereNotFoundException("VM", "missing");
+        });
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+        assertThat(e.getCause(), instanceOf(VSphereNotFoundException.class));
+    }
+
+    @Test
+    void cancelling_the_future_interrupts_the_task() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CompletableFuture<Object> future = VSphereExecutors.supplyBlocking(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return null;
+        });
+        assertThat(started.await(10, TimeUnit.SECONDS), is(true));
+        future.cancel(true);
+        assertThat(interrupted.await(10, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    void long_running_task_gets_a_daemon_thread_of_its_own() throws Exception {
+        CountDownLatch ran = new CountDownLatch(1);
+        Thread thread = VSphereExecutors.startDaemon("vsphere-test-loop", ran::countDown);
+        assertThat(thread.getName(), is("vsphere-test-loop"));
+        assertThat(thread.isDaemon(), is(true));
+        assertThat(ran.await(10, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    void task_waits_and_their_continuations_run_outside_the_blocking_lane() throws Exception {
+        assertThat(VSphereExecutors.supplyWaiting(() -> Thread.currentThread().getName()).get(10, TimeUnit.SECONDS),
+                startsWith("vsphere-waiter-"));
+        assertThat(CompletableFuture.completedFuture("done")
+                        .thenApplyAsync(ignored -> Thread.currentThread().getName(), VSphereExecutors.continuations())
+                        .get(10, TimeUnit.SECONDS),
+                startsWith("vsphere-maintenance-"));
+    }
+
+    @Test
+    void timers_still_fire_while_every_blocking_thread_is_busy() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < VSphereExecutors.getMaxPlatformThreads(); i++) {
+                VSphereExecutors.runBlocking(() -> {
+                    try {
+                        release.await(1, TimeUnit.MINUTES);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            CountDownLatch fired = new CountDownLatch(1);
+            VSphereExecutors.schedule(fired::countDown, 0, TimeUnit.MILLISECONDS);
+            assertThat("timer work has a lane of its own", fired.await(10, TimeUnit.SECONDS), is(true));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void running_tasks_are_counted_as_in_flight_until_they_finish() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        long completedBefore = VSphereExecutors.getCompletedCount();
+        CompletableFuture<Object> future = VSphereExecutors.supplyBlocking(() -> {
+            started.countDown();
+            release.await(1, TimeUnit.MINUTES);
+            return null;
+        });
+        assertThat(started.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(VSphereExecutors.getInFlightCount(), greaterThanOrEqualTo(1));
+        release.countDown();
+        future.get(10, TimeUnit.SECONDS);
+        // the count is taken just after the future completes
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (VSphereExecutors.getCompletedCount() == completedBefore && System.nanoTime() - deadline < 0) {
+            Thread.sleep(10);
+        }
+        assertThat(VSphereExecutors.getCompletedCount(), greaterThan(completedBefore));
+        assertThat(VSphereExecutors.getQueuedCount(), greaterThanOrEqualTo(0));
+    }
+}
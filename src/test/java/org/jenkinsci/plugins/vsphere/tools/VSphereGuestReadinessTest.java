@@ -0,0 +1,103 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import com.vmware.vim25.ManagedObjectReference;
+import org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.FakePropertyCollector;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.change;
+import static org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.mor;
+import static org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.removal;
+import static org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.updateSet;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for {@link VSphereGuestReadiness}. No live vSphere connection is required.
+ */
+class VSphereGuestReadinessTest {
+
+    private static final Pattern IPV4 = Pattern.compile("^(?:[0-9]{1,3}\\.){3}[0-9]{1,3}$");
+
+    private static final ManagedObjectReference VM = mor("VirtualMachine", "vm-42");
+
+    private final FakePropertyCollector collector = new FakePropertyCollector();
+    private final VSphereGuestReadiness.LongPoll longPoll =
+            (ignored, version, options) -> collector.waitForUpdatesEx(version, options);
+
+    @Test
+    void changes_are_applied_to_what_the_guest_reported() {
+        VSphereGuestReadiness.Guest guest = VSphereGuestReadiness.Guest.UNKNOWN.apply(updateSet(
+                change(VSphereGuestReadiness.TOOLS_RUNNING_STATUS, "guestToolsRunning"),
+                change(VSphereGuestReadiness.GUEST_STATE, "running"),
+                change(VSphereGuestReadiness.IP_ADDRESS, "fe80::1"),
+                change("guest.hostName", "ignored")));
+
+        assertThat(guest.toolsRunningStatus, is("guestToolsRunning"));
+        assertThat(guest.guestState, is("running"));
+        assertThat(guest.ipAddress, is("fe80::1"));
+
+        guest = guest.apply(updateSet(removal(VSphereGuestReadiness.IP_ADDRESS)));
+        assertThat(guest.ipAddress, nullValue());
+        assertThat("unchanged", guest.guestState, is("running"));
+    }
+
+    @Test
+    void ip_address_condition_holds_once_a_matching_address_is_reported() {
+        VSphereGuestReadiness.Guest none = VSphereGuestReadiness.Guest.UNKNOWN;
+        VSphereGuestReadiness.Guest ipv6 = none.with(VSphereGuestReadiness.IP_ADDRESS, "fe80::1");
+        VSphereGuestReadiness.Guest ipv4 = none.with(VSphereGuestReadiness.IP_ADDRESS, "10.0.0.7");
+
+        assertThat(VSphereGuestReadiness.hasIpAddress(null).test(none), is(false));
+        assertThat(VSphereGuestReadiness.hasIpAddress(null).test(ipv6), is(true));
+        assertThat(VSphereGuestReadiness.hasIpAddress(IPV4).test(ipv6), is(false));
+        assertThat(VSphereGuestReadiness.hasIpAddress(IPV4).test(ipv4), is(true));
+    }
+
+    @Test
+    void tools_condition_holds_once_the_tools_are_running() {
+        VSphereGuestReadiness.Guest guest = VSphereGuestReadiness.Guest.UNKNOWN
+                .with(VSphereGuestReadiness.TOOLS_RUNNING_STATUS, "guestToolsNotRunning");
+        assertThat(VSphereGuestReadiness.hasToolsRunning().test(guest), is(false));
+        guest = guest.with(VSphereGuestReadiness.TOOLS_RUNNING_STATUS, "guestToolsRunning");
+        assertThat(VSphereGuestReadiness.hasToolsRunning().test(guest), is(true));
+    }
+
+    @Test
+    void wait_ends_once_the_guest_is_ready() throws Exception {
+        collector.reply(updateSet(change(VSphereGuestReadiness.TOOLS_RUNNING_STATUS, "guestToolsRunning")))
+                .reply(updateSet(change(VSphereGuestReadiness.IP_ADDRESS, "10.0.0.7")));
+
+        VSphereGuestReadiness.Guest guest = VSphereGuestReadiness.await(collector, VM,
+                VSphereGuestReadiness.hasIpAddress(IPV4), TimeUnit.MINUTES.toMillis(1), longPoll);
+        assertThat(guest.ipAddress, is("10.0.0.7"));
+        assertThat(guest.toolsRunningStatus, is("guestToolsRunning"));
+        assertThat(collector.destroyed, is(true));
+    }
+
+    @Test
+    void guest_that_is_not_ready_by_the_deadline_is_not_waited_for() throws Exception {
+        collector.reply(updateSet(change(VSphereGuestReadiness.IP_ADDRESS, "fe80::1")));
+
+        assertThat(VSphereGuestReadiness.await(collector, VM,
+                VSphereGuestReadiness.hasIpAddress(IPV4), 200, longPoll), nullValue());
+        assertThat("polled until the deadline", collector.polls.get() > 1, is(true));
+        assertThat(collector.destroyed, is(true));
+    }
+
+    @Test
+    void interrupted_wait_throws_and_still_destroys_its_collector() {
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(InterruptedException.class, () -> VSphereGuestReadiness.await(collector, VM,
+                    VSphereGuestReadiness.hasIpAddress(IPV4), TimeUnit.MINUTES.toMillis(1), longPoll));
+        } finally {
+            Thread.interrupted();
+        }
+        assertThat(collector.destroyed, is(true));
+    }
+}
@@ -0,0 +1,136 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import com.vmware.vim25.DynamicProperty;
+import com.vmware.vim25.ObjectContent;
+import com.vmware.vim25.RetrieveResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for {@link VSphereInventoryEnumerator}, reading from fake pages. No live
+ * vSphere connection is required.
+ */
+class VSphereInventoryEnumeratorTest {
+
+    private final FakePages pages = new FakePages();
+
+    @AfterEach
+    void clearPageSize() {
+        System.clearProperty(VSphereInventoryEnumerator.PAGE_SIZE_PROPERTY);
+    }
+
+    @Test
+    void pages_are_read_one_at_a_time_as_they_are_iterated() {
+        pages.add("vm-a", "vm-b").add("vm-c").add("vm-d");
+        VSphereInventoryEnumerator names = new VSphereInventoryEnumerator(pages);
+
+        assertThat(names.next(), is("vm-a"));
+        assertThat(names.next(), is("vm-b"));
+        assertThat("the second page is not read before it is needed", names.getPagesRead(), is(1));
+
+        List<String> rest = new ArrayList<>();
+        names.forEachRemaining(rest::add);
+        assertThat(rest, contains("vm-c", "vm-d"));
+        assertThat(names.getPagesRead(), is(3));
+        assertThat("closed itself after the last page", pages.closed, is(true));
+        assertThat(pages.cancelled, is(false));
+    }
+
+    @Test
+    void closing_early_cancels_the_pages_not_yet_read() {
+        pages.add("vm-a").add("vm-b");
+        VSphereInventoryEnumerator names = new VSphereInventoryEnumerator(pages);
+        names.next();
+        names.close();
+
+        assertThat(pages.cancelled, is(true));
+        assertThat(pages.closed, is(true));
+        assertThat(names.hasNext(), is(false));
+    }
+
+    @Test
+    void empty_inventory_has_no_names() {
+        VSphereInventoryEnumerator names = new VSphereInventoryEnumerator(pages);
+        assertThat(names.hasNext(), is(false));
+        assertThat(pages.closed, is(true));
+    }
+
+    @Test
+    void failure_to_read_a_page_is_reported_and_frees_the_view() {
+        pages.add("vm-a").add("vm-b");
+        pages.failOnPage = 2;
+        VSphereInventoryEnumerator names = new VSphereInventoryEnumerator(pages);
+        names.next();
+
+        assertThrows(IllegalStateException.class, names::next);
+        assertThat(pages.closed, is(true));
+    }
+
+    @Test
+    void page_size_can_be_overridden() {
+        assertThat(VSphereInventoryEnumerator.getPageSize(), is(VSphereInventoryEnumerator.DEFAULT_PAGE_SIZE));
+        System.setProperty(VSphereInventoryEnumerator.PAGE_SIZE_PROPERTY, "250");
+        assertThat(VSphereInventoryEnumerator.getPageSize(), is(250));
+    }
+
+    private static final class FakePages implements VSphereInventoryEnumerator.Pages {
+        private final List<RetrieveResult> results = new ArrayList<>();
+        private int failOnPage;
+        private boolean cancelled;
+        private boolean closed;
+
+        FakePages add(String... names) {
+            ObjectContent[] objects = new ObjectContent[names.length];
+            for (int i = 0; i < names.length; i++) {
+                DynamicProperty name = new DynamicProperty();
+                name.setName("name");
+                name.setVal(names[i]);
+                objects[i] = new ObjectContent();
+                objects[i].setPropSet(new DynamicProperty[]{name});
+            }
+            RetrieveResult result = new RetrieveResult();
+            result.setObjects(objects);
+            if (!results.isEmpty()) {
+                results.get(results.size() - 1).setToken(String.valueOf(results.size()));
+            }
+            results.add(result);
+            return this;
+        }
+
+        @Override
+        public RetrieveResult first() throws RemoteException {
+            return page(0);
+        }
+
+        @Override
+        public RetrieveResult next(String token) throws RemoteException {
+            return page(Integer.parseInt(token));
+        }
+
+        private RetrieveResult page(int index) throws RemoteException {
+            if (index + 1 == failOnPage) {
+                throw new RemoteException("connection reset");
+            }
+            return index < results.size() ? results.get(index) : null;
+        }
+
+        @Override
+        public void cancel(String token) {
+            cancelled = true;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
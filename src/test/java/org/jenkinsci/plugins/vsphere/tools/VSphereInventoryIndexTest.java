@@ -0,0 +1,65 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import com.vmware.vim25.ManagedObjectReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSameInstance.sameInstance;
+import static org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.mor;
+
+/**
+ * Unit tests for {@link VSphereInventoryIndex}. No live vSphere connection is required.
+ */
+class VSphereInventoryIndexTest {
+
+    @AfterEach
+    void clearTtl() {
+        System.clearProperty(VSphereInventoryIndex.TTL_SECS_PROPERTY);
+    }
+
+    @Test
+    void index_is_shared_per_vcenter_and_user() {
+        VSphereInventoryIndex index = VSphereInventoryIndex.forVCenter("https://index-host/sdk", "user");
+        assertThat(VSphereInventoryIndex.forVCenter("https://index-host/sdk", "user"), sameInstance(index));
+        assertThat(VSphereInventoryIndex.forVCenter("https://index-host/sdk", "other") == index, is(false));
+    }
+
+    @Test
+    void found_names_are_remembered_per_scope_and_type() {
+        VSphereInventoryIndex index = new VSphereInventoryIndex("test");
+        ManagedObjectReference vm = mor("VirtualMachine", "vm-42");
+        index.put("group-d1", "VirtualMachine", "agent-1", vm);
+
+        assertThat(index.get("group-d1", "VirtualMachine", "agent-1"), sameInstance(vm));
+        assertThat(index.get("domain-c7", "VirtualMachine", "agent-1"), nullValue());
+        assertThat(index.get("group-d1", "HostSystem", "agent-1"), nullValue());
+        assertThat(index.getHits(), is(1L));
+        assertThat(index.getMisses(), is(2L));
+    }
+
+    @Test
+    void stale_and_renamed_entries_are_dropped() {
+        VSphereInventoryIndex index = new VSphereInventoryIndex("test");
+        index.put("group-d1", "VirtualMachine", "agent-1", mor("VirtualMachine", "vm-42"));
+        index.put("domain-c7", null, "agent-1", mor("VirtualMachine", "vm-42"));
+        index.put("group-d1", "VirtualMachine", "agent-2", mor("VirtualMachine", "vm-43"));
+
+        index.invalidate("group-d1", "VirtualMachine", "agent-2");
+        assertThat(index.get("group-d1", "VirtualMachine", "agent-2"), nullValue());
+        assertThat(index.getStaleHits(), is(1L));
+
+        index.invalidateName("agent-1");
+        assertThat(index.size(), is(0));
+    }
+
+    @Test
+    void ttl_of_zero_turns_the_index_off() {
+        System.setProperty(VSphereInventoryIndex.TTL_SECS_PROPERTY, "0");
+        VSphereInventoryIndex index = new VSphereInventoryIndex("test");
+        index.put("group-d1", "VirtualMachine", "agent-1", mor("VirtualMachine", "vm-42"));
+        assertThat(index.get("group-d1", "VirtualMachine", "agent-1"), nullValue());
+    }
+}
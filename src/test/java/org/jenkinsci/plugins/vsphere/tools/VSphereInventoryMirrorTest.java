@@ -0,0 +1,127 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import com.vmware.vim25.ObjectUpdate;
+import com.vmware.vim25.ObjectUpdateKind;
+import com.vmware.vim25.PropertyChange;
+import com.vmware.vim25.VirtualMachinePowerState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.change;
+import static org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.mor;
+import static org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.objectUpdate;
+import static org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.removal;
+import static org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.updateSet;
+
+/**
+ * Unit tests for {@link VSphereInventoryMirror}, fed with change sets as the vCenter would
+ * send them. No live vSphere connection is required.
+ */
+class VSphereInventoryMirrorTest {
+
+    private final VSphereInventoryMirror mirror = new VSphereInventoryMirror("test", null);
+
+    @BeforeEach
+    void loadInventory() {
+        mirror.apply(updateSet(
+                enter("Folder", "group-d1", change("name", "Datacenters")),
+                enter("Datacenter", "datacenter-2", change("name", "DC1"), change("parent", mor("Folder", "group-d1"))),
+                enter("Folder", "group-v3", change("name", "vm"), change("parent", mor("Datacenter", "datacenter-2"))),
+                enter("ClusterComputeResource", "domain-c7", change("name", "cluster"),
+                        change("parent", mor("Folder", "group-d1"))),
+                enter("HostSystem", "host-9", change("name", "esx1"),
+                        change("parent", mor("ClusterComputeResource", "domain-c7"))),
+                enter("VirtualMachine", "vm-42", change("name", "agent-1"), change("parent", mor("Folder", "group-v3")),
+                        change("config.template", false), change("runtime.powerState", VirtualMachinePowerState.poweredOn)),
+                enter("VirtualMachine", "vm-43", change("name", "agent-2"), change("parent", mor("Folder", "group-v3")),
+                        change("config.template", false)),
+                enter("VirtualMachine", "vm-1", change("name", "template"), change("parent", mor("Folder", "group-v3")),
+                        change("config.template", true))));
+    }
+
+    @Test
+    void names_are_found_by_type_and_scope() {
+        assertThat(mirror.size(), is(8));
+        assertThat(mirror.find("VirtualMachine", "agent-1", "group-d1").getVal(), is("vm-42"));
+        assertThat(mirror.find(null, "agent-1", "group-v3").getVal(), is("vm-42"));
+        assertThat(mirror.find("HostSystem", "esx1", "domain-c7").getVal(), is("host-9"));
+        assertThat(mirror.find("HostSystem", "agent-1", "group-d1"), nullValue());
+        assertThat(mirror.find("VirtualMachine", "agent-1", "domain-c7"), nullValue());
+        assertThat(mirror.find("VirtualMachine", "missing", "group-d1"), nullValue());
+    }
+
+    @Test
+    void changes_are_applied_as_they_arrive() {
+        mirror.apply(updateSet(
+                modify("vm-42", change("name", "agent-1-renamed"), change("guest.ipAddress", "10.0.0.42")),
+                leave("vm-43")));
+
+        assertThat(mirror.find("VirtualMachine", "agent-1", "group-d1"), nullValue());
+        assertThat(mirror.find("VirtualMachine", "agent-1-renamed", "group-d1").getVal(), is("vm-42"));
+        assertThat(mirror.get("vm-42").ipAddress, is("10.0.0.42"));
+        assertThat(mirror.get("vm-42").powerState, is(VirtualMachinePowerState.poweredOn));
+        assertThat(mirror.get("vm-43"), nullValue());
+        assertThat(mirror.getUpdateCount(), is(2L));
+
+        mirror.apply(updateSet(modify("vm-42", removal("guest.ipAddress"))));
+        assertThat(mirror.get("vm-42").ipAddress, nullValue());
+    }
+
+    @Test
+    void vms_and_templates_are_counted_by_prefix() {
+        assertThat(mirror.countVmsByPrefix("agent-"), is(2));
+        assertThat(mirror.countVmsByPrefix(""), is(3));
+        assertThat(mirror.get("vm-1").template, is(true));
+    }
+
+    @Test
+    void paths_are_built_from_the_mirrored_parents() {
+        assertThat(mirror.getPath("vm-42"), is("Datacenters/DC1/vm/"));
+        assertThat(mirror.getPath("group-d1"), is(""));
+        assertThat(mirror.getPath("vm-unknown"), nullValue());
+
+        mirror.apply(updateSet(leave("datacenter-2")));
+        assertThat("an incomplete chain of parents is not guessed at", mirror.getPath("vm-42"), nullValue());
+    }
+
+    @Test
+    void snapshot_version_moves_on_whenever_the_snapshot_tree_changes() {
+        assertThat("not reported yet", mirror.getSnapshotVersion(mor("VirtualMachine", "vm-42")), nullValue());
+
+        mirror.apply(updateSet(enter("VirtualMachine", "vm-42", change("snapshot", "base"))));
+        final String version = mirror.getSnapshotVersion(mor("VirtualMachine", "vm-42"));
+        assertThat(version == null, is(false));
+        assertThat("the snapshot tree is not mirrored itself", mirror.get("vm-42").name, is("agent-1"));
+
+        mirror.apply(updateSet(modify("vm-42", change("guest.ipAddress", "10.0.0.42"))));
+        assertThat(mirror.getSnapshotVersion(mor("VirtualMachine", "vm-42")), is(version));
+
+        mirror.apply(updateSet(modify("vm-42", change("snapshot", "base-renamed"))));
+        assertThat(mirror.getSnapshotVersion(mor("VirtualMachine", "vm-42")).equals(version), is(false));
+
+        mirror.apply(updateSet(leave("vm-42")));
+        assertThat(mirror.getSnapshotVersion(mor("VirtualMachine", "vm-42")), nullValue());
+    }
+
+    @Test
+    void vms_outside_the_inventory_are_not_mirrored_for_their_snapshots() {
+        mirror.apply(updateSet(enter("VirtualMachine", "vm-99", change("snapshot", "base"))));
+        assertThat(mirror.get("vm-99"), nullValue());
+        assertThat(mirror.getSnapshotVersion(mor("VirtualMachine", "vm-99")) == null, is(false));
+    }
+
+    private static ObjectUpdate enter(String type, String id, PropertyChange... changes) {
+        return objectUpdate(ObjectUpdateKind.enter, mor(type, id), changes);
+    }
+
+    private static ObjectUpdate modify(String id, PropertyChange... changes) {
+        return objectUpdate(ObjectUpdateKind.modify, mor("VirtualMachine", id), changes);
+    }
+
+    private static ObjectUpdate leave(String id) {
+        return objectUpdate(ObjectUpdateKind.leave, mor("VirtualMachine", id));
+    }
+}
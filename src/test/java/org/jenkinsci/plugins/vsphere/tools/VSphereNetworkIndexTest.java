@@ -0,0 +1,84 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import com.vmware.vim25.DynamicProperty;
+import com.vmware.vim25.ObjectContent;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSameInstance.sameInstance;
+import static org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.mor;
+
+/**
+ * Unit tests for {@link VSphereNetworkIndex}. No live vSphere connection is required.
+ */
+class VSphereNetworkIndexTest {
+
+    private final VSphereNetworkIndex.Networks networks = VSphereNetworkIndex.Networks.of(Arrays.asList(
+            object("Network", "network-11", property("name", "VM Network")),
+            object("DistributedVirtualPortgroup", "dvportgroup-21", property("name", "build-vlan"),
+                    property("key", "dvportgroup-21"), property("config.distributedVirtualSwitch", mor("VmwareDistributedVirtualSwitch", "dvs-20"))),
+            object("VmwareDistributedVirtualSwitch", "dvs-20", property("uuid", "50 1a 2b 3c")),
+            object("DistributedVirtualPortgroup", "dvportgroup-22", property("name", "test-vlan"),
+                    property("key", "dvportgroup-22"), property("config.distributedVirtualSwitch", mor("VmwareDistributedVirtualSwitch", "dvs-20")))));
+
+    @Test
+    void index_is_shared_per_vcenter_and_user() {
+        VSphereNetworkIndex index = VSphereNetworkIndex.forVCenter("https://network-host/sdk", "user");
+        assertThat(VSphereNetworkIndex.forVCenter("https://network-host/sdk", "user"), sameInstance(index));
+        assertThat(VSphereNetworkIndex.forVCenter("https://network-host/sdk", "other") == index, is(false));
+    }
+
+    @Test
+    void networks_and_port_groups_are_found_by_name() {
+        assertThat(networks.getNetwork("VM Network").getVal(), is("network-11"));
+        assertThat("port groups are networks too", networks.getNetwork("build-vlan").getVal(), is("dvportgroup-21"));
+        assertThat(networks.getPortgroup("test-vlan").getVal(), is("dvportgroup-22"));
+        assertThat("not a port group", networks.getPortgroup("VM Network"), nullValue());
+        assertThat(networks.getNetwork("missing"), nullValue());
+    }
+
+    @Test
+    void empty_name_means_the_first_one() {
+        assertThat(networks.getNetwork("").getVal(), is("network-11"));
+        assertThat(networks.getPortgroup("").getVal(), is("dvportgroup-21"));
+        assertThat(VSphereNetworkIndex.Networks.of(Collections.emptyList()).getNetwork(""), nullValue());
+    }
+
+    @Test
+    void port_groups_know_their_key_and_switch_uuid() {
+        assertThat(networks.getPortgroupKey("dvportgroup-22"), is("dvportgroup-22"));
+        assertThat(networks.getSwitchUuid("dvportgroup-21"), is("50 1a 2b 3c"));
+        assertThat(networks.getSwitchUuid("network-11"), nullValue());
+    }
+
+    @Test
+    void networks_are_remembered_per_datacenter() {
+        VSphereNetworkIndex index = new VSphereNetworkIndex("test");
+        assertThat(index.get("datacenter-2"), nullValue());
+        index.put("datacenter-2", networks);
+
+        assertThat(index.get("datacenter-2"), sameInstance(networks));
+        assertThat(index.get("datacenter-3"), nullValue());
+        assertThat(index.getHits(), is(1L));
+        assertThat(index.getLoads(), is(1L));
+    }
+
+    private static ObjectContent object(String type, String value, DynamicProperty... properties) {
+        ObjectContent object = new ObjectContent();
+        object.setObj(mor(type, value));
+        object.setPropSet(properties);
+        return object;
+    }
+
+    private static DynamicProperty property(String name, Object value) {
+        DynamicProperty property = new DynamicProperty();
+        property.setName(name);
+        property.setVal(value);
+        return property;
+    }
+}
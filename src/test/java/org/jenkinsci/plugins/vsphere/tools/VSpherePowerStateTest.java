@@ -0,0 +1,146 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.ObjectUpdateKind;
+import com.vmware.vim25.TaskInfoState;
+import com.vmware.vim25.VirtualMachinePowerState;
+import com.vmware.vim25.VirtualMachineQuestionInfo;
+import org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.FakePropertyCollector;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.change;
+import static org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.mor;
+import static org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.objectUpdate;
+import static org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.removal;
+import static org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.updateSet;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for {@link VSpherePowerState}. No live vSphere connection is required.
+ */
+class VSpherePowerStateTest {
+
+    private static final ManagedObjectReference VM = mor("VirtualMachine", "vm-42");
+
+    private final FakePropertyCollector collector = new FakePropertyCollector();
+
+    @Test
+    void changes_are_applied_to_what_was_seen_of_the_vm() {
+        VSpherePowerState.Runtime runtime = VSpherePowerState.Runtime.UNKNOWN.apply(updateSet(
+                change(VSpherePowerState.POWER_STATE, VirtualMachinePowerState.poweredOn),
+                change("runtime.host", "ignored")));
+        assertThat(runtime.powerState, is(VirtualMachinePowerState.poweredOn));
+        assertThat(runtime.question, nullValue());
+
+        runtime = runtime.apply(updateSet(
+                change(VSpherePowerState.POWER_STATE, VirtualMachinePowerState.poweredOff)));
+        assertThat(runtime.powerState, is(VirtualMachinePowerState.poweredOff));
+    }
+
+    @Test
+    void power_state_condition_holds_once_the_vm_is_in_that_state() {
+        VSpherePowerState.Runtime on = VSpherePowerState.Runtime.UNKNOWN
+                .with(VSpherePowerState.POWER_STATE, VirtualMachinePowerState.poweredOn);
+        VSpherePowerState.Runtime off = on.with(VSpherePowerState.POWER_STATE, VirtualMachinePowerState.poweredOff);
+
+        assertThat(VSpherePowerState.isIn(VirtualMachinePowerState.poweredOff).test(VSpherePowerState.Runtime.UNKNOWN), is(false));
+        assertThat(VSpherePowerState.isIn(VirtualMachinePowerState.poweredOff).test(on), is(false));
+        assertThat(VSpherePowerState.isIn(VirtualMachinePowerState.poweredOff).test(off), is(true));
+    }
+
+    @Test
+    void question_condition_holds_while_the_vm_is_asked_that_question() {
+        VirtualMachineQuestionInfo question = new VirtualMachineQuestionInfo();
+        question.setId("_vmx1");
+        VSpherePowerState.Runtime asked = VSpherePowerState.Runtime.UNKNOWN.apply(updateSet(
+                change(VSpherePowerState.QUESTION, question)));
+
+        assertThat(VSpherePowerState.isAsked("_vmx1").test(asked), is(true));
+        assertThat(VSpherePowerState.isAsked("_vmx2").test(asked), is(false));
+
+        VSpherePowerState.Runtime answered = asked.apply(updateSet(
+                removal(VSpherePowerState.QUESTION)));
+        assertThat(VSpherePowerState.isAsked("_vmx1").test(answered), is(false));
+    }
+
+    @Test
+    void wait_ends_as_soon_as_the_vm_is_in_the_state() throws Exception {
+        collector.reply(updateSet(change(VSpherePowerState.POWER_STATE, VirtualMachinePowerState.poweredOn)))
+                .reply(updateSet(change(VSpherePowerState.POWER_STATE, VirtualMachinePowerState.poweredOff)));
+
+        VSpherePowerState.Runtime runtime = VSpherePowerState.await(collector, VM, null,
+                VSpherePowerState.isIn(VirtualMachinePowerState.poweredOff), TimeUnit.MINUTES.toMillis(1));
+        assertThat(runtime.powerState, is(VirtualMachinePowerState.poweredOff));
+        assertThat(collector.polls.get(), is(2));
+        assertThat("the vm only", collector.filters.size(), is(1));
+        assertThat(collector.destroyed, is(true));
+    }
+
+    @Test
+    void wait_gives_up_at_the_deadline_with_the_last_state_seen() throws Exception {
+        collector.reply(updateSet(change(VSpherePowerState.POWER_STATE, VirtualMachinePowerState.poweredOn)));
+
+        final long start = System.nanoTime();
+        VSpherePowerState.Runtime runtime = VSpherePowerState.await(collector, VM, null,
+                VSpherePowerState.isIn(VirtualMachinePowerState.poweredOff), 200);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), greaterThanOrEqualTo(200L));
+        assertThat(runtime.powerState, is(VirtualMachinePowerState.poweredOn));
+        assertThat(collector.destroyed, is(true));
+    }
+
+    @Test
+    void interrupted_wait_throws_and_still_destroys_its_collector() {
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(InterruptedException.class, () -> VSpherePowerState.await(collector, VM, null,
+                    VSpherePowerState.isIn(VirtualMachinePowerState.poweredOff), TimeUnit.MINUTES.toMillis(1)));
+        } finally {
+            Thread.interrupted();
+        }
+        assertThat(collector.destroyed, is(true));
+    }
+
+    @Test
+    void wait_ends_when_the_watched_task_fails() throws Exception {
+        collector.reply(updateSet(objectUpdate(ObjectUpdateKind.modify, mor("Task", "task-7"),
+                change(VSpherePowerState.TASK_STATE, TaskInfoState.error))));
+
+        VSpherePowerState.Runtime runtime = VSpherePowerState.await(collector, VM, mor("Task", "task-7"),
+                VSpherePowerState.isIn(VirtualMachinePowerState.poweredOn).or(VSpherePowerState.hasTaskFailed()),
+                TimeUnit.MINUTES.toMillis(1));
+        assertThat(runtime.taskState, is(TaskInfoState.error));
+        assertThat(runtime.powerState, nullValue());
+        assertThat("the vm and its task", collector.filters.size(), is(2));
+    }
+
+    @Test
+    void guest_that_shuts_down_in_time_is_not_powered_off_hard() throws Exception {
+        collector.reply(updateSet(change(VSpherePowerState.POWER_STATE, VirtualMachinePowerState.poweredOn)))
+                .reply(updateSet(change(VSpherePowerState.POWER_STATE, VirtualMachinePowerState.poweredOff)));
+        final List<String> steps = new ArrayList<>();
+
+        assertThat(VSpherePowerState.shutDown(collector, VM, TimeUnit.MINUTES.toMillis(1),
+                () -> steps.add("shutdownGuest"), () -> steps.add("powerOff")), is(true));
+        assertThat(steps, contains("shutdownGuest"));
+    }
+
+    @Test
+    void guest_that_does_not_shut_down_in_time_is_powered_off_hard() throws Exception {
+        collector.reply(updateSet(change(VSpherePowerState.POWER_STATE, VirtualMachinePowerState.poweredOn)));
+        final List<String> steps = new ArrayList<>();
+
+        assertThat(VSpherePowerState.shutDown(collector, VM, 200,
+                () -> steps.add("shutdownGuest"), () -> steps.add("powerOff")), is(false));
+        assertThat(steps, contains("shutdownGuest", "powerOff"));
+        assertThat(collector.destroyed, is(true));
+    }
+}
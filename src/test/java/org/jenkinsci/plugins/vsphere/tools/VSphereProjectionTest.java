@@ -0,0 +1,81 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import com.vmware.vim25.ArrayOfVirtualDevice;
+import com.vmware.vim25.DynamicProperty;
+import com.vmware.vim25.ObjectContent;
+import com.vmware.vim25.PropertyFilterSpec;
+import com.vmware.vim25.PropertySpec;
+import com.vmware.vim25.RetrieveResult;
+import com.vmware.vim25.VirtualDevice;
+import com.vmware.vim25.VirtualDisk;
+import com.vmware.vim25.VirtualMachinePowerState;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.mor;
+
+/**
+ * Unit tests for {@link VSphereProjection}. No live vSphere connection is required.
+ */
+class VSphereProjectionTest {
+
+    @Test
+    void filter_selects_only_the_requested_properties_of_only_the_given_object() {
+        PropertyFilterSpec spec = VSphereProjection.createFilterSpec(mor("VirtualMachine", "vm-42"),
+                "config.template", "runtime.powerState");
+
+        assertThat(spec.getObjectSet().length, is(1));
+        assertThat(spec.getObjectSet()[0].getObj().getVal(), is("vm-42"));
+        assertThat("no traversal to other objects", spec.getObjectSet()[0].getSelectSet() == null, is(true));
+
+        PropertySpec propertySpec = spec.getPropSet()[0];
+        assertThat(propertySpec.getType(), is("VirtualMachine"));
+        assertThat("not every property of the VM", propertySpec.getAll(), is(false));
+        assertThat(propertySpec.getPathSet(), arrayContaining("config.template", "runtime.powerState"));
+    }
+
+    @Test
+    void result_is_keyed_by_property_path_and_arrays_are_unwrapped() {
+        ArrayOfVirtualDevice devices = new ArrayOfVirtualDevice();
+        devices.setVirtualDevice(new VirtualDevice[]{new VirtualDisk()});
+        RetrieveResult result = result(
+                property("config.template", Boolean.FALSE),
+                property("runtime.powerState", VirtualMachinePowerState.poweredOn),
+                property("config.hardware.device", devices));
+
+        Map<String, Object> values = VSphereProjection.toMap(result);
+
+        assertThat(values.get("config.template"), is(Boolean.FALSE));
+        assertThat(values.get("runtime.powerState"), is(VirtualMachinePowerState.poweredOn));
+        assertThat(values.get("config.hardware.device"), instanceOf(VirtualDevice[].class));
+        assertThat(((VirtualDevice[]) values.get("config.hardware.device")).length, is(1));
+    }
+
+    @Test
+    void unset_properties_and_empty_results_are_left_out() {
+        assertThat(VSphereProjection.toMap(null).isEmpty(), is(true));
+        assertThat(VSphereProjection.toMap(new RetrieveResult()).isEmpty(), is(true));
+        assertThat(VSphereProjection.toMap(result()).containsKey("guest.ipAddress"), is(false));
+    }
+
+    private static RetrieveResult result(DynamicProperty... properties) {
+        ObjectContent object = new ObjectContent();
+        object.setObj(mor("VirtualMachine", "vm-42"));
+        object.setPropSet(properties);
+        RetrieveResult result = new RetrieveResult();
+        result.setObjects(new ObjectContent[]{object});
+        return result;
+    }
+
+    private static DynamicProperty property(String name, Object value) {
+        DynamicProperty property = new DynamicProperty();
+        property.setName(name);
+        property.setVal(value);
+        return property;
+    }
+}
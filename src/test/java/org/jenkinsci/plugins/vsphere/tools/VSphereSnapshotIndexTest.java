@@ -0,0 +1,108 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import com.vmware.vim25.VirtualMachineSnapshotInfo;
+import com.vmware.vim25.VirtualMachineSnapshotTree;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSameInstance.sameInstance;
+import static org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.mor;
+
+/**
+ * Unit tests for {@link VSphereSnapshotIndex}. No live vSphere connection is required.
+ */
+class VSphereSnapshotIndexTest {
+
+    @AfterEach
+    void clearEnabled() {
+        System.clearProperty(VSphereSnapshotIndex.ENABLED_PROPERTY);
+    }
+
+    @Test
+    void index_is_shared_per_vcenter_and_user() {
+        VSphereSnapshotIndex index = VSphereSnapshotIndex.forVCenter("https://snapshot-host/sdk", "user");
+        assertThat(VSphereSnapshotIndex.forVCenter("https://snapshot-host/sdk", "user"), sameInstance(index));
+        assertThat(VSphereSnapshotIndex.forVCenter("https://snapshot-host/sdk", "other") == index, is(false));
+    }
+
+    @Test
+    void snapshots_are_found_by_name_with_their_depth() {
+        // base -> (golden -> patched), (experiment -> golden)
+        VirtualMachineSnapshotInfo info = info("snapshot-3",
+                node("base", "snapshot-1",
+                        node("golden", "snapshot-2", node("patched", "snapshot-3")),
+                        node("experiment", "snapshot-4", node("golden", "snapshot-5"))));
+        VSphereSnapshotIndex.Snapshots snapshots = VSphereSnapshotIndex.Snapshots.of("5/snapshot-3", info);
+
+        assertThat(snapshots.get("patched").getVal(), is("snapshot-3"));
+        assertThat("first one depth first, as before", snapshots.get("golden").getVal(), is("snapshot-2"));
+        assertThat(snapshots.get("missing"), nullValue());
+        assertThat(snapshots.getDepth("base"), is(1));
+        assertThat(snapshots.getDepth("golden"), is(2));
+        assertThat(snapshots.getDepth("missing"), is(0));
+        assertThat(snapshots.getCurrent().getVal(), is("snapshot-3"));
+        assertThat(snapshots.getCurrentDepth(), is(3));
+    }
+
+    @Test
+    void vm_without_snapshots_has_none() {
+        VSphereSnapshotIndex.Snapshots snapshots = VSphereSnapshotIndex.Snapshots.of("5/", null);
+        assertThat(snapshots.get("base"), nullValue());
+        assertThat(snapshots.getCurrent(), nullValue());
+        assertThat(snapshots.getCurrentDepth(), is(0));
+    }
+
+    @Test
+    void snapshots_read_without_a_version_are_not_indexed() {
+        VSphereSnapshotIndex index = new VSphereSnapshotIndex("test");
+        index.put("vm-42", VSphereSnapshotIndex.Snapshots.of(null, info("snapshot-1", node("base", "snapshot-1"))));
+        assertThat(index.size(), is(0));
+    }
+
+    @Test
+    void snapshots_are_reused_until_the_version_moves_on() {
+        VSphereSnapshotIndex index = new VSphereSnapshotIndex("test");
+        VSphereSnapshotIndex.Snapshots snapshots = VSphereSnapshotIndex.Snapshots.of("5/snapshot-1",
+                info("snapshot-1", node("base", "snapshot-1")));
+        assertThat(index.get("vm-42", "5/snapshot-1"), nullValue());
+        index.put("vm-42", snapshots);
+
+        assertThat(index.get("vm-42", "5/snapshot-1"), sameInstance(snapshots));
+        assertThat("reverted or snapshotted since", index.get("vm-42", "6/snapshot-2"), nullValue());
+        assertThat("dropped once stale", index.size(), is(0));
+        assertThat(index.getHits(), is(1L));
+        assertThat(index.getMisses(), is(1L));
+        assertThat(index.getStaleHits(), is(1L));
+
+        index.put("vm-42", snapshots);
+        index.invalidate("vm-42");
+        assertThat(index.size(), is(0));
+    }
+
+    @Test
+    void index_can_be_turned_off() {
+        System.setProperty(VSphereSnapshotIndex.ENABLED_PROPERTY, "false");
+        VSphereSnapshotIndex index = new VSphereSnapshotIndex("test");
+        index.put("vm-42", VSphereSnapshotIndex.Snapshots.of("5/", null));
+        assertThat(index.get("vm-42", "5/"), nullValue());
+    }
+
+    private static VirtualMachineSnapshotInfo info(String current, VirtualMachineSnapshotTree... roots) {
+        VirtualMachineSnapshotInfo info = new VirtualMachineSnapshotInfo();
+        info.setCurrentSnapshot(mor("VirtualMachineSnapshot", current));
+        info.setRootSnapshotList(roots);
+        return info;
+    }
+
+    private static VirtualMachineSnapshotTree node(String name, String id, VirtualMachineSnapshotTree... children) {
+        VirtualMachineSnapshotTree node = new VirtualMachineSnapshotTree();
+        node.setName(name);
+        node.setSnapshot(mor("VirtualMachineSnapshot", id));
+        node.setChildSnapshotList(children.length == 0 ? null : children);
+        return node;
+    }
+}
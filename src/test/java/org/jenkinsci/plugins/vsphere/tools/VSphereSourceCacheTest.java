@@ -0,0 +1,88 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSameInstance.sameInstance;
+import static org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.mor;
+
+/**
+ * Unit tests for {@link VSphereSourceCache}. No live vSphere connection is required.
+ */
+class VSphereSourceCacheTest {
+
+    @AfterEach
+    void clearEnabled() {
+        System.clearProperty(VSphereSourceCache.ENABLED_PROPERTY);
+    }
+
+    @Test
+    void cache_is_shared_per_vcenter_and_user() {
+        VSphereSourceCache cache = VSphereSourceCache.forVCenter("https://source-host/sdk", "user");
+        assertThat(VSphereSourceCache.forVCenter("https://source-host/sdk", "user"), sameInstance(cache));
+        assertThat(VSphereSourceCache.forVCenter("https://source-host/sdk", "other") == cache, is(false));
+    }
+
+    @Test
+    void sources_are_remembered_per_scope() {
+        VSphereSourceCache cache = new VSphereSourceCache("test");
+        VSphereSourceCache.Source source = source("5", "snapshot-7");
+        cache.put("", "master", source);
+
+        assertThat(cache.get("", "master"), sameInstance(source));
+        assertThat(cache.get("DC1", "master"), nullValue());
+        assertThat(cache.getHits(), is(1L));
+        assertThat(cache.getMisses(), is(1L));
+    }
+
+    @Test
+    void source_is_only_current_while_its_folder_config_and_current_snapshot_are_unchanged() {
+        VSphereSourceCache.Source source = source("5", "snapshot-7");
+
+        assertThat(source.isCurrent(mor("Folder", "group-v3"), "5", mor("VirtualMachineSnapshot", "snapshot-7")), is(true));
+        assertThat("reconfigured", source.isCurrent(mor("Folder", "group-v3"), "6", mor("VirtualMachineSnapshot", "snapshot-7")), is(false));
+        assertThat("snapshotted", source.isCurrent(mor("Folder", "group-v3"), "5", mor("VirtualMachineSnapshot", "snapshot-8")), is(false));
+        assertThat("snapshots removed", source.isCurrent(mor("Folder", "group-v3"), "5", null), is(false));
+        assertThat("moved", source.isCurrent(mor("Folder", "group-v4"), "5", mor("VirtualMachineSnapshot", "snapshot-7")), is(false));
+        assertThat("gone", source.isCurrent(null, null, null), is(false));
+    }
+
+    @Test
+    void stale_entries_are_dropped() {
+        VSphereSourceCache cache = new VSphereSourceCache("test");
+        VSphereSourceCache.Source source = source("5", null);
+        cache.put("", "master", source);
+        assertThat(cache.get("", "master"), sameInstance(source));
+
+        cache.invalidate("", "master");
+        assertThat(cache.get("", "master"), nullValue());
+        assertThat(cache.getStaleHits(), is(1L));
+    }
+
+    @Test
+    void deleted_or_renamed_sources_are_dropped_from_every_scope() {
+        VSphereSourceCache cache = new VSphereSourceCache("test");
+        cache.put("", "master", source("5", null));
+        cache.put("DC1", "master", source("5", null));
+        cache.put("", "other", source("2", null));
+
+        cache.invalidateName("master");
+        assertThat(cache.size(), is(1));
+    }
+
+    @Test
+    void cache_can_be_turned_off() {
+        System.setProperty(VSphereSourceCache.ENABLED_PROPERTY, "false");
+        VSphereSourceCache cache = new VSphereSourceCache("test");
+        cache.put("", "master", source("5", null));
+        assertThat(cache.get("", "master"), nullValue());
+    }
+
+    private static VSphereSourceCache.Source source(String changeVersion, String currentSnapshot) {
+        return new VSphereSourceCache.Source(mor("VirtualMachine", "vm-42"), mor("Folder", "group-v3"), changeVersion,
+                currentSnapshot == null ? null : mor("VirtualMachineSnapshot", currentSnapshot), true);
+    }
+}
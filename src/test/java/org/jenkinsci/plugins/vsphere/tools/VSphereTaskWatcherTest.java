@@ -0,0 +1,123 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import com.vmware.vim25.ObjectUpdateKind;
+import com.vmware.vim25.TaskInfoState;
+import com.vmware.vim25.UpdateSet;
+import com.vmware.vim25.mo.Task;
+import org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.FakePropertyCollector;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.change;
+import static org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.mor;
+import static org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.objectUpdate;
+import static org.jenkinsci.plugins.vsphere.tools.VSphereTestObjects.updateSet;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit tests for {@link VSphereTaskWatcher}. No live vSphere connection is required.
+ */
+class VSphereTaskWatcherTest {
+
+    private final VSphereTaskWatcher watcher = new VSphereTaskWatcher("https://task-host/sdk", null);
+    private final FakePropertyCollector collector = new FakePropertyCollector();
+    private final AtomicInteger polled = new AtomicInteger();
+
+    @Test
+    void watcher_that_is_not_logged_in_does_not_watch() throws Exception {
+        assertThat(watcher.isWatching(), is(false));
+        assertThat("callers poll instead", watcher.watch(mor("Task", "task-1")), nullValue());
+        assertThat(watcher.toString(), is("task watcher of https://task-host/sdk (not watching, 0 finished)"));
+        assertThat(VSphereTaskWatcher.waitForTask(watcher, mor("Task", "task-1"), this::poll), is(Task.SUCCESS));
+        assertThat(polled.get(), is(1));
+    }
+
+    @Test
+    void updates_for_tasks_nobody_waits_for_are_ignored() {
+        watcher.apply(updateSet(
+                objectUpdate(ObjectUpdateKind.modify, mor("Task", "task-1"), change(VSphereTaskWatcher.STATE, TaskInfoState.success)),
+                objectUpdate(ObjectUpdateKind.leave, mor("Task", "task-2"))));
+        watcher.apply(new UpdateSet());
+        assertThat(watcher.size(), is(0));
+        assertThat(watcher.getFinishedCount(), is(0L));
+    }
+
+    @Test
+    void watch_is_completed_once_its_task_has_finished() throws Exception {
+        final Thread following = follow();
+        final CompletableFuture<String> finished = VSphereTaskWatcher.whenFinished(watcher, mor("Task", "task-1"), this::poll);
+        final int polls = collector.polls.get();
+        await(() -> collector.polls.get() > polls + 2);
+        assertThat("long-polls that time out leave it waiting", finished.isDone(), is(false));
+
+        collector.reply(updateSet(objectUpdate(ObjectUpdateKind.modify, mor("Task", "task-1"),
+                change(VSphereTaskWatcher.STATE, TaskInfoState.success))));
+        assertThat(finished.get(10, TimeUnit.SECONDS), is(Task.SUCCESS));
+        assertThat(watcher.getFinishedCount(), is(1L));
+        assertThat(watcher.size(), is(0));
+
+        collector.reply(new IllegalStateException("session lost"));
+        following.join(TimeUnit.SECONDS.toMillis(10));
+        assertThat("never polled", polled.get(), is(0));
+        assertThat(collector.destroyedFilters.get(), is(1));
+        assertThat(collector.destroyed, is(true));
+    }
+
+    @Test
+    void tasks_are_polled_instead_once_the_watcher_loses_its_session() throws Exception {
+        final Thread following = follow();
+        final CompletableFuture<String> finished = VSphereTaskWatcher.whenFinished(watcher, mor("Task", "task-1"), this::poll);
+        final FutureTask<String> waiting = new FutureTask<>(
+                () -> VSphereTaskWatcher.waitForTask(watcher, mor("Task", "task-2"), this::poll));
+        new Thread(waiting, "waiting for task-2").start();
+        await(() -> watcher.size() == 2);
+
+        collector.reply(new IllegalStateException("session lost"));
+        assertThat(finished.get(10, TimeUnit.SECONDS), is(Task.SUCCESS));
+        assertThat(waiting.get(10, TimeUnit.SECONDS), is(Task.SUCCESS));
+        assertThat(polled.get(), is(2));
+
+        following.join(TimeUnit.SECONDS.toMillis(10));
+        assertThat(watcher.isWatching(), is(false));
+        assertThat(watcher.size(), is(0));
+        assertThat(collector.destroyed, is(true));
+        assertThat("callers poll from now on", watcher.watch(mor("Task", "task-3")), nullValue());
+    }
+
+    // Follows tasks through the fake collector on a thread of its own, until the collector fails.
+    private Thread follow() throws InterruptedException {
+        final Thread following = new Thread(() -> {
+            try {
+                watcher.follow(collector);
+            } catch (Exception e) {
+                // the session was lost, as the test had it
+            }
+        }, "following tasks");
+        following.start();
+        await(watcher::isWatching);
+        return following;
+    }
+
+    private String poll() {
+        polled.incrementAndGet();
+        return Task.SUCCESS;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline >= 0) {
+                fail("timed out");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.ObjectUpdate;
+import com.vmware.vim25.ObjectUpdateKind;
+import com.vmware.vim25.PropertyChange;
+import com.vmware.vim25.PropertyChangeOp;
+import com.vmware.vim25.PropertyFilterSpec;
+import com.vmware.vim25.PropertyFilterUpdate;
+import com.vmware.vim25.UpdateSet;
+import com.vmware.vim25.WaitOptions;
+import com.vmware.vim25.mo.PropertyCollector;
+import com.vmware.vim25.mo.PropertyFilter;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The vSphere API objects the unit tests of this package are made of: references, property
+ * changes and change sets as the vCenter would send them, and a {@link FakePropertyCollector}
+ * to send them from.
+ */
+final class VSphereTestObjects {
+
+    private VSphereTestObjects() {
+    }
+
+    static ManagedObjectReference mor(String type, String value) {
+        ManagedObjectReference mor = new ManagedObjectReference();
+        mor.setType(type);
+        mor.setVal(value);
+        return mor;
+    }
+
+    static PropertyChange change(String name, Object value) {
+        PropertyChange change = new PropertyChange();
+        change.setName(name);
+        change.setOp(PropertyChangeOp.assign);
+        change.setVal(value);
+        return change;
+    }
+
+    static PropertyChange removal(String name) {
+        PropertyChange change = new PropertyChange();
+        change.setName(name);
+        change.setOp(PropertyChangeOp.remove);
+        return change;
+    }
+
+    static ObjectUpdate objectUpdate(ObjectUpdateKind kind, ManagedObjectReference mor, PropertyChange... changes) {
+        ObjectUpdate objectUpdate = new ObjectUpdate();
+        objectUpdate.setKind(kind);
+        objectUpdate.setObj(mor);
+        objectUpdate.setChangeSet(changes);
+        return objectUpdate;
+    }
+
+    /** @return a change set of the given object updates, as one filter's. */
+    static UpdateSet updateSet(ObjectUpdate... objectUpdates) {
+        PropertyFilterUpdate filterUpdate = new PropertyFilterUpdate();
+        filterUpdate.setObjectSet(objectUpdates);
+        UpdateSet updateSet = new UpdateSet();
+        updateSet.setVersion("1");
+        updateSet.setFilterSet(new PropertyFilterUpdate[]{filterUpdate});
+        return updateSet;
+    }
+
+    /** @return a change set of the given changes to a single object. */
+    static UpdateSet updateSet(PropertyChange... changes) {
+        return updateSet(objectUpdate(ObjectUpdateKind.modify, mor("VirtualMachine", "vm-42"), changes));
+    }
+
+    /**
+     * A property collector that answers each {@code WaitForUpdatesEx} with the next reply
+     * queued by the test, or with "nothing changed" if none is queued within a short while.
+     * Every collector created from it is itself.
+     */
+    static final class FakePropertyCollector extends PropertyCollector {
+        /** How long a long-poll waits for a reply to be queued. */
+        private static final long REPLY_WAIT_MILLIS = 20;
+
+        private final BlockingQueue<Object> replies = new LinkedBlockingQueue<>();
+        final List<PropertyFilterSpec> filters = new CopyOnWriteArrayList<>();
+        final AtomicInteger polls = new AtomicInteger();
+        final AtomicInteger destroyedFilters = new AtomicInteger();
+        volatile boolean destroyed;
+
+        FakePropertyCollector() {
+            super(null, mor("PropertyCollector", "propertyCollector"));
+        }
+
+        /** Queues what a coming long-poll returns: an {@link UpdateSet}, or a {@link RuntimeException} it throws. */
+        FakePropertyCollector reply(Object reply) {
+            replies.add(reply);
+            return this;
+        }
+
+        @Override
+        public PropertyCollector createPropertyCollector() {
+            return this;
+        }
+
+        @Override
+        public PropertyFilter createFilter(PropertyFilterSpec spec, boolean partialUpdates) {
+            filters.add(spec);
+            return new PropertyFilter(null, mor("PropertyFilter", "filter-" + filters.size())) {
+                @Override
+                public void destroyPropertyFilter() {
+                    destroyedFilters.incrementAndGet();
+                }
+            };
+        }
+
+        @Override
+        public UpdateSet waitForUpdatesEx(String version, WaitOptions options) {
+            polls.incrementAndGet();
+            final Object reply;
+            try {
+                reply = replies.poll(REPLY_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // as a SOAP call would, leave it to the caller
+                return null;
+            }
+            if (reply instanceof RuntimeException) {
+                throw (RuntimeException) reply;
+            }
+            return (UpdateSet) reply;
+        }
+
+        @Override
+        public void cancelWaitForUpdates() {
+        }
+
+        @Override
+        public void destroyPropertyCollector() {
+            destroyed = true;
+        }
+    }
+}
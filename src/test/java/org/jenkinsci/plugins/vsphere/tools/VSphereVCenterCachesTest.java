@@ -0,0 +1,68 @@
+package org.jenkinsci.plugins.vsphere.tools;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSameInstance.sameInstance;
+
+/**
+ * Unit tests for {@link VSphereVCenterCaches}. No live vSphere connection is required.
+ */
+class VSphereVCenterCachesTest {
+
+    @AfterEach
+    void clearRetainSecs() {
+        System.clearProperty(VSphereVCenterCaches.RETAIN_SECS_PROPERTY);
+    }
+
+    @Test
+    void every_cache_of_a_vcenter_comes_from_the_same_holder() {
+        VSphereVCenterCaches caches = VSphereVCenterCaches.forVCenter("https://caches-host/sdk", "user");
+        assertThat(VSphereInventoryIndex.forVCenter("https://caches-host/sdk", "user"), sameInstance(caches.inventoryIndex));
+        assertThat(VSphereSourceCache.forVCenter("https://caches-host/sdk", "user"), sameInstance(caches.sourceCache));
+        assertThat(VSphereCustomizationSpecCache.forVCenter("https://caches-host/sdk", "user"), sameInstance(caches.customizationSpecCache));
+        assertThat(VSphereNetworkIndex.forVCenter("https://caches-host/sdk", "user"), sameInstance(caches.networkIndex));
+        assertThat(VSphereSnapshotIndex.forVCenter("https://caches-host/sdk", "user"), sameInstance(caches.snapshotIndex));
+    }
+
+    @Test
+    void caches_are_kept_while_held_and_dropped_once_nothing_holds_them() {
+        VSphereVCenterCaches caches = VSphereVCenterCaches.acquire("https://held-host/sdk", "user");
+        VSphereVCenterCaches.acquire("https://held-host/sdk", "user");
+
+        caches.release();
+        caches.dropIfUnheld();
+        assertThat("still held by the other connection",
+                VSphereVCenterCaches.forVCenter("https://held-host/sdk", "user"), sameInstance(caches));
+
+        caches.release();
+        assertThat("kept for a while in case another connection comes along",
+                VSphereVCenterCaches.forVCenter("https://held-host/sdk", "user"), sameInstance(caches));
+        caches.dropIfUnheld();
+        assertThat(VSphereVCenterCaches.forVCenter("https://held-host/sdk", "user") == caches, is(false));
+    }
+
+    @Test
+    void caches_taken_up_again_are_not_dropped() {
+        VSphereVCenterCaches caches = VSphereVCenterCaches.acquire("https://reused-host/sdk", "user");
+        caches.release();
+        assertThat(VSphereVCenterCaches.acquire("https://reused-host/sdk", "user"), sameInstance(caches));
+
+        caches.dropIfUnheld();
+        assertThat(VSphereVCenterCaches.forVCenter("https://reused-host/sdk", "user"), sameInstance(caches));
+        caches.release();
+    }
+
+    @Test
+    void caches_are_dropped_straight_away_when_not_to_be_retained() {
+        System.setProperty(VSphereVCenterCaches.RETAIN_SECS_PROPERTY, "0");
+        VSphereVCenterCaches caches = VSphereVCenterCaches.acquire("https://unretained-host/sdk", "user");
+        final int count = VSphereVCenterCaches.getCount();
+
+        caches.release();
+        assertThat(VSphereVCenterCaches.getCount(), is(count - 1));
+        assertThat(VSphereVCenterCaches.forVCenter("https://unretained-host/sdk", "user") == caches, is(false));
+    }
+}